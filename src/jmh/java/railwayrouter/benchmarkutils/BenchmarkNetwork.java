@@ -0,0 +1,115 @@
+package railwayrouter.benchmarkutils;
+
+import static railwayrouter.utils.DataProcessor.generateAdjList;
+import static railwayrouter.utils.DataProcessor.generateLineCodeToStationsMap;
+import static railwayrouter.utils.DataProcessor.generateNameToStationsMap;
+
+import com.opencsv.exceptions.CsvValidationException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+import railwayrouter.services.NetworkSnapshotCache;
+import railwayrouter.services.RouteFinder;
+
+/**
+ * Network measured by a benchmark. {@code network} is either {@code stationmap:YEAR}, the real
+ * station map as open in the first week of January of YEAR, or {@code grid:N}, a {@code
+ * SyntheticNetwork} with N lines per direction.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkNetwork {
+  private static final String STATION_MAP_PREFIX = "stationmap:";
+  private static final String GRID_PREFIX = "grid:";
+  private static final int GRID_YEAR = 2021;
+
+  @Param({"stationmap:2021", "stationmap:1995", "grid:20", "grid:50"})
+  public String network;
+
+  public NetworkSnapshot snapshot;
+  public LocalDate date; // every query of the benchmark departs on this date
+  public Map<TimeOfDay, Map<String, Integer>> frequencyMap; // null for the station map
+  public NetworkSnapshotCache networkSnapshotCache;
+
+  @Setup(Level.Trial)
+  public void setUp() throws CsvValidationException {
+    if (network.startsWith(STATION_MAP_PREFIX)) {
+      date = getFirstMonday(Integer.parseInt(network.substring(STATION_MAP_PREFIX.length())));
+      networkSnapshotCache = new NetworkSnapshotCache();
+      snapshot = networkSnapshotCache.getSnapshot(date.atStartOfDay());
+    } else if (network.startsWith(GRID_PREFIX)) {
+      int linesPerDirection = Integer.parseInt(network.substring(GRID_PREFIX.length()));
+      date = getFirstMonday(GRID_YEAR);
+      snapshot = buildSnapshot(SyntheticNetwork.generateStations(linesPerDirection));
+      frequencyMap = SyntheticNetwork.generateFrequencyMap(linesPerDirection);
+      NetworkSnapshot gridSnapshot = snapshot;
+      networkSnapshotCache =
+          new NetworkSnapshotCache() {
+            @Override
+            public NetworkSnapshot getSnapshot(LocalDateTime startDateTime) {
+              return gridSnapshot;
+            }
+          };
+    } else {
+      throw new IllegalArgumentException(String.format("Unknown network %s", network));
+    }
+  }
+
+  /**
+   * Sets the frequencies of this network on {@code routeFinder}.
+   *
+   * @param routeFinder
+   * @return {@code routeFinder}
+   */
+  public RouteFinder configure(RouteFinder routeFinder) {
+    if (frequencyMap != null) {
+      routeFinder.setFrequencyMap(frequencyMap);
+    }
+    return routeFinder;
+  }
+
+  /**
+   * Returns a date time on the date of this network, during {@code regime}.
+   *
+   * @param regime
+   * @return start date time of the queries
+   */
+  public LocalDateTime getStartDateTime(TimeOfDay regime) {
+    switch (regime) {
+      case PEAK:
+        return date.atTime(LocalTime.of(7, 30));
+      case NIGHT:
+        return date.atTime(LocalTime.of(22, 30));
+      default:
+        return date.atTime(LocalTime.of(11, 0));
+    }
+  }
+
+  /**
+   * Builds a snapshot of {@code stations} the same way {@code NetworkSnapshotCache} does.
+   *
+   * @param stations stations indexed by id
+   * @return snapshot of {@code stations}
+   */
+  public static NetworkSnapshot buildSnapshot(List<Station> stations) {
+    Map<String, List<Station>> lineCodeToStationsMap = generateLineCodeToStationsMap(stations);
+    Map<String, List<Station>> nameToStationsMap = generateNameToStationsMap(stations);
+    List<List<Station>> adjList = generateAdjList(nameToStationsMap, lineCodeToStationsMap);
+    return new NetworkSnapshot(0, stations, lineCodeToStationsMap, nameToStationsMap, adjList);
+  }
+
+  private static LocalDate getFirstMonday(int year) {
+    return LocalDate.of(year, 1, 1).with(TemporalAdjusters.firstInMonth(DayOfWeek.MONDAY));
+  }
+}
@@ -0,0 +1,106 @@
+package railwayrouter.benchmarkutils;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+/**
+ * Queries on a {@code BenchmarkNetwork}, all departing during {@code regime}. Queries are drawn
+ * with a fixed seed, so every run measures the same queries, and each benchmark invocation runs the
+ * next one in turn.
+ */
+@State(Scope.Thread)
+public class BenchmarkQueries {
+  public static final int NUM_QUERIES = 1024;
+  private static final long SEED = 42;
+
+  @Param({"PEAK", "NONPEAK", "NIGHT"})
+  public TimeOfDay regime;
+
+  @Param({"RANDOM", "INTERCHANGE", "SAME_LINE"})
+  public QueryMix queryMix;
+
+  public LocalDateTime startDateTime;
+  public String startDateTimeStr;
+  public String[] srcNames;
+  public String[] destNames;
+  public List<List<Station>> srcStations;
+  public List<List<Station>> destStations;
+
+  private int cursor;
+
+  /** Mix of source and destination stations of the queries */
+  public enum QueryMix {
+    /** any two station names */
+    RANDOM,
+    /** two station names served by more than one line, i.e. several platforms each */
+    INTERCHANGE,
+    /** two stations on the same line */
+    SAME_LINE
+  }
+
+  @Setup(Level.Trial)
+  public void setUp(BenchmarkNetwork network) {
+    startDateTime = network.getStartDateTime(regime);
+    startDateTimeStr = startDateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm"));
+
+    Random random = new Random(SEED);
+    Map<String, List<Station>> nameToStationsMap = network.snapshot.getNameToStationsMap();
+    List<String> names = new ArrayList<>(nameToStationsMap.keySet());
+    List<String> interchangeNames = new ArrayList<>();
+    for (String name : names) {
+      if (nameToStationsMap.get(name).size() > 1) {
+        interchangeNames.add(name);
+      }
+    }
+    if (interchangeNames.isEmpty()) {
+      interchangeNames = names; // early networks have no interchange
+    }
+    List<List<Station>> lines =
+        new ArrayList<>(network.snapshot.getLineCodeToStationsMap().values());
+
+    srcNames = new String[NUM_QUERIES];
+    destNames = new String[NUM_QUERIES];
+    srcStations = new ArrayList<>();
+    destStations = new ArrayList<>();
+    for (int i = 0; i < NUM_QUERIES; i++) {
+      switch (queryMix) {
+        case INTERCHANGE:
+          srcNames[i] = interchangeNames.get(random.nextInt(interchangeNames.size()));
+          destNames[i] = interchangeNames.get(random.nextInt(interchangeNames.size()));
+          break;
+        case SAME_LINE:
+          List<Station> line = lines.get(random.nextInt(lines.size()));
+          srcNames[i] = line.get(random.nextInt(line.size())).getName();
+          destNames[i] = line.get(random.nextInt(line.size())).getName();
+          break;
+        default:
+          srcNames[i] = names.get(random.nextInt(names.size()));
+          destNames[i] = names.get(random.nextInt(names.size()));
+      }
+      srcStations.add(nameToStationsMap.get(srcNames[i]));
+      destStations.add(nameToStationsMap.get(destNames[i]));
+    }
+  }
+
+  /**
+   * Returns the index of the next query, cycling through all queries.
+   *
+   * @return index into the query arrays
+   */
+  public int next() {
+    int query = cursor;
+    cursor = (cursor + 1) % NUM_QUERIES;
+    return query;
+  }
+}
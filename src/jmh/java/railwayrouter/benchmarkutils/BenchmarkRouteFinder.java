@@ -0,0 +1,29 @@
+package railwayrouter.benchmarkutils;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import railwayrouter.models.SearchEngine;
+import railwayrouter.services.RouteFinder;
+
+/**
+ * Route finder using the frequencies of a {@code BenchmarkNetwork}, {@code engine}, and travel time
+ * tables if {@code travelTimeTables}
+ */
+@State(Scope.Benchmark)
+public class BenchmarkRouteFinder {
+  @Param({"DIJKSTRA", "DIAL", "ALT", "CH"})
+  public SearchEngine engine;
+
+  @Param({"false", "true"})
+  public boolean travelTimeTables;
+
+  public RouteFinder routeFinder;
+
+  @Setup(Level.Trial)
+  public void setUp(BenchmarkNetwork network) {
+    routeFinder = network.configure(new RouteFinder(engine, travelTimeTables));
+  }
+}
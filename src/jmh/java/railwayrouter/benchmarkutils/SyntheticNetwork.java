@@ -0,0 +1,78 @@
+package railwayrouter.benchmarkutils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import railwayrouter.models.Constants;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+/**
+ * Generates a grid shaped network of any size, to measure how the routing pipeline scales beyond
+ * the real station map. There are {@code linesPerDirection} horizontal and vertical lines. Every
+ * horizontal line crosses every vertical line at an interchange, and consecutive interchanges on a
+ * line are {@code STOPS_BETWEEN_INTERCHANGES} stops apart, e.g. 20 lines per direction gives 3080
+ * stations.
+ */
+public class SyntheticNetwork {
+  public static final int STOPS_BETWEEN_INTERCHANGES = 4;
+  public static final LocalDateTime OPENING_DATE = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+  /**
+   * Generates the stations of the grid, numbered line by line.
+   *
+   * @param linesPerDirection between 1 and 338, so that every line has a two letter line code
+   * @return stations of the grid, indexed by id
+   */
+  public static List<Station> generateStations(int linesPerDirection) {
+    int stopsPerLine = (linesPerDirection - 1) * STOPS_BETWEEN_INTERCHANGES + 1;
+    List<Station> stations = new ArrayList<>();
+    for (int line = 0; line < 2 * linesPerDirection; line++) {
+      boolean horizontal = line < linesPerDirection;
+      int lineIdx = line % linesPerDirection;
+      for (int stop = 0; stop < stopsPerLine; stop++) {
+        String name;
+        if (stop % STOPS_BETWEEN_INTERCHANGES == 0) {
+          int crossingLineIdx = stop / STOPS_BETWEEN_INTERCHANGES;
+          name =
+              horizontal
+                  ? String.format("Interchange %d-%d", lineIdx, crossingLineIdx)
+                  : String.format("Interchange %d-%d", crossingLineIdx, lineIdx);
+        } else {
+          name = String.format("Stop %s%d", getLineCode(line), stop + 1);
+        }
+        stations.add(
+            new Station(stations.size(), getLineCode(line) + (stop + 1), name, OPENING_DATE));
+      }
+    }
+    return stations;
+  }
+
+  /**
+   * Generates frequencies for every line of the grid. Lines take between 8 and 15 minutes per stop,
+   * and every third line is not operating at night.
+   *
+   * @param linesPerDirection
+   * @return frequency map covering every line of the grid
+   */
+  public static Map<TimeOfDay, Map<String, Integer>> generateFrequencyMap(int linesPerDirection) {
+    Map<TimeOfDay, Map<String, Integer>> frequencyMap = new EnumMap<>(TimeOfDay.class);
+    for (TimeOfDay timeOfDay : TimeOfDay.values()) {
+      Map<String, Integer> frequency = new HashMap<>();
+      for (int line = 0; line < 2 * linesPerDirection; line++) {
+        boolean closed = timeOfDay == TimeOfDay.NIGHT && line % 3 == 0;
+        frequency.put(getLineCode(line), closed ? Integer.MAX_VALUE : 8 + line % 8);
+      }
+      frequency.put(Constants.getLineChangeFieldName(), timeOfDay == TimeOfDay.PEAK ? 15 : 10);
+      frequencyMap.put(timeOfDay, frequency);
+    }
+    return frequencyMap;
+  }
+
+  private static String getLineCode(int line) {
+    return "" + (char) ('A' + line / 26) + (char) ('A' + line % 26);
+  }
+}
@@ -0,0 +1,55 @@
+package railwayrouter.services;
+
+import com.opencsv.exceptions.CsvValidationException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import railwayrouter.benchmarkutils.BenchmarkNetwork;
+import railwayrouter.benchmarkutils.BenchmarkQueries;
+import railwayrouter.benchmarkutils.BenchmarkRouteFinder;
+
+/**
+ * Measures a full query per invocation, from the query strings to the response string, including
+ * the snapshot lookup, station name lookup, route search and response building.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryHandlerBenchmark {
+
+  /** Query handler on the network of the benchmark, with a route cache of {@code cacheSize} */
+  @State(Scope.Benchmark)
+  public static class BenchmarkQueryHandler {
+    @Param({"0", "10000"})
+    public long cacheSize;
+
+    QueryHandler queryHandler;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkNetwork network, BenchmarkRouteFinder finder) {
+      queryHandler =
+          new QueryHandler(
+              finder.routeFinder, network.networkSnapshotCache, new RouteCache(cacheSize));
+    }
+  }
+
+  @Benchmark
+  public String handleQuery(BenchmarkQueries queries, BenchmarkQueryHandler handler)
+      throws CsvValidationException {
+    int query = queries.next();
+    return handler.queryHandler.handleQuery(
+        queries.srcNames[query], queries.destNames[query], queries.startDateTimeStr);
+  }
+}
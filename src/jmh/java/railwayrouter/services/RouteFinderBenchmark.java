@@ -0,0 +1,95 @@
+package railwayrouter.services;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import railwayrouter.benchmarkutils.BenchmarkNetwork;
+import railwayrouter.benchmarkutils.BenchmarkQueries;
+import railwayrouter.benchmarkutils.BenchmarkRouteFinder;
+import railwayrouter.models.Route;
+import railwayrouter.models.Station;
+import railwayrouter.models.TravelTimeMatrix;
+
+/** Measures one route search per invocation, on the CSR graph and on the adjacency list */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteFinderBenchmark {
+
+  /** Route finder with the default engine, for the searches on the adjacency list */
+  @State(Scope.Benchmark)
+  public static class AdjListRouteFinder {
+    RouteFinder routeFinder;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkNetwork network) {
+      routeFinder = network.configure(new RouteFinder());
+    }
+  }
+
+  @Benchmark
+  public Optional<Route> findRoute(
+      BenchmarkNetwork network, BenchmarkQueries queries, BenchmarkRouteFinder finder) {
+    int query = queries.next();
+    return finder.routeFinder.findRoute(
+        queries.srcStations.get(query),
+        queries.destStations.get(query),
+        queries.startDateTime,
+        network.snapshot.getGraph());
+  }
+
+  @Benchmark
+  public List<Route> findParetoRoutes(
+      BenchmarkNetwork network, BenchmarkQueries queries, BenchmarkRouteFinder finder) {
+    int query = queries.next();
+    return finder.routeFinder.findParetoRoutes(
+        queries.srcStations.get(query),
+        queries.destStations.get(query),
+        queries.startDateTime,
+        network.snapshot.getGraph());
+  }
+
+  @Benchmark
+  public TravelTimeMatrix findTravelTimeMatrix(
+      BenchmarkNetwork network, BenchmarkQueries queries, BenchmarkRouteFinder finder) {
+    return finder.routeFinder.findTravelTimeMatrix(
+        queries.startDateTime, network.snapshot.getGraph(), network.snapshot.getNameIndex());
+  }
+
+  @Benchmark
+  public Optional<Route> findRouteAdjList(
+      BenchmarkNetwork network, BenchmarkQueries queries, AdjListRouteFinder finder) {
+    int query = queries.next();
+    return finder.routeFinder.findRoute(
+        queries.srcStations.get(query),
+        queries.destStations.get(query),
+        queries.startDateTime,
+        network.snapshot.getAdjList());
+  }
+
+  @Benchmark
+  public Route dijkstraAdjList(
+      BenchmarkNetwork network, BenchmarkQueries queries, AdjListRouteFinder finder) {
+    int query = queries.next();
+    List<Station> srcStations = queries.srcStations.get(query);
+    List<Station> destStations = queries.destStations.get(query);
+    return finder.routeFinder.dijkstra(
+        srcStations.get(0),
+        destStations.get(0),
+        queries.startDateTime,
+        network.snapshot.getAdjList());
+  }
+}
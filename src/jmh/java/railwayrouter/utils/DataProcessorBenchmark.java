@@ -0,0 +1,54 @@
+package railwayrouter.utils;
+
+import com.opencsv.exceptions.CsvValidationException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import railwayrouter.benchmarkutils.BenchmarkNetwork;
+import railwayrouter.models.Station;
+
+/** Measures parsing the station map, and building the adjacency list of a network */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataProcessorBenchmark {
+
+  /** Date time the station map is parsed at */
+  @State(Scope.Benchmark)
+  public static class OpeningDate {
+    @Param({"1995", "2021", "2040"})
+    public int year;
+
+    LocalDateTime startDateTime;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      startDateTime = LocalDateTime.of(year, 1, 1, 0, 0);
+    }
+  }
+
+  @Benchmark
+  public List<Station> getOpenStations(OpeningDate openingDate) throws CsvValidationException {
+    return DataProcessor.getOpenStations(openingDate.startDateTime);
+  }
+
+  @Benchmark
+  public List<List<Station>> generateAdjList(BenchmarkNetwork network) {
+    return DataProcessor.generateAdjList(
+        network.snapshot.getNameToStationsMap(), network.snapshot.getLineCodeToStationsMap());
+  }
+}
@@ -0,0 +1,101 @@
+package railwayrouter.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import railwayrouter.benchmarkutils.BenchmarkNetwork;
+import railwayrouter.benchmarkutils.BenchmarkQueries;
+import railwayrouter.models.Route;
+import railwayrouter.services.RouteFinder;
+
+/**
+ * Measures building the response of one route per invocation, as a new string, appended to a reused
+ * {@code StringBuilder}, or encoded into a reused {@code ByteBuffer} in each format
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBuilderBenchmark {
+
+  /** Routes found for the queries of the benchmark, skipping queries with no route */
+  @State(Scope.Thread)
+  public static class Routes {
+    List<Route> routes;
+    int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkNetwork network, BenchmarkQueries queries) {
+      RouteFinder routeFinder = network.configure(new RouteFinder());
+      routes = new ArrayList<>();
+      for (int i = 0; i < BenchmarkQueries.NUM_QUERIES; i++) {
+        Optional<Route> route =
+            routeFinder.findRoute(
+                queries.srcStations.get(i),
+                queries.destStations.get(i),
+                queries.startDateTime,
+                network.snapshot.getGraph());
+        route.ifPresent(routes::add);
+      }
+      if (routes.isEmpty()) {
+        throw new IllegalStateException("No route found for any query");
+      }
+    }
+
+    Route next() {
+      Route route = routes.get(cursor);
+      cursor = (cursor + 1) % routes.size();
+      return route;
+    }
+  }
+
+  /** Text output reused across invocations, as in a batch export */
+  @State(Scope.Thread)
+  public static class TextOutput {
+    final StringBuilder stringBuilder = new StringBuilder(1 << 16);
+  }
+
+  /** Byte output reused across invocations */
+  @State(Scope.Thread)
+  public static class EncodedOutput {
+    @Param({"TEXT", "JSON", "BINARY"})
+    ResponseEncoder.Format format;
+
+    final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+  }
+
+  @Benchmark
+  public String buildResponse(Routes routes) {
+    return ResponseBuilder.buildResponse(routes.next());
+  }
+
+  @Benchmark
+  public StringBuilder appendResponse(Routes routes, TextOutput output) throws IOException {
+    output.stringBuilder.setLength(0);
+    ResponseBuilder.appendResponse(routes.next(), output.stringBuilder);
+    return output.stringBuilder;
+  }
+
+  @Benchmark
+  public ByteBuffer encodeResponse(Routes routes, EncodedOutput output) {
+    output.buffer.clear();
+    ResponseEncoder.encode(routes.next(), output.format, output.buffer);
+    return output.buffer;
+  }
+}
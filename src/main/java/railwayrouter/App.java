@@ -1,10 +1,28 @@
 package railwayrouter;
 
+import com.opencsv.exceptions.CsvValidationException;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import railwayrouter.models.SearchEngine;
+import railwayrouter.services.BatchQueryHandler;
+import railwayrouter.services.NetworkSnapshotCache;
 import railwayrouter.services.QueryHandler;
+import railwayrouter.services.QueryServer;
+import railwayrouter.services.RouteCache;
 import railwayrouter.services.RouteFinder;
+import railwayrouter.utils.DataProcessor;
+import railwayrouter.utils.NetworkCompiler;
 
 /**
  * Based on user input of source, destination station and travel start date time, generate the
@@ -19,38 +37,247 @@ import railwayrouter.services.RouteFinder;
  * <p>The time of day (peak, non-peak, night hours) in the response refers to the start date time.
  * During the duration of travel, the time of day may change (e.g. peak to non-peak). The result
  * takes this into consideration.
+ *
+ * <p>With {@code --arrive-by true}, the date time entered is the latest arrival instead, and the
+ * route departing as late as possible to arrive by then is returned, with its departure and arrival
+ * date times.
+ *
+ * <p>With {@code --batch FILE}, queries are read from FILE (or stdin if FILE is -) instead, one
+ * query per line, and answered on {@code --threads} worker threads. See {@code BatchQueryHandler}
+ * for the format.
+ *
+ * <p>With {@code --server PORT}, queries are answered over HTTP until the application is stopped.
+ * See {@code QueryServer} for the API.
+ *
+ * <p>In batch and server modes, the latencies and outcomes of the queries can be read over JMX as
+ * the MBean {@code railwayrouter:type=QueryMetrics}. See {@code QueryMetrics}.
+ *
+ * <p>{@code compile-network FILE} compiles the station map into FILE and exits. With {@code
+ * --network FILE}, the network is read from FILE instead of parsing the station map, if FILE was
+ * compiled from the current station map. {@code --verify-network false} skips checking FILE for
+ * corruption, which reads it in full.
+ *
+ * <p>Options are given as pairs of an option and its value. An unknown option, or an option without
+ * a value, prints the usage and exits with status 2.
  */
 public class App {
 
   private final QueryHandler queryHandler;
   protected final String ERROR_MESSAGE = "Unable to process request. Terminating application now.";
+  protected static final String FREQUENCIES_OPTION = "--frequencies";
+  protected static final String ENGINE_OPTION = "--engine";
+  protected static final String BATCH_OPTION = "--batch";
+  protected static final String THREADS_OPTION = "--threads";
+  protected static final String SERVER_OPTION = "--server";
+  protected static final String CACHE_SIZE_OPTION = "--cache-size";
+  protected static final String TABLES_OPTION = "--tables";
+  protected static final String NETWORK_OPTION = "--network";
+  protected static final String VERIFY_NETWORK_OPTION = "--verify-network";
+  protected static final String HIERARCHIES_OPTION = "--hierarchies";
+  protected static final String ARRIVE_BY_OPTION = "--arrive-by";
+  protected static final String STDIN_PATH = "-";
+  protected static final String COMPILE_NETWORK_COMMAND = "compile-network";
+  protected static final List<String> OPTIONS =
+      List.of(
+          FREQUENCIES_OPTION,
+          ENGINE_OPTION,
+          BATCH_OPTION,
+          THREADS_OPTION,
+          SERVER_OPTION,
+          CACHE_SIZE_OPTION,
+          TABLES_OPTION,
+          NETWORK_OPTION,
+          VERIFY_NETWORK_OPTION,
+          HIERARCHIES_OPTION,
+          ARRIVE_BY_OPTION);
+  protected static final String USAGE =
+      String.format(
+          "Usage: java -jar railwayrouter-all.jar [OPTION VALUE]...\n"
+              + "       java -jar railwayrouter-all.jar %s FILE\n"
+              + "Options: %s",
+          COMPILE_NETWORK_COMMAND, String.join(", ", OPTIONS));
 
   public App(QueryHandler queryHandler) {
     this.queryHandler = queryHandler;
   }
 
-  public static void main(String[] args) throws IOException {
-    RouteFinder routeFinder = new RouteFinder();
-    QueryHandler queryHandler = new QueryHandler(routeFinder);
+  public static void main(String[] args) throws IOException, CsvValidationException {
+    if (args.length == 2 && args[0].equals(COMPILE_NETWORK_COMMAND)) {
+      compileNetwork(Paths.get(args[1]));
+      return;
+    }
+    try {
+      checkOptions(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+    SearchEngine searchEngine = SearchEngine.DIJKSTRA;
+    String frequenciesPath = null;
+    Path networkPath = null;
+    boolean verifyNetwork = true;
+    Path hierarchyDirectory = null;
+    String batchPath = null;
+    Integer serverPort = null;
+    int numThreads = 0; // 0 means chosen by the mode
+    long cacheSize = RouteCache.DEFAULT_MAXIMUM_SIZE;
+    boolean useTravelTimeTables = true;
+    boolean arriveBy = false;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals(FREQUENCIES_OPTION)) {
+        frequenciesPath = args[i + 1];
+      } else if (args[i].equals(ENGINE_OPTION)) {
+        searchEngine = SearchEngine.valueOf(args[i + 1].toUpperCase());
+      } else if (args[i].equals(BATCH_OPTION)) {
+        batchPath = args[i + 1];
+      } else if (args[i].equals(SERVER_OPTION)) {
+        serverPort = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals(CACHE_SIZE_OPTION)) {
+        cacheSize = Long.parseLong(args[i + 1]);
+      } else if (args[i].equals(TABLES_OPTION)) {
+        useTravelTimeTables = Boolean.parseBoolean(args[i + 1]);
+      } else if (args[i].equals(NETWORK_OPTION)) {
+        networkPath = Paths.get(args[i + 1]);
+      } else if (args[i].equals(VERIFY_NETWORK_OPTION)) {
+        verifyNetwork = Boolean.parseBoolean(args[i + 1]);
+      } else if (args[i].equals(HIERARCHIES_OPTION)) {
+        hierarchyDirectory = Paths.get(args[i + 1]);
+      } else if (args[i].equals(ARRIVE_BY_OPTION)) {
+        arriveBy = Boolean.parseBoolean(args[i + 1]);
+      } else if (args[i].equals(THREADS_OPTION)) {
+        numThreads = Integer.parseInt(args[i + 1]);
+      }
+    }
+    RouteFinder routeFinder =
+        new RouteFinder(searchEngine, useTravelTimeTables, hierarchyDirectory);
+    if (frequenciesPath != null) {
+      routeFinder.loadFrequencyMap(Paths.get(frequenciesPath));
+    }
+    QueryHandler queryHandler =
+        new QueryHandler(
+            routeFinder,
+            new NetworkSnapshotCache(networkPath, verifyNetwork),
+            new RouteCache(cacheSize));
     App app = new App(queryHandler);
-    app.run();
+    if (serverPort != null || batchPath != null) {
+      queryHandler.getMetrics().register();
+    }
+    if (serverPort != null) {
+      app.runServer(serverPort, numThreads);
+    } else if (batchPath != null) {
+      app.runBatch(
+          batchPath, numThreads > 0 ? numThreads : Runtime.getRuntime().availableProcessors());
+    } else {
+      app.run(arriveBy);
+    }
+  }
+
+  /**
+   * Checks that {@code args} are pairs of a known option and its value.
+   *
+   * @param args
+   * @throws IllegalArgumentException if an option is unknown, or the last option has no value
+   */
+  protected static void checkOptions(String[] args) {
+    for (int i = 0; i < args.length; i += 2) {
+      if (!OPTIONS.contains(args[i])) {
+        throw new IllegalArgumentException(String.format("Unknown option %s", args[i]));
+      }
+      if (i + 1 == args.length) {
+        throw new IllegalArgumentException(String.format("Missing value of option %s", args[i]));
+      }
+    }
+  }
+
+  /**
+   * Compiles every network snapshot of the station map into the file at {@code path}, to be read
+   * with {@code --network}.
+   *
+   * @param path
+   */
+  public static void compileNetwork(Path path) throws IOException, CsvValidationException {
+    NetworkCompiler.write(
+        NetworkSnapshotCache.buildNetworkEpochs(), DataProcessor.getStationMapChecksum(), path);
   }
 
   public void run() throws IOException {
+    run(false);
+  }
+
+  /**
+   * Reads one query from stdin and prints its response. If {@code arriveBy}, the date time read is
+   * the latest arrival, and the response is the route departing as late as possible.
+   *
+   * @param arriveBy
+   */
+  public void run(boolean arriveBy) throws IOException {
     BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
 
     System.out.print("Enter starting station: ");
     String source = reader.readLine();
     System.out.print("Enter destination station: ");
     String destination = reader.readLine();
-    System.out.print("Enter travel date time (YYYY-MM-DDTHH:mm e.g. 2021-01-28T07:00): ");
-    String startDateTimeStr = reader.readLine();
+    if (arriveBy) {
+      System.out.print("Enter arrival date time (YYYY-MM-DDTHH:mm e.g. 2021-01-28T09:00): ");
+    } else {
+      System.out.print("Enter travel date time (YYYY-MM-DDTHH:mm e.g. 2021-01-28T07:00): ");
+    }
+    String dateTimeStr = reader.readLine();
 
     try {
-      String response = queryHandler.handleQuery(source, destination, startDateTimeStr);
+      String response =
+          arriveBy
+              ? queryHandler.handleArriveByQuery(source, destination, dateTimeStr)
+              : queryHandler.handleQuery(source, destination, dateTimeStr);
       System.out.println(response);
     } catch (Exception e) {
       System.out.println(ERROR_MESSAGE);
     }
   }
+
+  /**
+   * Answers every query in the file at {@code path}, or stdin if {@code path} is -, and prints the
+   * responses in the same order.
+   *
+   * @param path
+   * @param numThreads
+   */
+  public void runBatch(String path, int numThreads) throws IOException {
+    BufferedReader reader =
+        path.equals(STDIN_PATH)
+            ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+            : Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    try (reader) {
+      new BatchQueryHandler(queryHandler, numThreads).handleQueries(reader, writer);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      System.out.println(ERROR_MESSAGE);
+    }
+  }
+
+  /**
+   * Answers queries over HTTP on {@code port} until the application is stopped.
+   *
+   * @param port
+   * @param numThreads number of threads handling requests, or 0 to choose automatically. See
+   *     {@link QueryServer#newExecutor(int)}
+   * @return the started server
+   */
+  public QueryServer runServer(int port, int numThreads)
+      throws IOException, CsvValidationException {
+    queryHandler.warmUp();
+    ExecutorService executor = QueryServer.newExecutor(numThreads);
+    QueryServer server = new QueryServer(queryHandler, new InetSocketAddress(port), executor);
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread(
+                () -> {
+                  server.stop(0);
+                  executor.shutdown();
+                }));
+    server.start();
+    return server;
+  }
 }
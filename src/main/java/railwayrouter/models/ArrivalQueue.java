@@ -0,0 +1,40 @@
+package railwayrouter.models;
+
+/**
+ * Priority queue of search states keyed by arrival minute. Entries are removed in increasing order
+ * of arrival minute, and states with the same arrival minute in increasing order of state, so that
+ * every implementation settles states in exactly the same order.
+ */
+public interface ArrivalQueue {
+  /**
+   * Adds {@code state}, arriving {@code arrivalMinutes} after the start of travel.
+   *
+   * @param arrivalMinutes
+   * @param state
+   */
+  void add(int arrivalMinutes, int state);
+
+  /**
+   * Removes the entry with the earliest arrival minute, then the smallest state.
+   *
+   * @return arrival minutes in the high 32 bits, state in the low 32 bits
+   */
+  long remove();
+
+  boolean isEmpty();
+
+  /** Removes every entry, so that the queue can be reused by another search. */
+  void clear();
+
+  static long toEntry(int arrivalMinutes, int state) {
+    return ((long) arrivalMinutes << 32) | state;
+  }
+
+  static int getArrivalMinutes(long entry) {
+    return (int) (entry >>> 32);
+  }
+
+  static int getState(long entry) {
+    return (int) entry;
+  }
+}
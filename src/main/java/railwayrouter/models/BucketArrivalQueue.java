@@ -0,0 +1,82 @@
+package railwayrouter.models;
+
+import java.util.Arrays;
+
+/**
+ * Circular bucket queue (Dial's algorithm) with one bucket per arrival minute. Every state added
+ * while removing the entries of minute {@code t} arrives between {@code t + 1} and {@code t +
+ * maxCost}, so {@code maxCost + 1} buckets, reused in turn, hold every pending entry. Adding and
+ * removing are O(1), apart from sorting each bucket once by state before its first removal.
+ *
+ * <p>Requires every edge cost to be between 1 and {@code maxCost}, and entries not to arrive before
+ * the last removed entry.
+ */
+public class BucketArrivalQueue implements ArrivalQueue {
+  private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+  private final int maxCost;
+  private final int[][] buckets;
+  private final int[] bucketSizes;
+  private final int mask;
+  private int minute; // arrival minute of the bucket being removed from
+  private int removed; // number of entries removed from the current bucket
+  private boolean sorted; // whether the current bucket is sorted
+  private int size;
+
+  public BucketArrivalQueue(int maxCost) {
+    this.maxCost = maxCost;
+    int numBuckets = Integer.highestOneBit(Math.max(1, maxCost)) << 1; // > maxCost
+    buckets = new int[numBuckets][];
+    bucketSizes = new int[numBuckets];
+    mask = numBuckets - 1;
+  }
+
+  @Override
+  public void add(int arrivalMinutes, int state) {
+    int bucket = arrivalMinutes & mask;
+    int[] entries = buckets[bucket];
+    if (entries == null) {
+      entries = buckets[bucket] = new int[INITIAL_BUCKET_CAPACITY];
+    } else if (bucketSizes[bucket] == entries.length) {
+      entries = buckets[bucket] = Arrays.copyOf(entries, entries.length * 2);
+    }
+    entries[bucketSizes[bucket]++] = state;
+    size++;
+  }
+
+  @Override
+  public long remove() {
+    int bucket = minute & mask;
+    while (removed == bucketSizes[bucket]) {
+      bucketSizes[bucket] = 0;
+      removed = 0;
+      sorted = false;
+      bucket = ++minute & mask;
+    }
+    if (!sorted) {
+      Arrays.sort(buckets[bucket], 0, bucketSizes[bucket]);
+      sorted = true;
+    }
+    size--;
+    return ArrivalQueue.toEntry(minute, buckets[bucket][removed++]);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(bucketSizes, 0);
+    minute = 0;
+    removed = 0;
+    sorted = false;
+    size = 0;
+  }
+
+  /** @return largest edge cost this queue can be used with */
+  public int getMaxCost() {
+    return maxCost;
+  }
+}
@@ -0,0 +1,105 @@
+package railwayrouter.models;
+
+import lombok.Getter;
+
+/**
+ * Contraction hierarchy of one {@code CsrGraph}: every station has a rank, and the edges are the
+ * operating edges of the graph plus shortcuts. A shortcut replaces the two edges through a station
+ * of lower rank than both its ends, with the sum of their costs for every time of day, where no
+ * other path is as fast for some time of day. So for every time of day, a fastest route between any
+ * two stations only goes up in rank, then down.
+ *
+ * <p>{@code costs[timeOfDay.ordinal()][edge]} is the time taken to travel along {@code edge}, or
+ * {@code CostModel.CLOSED}. The edges going up from station {@code i} are {@code
+ * upEdges[upOffsets[i]]} (inclusive) to {@code upEdges[upOffsets[i + 1]]} (exclusive), and the
+ * edges going down into station {@code i} are {@code downEdges[downOffsets[i]]} to {@code
+ * downEdges[downOffsets[i + 1]]}, so that both searches of a query only go up.
+ */
+@Getter
+public final class ContractionHierarchy {
+  public static final int NO_CHILD = -1; // children of an edge of the graph
+
+  final int[] ranks; // contraction order of every station
+  final int[] edgeSources;
+  final int[] edgeTargets;
+  final int[][] costs;
+  final int[] firstChildren; // edge from the source to the station a shortcut skips
+  final int[] secondChildren; // edge from the station a shortcut skips to the target
+  final int[] upOffsets;
+  final int[] upEdges;
+  final int[] downOffsets;
+  final int[] downEdges;
+
+  public ContractionHierarchy(
+      int[] ranks,
+      int[] edgeSources,
+      int[] edgeTargets,
+      int[][] costs,
+      int[] firstChildren,
+      int[] secondChildren) {
+    this.ranks = ranks;
+    this.edgeSources = edgeSources;
+    this.edgeTargets = edgeTargets;
+    this.costs = costs;
+    this.firstChildren = firstChildren;
+    this.secondChildren = secondChildren;
+
+    int numStations = ranks.length;
+    upOffsets = new int[numStations + 1];
+    downOffsets = new int[numStations + 1];
+    for (int edge = 0; edge < edgeSources.length; edge++) {
+      if (isUp(edge)) {
+        upOffsets[edgeSources[edge] + 1]++;
+      } else {
+        downOffsets[edgeTargets[edge] + 1]++;
+      }
+    }
+    for (int i = 0; i < numStations; i++) {
+      upOffsets[i + 1] += upOffsets[i];
+      downOffsets[i + 1] += downOffsets[i];
+    }
+    upEdges = new int[upOffsets[numStations]];
+    downEdges = new int[downOffsets[numStations]];
+    int[] nextUp = new int[numStations];
+    int[] nextDown = new int[numStations];
+    for (int edge = 0; edge < edgeSources.length; edge++) {
+      if (isUp(edge)) {
+        int source = edgeSources[edge];
+        upEdges[upOffsets[source] + nextUp[source]++] = edge;
+      } else {
+        int target = edgeTargets[edge];
+        downEdges[downOffsets[target] + nextDown[target]++] = edge;
+      }
+    }
+  }
+
+  private boolean isUp(int edge) {
+    return ranks[edgeTargets[edge]] > ranks[edgeSources[edge]];
+  }
+
+  public int getNumStations() {
+    return ranks.length;
+  }
+
+  public int getNumEdges() {
+    return edgeSources.length;
+  }
+
+  /**
+   * Appends the stations along {@code edge}, after its source, to {@code stationIds}, replacing
+   * every shortcut with the edges it skips.
+   *
+   * @param edge
+   * @param stationIds needs room for every station along {@code edge}
+   * @param numStationIds stations already in {@code stationIds}
+   * @return stations in {@code stationIds} after the edge
+   */
+  public int unpack(int edge, int[] stationIds, int numStationIds) {
+    if (firstChildren[edge] == NO_CHILD) {
+      stationIds[numStationIds] = edgeTargets[edge];
+      return numStationIds + 1;
+    }
+    numStationIds = unpack(firstChildren[edge], stationIds, numStationIds);
+    return unpack(secondChildren[edge], stationIds, numStationIds);
+  }
+}
@@ -0,0 +1,37 @@
+package railwayrouter.models;
+
+import lombok.Getter;
+
+/**
+ * Travel time of every edge of one {@code CsrGraph}, for every time of day. {@code
+ * costs[timeOfDay.ordinal()][edge]} is the time taken to travel along {@code edge}, or {@code
+ * CLOSED} if the line is not operating.
+ */
+@Getter
+public final class CostModel {
+  public static final int CLOSED = Integer.MAX_VALUE;
+
+  final int[][] costs;
+  final int minCost; // smallest cost of an operating edge, CLOSED if none
+  final int maxCost; // largest cost of an operating edge, 0 if none
+
+  public CostModel(int[][] costs) {
+    this.costs = costs;
+    int min = CLOSED;
+    int max = 0;
+    for (int[] timeOfDayCosts : costs) {
+      for (int cost : timeOfDayCosts) {
+        if (cost != CLOSED) {
+          min = Math.min(min, cost);
+          max = Math.max(max, cost);
+        }
+      }
+    }
+    this.minCost = min;
+    this.maxCost = max;
+  }
+
+  public int getCost(TimeOfDay timeOfDay, int edge) {
+    return costs[timeOfDay.ordinal()][edge];
+  }
+}
@@ -0,0 +1,193 @@
+package railwayrouter.models;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Compressed sparse row form of the station adjacency list. The outgoing edges of station {@code i}
+ * are the edge indices {@code offsets.get(i)} (inclusive) to {@code offsets.get(i + 1)}
+ * (exclusive), in the same order as {@code adjList.get(i)}. Each edge is either a ride along a
+ * line, or a transfer between two lines at the same station.
+ *
+ * <p>{@code offsets} and {@code targets} are read-only buffers, either wrapping arrays or viewing a
+ * memory-mapped compiled network file, so they are only read with absolute {@code get(int)}.
+ *
+ * <p>The incoming edges of station {@code i}, for searches walking back from a destination, are
+ * {@code incomingEdges[incomingOffsets[i]]} (inclusive) to {@code incomingEdges[incomingOffsets[i +
+ * 1]]} (exclusive), and {@code edgeSources[edge]} is the station an edge leaves from. They are
+ * computed from the outgoing edges on first use.
+ */
+@Getter
+public final class CsrGraph {
+  public static final byte RIDE = 0;
+  public static final byte TRANSFER = 1;
+
+  final IntBuffer offsets;
+  final IntBuffer targets;
+  final byte[] edgeKinds;
+  final int[] lineIds;
+  final String[] lineCodes;
+  final Station[] stations;
+
+  @Getter(AccessLevel.NONE)
+  private volatile IncomingEdges incoming;
+
+  public CsrGraph(
+      int[] offsets,
+      int[] targets,
+      byte[] edgeKinds,
+      int[] lineIds,
+      String[] lineCodes,
+      Station[] stations) {
+    this(
+        IntBuffer.wrap(offsets).asReadOnlyBuffer(),
+        IntBuffer.wrap(targets).asReadOnlyBuffer(),
+        edgeKinds,
+        lineIds,
+        lineCodes,
+        stations);
+  }
+
+  public CsrGraph(
+      IntBuffer offsets,
+      IntBuffer targets,
+      byte[] edgeKinds,
+      int[] lineIds,
+      String[] lineCodes,
+      Station[] stations) {
+    this.offsets = offsets;
+    this.targets = targets;
+    this.edgeKinds = edgeKinds;
+    this.lineIds = lineIds;
+    this.lineCodes = lineCodes;
+    this.stations = stations;
+  }
+
+  /**
+   * Builds the CSR graph from an adjacency list.
+   *
+   * @param stations stations indexed by id
+   * @param adjList adjacency list indexed by station id
+   * @return CSR graph with the same edges, in the same order, as {@code adjList}
+   */
+  public static CsrGraph fromAdjList(List<Station> stations, List<List<Station>> adjList) {
+    int numStations = adjList.size();
+    int[] offsets = new int[numStations + 1];
+    for (int i = 0; i < numStations; i++) {
+      offsets[i + 1] = offsets[i] + adjList.get(i).size();
+    }
+    int[] targets = new int[offsets[numStations]];
+    for (int i = 0; i < numStations; i++) {
+      List<Station> neighbours = adjList.get(i);
+      for (int j = 0; j < neighbours.size(); j++) {
+        targets[offsets[i] + j] = neighbours.get(j).getId();
+      }
+    }
+    return fromCsr(
+        stations,
+        IntBuffer.wrap(offsets).asReadOnlyBuffer(),
+        IntBuffer.wrap(targets).asReadOnlyBuffer());
+  }
+
+  /**
+   * Builds the CSR graph from its offsets and targets, computing the lines of its stations and
+   * edges. Neither buffer is copied.
+   *
+   * @param stations stations indexed by id
+   * @param offsets read-only CSR offsets, one per station and one more
+   * @param targets read-only CSR targets
+   * @return CSR graph over {@code offsets} and {@code targets}
+   */
+  public static CsrGraph fromCsr(List<Station> stations, IntBuffer offsets, IntBuffer targets) {
+    int numStations = offsets.limit() - 1;
+    Station[] stationsById = new Station[numStations];
+    for (Station station : stations) {
+      stationsById[station.getId()] = station;
+    }
+
+    TreeSet<String> distinctLineCodes = new TreeSet<>();
+    for (Station station : stationsById) {
+      distinctLineCodes.add(station.getLineCode());
+    }
+    String[] lineCodes = distinctLineCodes.toArray(new String[0]);
+    Map<String, Integer> lineCodeToLineId = new HashMap<>();
+    for (int i = 0; i < lineCodes.length; i++) {
+      lineCodeToLineId.put(lineCodes[i], i);
+    }
+    int[] lineIds = new int[numStations];
+    for (int i = 0; i < numStations; i++) {
+      lineIds[i] = lineCodeToLineId.get(stationsById[i].getLineCode());
+    }
+
+    byte[] edgeKinds = new byte[targets.limit()];
+    for (int i = 0; i < numStations; i++) {
+      for (int edge = offsets.get(i); edge < offsets.get(i + 1); edge++) {
+        edgeKinds[edge] = lineIds[targets.get(edge)] == lineIds[i] ? RIDE : TRANSFER;
+      }
+    }
+    return new CsrGraph(offsets, targets, edgeKinds, lineIds, lineCodes, stationsById);
+  }
+
+  public int getNumStations() {
+    return stations.length;
+  }
+
+  public int getNumEdges() {
+    return targets.limit();
+  }
+
+  public int[] getEdgeSources() {
+    return getIncomingEdgesOnce().edgeSources;
+  }
+
+  public int[] getIncomingOffsets() {
+    return getIncomingEdgesOnce().incomingOffsets;
+  }
+
+  public int[] getIncomingEdges() {
+    return getIncomingEdgesOnce().incomingEdges;
+  }
+
+  private IncomingEdges getIncomingEdgesOnce() {
+    IncomingEdges cur = incoming;
+    if (cur == null) {
+      // racing threads compute equal arrays, so either may win
+      cur = new IncomingEdges(offsets, targets);
+      incoming = cur;
+    }
+    return cur;
+  }
+
+  private static final class IncomingEdges {
+    final int[] edgeSources;
+    final int[] incomingOffsets;
+    final int[] incomingEdges;
+
+    IncomingEdges(IntBuffer offsets, IntBuffer targets) {
+      int numStations = offsets.limit() - 1;
+      int numEdges = targets.limit();
+      edgeSources = new int[numEdges];
+      incomingOffsets = new int[numStations + 1];
+      for (int station = 0; station < numStations; station++) {
+        for (int edge = offsets.get(station); edge < offsets.get(station + 1); edge++) {
+          edgeSources[edge] = station;
+          incomingOffsets[targets.get(edge) + 1]++;
+        }
+      }
+      for (int i = 0; i < numStations; i++) {
+        incomingOffsets[i + 1] += incomingOffsets[i];
+      }
+      incomingEdges = new int[numEdges];
+      int[] next = Arrays.copyOf(incomingOffsets, numStations);
+      for (int edge = 0; edge < numEdges; edge++) {
+        incomingEdges[next[targets.get(edge)]++] = edge;
+      }
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package railwayrouter.models;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Immutable frequency map, i.e. the time taken to travel one stop on each line, or to change lines,
+ * for every time of day. The {@code CostModel} compiled from it for each graph is cached, so that a
+ * graph is compiled at most once per frequency table, and so are the {@code TravelTimeTable},
+ * {@code LandmarkTable} and {@code ContractionHierarchy} built from it. The {@code LineRoutes} of a
+ * graph do not depend on the frequencies, but are cached here along with the rest.
+ *
+ * <p>Caches are keyed by graph identity, hold their graphs weakly, and load each graph on its own:
+ * while one graph is built, lookups of every other graph go ahead, and lookups of the same graph
+ * wait for that one build instead of starting another.
+ */
+public final class FrequencyTable {
+  private final Map<TimeOfDay, Map<String, Integer>> frequencyMap;
+  private final String lineChangeFieldName;
+  private final Cache<CsrGraph, CostModel> costModels = newCache();
+  private final Cache<CsrGraph, TravelTimeTable> travelTimeTables = newCache();
+  private final Cache<CsrGraph, LandmarkTable> landmarkTables = newCache();
+  private final Cache<CsrGraph, ContractionHierarchy> contractionHierarchies = newCache();
+  private final Cache<CsrGraph, LineRoutes> lineRoutes = newCache();
+
+  public FrequencyTable(
+      Map<TimeOfDay, Map<String, Integer>> frequencyMap, String lineChangeFieldName) {
+    this.frequencyMap = Collections.unmodifiableMap(frequencyMap);
+    this.lineChangeFieldName = lineChangeFieldName;
+  }
+
+  public Map<TimeOfDay, Map<String, Integer>> getFrequencyMap() {
+    return frequencyMap;
+  }
+
+  public String getLineChangeFieldName() {
+    return lineChangeFieldName;
+  }
+
+  /**
+   * Returns the cost model of {@code graph}, compiling it with {@code compiler} on first use.
+   *
+   * @param graph
+   * @param compiler
+   * @return cost model of {@code graph} under this frequency table
+   */
+  public CostModel getCostModel(CsrGraph graph, Function<CsrGraph, CostModel> compiler) {
+    return get(costModels, graph, compiler);
+  }
+
+  /**
+   * Returns the travel time table of {@code graph}, building it with {@code builder} on first use.
+   *
+   * @param graph
+   * @param builder
+   * @return travel time table of {@code graph} under this frequency table
+   */
+  public TravelTimeTable getTravelTimeTable(
+      CsrGraph graph, Function<CsrGraph, TravelTimeTable> builder) {
+    return get(travelTimeTables, graph, builder);
+  }
+
+  /**
+   * Returns the landmark table of {@code graph}, building it with {@code builder} on first use.
+   *
+   * @param graph
+   * @param builder
+   * @return landmark table of {@code graph} under this frequency table
+   */
+  public LandmarkTable getLandmarkTable(CsrGraph graph, Function<CsrGraph, LandmarkTable> builder) {
+    return get(landmarkTables, graph, builder);
+  }
+
+  /**
+   * Returns the contraction hierarchy of {@code graph}, building it with {@code builder} on first
+   * use.
+   *
+   * @param graph
+   * @param builder
+   * @return contraction hierarchy of {@code graph} under this frequency table
+   */
+  public ContractionHierarchy getContractionHierarchy(
+      CsrGraph graph, Function<CsrGraph, ContractionHierarchy> builder) {
+    return get(contractionHierarchies, graph, builder);
+  }
+
+  /**
+   * Returns the line routes of {@code graph}, building them with {@code builder} on first use.
+   *
+   * @param graph
+   * @param builder
+   * @return line routes of {@code graph}
+   */
+  public LineRoutes getLineRoutes(CsrGraph graph, Function<CsrGraph, LineRoutes> builder) {
+    return get(lineRoutes, graph, builder);
+  }
+
+  private static <V> Cache<CsrGraph, V> newCache() {
+    return CacheBuilder.newBuilder().weakKeys().build();
+  }
+
+  /**
+   * Returns the value of {@code graph} in {@code cache}, building it with {@code builder} if
+   * absent. Exceptions thrown by {@code builder} are rethrown as they are.
+   */
+  private static <V> V get(
+      Cache<CsrGraph, V> cache, CsrGraph graph, Function<CsrGraph, V> builder) {
+    try {
+      return cache.get(graph, () -> builder.apply(graph));
+    } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause()); // builders throw no checked exceptions
+    }
+  }
+}
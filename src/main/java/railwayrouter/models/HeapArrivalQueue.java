@@ -0,0 +1,60 @@
+package railwayrouter.models;
+
+import java.util.Arrays;
+
+/**
+ * {@code ArrivalQueue} backed by a binary heap of primitive entries, for any non-negative edge
+ * costs. The heap grows as needed, and is kept by {@link #clear()}, so that a reused queue does not
+ * allocate.
+ */
+public class HeapArrivalQueue implements ArrivalQueue {
+  private long[] heap;
+  private int size;
+
+  public HeapArrivalQueue(int initialCapacity) {
+    heap = new long[Math.max(1, initialCapacity)];
+  }
+
+  @Override
+  public void add(int arrivalMinutes, int state) {
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, heap.length * 2);
+    }
+    long entry = ArrivalQueue.toEntry(arrivalMinutes, state);
+    int i = size++;
+    while (i > 0 && heap[(i - 1) >>> 1] > entry) {
+      heap[i] = heap[(i - 1) >>> 1];
+      i = (i - 1) >>> 1;
+    }
+    heap[i] = entry;
+  }
+
+  @Override
+  public long remove() {
+    long first = heap[0];
+    long entry = heap[--size];
+    int i = 0;
+    int half = size >>> 1; // entries before half have at least one child
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (entry <= heap[child]) break;
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = entry;
+    return first;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public void clear() {
+    size = 0;
+  }
+}
@@ -0,0 +1,48 @@
+package railwayrouter.models;
+
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Stations reachable from a source within each of several budgets of minutes, for one start date
+ * time. {@code stations} are the stations reachable within the largest budget, in increasing order
+ * of {@code minutes}, the minutes taken to reach each one, so the stations reachable within {@code
+ * budgets[i]} are the first {@code counts[i]} stations.
+ */
+@Getter
+public final class Isochrone {
+  final int[] budgets;
+  final List<Station> stations;
+  final int[] minutes;
+  final int[] counts;
+
+  /**
+   * @param budgets budgets in minutes, in increasing order
+   * @param stations stations reachable within the largest budget, in increasing order of minutes
+   * @param minutes minutes taken to reach each station
+   */
+  public Isochrone(int[] budgets, List<Station> stations, int[] minutes) {
+    this.budgets = budgets;
+    this.stations = Collections.unmodifiableList(stations);
+    this.minutes = minutes;
+
+    counts = new int[budgets.length];
+    int count = 0;
+    for (int i = 0; i < budgets.length; i++) {
+      while (count < minutes.length && minutes[count] <= budgets[i]) {
+        count++;
+      }
+      counts[i] = count;
+    }
+  }
+
+  /**
+   * @param budgetIndex index in {@code budgets}
+   * @return stations reachable within {@code budgets[budgetIndex]} minutes, in increasing order of
+   *     minutes
+   */
+  public List<Station> getStationsWithin(int budgetIndex) {
+    return stations.subList(0, counts[budgetIndex]);
+  }
+}
@@ -0,0 +1,59 @@
+package railwayrouter.models;
+
+import lombok.Getter;
+
+/**
+ * Fastest travel times from and to a few landmark stations of one {@code CsrGraph}, with the
+ * cheapest cost of every edge at any time of day. {@code fromLandmarks[station * numLandmarks + i]}
+ * is the travel time from {@code landmarks[i]} to station, and {@code toLandmarks[station *
+ * numLandmarks + i]} the travel time from station to {@code landmarks[i]}, or {@code UNREACHABLE}.
+ *
+ * <p>By the triangle inequality, they give a lower bound of the travel time between any two
+ * stations, at any time of day (ALT). The lower bound never decreases by more than the cost of an
+ * edge along that edge, so a search ordered by arrival time plus lower bound settles every station
+ * with its final arrival time, the same as a search ordered by arrival time only.
+ */
+@Getter
+public final class LandmarkTable {
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  final int[] landmarks; // station ids
+  final int[] fromLandmarks;
+  final int[] toLandmarks;
+
+  public LandmarkTable(int[] landmarks, int[] fromLandmarks, int[] toLandmarks) {
+    this.landmarks = landmarks;
+    this.fromLandmarks = fromLandmarks;
+    this.toLandmarks = toLandmarks;
+  }
+
+  /**
+   * @param station
+   * @param dest
+   * @return lower bound of the minutes taken to travel from station to dest at any time of day, or
+   *     {@code UNREACHABLE} if dest is unreachable from station
+   */
+  public int getLowerBound(int station, int dest) {
+    int numLandmarks = landmarks.length;
+    int stationBase = station * numLandmarks;
+    int destBase = dest * numLandmarks;
+    int lowerBound = 0;
+    for (int i = 0; i < numLandmarks; i++) {
+      // landmark -> station -> dest is no faster than landmark -> dest
+      int fromLandmarkToStation = fromLandmarks[stationBase + i];
+      if (fromLandmarkToStation != UNREACHABLE) {
+        int fromLandmarkToDest = fromLandmarks[destBase + i];
+        if (fromLandmarkToDest == UNREACHABLE) return UNREACHABLE;
+        lowerBound = Math.max(lowerBound, fromLandmarkToDest - fromLandmarkToStation);
+      }
+      // station -> dest -> landmark is no faster than station -> landmark
+      int fromDestToLandmark = toLandmarks[destBase + i];
+      if (fromDestToLandmark != UNREACHABLE) {
+        int fromStationToLandmark = toLandmarks[stationBase + i];
+        if (fromStationToLandmark == UNREACHABLE) return UNREACHABLE;
+        lowerBound = Math.max(lowerBound, fromStationToLandmark - fromDestToLandmark);
+      }
+    }
+    return lowerBound;
+  }
+}
@@ -0,0 +1,103 @@
+package railwayrouter.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds, giving percentiles of any latency to within 1/64. Values
+ * below {@code 2 * SUB_BUCKETS} have a bucket each. Above that, every power of two is split into
+ * {@code SUB_BUCKETS} buckets of equal width, so no bucket is wider than 1/64 of the values it
+ * holds, as in HdrHistogram. The counts are one flat array of longs, so recording a value is a few
+ * shifts and an atomic increment, and never allocates. Safe to share across threads.
+ */
+public final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // the largest long has a shift of 63 - SUB_BUCKET_BITS, and a sub bucket of 2 * SUB_BUCKETS - 1
+  private static final int NUM_BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS) + SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records one latency. Negative latencies, e.g. from a clock going back, are recorded as 0.
+   *
+   * @param nanos
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(getBucket(value));
+    count.increment();
+    sum.add(value);
+    long curMax = max.get();
+    while (value > curMax && !max.compareAndSet(curMax, value)) {
+      curMax = max.get();
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  /** @return largest latency recorded in nanoseconds, or 0 if none */
+  public long getMax() {
+    return max.get();
+  }
+
+  /** @return mean latency in nanoseconds, or 0 if none is recorded */
+  public double getMean() {
+    long curCount = count.sum();
+    return curCount == 0 ? 0 : (double) sum.sum() / curCount;
+  }
+
+  /**
+   * Returns the latency that {@code percentile} percent of the latencies recorded are at most, to
+   * the precision of the histogram. Latencies recorded while this runs may or may not be counted.
+   *
+   * @param percentile from 0 to 100
+   * @return latency in nanoseconds, or 0 if none is recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] snapshot = new long[NUM_BUCKETS];
+    long total = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) return 0;
+
+    long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+    long seen = 0;
+    int bucket = 0;
+    for (; bucket < NUM_BUCKETS - 1; bucket++) {
+      seen += snapshot[bucket];
+      if (seen >= rank) break;
+    }
+    return Math.min(getHighestValue(bucket), getMax());
+  }
+
+  /**
+   * @param value non-negative
+   * @return bucket holding {@code value}
+   */
+  static int getBucket(long value) {
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    if (shift <= 0) return (int) value; // below 2 * SUB_BUCKETS
+    return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+  }
+
+  /**
+   * @param bucket
+   * @return largest value held by {@code bucket}
+   */
+  static long getHighestValue(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) return bucket;
+    int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    long subBucket = bucket - ((long) shift << SUB_BUCKET_BITS);
+    long highestValue = ((subBucket + 1) << shift) - 1;
+    return highestValue < 0 ? Long.MAX_VALUE : highestValue; // the last bucket overflows
+  }
+}
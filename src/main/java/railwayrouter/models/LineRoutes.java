@@ -0,0 +1,44 @@
+package railwayrouter.models;
+
+import lombok.Getter;
+
+/**
+ * Lines of one {@code CsrGraph} as routes for round-based searches, scanned station by station
+ * without a priority queue. The stations of route {@code r} are {@code stations[offsets[r]]}
+ * (inclusive) to {@code stations[offsets[r + 1]]} (exclusive), in order of station number. {@code
+ * nextEdges[i]} is the ride edge from {@code stations[i]} to the next station of its route, and
+ * {@code previousEdges[i]} the ride edge to the previous one, or {@code NO_EDGE}. {@code
+ * routes[station]} and {@code positions[station]} give the route of a station and its index in
+ * {@code stations}.
+ */
+@Getter
+public final class LineRoutes {
+  public static final int NO_EDGE = -1;
+
+  final int[] offsets;
+  final int[] stations;
+  final int[] nextEdges;
+  final int[] previousEdges;
+  final int[] routes;
+  final int[] positions;
+
+  public LineRoutes(int[] offsets, int[] stations, int[] nextEdges, int[] previousEdges) {
+    this.offsets = offsets;
+    this.stations = stations;
+    this.nextEdges = nextEdges;
+    this.previousEdges = previousEdges;
+
+    routes = new int[stations.length];
+    positions = new int[stations.length];
+    for (int route = 0; route + 1 < offsets.length; route++) {
+      for (int i = offsets[route]; i < offsets[route + 1]; i++) {
+        routes[stations[i]] = route;
+        positions[stations[i]] = i;
+      }
+    }
+  }
+
+  public int getNumRoutes() {
+    return offsets.length - 1;
+  }
+}
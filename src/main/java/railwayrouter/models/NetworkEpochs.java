@@ -0,0 +1,72 @@
+package railwayrouter.models;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Every {@code NetworkSnapshot} of the station map. {@code getSnapshot(k)} contains every station
+ * opened on or before {@code openingDates[k - 1]}, and {@code getSnapshot(0)} is the empty network.
+ * Snapshots may be loaded on first use, e.g. from a compiled network file.
+ */
+public final class NetworkEpochs {
+  private final LocalDateTime[] openingDates; // sorted distinct opening dates
+  private final AtomicReferenceArray<NetworkSnapshot> snapshots;
+  private final IntFunction<NetworkSnapshot> loader;
+
+  public NetworkEpochs(LocalDateTime[] openingDates, NetworkSnapshot[] snapshots) {
+    this.openingDates = openingDates;
+    this.snapshots = new AtomicReferenceArray<>(snapshots);
+    this.loader =
+        epoch -> {
+          throw new IllegalStateException(String.format("Snapshot %d is missing", epoch));
+        };
+  }
+
+  /**
+   * @param openingDates sorted distinct opening dates
+   * @param loader loads the snapshot of an epoch, from 0 to {@code openingDates.length}
+   */
+  public NetworkEpochs(LocalDateTime[] openingDates, IntFunction<NetworkSnapshot> loader) {
+    this.openingDates = openingDates;
+    this.snapshots = new AtomicReferenceArray<>(openingDates.length + 1);
+    this.loader = loader;
+  }
+
+  public LocalDateTime[] getOpeningDates() {
+    return openingDates;
+  }
+
+  public int getNumSnapshots() {
+    return snapshots.length();
+  }
+
+  /**
+   * Returns the snapshot of {@code epoch}, loading it if this is its first use.
+   *
+   * @param epoch from 0 to {@code openingDates.length}
+   * @return network snapshot of {@code epoch}
+   */
+  public NetworkSnapshot getSnapshot(int epoch) {
+    NetworkSnapshot snapshot = snapshots.get(epoch);
+    if (snapshot == null) {
+      // a snapshot loaded twice by racing threads is dropped
+      snapshots.compareAndSet(epoch, null, loader.apply(epoch));
+      snapshot = snapshots.get(epoch);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns every snapshot, loading the ones not used yet.
+   *
+   * @return network snapshots indexed by epoch
+   */
+  public NetworkSnapshot[] getSnapshots() {
+    NetworkSnapshot[] result = new NetworkSnapshot[getNumSnapshots()];
+    for (int epoch = 0; epoch < result.length; epoch++) {
+      result[epoch] = getSnapshot(epoch);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,105 @@
+package railwayrouter.models;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+
+/**
+ * Immutable view of the network for one epoch, i.e. one distinct set of open stations. Station ids
+ * are dense within the snapshot, and index into both {@code adjList} and {@code graph}. Station
+ * names are indexed by {@code nameIndex}.
+ *
+ * <p>Searches only use {@code graph} and {@code nameIndex}. A snapshot read from a compiled network
+ * builds {@code adjList} and the station maps from them on first use.
+ */
+@Getter
+public final class NetworkSnapshot {
+  final int epoch;
+  final List<Station> stations;
+  final CsrGraph graph;
+  final StationNameIndex nameIndex;
+  private final Supplier<Map<String, List<Station>>> lineCodeToStationsMap;
+  private final Supplier<Map<String, List<Station>>> nameToStationsMap;
+  private final Supplier<List<List<Station>>> adjList;
+
+  public NetworkSnapshot(
+      int epoch,
+      List<Station> stations,
+      Map<String, List<Station>> lineCodeToStationsMap,
+      Map<String, List<Station>> nameToStationsMap,
+      List<List<Station>> adjList) {
+    this.epoch = epoch;
+    this.stations = Collections.unmodifiableList(stations);
+    this.lineCodeToStationsMap =
+        Suppliers.ofInstance(Collections.unmodifiableMap(lineCodeToStationsMap));
+    this.nameToStationsMap = Suppliers.ofInstance(Collections.unmodifiableMap(nameToStationsMap));
+    this.adjList = Suppliers.ofInstance(unmodifiableAdjList(adjList));
+    this.graph = CsrGraph.fromAdjList(stations, adjList);
+    this.nameIndex = new StationNameIndex(stations);
+  }
+
+  /**
+   * Creates the snapshot of an existing graph, without copying it.
+   *
+   * @param epoch
+   * @param stations open stations, with dense ids
+   * @param graph graph of {@code stations}
+   * @param lineCodeToStationsMap builds the map of line codes to stations on first use
+   * @param nameToStationsMap builds the map of names to stations on first use
+   */
+  public NetworkSnapshot(
+      int epoch,
+      List<Station> stations,
+      CsrGraph graph,
+      Supplier<Map<String, List<Station>>> lineCodeToStationsMap,
+      Supplier<Map<String, List<Station>>> nameToStationsMap) {
+    this.epoch = epoch;
+    this.stations = Collections.unmodifiableList(stations);
+    this.lineCodeToStationsMap =
+        Suppliers.memoize(() -> Collections.unmodifiableMap(lineCodeToStationsMap.get()));
+    this.nameToStationsMap =
+        Suppliers.memoize(() -> Collections.unmodifiableMap(nameToStationsMap.get()));
+    this.adjList = Suppliers.memoize(() -> unmodifiableAdjList(toAdjList(graph)));
+    this.graph = graph;
+    this.nameIndex = new StationNameIndex(stations);
+  }
+
+  public Map<String, List<Station>> getLineCodeToStationsMap() {
+    return lineCodeToStationsMap.get();
+  }
+
+  public Map<String, List<Station>> getNameToStationsMap() {
+    return nameToStationsMap.get();
+  }
+
+  public List<List<Station>> getAdjList() {
+    return adjList.get();
+  }
+
+  private static List<List<Station>> toAdjList(CsrGraph graph) {
+    IntBuffer offsets = graph.getOffsets();
+    IntBuffer targets = graph.getTargets();
+    List<List<Station>> adjList = new ArrayList<>(graph.getNumStations());
+    for (int i = 0; i < graph.getNumStations(); i++) {
+      List<Station> neighbours = new ArrayList<>(offsets.get(i + 1) - offsets.get(i));
+      for (int edge = offsets.get(i); edge < offsets.get(i + 1); edge++) {
+        neighbours.add(graph.getStations()[targets.get(edge)]);
+      }
+      adjList.add(neighbours);
+    }
+    return adjList;
+  }
+
+  private static List<List<Station>> unmodifiableAdjList(List<List<Station>> adjList) {
+    List<List<Station>> adjListCopy = new ArrayList<>(adjList.size());
+    for (List<Station> neighbours : adjList) {
+      adjListCopy.add(Collections.unmodifiableList(neighbours));
+    }
+    return Collections.unmodifiableList(adjListCopy);
+  }
+}
@@ -7,10 +7,16 @@ import lombok.Getter;
 public class Node implements Comparable<Node> {
   Station station;
   LocalDateTime arrivalDateTime;
+  int origin; // index of the source the search reached this node from
 
   public Node(Station station, LocalDateTime arrivalDateTime) {
+    this(station, arrivalDateTime, 0);
+  }
+
+  public Node(Station station, LocalDateTime arrivalDateTime, int origin) {
     this.station = station;
     this.arrivalDateTime = arrivalDateTime;
+    this.origin = origin;
   }
 
   @Override
@@ -0,0 +1,25 @@
+package railwayrouter.models;
+
+import java.time.LocalDateTime;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Departures, every minute from {@code firstDepartureDateTime} to {@code lastDepartureDateTime}
+ * inclusive, that all take the same fastest route, in the same number of minutes. {@code route} is
+ * null if there is no route for any of them.
+ */
+@Getter
+@EqualsAndHashCode
+public class ProfileSegment {
+  private LocalDateTime firstDepartureDateTime;
+  private LocalDateTime lastDepartureDateTime;
+  private Route route;
+
+  public ProfileSegment(
+      LocalDateTime firstDepartureDateTime, LocalDateTime lastDepartureDateTime, Route route) {
+    this.firstDepartureDateTime = firstDepartureDateTime;
+    this.lastDepartureDateTime = lastDepartureDateTime;
+    this.route = route;
+  }
+}
@@ -0,0 +1,32 @@
+package railwayrouter.models;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/** Outcome of a query: either the route found, or the reason no route is returned */
+@Getter
+@EqualsAndHashCode
+public final class QueryResult {
+  public enum Status {
+    ROUTE_FOUND,
+    INVALID_DATE_TIME,
+    INVALID_STATION,
+    ROUTE_NOT_FOUND
+  }
+
+  private final Status status;
+  private final Route route; // null unless status is ROUTE_FOUND
+  private final String message; // null if status is ROUTE_FOUND
+
+  public QueryResult(Route route) {
+    this.status = Status.ROUTE_FOUND;
+    this.route = route;
+    this.message = null;
+  }
+
+  public QueryResult(Status status, String message) {
+    this.status = status;
+    this.route = null;
+    this.message = message;
+  }
+}
@@ -0,0 +1,55 @@
+package railwayrouter.models;
+
+/**
+ * Priority queue used by the route search. {@code DIJKSTRA} and {@code DIAL} settle states in the
+ * same order, and {@code DIJKSTRA}, {@code DIAL} and {@code ALT} return identical routes. {@code
+ * CH} returns routes just as fast, between the same stations, but may take another of several
+ * equally fast ways between them.
+ */
+public enum SearchEngine {
+  /** Binary heap, O(log n) per operation. */
+  DIJKSTRA,
+  /**
+   * Circular bucket queue keyed by arrival minute (Dial's algorithm), O(1) per operation. Falls
+   * back to a binary heap if the edge costs are too large, or not positive.
+   */
+  DIAL,
+  /**
+   * A* search ordered by arrival minute plus a lower bound of the minutes left, from the travel
+   * times to and from a few landmark stations (ALT), on a binary heap. Settles only the states in a
+   * corridor towards the destinations.
+   */
+  ALT,
+  /**
+   * Bidirectional search on a contraction hierarchy, with the costs of the time of day at the start
+   * of travel, settling only a few stations up the hierarchy from each end. Routes that do not end
+   * before the time of day changes are searched on a binary heap instead. With travel time tables,
+   * only used on networks too large for them, since it finds the same routes a table does.
+   */
+  CH;
+
+  public static final int MAX_BUCKETS = 1 << 16;
+
+  /**
+   * Creates an empty queue for a search with the edge costs of {@code costModel}.
+   *
+   * @param costModel
+   * @param initialCapacity
+   * @return empty queue
+   */
+  public ArrivalQueue newQueue(CostModel costModel, int initialCapacity) {
+    if (usesBuckets(costModel)) {
+      return new BucketArrivalQueue(costModel.getMaxCost());
+    }
+    return new HeapArrivalQueue(initialCapacity);
+  }
+
+  /**
+   * @param costModel
+   * @return true if the queues of this engine for {@code costModel} are bucket queues, else they
+   *     are binary heaps
+   */
+  public boolean usesBuckets(CostModel costModel) {
+    return this == DIAL && costModel.getMinCost() > 0 && costModel.getMaxCost() < MAX_BUCKETS;
+  }
+}
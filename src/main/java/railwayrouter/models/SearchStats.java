@@ -0,0 +1,43 @@
+package railwayrouter.models;
+
+import lombok.Getter;
+
+/** Counts the work done by a route search */
+@Getter
+public class SearchStats {
+  long settledNodes;
+  long pushes;
+  long relaxations;
+
+  public SearchStats() {}
+
+  public SearchStats(long settledNodes, long pushes, long relaxations) {
+    this.settledNodes = settledNodes;
+    this.pushes = pushes;
+    this.relaxations = relaxations;
+  }
+
+  public void incrementSettledNodes() {
+    settledNodes++;
+  }
+
+  public void incrementPushes() {
+    pushes++;
+  }
+
+  public void incrementRelaxations() {
+    relaxations++;
+  }
+
+  @Override
+  public String toString() {
+    return "SearchStats{"
+        + "settledNodes="
+        + settledNodes
+        + ", pushes="
+        + pushes
+        + ", relaxations="
+        + relaxations
+        + '}';
+  }
+}
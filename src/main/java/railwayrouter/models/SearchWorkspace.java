@@ -0,0 +1,367 @@
+package railwayrouter.models;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reusable state of one route search on a {@code CsrGraph}: the arrival minutes, preceding station
+ * and solved flag of every state, the rank of every dest, the lower bound of the minutes from every
+ * station to the dests, and a priority queue. Instead of being filled before every search, every
+ * entry written is stamped with the generation of the search, and entries of older generations read
+ * as unset, so starting a search is O(1). Arrays only grow, to the most states searched so far.
+ *
+ * <p>Workspaces are pooled rather than kept per thread, so that searches reuse them whether they
+ * run on a fixed pool of threads or on a virtual thread per request. A search takes a workspace
+ * with {@link #acquire(int, int)} and gives it back with {@link #release()} in a {@code finally}
+ * block, so that it is released even if the search throws. The pool keeps at most {@code
+ * MAX_POOLED} workspaces, none with arrays longer than {@code MAX_POOLED_LENGTH}, so that a burst
+ * of concurrent or large searches does not keep its memory reachable afterwards. Workspaces
+ * released past those limits are left to the garbage collector.
+ *
+ * <p>Searches of a contraction hierarchy cannot be stamped, since they read the minutes of several
+ * searches at once, so their arrays are filled once when they grow, and every search resets the
+ * entries it wrote before the workspace is released, or calls {@link #clearHierarchy()} if it
+ * throws.
+ */
+public final class SearchWorkspace {
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+  public static final int UNKNOWN_LOWER_BOUND = -1;
+  // a few spare workspaces per core, for searches blocked on I/O between acquire and release
+  static final int MAX_POOLED = 2 * Runtime.getRuntime().availableProcessors();
+  // about 4 MB of state arrays per workspace
+  static final int MAX_POOLED_LENGTH = 1 << 18;
+  private static final Queue<SearchWorkspace> POOL = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger NUM_POOLED = new AtomicInteger();
+
+  private int generation;
+  // indexed by state
+  private int[] reachedGenerations = new int[0];
+  private int[] solvedGenerations = new int[0];
+  private int[] arrivalMinutes = new int[0];
+  private int[] prec = new int[0];
+  // indexed by station id
+  private int[] destGenerations = new int[0];
+  private int[] destRanks = new int[0];
+  private int[] lowerBoundGenerations = new int[0];
+  private int[] lowerBounds = new int[0];
+  // indexed by station id, UNREACHABLE and -1 between searches of a contraction hierarchy
+  private int[] hierarchyMinutes = new int[0];
+  private int[] hierarchyPrecEdges = new int[0];
+  // stations settled by searches of a contraction hierarchy, and their minutes
+  private int[] settled = new int[0];
+  private int[] destSettled = new int[0];
+  private int[] destSettledMinutes = new int[0];
+  private int[] destSettledOffsets = new int[0];
+  // edges and stations of the route found by a search of a contraction hierarchy
+  private int[] pathEdges = new int[0];
+  private int[] pathStations = new int[0];
+  private final HeapArrivalQueue heapQueue = new HeapArrivalQueue(64);
+  private BucketArrivalQueue bucketQueue;
+
+  private SearchWorkspace() {}
+
+  /**
+   * Takes a workspace from the pool, or creates one if none is free, and starts a search on it.
+   *
+   * @param numStates
+   * @param numStations
+   * @return workspace with every state unreached and unsolved, and no dest
+   */
+  public static SearchWorkspace acquire(int numStates, int numStations) {
+    SearchWorkspace workspace = POOL.poll();
+    if (workspace == null) {
+      workspace = new SearchWorkspace();
+    } else {
+      NUM_POOLED.decrementAndGet();
+    }
+    workspace.start(numStates, numStations);
+    return workspace;
+  }
+
+  /**
+   * Gives this workspace back to the pool, unless the pool is full or its arrays are too long. It
+   * must not be used afterwards.
+   */
+  public void release() {
+    if (getMaxLength() > MAX_POOLED_LENGTH) return;
+    if (NUM_POOLED.incrementAndGet() > MAX_POOLED) {
+      NUM_POOLED.decrementAndGet();
+      return;
+    }
+    POOL.offer(this);
+  }
+
+  /**
+   * @return number of workspaces in the pool
+   */
+  static int getNumPooled() {
+    return NUM_POOLED.get();
+  }
+
+  private int getMaxLength() {
+    int maxLength = Math.max(arrivalMinutes.length, destRanks.length);
+    maxLength = Math.max(maxLength, Math.max(hierarchyMinutes.length, destSettled.length));
+    return Math.max(maxLength, pathEdges.length);
+  }
+
+  private void start(int numStates, int numStations) {
+    if (arrivalMinutes.length < numStates) {
+      reachedGenerations = new int[numStates];
+      solvedGenerations = new int[numStates];
+      arrivalMinutes = new int[numStates];
+      prec = new int[numStates];
+    }
+    if (destRanks.length < numStations) {
+      destGenerations = new int[numStations];
+      destRanks = new int[numStations];
+      lowerBoundGenerations = new int[numStations];
+      lowerBounds = new int[numStations];
+    }
+    // after every other generation is used, stale stamps could match again
+    if (++generation == 0) {
+      Arrays.fill(reachedGenerations, 0);
+      Arrays.fill(solvedGenerations, 0);
+      Arrays.fill(destGenerations, 0);
+      Arrays.fill(lowerBoundGenerations, 0);
+      generation = 1;
+    }
+  }
+
+  /**
+   * @param state
+   * @return minutes after the start of travel {@code state} was reached in, or {@code UNREACHABLE}
+   */
+  public int getArrivalMinutes(int state) {
+    return reachedGenerations[state] == generation ? arrivalMinutes[state] : UNREACHABLE;
+  }
+
+  /**
+   * Reaches {@code state} in {@code minutes}, from station {@code precStation}.
+   *
+   * @param state
+   * @param minutes minutes after the start of travel
+   * @param precStation preceding station id, or -1 if none
+   */
+  public void reach(int state, int minutes, int precStation) {
+    reachedGenerations[state] = generation;
+    arrivalMinutes[state] = minutes;
+    prec[state] = precStation;
+  }
+
+  /**
+   * @param state reached state
+   * @return preceding station id of {@code state}, or -1 if none
+   */
+  public int getPrec(int state) {
+    return prec[state];
+  }
+
+  /**
+   * @param state reached state
+   * @param precStation preceding station id
+   */
+  public void setPrec(int state, int precStation) {
+    prec[state] = precStation;
+  }
+
+  public boolean isSolved(int state) {
+    return solvedGenerations[state] == generation;
+  }
+
+  public void solve(int state) {
+    solvedGenerations[state] = generation;
+  }
+
+  /**
+   * @param station
+   * @return 1 + index in destStations of {@code station}, 0 if not a dest
+   */
+  public int getDestRank(int station) {
+    return destGenerations[station] == generation ? destRanks[station] : 0;
+  }
+
+  public void setDestRank(int station, int destRank) {
+    destGenerations[station] = generation;
+    destRanks[station] = destRank;
+  }
+
+  /**
+   * @param station
+   * @return lower bound of the minutes from {@code station} to the dests, {@code
+   *     UNKNOWN_LOWER_BOUND} if not set in this search
+   */
+  public int getLowerBound(int station) {
+    return lowerBoundGenerations[station] == generation
+        ? lowerBounds[station]
+        : UNKNOWN_LOWER_BOUND;
+  }
+
+  public void setLowerBound(int station, int lowerBound) {
+    lowerBoundGenerations[station] = generation;
+    lowerBounds[station] = lowerBound;
+  }
+
+  /**
+   * Arrival minutes of every state, only valid for the states reached in this search. See {@link
+   * #getArrivalMinutes(int)}.
+   *
+   * @return arrival minutes array, of at least numStates entries
+   */
+  public int[] getArrivalMinutes() {
+    return arrivalMinutes;
+  }
+
+  /**
+   * Preceding station ids of every state, only valid for the states reached in this search.
+   *
+   * @return preceding station ids array, of at least numStates entries
+   */
+  public int[] getPrecs() {
+    return prec;
+  }
+
+  /**
+   * Minutes taken to reach every station in a search of a contraction hierarchy. Every entry is
+   * {@code UNREACHABLE} when the workspace is acquired, and must be again when it is released.
+   *
+   * @param numStations
+   * @return minutes array, of at least numStations entries
+   */
+  public int[] getHierarchyMinutes(int numStations) {
+    if (hierarchyMinutes.length < numStations) {
+      hierarchyMinutes = new int[numStations];
+      Arrays.fill(hierarchyMinutes, UNREACHABLE);
+    }
+    return hierarchyMinutes;
+  }
+
+  /**
+   * Edge every station is reached by in a search of a contraction hierarchy. Every entry is -1 when
+   * the workspace is acquired, and must be again when it is released.
+   *
+   * @param numStations
+   * @return preceding edges array, of at least numStations entries
+   */
+  public int[] getHierarchyPrecEdges(int numStations) {
+    if (hierarchyPrecEdges.length < numStations) {
+      hierarchyPrecEdges = new int[numStations];
+      Arrays.fill(hierarchyPrecEdges, -1);
+    }
+    return hierarchyPrecEdges;
+  }
+
+  /**
+   * Sets every entry of {@link #getHierarchyMinutes(int)} back to {@code UNREACHABLE} and of {@link
+   * #getHierarchyPrecEdges(int)} back to -1, for a search of a contraction hierarchy that stopped
+   * before resetting the entries it wrote.
+   */
+  public void clearHierarchy() {
+    Arrays.fill(hierarchyMinutes, UNREACHABLE);
+    Arrays.fill(hierarchyPrecEdges, -1);
+  }
+
+  /**
+   * @param length
+   * @return buffer of at least {@code length} stations settled by a search
+   */
+  public int[] getSettled(int length) {
+    if (settled.length < length) {
+      settled = new int[length];
+    }
+    return settled;
+  }
+
+  /**
+   * Stations settled by the searches from every dest, one after the other. Growing the buffer keeps
+   * its entries.
+   *
+   * @param length
+   * @return buffer of at least {@code length} stations
+   */
+  public int[] getDestSettled(int length) {
+    if (destSettled.length < length) {
+      destSettled = Arrays.copyOf(destSettled, Math.max(length, 2 * destSettled.length));
+    }
+    return destSettled;
+  }
+
+  /**
+   * Minutes of every station in {@link #getDestSettled(int)}. Growing the buffer keeps its entries.
+   *
+   * @param length
+   * @return buffer of at least {@code length} minutes
+   */
+  public int[] getDestSettledMinutes(int length) {
+    if (destSettledMinutes.length < length) {
+      destSettledMinutes =
+          Arrays.copyOf(destSettledMinutes, Math.max(length, 2 * destSettledMinutes.length));
+    }
+    return destSettledMinutes;
+  }
+
+  /**
+   * @param length
+   * @return buffer of at least {@code length} offsets into {@link #getDestSettled(int)}
+   */
+  public int[] getDestSettledOffsets(int length) {
+    if (destSettledOffsets.length < length) {
+      destSettledOffsets = new int[length];
+    }
+    return destSettledOffsets;
+  }
+
+  /**
+   * @param length
+   * @return buffer of at least {@code length} edges of a contraction hierarchy
+   */
+  public int[] getPathEdges(int length) {
+    if (pathEdges.length < length) {
+      pathEdges = new int[length];
+    }
+    return pathEdges;
+  }
+
+  /**
+   * @param length
+   * @return buffer of at least {@code length} station ids along a route
+   */
+  public int[] getPathStations(int length) {
+    if (pathStations.length < length) {
+      pathStations = new int[length];
+    }
+    return pathStations;
+  }
+
+  /**
+   * Returns the empty binary heap, for searches whose costs are not those of a {@code CostModel}.
+   *
+   * @return empty queue
+   */
+  public ArrivalQueue getHeapQueue() {
+    heapQueue.clear();
+    return heapQueue;
+  }
+
+  /**
+   * Returns an empty queue of {@code searchEngine}, the same as {@link
+   * SearchEngine#newQueue(CostModel, int)}, reusing the queue of the previous search if possible.
+   *
+   * @param searchEngine
+   * @param costModel
+   * @return empty queue
+   */
+  public ArrivalQueue getQueue(SearchEngine searchEngine, CostModel costModel) {
+    if (!searchEngine.usesBuckets(costModel)) {
+      heapQueue.clear();
+      return heapQueue;
+    }
+    if (bucketQueue == null || bucketQueue.getMaxCost() < costModel.getMaxCost()) {
+      bucketQueue = new BucketArrivalQueue(costModel.getMaxCost());
+    } else {
+      bucketQueue.clear();
+    }
+    return bucketQueue;
+  }
+}
@@ -1,10 +1,13 @@
 package railwayrouter.models;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 
-// immutable class
+// immutable class, holding its line code and name pre-encoded as UTF-8 for ResponseEncoder
 @Getter
 @EqualsAndHashCode
 public final class Station {
@@ -14,18 +17,78 @@ public final class Station {
   final String name;
   final LocalDateTime openingDate;
 
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  final byte[] lineCodeBytes;
+
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  final byte[] nameBytes;
+
   public Station(int id, String code, String name, LocalDateTime openingDate) {
     this.id = id;
     this.lineCode = code.substring(0, 2);
     this.number = Integer.parseInt(code.substring(2));
     this.name = name;
     this.openingDate = openingDate;
+    this.lineCodeBytes = lineCode.getBytes(StandardCharsets.UTF_8);
+    this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
   }
 
   public String getCode() {
     return lineCode + number;
   }
 
+  /**
+   * @return number of UTF-8 bytes of the line code
+   */
+  public int getLineCodeByteLength() {
+    return lineCodeBytes.length;
+  }
+
+  /**
+   * @param index
+   * @return UTF-8 byte of the line code at {@code index}
+   */
+  public byte getLineCodeByte(int index) {
+    return lineCodeBytes[index];
+  }
+
+  /**
+   * Copies the UTF-8 bytes of the line code into {@code out}, at its position.
+   *
+   * @param out
+   * @return out
+   */
+  public ByteBuffer putLineCodeBytes(ByteBuffer out) {
+    return out.put(lineCodeBytes);
+  }
+
+  /**
+   * @return number of UTF-8 bytes of the name
+   */
+  public int getNameByteLength() {
+    return nameBytes.length;
+  }
+
+  /**
+   * @param index
+   * @return UTF-8 byte of the name at {@code index}
+   */
+  public byte getNameByte(int index) {
+    return nameBytes[index];
+  }
+
+  /**
+   * Copies the UTF-8 bytes of the name into {@code out}, at its position.
+   *
+   * @param out
+   * @return out
+   */
+  public ByteBuffer putNameBytes(ByteBuffer out) {
+    return out.put(nameBytes);
+  }
+
   @Override
   public String toString() {
     return "Station{"
@@ -0,0 +1,247 @@
+package railwayrouter.models;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable index of the station names of one network snapshot, matching names case-insensitively
+ * the same way as {@code String.CASE_INSENSITIVE_ORDER}.
+ *
+ * <p>Exact lookups go through an open-addressing hash table of the case-folded names, and neither
+ * fold nor allocate the name looked up. Names are also kept sorted by their case-folded form, so
+ * that names starting with a prefix are found by binary search. Names within one edit (insertion,
+ * deletion or substitution) of starting with a prefix are found by scanning every name, which takes
+ * microseconds for a network of a few hundred names.
+ */
+public final class StationNameIndex {
+  protected static final int MIN_TYPO_PREFIX_LENGTH = 3; // shorter prefixes are one edit from all
+  private static final int[] NO_STATION_IDS = new int[0];
+
+  private final String[] names; // sorted by folded name
+  private final String[] foldedNames; // sorted
+  private final int[][] stationIds; // ids of the stations with each name, in increasing order
+  private final List<List<Station>> stations; // stations with each name, in increasing id order
+  private final int[] table; // 1 + index of a name, 0 if empty
+  private final int mask;
+  private final Map<String, List<Station>> map = new StationsByName();
+
+  /**
+   * Builds the index of the names of {@code stations}. If several stations have names differing
+   * only in case, the name of the first one is used.
+   *
+   * @param stations stations with dense ids, in increasing id order
+   */
+  public StationNameIndex(List<Station> stations) {
+    TreeMap<String, List<Station>> foldedNameToStations = new TreeMap<>();
+    for (Station station : stations) {
+      foldedNameToStations
+          .computeIfAbsent(fold(station.getName()), k -> new ArrayList<>())
+          .add(station);
+    }
+
+    int numNames = foldedNameToStations.size();
+    names = new String[numNames];
+    foldedNames = foldedNameToStations.keySet().toArray(new String[0]);
+    stationIds = new int[numNames][];
+    List<List<Station>> stationsByName = new ArrayList<>(numNames);
+    int capacity = Integer.highestOneBit(Math.max(1, numNames) * 2 - 1) << 1; // load <= 0.5
+    table = new int[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < numNames; i++) {
+      List<Station> stationsWithName = foldedNameToStations.get(foldedNames[i]);
+      names[i] = stationsWithName.get(0).getName();
+      stationIds[i] = stationsWithName.stream().mapToInt(Station::getId).toArray();
+      stationsByName.add(Collections.unmodifiableList(stationsWithName));
+
+      int slot = hash(foldedNames[i]) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = i + 1;
+    }
+    this.stations = Collections.unmodifiableList(stationsByName);
+  }
+
+  /** @return number of distinct names */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * @param name
+   * @return index of {@code name} in the sorted names, or -1 if no station has that name
+   */
+  public int getNameId(CharSequence name) {
+    for (int slot = hash(name) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      int nameId = table[slot] - 1;
+      if (equalsFolded(name, foldedNames[nameId])) {
+        return nameId;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param name
+   * @return ids of the stations named {@code name}, in increasing order, or an empty array if none
+   */
+  public int[] getStationIds(CharSequence name) {
+    int nameId = getNameId(name);
+    return nameId == -1 ? NO_STATION_IDS : stationIds[nameId].clone();
+  }
+
+  /**
+   * @param nameId
+   * @return name of {@code nameId}
+   */
+  public String getName(int nameId) {
+    return names[nameId];
+  }
+
+  /**
+   * Returns the names starting with {@code prefix}, in alphabetical order, followed by the names
+   * within one edit of starting with {@code prefix}, in alphabetical order, up to {@code limit}
+   * names in total. Names within one edit are only returned for prefixes of at least {@code
+   * MIN_TYPO_PREFIX_LENGTH} chars.
+   *
+   * @param prefix
+   * @param limit
+   * @return names completing {@code prefix}
+   */
+  public List<String> complete(String prefix, int limit) {
+    String foldedPrefix = fold(prefix);
+    List<String> completions = new ArrayList<>();
+    int first = Arrays.binarySearch(foldedNames, foldedPrefix);
+    first = first >= 0 ? first : -first - 1;
+    int last = first;
+    while (last < foldedNames.length && foldedNames[last].startsWith(foldedPrefix)) {
+      if (completions.size() < limit) {
+        completions.add(names[last]);
+      }
+      last++;
+    }
+    if (foldedPrefix.length() < MIN_TYPO_PREFIX_LENGTH) return completions;
+    for (int i = 0; i < foldedNames.length && completions.size() < limit; i++) {
+      if ((i < first || i >= last) && startsWithinOneEdit(foldedNames[i], foldedPrefix)) {
+        completions.add(names[i]);
+      }
+    }
+    return completions;
+  }
+
+  /**
+   * Returns an unmodifiable map view of the index, from name to the stations with that name. Like
+   * the map of {@code DataProcessor.generateNameToStationsMap}, keys are matched case-insensitively
+   * and iterated in alphabetical order. Looking up a name allocates nothing.
+   *
+   * @return map from name to stations with that name
+   */
+  public Map<String, List<Station>> asMap() {
+    return map;
+  }
+
+  /**
+   * @param foldedName
+   * @param foldedPrefix
+   * @return true if some prefix of {@code foldedName} is at most one insertion, deletion or
+   *     substitution away from {@code foldedPrefix}
+   */
+  protected static boolean startsWithinOneEdit(String foldedName, String foldedPrefix) {
+    int n = foldedPrefix.length();
+    int i = 0;
+    while (i < n && i < foldedName.length() && foldedPrefix.charAt(i) == foldedName.charAt(i)) {
+      i++;
+    }
+    if (i == n) return true;
+    return foldedName.regionMatches(i + 1, foldedPrefix, i + 1, n - i - 1) // substitution
+        || foldedName.regionMatches(i, foldedPrefix, i + 1, n - i - 1) // extra char in prefix
+        || foldedName.regionMatches(i + 1, foldedPrefix, i, n - i); // missing char in prefix
+  }
+
+  /**
+   * @param str
+   * @return {@code str} with every char folded, so that two strings are equal ignoring case as
+   *     defined by {@code String.CASE_INSENSITIVE_ORDER} iff their folded forms are equal
+   */
+  protected static String fold(CharSequence str) {
+    StringBuilder stringBuilder = new StringBuilder(str.length());
+    for (int i = 0; i < str.length(); i++) {
+      stringBuilder.append(fold(str.charAt(i)));
+    }
+    return stringBuilder.toString();
+  }
+
+  private static char fold(char c) {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  private static int hash(CharSequence str) {
+    int hash = 0;
+    for (int i = 0; i < str.length(); i++) {
+      hash = 31 * hash + fold(str.charAt(i));
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private final class StationsByName extends AbstractMap<String, List<Station>> {
+    @Override
+    public List<Station> get(Object key) {
+      if (!(key instanceof CharSequence)) return null;
+      int nameId = getNameId((CharSequence) key);
+      return nameId == -1 ? null : stations.get(nameId);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public Set<Entry<String, List<Station>>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public Iterator<Entry<String, List<Station>>> iterator() {
+          return new Iterator<>() {
+            int nameId = 0;
+
+            @Override
+            public boolean hasNext() {
+              return nameId < names.length;
+            }
+
+            @Override
+            public Entry<String, List<Station>> next() {
+              if (!hasNext()) throw new NoSuchElementException();
+              Entry<String, List<Station>> entry =
+                  new SimpleImmutableEntry<>(names[nameId], stations.get(nameId));
+              nameId++;
+              return entry;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return names.length;
+        }
+      };
+    }
+  }
+
+  private static boolean equalsFolded(CharSequence str, String foldedStr) {
+    if (str.length() != foldedStr.length()) return false;
+    for (int i = 0; i < str.length(); i++) {
+      if (fold(str.charAt(i)) != foldedStr.charAt(i)) return false;
+    }
+    return true;
+  }
+}
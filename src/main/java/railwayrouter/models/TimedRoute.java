@@ -0,0 +1,47 @@
+package railwayrouter.models;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Route with the date times it departs from its first station and arrives at its last station, e.g.
+ * the latest route arriving by a given date time. The minutes of the route are the minutes between
+ * the two, including any wait at a station, e.g. for a line to start operating. {@code
+ * waitMinutes[i]} is the wait at {@code stations.get(i)} before going on to {@code stations.get(i +
+ * 1)}.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class TimedRoute extends Route {
+  private LocalDateTime departureDateTime;
+  private LocalDateTime arrivalDateTime;
+  private int[] waitMinutes;
+
+  public TimedRoute(
+      List<Station> stations,
+      TimeOfDay timeOfDay,
+      LocalDateTime departureDateTime,
+      LocalDateTime arrivalDateTime) {
+    this(
+        stations,
+        timeOfDay,
+        departureDateTime,
+        arrivalDateTime,
+        new int[Math.max(0, stations.size() - 1)]);
+  }
+
+  public TimedRoute(
+      List<Station> stations,
+      TimeOfDay timeOfDay,
+      LocalDateTime departureDateTime,
+      LocalDateTime arrivalDateTime,
+      int[] waitMinutes) {
+    super(Duration.between(departureDateTime, arrivalDateTime).toMinutes(), stations, timeOfDay);
+    this.departureDateTime = departureDateTime;
+    this.arrivalDateTime = arrivalDateTime;
+    this.waitMinutes = waitMinutes;
+  }
+}
@@ -0,0 +1,36 @@
+package railwayrouter.models;
+
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Fastest travel times from every source station name to every destination station name, for one
+ * start date time. A name stands for all the stations with that name, so the travel time between
+ * two names is the travel time of the fastest route between any of their stations. {@code
+ * minutes[src * destNames.size() + dest]} is the travel time from {@code srcNames.get(src)} to
+ * {@code destNames.get(dest)}, or {@code UNREACHABLE}.
+ */
+@Getter
+public final class TravelTimeMatrix {
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  final List<String> srcNames;
+  final List<String> destNames;
+  final int[] minutes;
+
+  public TravelTimeMatrix(List<String> srcNames, List<String> destNames, int[] minutes) {
+    this.srcNames = Collections.unmodifiableList(srcNames);
+    this.destNames = Collections.unmodifiableList(destNames);
+    this.minutes = minutes;
+  }
+
+  /**
+   * @param src index in {@code srcNames}
+   * @param dest index in {@code destNames}
+   * @return minutes taken to travel from src to dest, or {@code UNREACHABLE}
+   */
+  public int getTravelTime(int src, int dest) {
+    return minutes[src * destNames.size() + dest];
+  }
+}
@@ -0,0 +1,48 @@
+package railwayrouter.models;
+
+import lombok.Getter;
+
+/**
+ * Fastest travel times between every pair of stations of one {@code CsrGraph}, for every time of
+ * day, assuming the time of day does not change during travel. {@code
+ * minutes[timeOfDay.ordinal()][src][dest]} is the travel time from src to dest, or {@code
+ * UNREACHABLE}, and {@code prec[timeOfDay.ordinal()][src][dest]} is the station before dest on that
+ * route, or -1 if none.
+ *
+ * <p>Each row of {@code prec} is the tree of preceding stations of a full dijkstra search from src,
+ * so a route is read back from dest to src in time proportional to its length.
+ */
+@Getter
+public final class TravelTimeTable {
+  public static final short UNREACHABLE = -1;
+  public static final int MAX_STATIONS = 1024; // 12 MB of tables at most
+
+  final short[][][] minutes;
+  final short[][][] prec;
+
+  public TravelTimeTable(short[][][] minutes, short[][][] prec) {
+    this.minutes = minutes;
+    this.prec = prec;
+  }
+
+  /**
+   * @param timeOfDay
+   * @param src
+   * @param dest
+   * @return minutes taken to travel from src to dest, or Integer.MAX_VALUE if dest is unreachable
+   */
+  public int getTravelTime(TimeOfDay timeOfDay, int src, int dest) {
+    short cur = minutes[timeOfDay.ordinal()][src][dest];
+    return cur == UNREACHABLE ? Integer.MAX_VALUE : cur;
+  }
+
+  /**
+   * @param timeOfDay
+   * @param src
+   * @param dest
+   * @return station id before dest on the fastest route from src, or -1 if none
+   */
+  public int getPrecedingStationId(TimeOfDay timeOfDay, int src, int dest) {
+    return prec[timeOfDay.ordinal()][src][dest];
+  }
+}
@@ -0,0 +1,234 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.TimeOfDayUtil.MINUTES_PER_WEEK;
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getMinutesSinceTimeOfDayChange;
+import static railwayrouter.utils.TimeOfDayUtil.getMinutesUntilTimeOfDayChange;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDay;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDayOfMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
+
+import java.nio.IntBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import railwayrouter.models.ArrivalQueue;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.SearchStats;
+import railwayrouter.models.SearchWorkspace;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimedRoute;
+
+/**
+ * Search of {@code RouteFinder} for the route departing as late as possible that still arrives by a
+ * date time, on the CSR form of the network.
+ */
+final class ArriveBySearch {
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  /**
+   * Runs dijkstra algorithm backwards along the incoming edges, from every station in destStations
+   * at once, and stops once the first station in srcStations is solved. Each station is keyed by
+   * the minutes before {@code arriveByDateTime} of its latest departure that still arrives at a
+   * dest in time. Among routes departing at the same time, the one from the later src wins.
+   *
+   * <p>The latest departure along an edge is found by walking back across the times of day from the
+   * latest departure of its target, see {@link #getLatestDeparture}. The search lets a route wait
+   * at a station, e.g. for a line that stops operating earlier, so departing later never arrives
+   * earlier, and a single search finds the latest route even though costs change with the time of
+   * day. Waits can be longer than any edge cost, so the search always runs on a binary heap.
+   *
+   * <p>The latest departures only bound when each station must be left, so the route found is then
+   * replayed forward from its departure, waiting at a station only where that arrives earlier, see
+   * {@link #getEarliestDeparture}. Its arrival date time and waits are the ones of the replay.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param arriveByDateTime
+   * @param graph
+   * @param costModel
+   * @param stats
+   * @return latest {@code TimedRoute} from a station in srcStations to a station in destStations
+   */
+  static TimedRoute search(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime arriveByDateTime,
+      CsrGraph graph,
+      CostModel costModel,
+      SearchStats stats) {
+    // indexed by station id, minutes before arriveByDateTime and next edge in the latest route
+    SearchWorkspace workspace =
+        SearchWorkspace.acquire(graph.getNumStations(), graph.getNumStations());
+    try {
+      return search(
+          srcStations, destStations, arriveByDateTime, graph, costModel, stats, workspace);
+    } finally {
+      workspace.release();
+    }
+  }
+
+  private static TimedRoute search(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime arriveByDateTime,
+      CsrGraph graph,
+      CostModel costModel,
+      SearchStats stats,
+      SearchWorkspace workspace) {
+    int numStations = graph.getNumStations();
+    IntBuffer targets = graph.getTargets();
+    int[] edgeSources = graph.getEdgeSources();
+    int[] incomingOffsets = graph.getIncomingOffsets();
+    int[] incomingEdges = graph.getIncomingEdges();
+    int[][] costs = costModel.getCosts();
+    int arriveByMinuteOfWeek = getMinuteOfWeek(toEpochMinute(arriveByDateTime));
+    ArrivalQueue pq = workspace.getHeapQueue();
+
+    // the srcs are the dests of the backward search
+    for (int i = 0; i < srcStations.size(); i++) {
+      workspace.setDestRank(srcStations.get(i).getId(), i + 1);
+    }
+    for (Station dest : destStations) {
+      if (workspace.getArrivalMinutes(dest.getId()) != 0) {
+        workspace.reach(dest.getId(), 0, -1);
+        pq.add(0, dest.getId());
+        stats.incrementPushes();
+      }
+    }
+
+    int best = -1; // best src found so far
+    while (!pq.isEmpty()) {
+      int cur = ArrivalQueue.getState(pq.remove());
+      if (workspace.isSolved(cur)) continue;
+      int departureMinutesCur = workspace.getArrivalMinutes(cur);
+      if (best != -1) {
+        // every cost is positive, so all stations departing at the same time as the first solved
+        // src already have their final departure time
+        if (departureMinutesCur > workspace.getArrivalMinutes(best)) break;
+        if (workspace.getDestRank(cur) > workspace.getDestRank(best)) best = cur;
+        continue;
+      }
+      workspace.solve(cur);
+      stats.incrementSettledNodes();
+      if (workspace.getDestRank(cur) > 0) {
+        best = cur;
+        continue;
+      }
+
+      // relax incoming edges
+      for (int i = incomingOffsets[cur]; i < incomingOffsets[cur + 1]; i++) {
+        int edge = incomingEdges[i];
+        int u = edgeSources[edge];
+        if (!workspace.isSolved(u)) {
+          stats.incrementRelaxations();
+          int departureMinutesU =
+              getLatestDeparture(costs, edge, arriveByMinuteOfWeek, departureMinutesCur);
+          if (departureMinutesU < workspace.getArrivalMinutes(u)) {
+            workspace.reach(u, departureMinutesU, edge);
+            pq.add(departureMinutesU, u);
+            stats.incrementPushes();
+          }
+        }
+      }
+    }
+    if (best == -1) return null;
+
+    // every station is left by its next edge at most once, so the route has fewer than
+    // numStations edges
+    int[] edges = workspace.getPathEdges(numStations);
+    int numEdges = 0;
+    List<Station> stations = new ArrayList<>();
+    stations.add(graph.getStations()[best]);
+    for (int cur = best; workspace.getPrec(cur) != -1; cur = targets.get(workspace.getPrec(cur))) {
+      edges[numEdges++] = workspace.getPrec(cur);
+      stations.add(graph.getStations()[targets.get(workspace.getPrec(cur))]);
+    }
+
+    // replay the route forward from its departure
+    int departureMinutesBest = workspace.getArrivalMinutes(best);
+    int departureMinuteOfWeek =
+        Math.floorMod(arriveByMinuteOfWeek - departureMinutesBest, MINUTES_PER_WEEK);
+    int[] waitMinutes = new int[numEdges];
+    int minutes = 0; // since the departure
+    for (int i = 0; i < numEdges; i++) {
+      int edge = edges[i];
+      int edgeDepartureMinutes = getEarliestDeparture(costs, edge, departureMinuteOfWeek, minutes);
+      int minuteOfWeek = (departureMinuteOfWeek + edgeDepartureMinutes) % MINUTES_PER_WEEK;
+      int cost = costs[getTimeOfDayOfMinuteOfWeek(minuteOfWeek).ordinal()][edge];
+      waitMinutes[i] = edgeDepartureMinutes - minutes;
+      minutes = edgeDepartureMinutes + cost;
+    }
+    LocalDateTime departureDateTime = arriveByDateTime.minusMinutes(departureMinutesBest);
+    return new TimedRoute(
+        stations,
+        getTimeOfDay(departureDateTime),
+        departureDateTime,
+        departureDateTime.plusMinutes(minutes),
+        waitMinutes);
+  }
+
+  /**
+   * Returns the departure along {@code edge}, at or after {@code minutes}, that arrives the
+   * earliest, and the earliest such departure if several do. Within a time of day the cost of the
+   * edge is constant, so only {@code minutes} and the first minute of each later time of day can
+   * arrive the earliest. A departure later than {@code minutes} is only returned if the line is not
+   * operating at {@code minutes}, or if waiting for another time of day arrives strictly earlier.
+   *
+   * @param costs
+   * @param edge
+   * @param startMinuteOfWeek minute of week of the departure of the route
+   * @param minutes minutes since the departure of the route of the arrival at the source of {@code
+   *     edge}
+   * @return minutes since the departure of the route of the departure along {@code edge}, or
+   *     {@code UNREACHABLE} if the line does not operate within a week after {@code minutes}
+   */
+  private static int getEarliestDeparture(
+      int[][] costs, int edge, int startMinuteOfWeek, int minutes) {
+    int bestDepartureMinutes = UNREACHABLE;
+    int bestArrivalMinutes = UNREACHABLE;
+    int departureMinutes = minutes;
+    while (departureMinutes < bestArrivalMinutes
+        && departureMinutes - minutes <= MINUTES_PER_WEEK) {
+      int minuteOfWeek = (startMinuteOfWeek + departureMinutes) % MINUTES_PER_WEEK;
+      int cost = costs[getTimeOfDayOfMinuteOfWeek(minuteOfWeek).ordinal()][edge];
+      if (cost != CostModel.CLOSED && departureMinutes + cost < bestArrivalMinutes) {
+        bestDepartureMinutes = departureMinutes;
+        bestArrivalMinutes = departureMinutes + cost;
+      }
+      departureMinutes += getMinutesUntilTimeOfDayChange(minuteOfWeek);
+    }
+    return bestDepartureMinutes;
+  }
+
+  /**
+   * Returns the latest departure along {@code edge} that arrives {@code arrivalMinutes} before the
+   * arrive by time or earlier. Walks back from the arrival one time of day at a time: within a time
+   * of day the cost of the edge is constant, so the latest departure in it is either its last
+   * minute, or the cost before the arrival, whichever is earlier. The first time of day with such a
+   * departure has the latest one.
+   *
+   * @param costs
+   * @param edge
+   * @param arriveByMinuteOfWeek minute of week of the arrive by time
+   * @param arrivalMinutes minutes before the arrive by time
+   * @return minutes before the arrive by time of the latest departure, or {@code UNREACHABLE} if
+   *     the line does not operate within a week before the arrival
+   */
+  private static int getLatestDeparture(
+      int[][] costs, int edge, int arriveByMinuteOfWeek, int arrivalMinutes) {
+    int departureMinutes = arrivalMinutes;
+    while (departureMinutes - arrivalMinutes <= MINUTES_PER_WEEK) {
+      int minuteOfWeek = Math.floorMod(arriveByMinuteOfWeek - departureMinutes, MINUTES_PER_WEEK);
+      int cost = costs[getTimeOfDayOfMinuteOfWeek(minuteOfWeek).ordinal()][edge];
+      // first minute of this time of day, in minutes before the arrive by time
+      int firstMinutes = departureMinutes + getMinutesSinceTimeOfDayChange(minuteOfWeek) - 1;
+      if (cost != CostModel.CLOSED && cost <= firstMinutes - arrivalMinutes) {
+        return Math.max(departureMinutes, arrivalMinutes + cost);
+      }
+      departureMinutes = firstMinutes + 1;
+    }
+    return UNREACHABLE;
+  }
+}
@@ -0,0 +1,143 @@
+package railwayrouter.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Handles a stream of queries, one per line, on a pool of worker threads sharing one {@code
+ * QueryHandler}. Each line is a source, destination and travel start date time separated by a comma
+ * or a tab. Blank lines and lines starting with # are skipped.
+ *
+ * <p>Responses are written in the same order as the queries. Each response is preceded by its query
+ * line prefixed with {@code QUERY_PREFIX}, and followed by a blank line. At most {@code
+ * maxInFlight} queries are read ahead of the oldest response not yet written, so memory use does
+ * not grow with the number of queries, and a slow writer slows down reading.
+ */
+public class BatchQueryHandler {
+  private static final Logger LOGGER = Logger.getLogger(BatchQueryHandler.class.getName());
+
+  protected static final String INVALID_QUERY_STRING =
+      "Invalid query. Expected source, destination and travel date time separated by a comma or"
+          + " tab.";
+  protected static final String ERROR_STRING = "Unable to process request.";
+  protected static final String COMMENT_PREFIX = "#";
+  protected static final String QUERY_PREFIX = "> ";
+  private static final int IN_FLIGHT_PER_THREAD = 64;
+
+  private final QueryHandler queryHandler;
+  private final int numThreads;
+  private final int maxInFlight;
+
+  public BatchQueryHandler(QueryHandler queryHandler, int numThreads) {
+    this(queryHandler, numThreads, numThreads * IN_FLIGHT_PER_THREAD);
+  }
+
+  public BatchQueryHandler(QueryHandler queryHandler, int numThreads, int maxInFlight) {
+    if (numThreads < 1 || maxInFlight < 1) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid number of threads %d or queries in flight %d", numThreads, maxInFlight));
+    }
+    this.queryHandler = queryHandler;
+    this.numThreads = numThreads;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Reads queries from {@code reader} until the end of the stream, and writes their responses to
+   * {@code writer} in the same order.
+   *
+   * @param reader
+   * @param writer
+   * @return number of queries handled
+   */
+  public long handleQueries(BufferedReader reader, Writer writer)
+      throws IOException, InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    Deque<PendingQuery> inFlight = new ArrayDeque<>(maxInFlight);
+    long numQueries = 0;
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank() || line.startsWith(COMMENT_PREFIX)) continue;
+        if (inFlight.size() == maxInFlight) {
+          writeResponse(inFlight.remove(), writer);
+        }
+        String[] query = parseQuery(line);
+        inFlight.add(new PendingQuery(line, executor.submit(() -> handleQuery(query))));
+        numQueries++;
+      }
+      while (!inFlight.isEmpty()) {
+        writeResponse(inFlight.remove(), writer);
+      }
+      writer.flush();
+    } finally {
+      executor.shutdownNow();
+    }
+    LOGGER.info(
+        String.format(
+            "Handled %d queries on %d threads, %s",
+            numQueries, numThreads, queryHandler.getRouteCache()));
+    return numQueries;
+  }
+
+  /**
+   * Splits a line into source, destination and travel start date time. Fields are separated by tabs
+   * if the line contains one, else by commas.
+   *
+   * @param line
+   * @return the three fields, trimmed, or null if the line does not have exactly three fields
+   */
+  protected static String[] parseQuery(String line) {
+    String[] fields = line.split(line.indexOf('\t') != -1 ? "\t" : ",", -1);
+    if (fields.length != 3) return null;
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = fields[i].trim();
+    }
+    return fields;
+  }
+
+  private String handleQuery(String[] query) {
+    if (query == null) return INVALID_QUERY_STRING;
+    try {
+      return queryHandler.handleQuery(query[0], query[1], query[2]);
+    } catch (Exception e) {
+      LOGGER.severe(
+          String.format("Query %s to %s at %s failed: %s", query[0], query[1], query[2], e));
+      return ERROR_STRING;
+    }
+  }
+
+  private static void writeResponse(PendingQuery query, Writer writer)
+      throws IOException, InterruptedException {
+    writer.write(QUERY_PREFIX);
+    writer.write(query.line);
+    writer.write('\n');
+    try {
+      writer.write(query.response.get());
+    } catch (ExecutionException e) {
+      // handleQuery catches every exception, so this is only reached if an Error is thrown
+      LOGGER.severe(String.format("Query failed: %s", e.getCause()));
+      writer.write(ERROR_STRING);
+    }
+    writer.write("\n\n");
+  }
+
+  private static final class PendingQuery {
+    final String line;
+    final Future<String> response;
+
+    PendingQuery(String line, Future<String> response) {
+      this.line = line;
+      this.response = response;
+    }
+  }
+}
@@ -0,0 +1,356 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getMinutesUntilTimeOfDayChange;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDay;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import railwayrouter.models.ArrivalQueue;
+import railwayrouter.models.ContractionHierarchy;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.Route;
+import railwayrouter.models.SearchStats;
+import railwayrouter.models.SearchWorkspace;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+/**
+ * Query of the {@code CH} engine of {@code RouteFinder}, on the contraction hierarchy of the CSR
+ * form of the network.
+ */
+final class ContractionHierarchyQuery {
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  /**
+   * Finds the shortest route from stations in srcStations to stations in destStations on the
+   * contraction hierarchy of {@code graph}, with the costs of the time of day at startDateTime: one
+   * search up the hierarchy from every src, one search up the reversed hierarchy from every dest,
+   * and for every (src, dest) pair, the station both reach the fastest. The pair is chosen with the
+   * same ties as {@link MultiSourceDijkstra#search}, but the route between them may be another of
+   * several equally fast ones.
+   *
+   * <p>As with {@link RouteFinder#lookUpRoute}, a route that ends before the time of day changes is
+   * as fast as the route the full search finds. Otherwise, or if there is no such route, returns
+   * null and the route has to be searched.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param startDateTime
+   * @param graph
+   * @param hierarchy contraction hierarchy of {@code graph}
+   * @param stats
+   * @return shortest {@code Route} from a station in srcStations to a station in destStations, or
+   *     null if it cannot be found on the hierarchy
+   */
+  static Route query(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      ContractionHierarchy hierarchy,
+      SearchStats stats) {
+    SearchWorkspace workspace = SearchWorkspace.acquire(0, graph.getNumStations());
+    try {
+      return query(srcStations, destStations, startDateTime, graph, hierarchy, stats, workspace);
+    } catch (RuntimeException | Error e) {
+      // the search stopped before resetting the entries it wrote
+      workspace.clearHierarchy();
+      throw e;
+    } finally {
+      workspace.release();
+    }
+  }
+
+  private static Route query(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      ContractionHierarchy hierarchy,
+      SearchStats stats,
+      SearchWorkspace workspace) {
+    TimeOfDay timeOfDay = getTimeOfDay(startDateTime);
+    int[] timeOfDayCosts = hierarchy.getCosts()[timeOfDay.ordinal()];
+    int numStations = graph.getNumStations();
+    // shared by every search, and reset to UNREACHABLE and -1 after each
+    int[] minutes = workspace.getHierarchyMinutes(numStations);
+    int[] precEdges = workspace.getHierarchyPrecEdges(numStations);
+    ArrivalQueue pq = workspace.getHeapQueue();
+
+    // stations settled from dest j are destSettled[destSettledOffsets[j]] to
+    // destSettled[destSettledOffsets[j + 1]], and each search settles at most numStations
+    int[] destSettledOffsets = workspace.getDestSettledOffsets(destStations.size() + 1);
+    destSettledOffsets[0] = 0;
+    for (int j = 0; j < destStations.size(); j++) {
+      int from = destSettledOffsets[j];
+      int[] destSettled = workspace.getDestSettled(from + numStations);
+      int[] destSettledMinutes = workspace.getDestSettledMinutes(from + numStations);
+      int to =
+          downwardSearch(
+              destStations.get(j).getId(),
+              hierarchy,
+              timeOfDayCosts,
+              minutes,
+              precEdges,
+              pq,
+              destSettled,
+              from,
+              stats);
+      for (int k = from; k < to; k++) {
+        destSettledMinutes[k] = minutes[destSettled[k]];
+      }
+      reset(destSettled, from, to, minutes, precEdges);
+      destSettledOffsets[j + 1] = to;
+    }
+    int[] destSettled = workspace.getDestSettled(0);
+    int[] destSettledMinutes = workspace.getDestSettledMinutes(0);
+    int[] settled = workspace.getSettled(numStations);
+
+    int bestSrc = -1;
+    int bestDest = -1;
+    int bestMeeting = -1;
+    int bestMinutes = UNREACHABLE;
+    for (int i = 0; i < srcStations.size(); i++) {
+      int numSettled =
+          upwardSearch(
+              srcStations.get(i).getId(),
+              hierarchy,
+              timeOfDayCosts,
+              minutes,
+              precEdges,
+              pq,
+              settled,
+              0,
+              stats);
+      for (int j = 0; j < destStations.size(); j++) {
+        int meeting = -1;
+        int meetingMinutes = UNREACHABLE;
+        for (int k = destSettledOffsets[j]; k < destSettledOffsets[j + 1]; k++) {
+          int station = destSettled[k];
+          if (minutes[station] != UNREACHABLE
+              && minutes[station] + destSettledMinutes[k] < meetingMinutes) {
+            meeting = station;
+            meetingMinutes = minutes[station] + destSettledMinutes[k];
+          }
+        }
+        if (meeting != -1 && meetingMinutes <= bestMinutes) {
+          bestSrc = i;
+          bestDest = j;
+          bestMeeting = meeting;
+          bestMinutes = meetingMinutes;
+        }
+      }
+      reset(settled, 0, numSettled, minutes, precEdges);
+    }
+    int minutesLeft = getMinutesUntilTimeOfDayChange(getMinuteOfWeek(toEpochMinute(startDateTime)));
+    if (bestSrc == -1 || bestMinutes > minutesLeft) {
+      return null;
+    }
+
+    // search both ends of the best pair again, to read the edges up to and down from the meeting.
+    // Edges up to the meeting fill pathEdges back from numStations, and edges down from it forward
+    // from there, and a fastest route has fewer than numStations edges either way
+    int[] pathEdges = workspace.getPathEdges(2 * numStations);
+    int firstEdge = numStations;
+    int lastEdge = numStations;
+    int numSettled =
+        upwardSearch(
+            srcStations.get(bestSrc).getId(),
+            hierarchy,
+            timeOfDayCosts,
+            minutes,
+            precEdges,
+            pq,
+            settled,
+            0,
+            stats);
+    for (int cur = bestMeeting; precEdges[cur] != -1; ) {
+      pathEdges[--firstEdge] = precEdges[cur];
+      cur = hierarchy.getEdgeSources()[precEdges[cur]];
+    }
+    reset(settled, 0, numSettled, minutes, precEdges);
+    numSettled =
+        downwardSearch(
+            destStations.get(bestDest).getId(),
+            hierarchy,
+            timeOfDayCosts,
+            minutes,
+            precEdges,
+            pq,
+            settled,
+            0,
+            stats);
+    for (int cur = bestMeeting; precEdges[cur] != -1; ) {
+      pathEdges[lastEdge++] = precEdges[cur];
+      cur = hierarchy.getEdgeTargets()[precEdges[cur]];
+    }
+    reset(settled, 0, numSettled, minutes, precEdges);
+
+    // a fastest route passes every station at most once
+    int[] stationIds = workspace.getPathStations(numStations);
+    stationIds[0] = srcStations.get(bestSrc).getId();
+    int numStationIds = 1;
+    for (int i = firstEdge; i < lastEdge; i++) {
+      numStationIds = hierarchy.unpack(pathEdges[i], stationIds, numStationIds);
+    }
+    Station[] stations = new Station[numStationIds];
+    for (int i = 0; i < numStationIds; i++) {
+      stations[i] = graph.getStations()[stationIds[i]];
+    }
+    return new Route(bestMinutes, Arrays.asList(stations), timeOfDay);
+  }
+
+  private static int upwardSearch(
+      int src,
+      ContractionHierarchy hierarchy,
+      int[] timeOfDayCosts,
+      int[] minutes,
+      int[] precEdges,
+      ArrivalQueue pq,
+      int[] settled,
+      int numSettled,
+      SearchStats stats) {
+    return search(
+        src,
+        hierarchy.getUpOffsets(),
+        hierarchy.getUpEdges(),
+        hierarchy.getEdgeTargets(),
+        hierarchy.getDownOffsets(),
+        hierarchy.getDownEdges(),
+        hierarchy.getEdgeSources(),
+        timeOfDayCosts,
+        minutes,
+        precEdges,
+        pq,
+        settled,
+        numSettled,
+        stats);
+  }
+
+  // up the reversed hierarchy, i.e. along the edges going down into each station
+  private static int downwardSearch(
+      int dest,
+      ContractionHierarchy hierarchy,
+      int[] timeOfDayCosts,
+      int[] minutes,
+      int[] precEdges,
+      ArrivalQueue pq,
+      int[] settled,
+      int numSettled,
+      SearchStats stats) {
+    return search(
+        dest,
+        hierarchy.getDownOffsets(),
+        hierarchy.getDownEdges(),
+        hierarchy.getEdgeSources(),
+        hierarchy.getUpOffsets(),
+        hierarchy.getUpEdges(),
+        hierarchy.getEdgeTargets(),
+        timeOfDayCosts,
+        minutes,
+        precEdges,
+        pq,
+        settled,
+        numSettled,
+        stats);
+  }
+
+  private static void reset(int[] stations, int from, int to, int[] minutes, int[] precEdges) {
+    for (int i = from; i < to; i++) {
+      minutes[stations[i]] = UNREACHABLE;
+      precEdges[stations[i]] = -1;
+    }
+  }
+
+  /**
+   * Runs dijkstra algorithm from src to every station it reaches along {@code edges}, with constant
+   * costs. A station reached faster from a station of higher rank, through one of {@code
+   * stallEdges}, cannot be on a fastest route going only up from src, so its edges are not relaxed
+   * (stall on demand).
+   *
+   * @param src
+   * @param offsets edges of station {@code i} are {@code edges[offsets[i]]} to {@code
+   *     edges[offsets[i + 1]]}
+   * @param edges
+   * @param heads station each edge leads to
+   * @param stallOffsets
+   * @param stallEdges edges from stations of higher rank, in the opposite direction of the search
+   * @param stallTails station each of {@code stallEdges} comes from
+   * @param timeOfDayCosts cost of every edge, or {@code CostModel.CLOSED}
+   * @param minutes minutes taken to reach every station, all {@code UNREACHABLE} before the search
+   * @param precEdges edge every station is reached by, all -1 before the search
+   * @param pq empty queue, left empty
+   * @param settled stations settled are appended to it, in the order they are settled. Every
+   *     station is settled at most once, so it needs room for numStations more
+   * @param numSettled stations already in {@code settled}
+   * @param stats
+   * @return stations in {@code settled} after the search
+   */
+  private static int search(
+      int src,
+      int[] offsets,
+      int[] edges,
+      int[] heads,
+      int[] stallOffsets,
+      int[] stallEdges,
+      int[] stallTails,
+      int[] timeOfDayCosts,
+      int[] minutes,
+      int[] precEdges,
+      ArrivalQueue pq,
+      int[] settled,
+      int numSettled,
+      SearchStats stats) {
+    minutes[src] = 0;
+    pq.add(0, src);
+    stats.incrementPushes();
+    while (!pq.isEmpty()) {
+      long entry = pq.remove();
+      int cur = ArrivalQueue.getState(entry);
+      if (ArrivalQueue.getArrivalMinutes(entry) > minutes[cur]) continue; // stale entry
+      settled[numSettled++] = cur;
+      stats.incrementSettledNodes();
+      if (isStalled(cur, stallOffsets, stallEdges, stallTails, timeOfDayCosts, minutes)) continue;
+
+      for (int i = offsets[cur]; i < offsets[cur + 1]; i++) {
+        int edge = edges[i];
+        int cost = timeOfDayCosts[edge];
+        stats.incrementRelaxations();
+        if (cost == CostModel.CLOSED) continue; // line is not operating
+        int v = heads[edge];
+        int minutesV = minutes[cur] + cost;
+        if (minutesV < minutes[v]) {
+          minutes[v] = minutesV;
+          precEdges[v] = edge;
+          pq.add(minutesV, v);
+          stats.incrementPushes();
+        }
+      }
+    }
+    return numSettled;
+  }
+
+  private static boolean isStalled(
+      int station,
+      int[] stallOffsets,
+      int[] stallEdges,
+      int[] stallTails,
+      int[] timeOfDayCosts,
+      int[] minutes) {
+    for (int i = stallOffsets[station]; i < stallOffsets[station + 1]; i++) {
+      int edge = stallEdges[i];
+      int u = stallTails[edge];
+      int cost = timeOfDayCosts[edge];
+      if (minutes[u] != UNREACHABLE
+          && cost != CostModel.CLOSED
+          && minutes[u] + cost < minutes[station]) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,172 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.TimeOfDayUtil.MINUTES_PER_WEEK;
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDayOfMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
+
+import java.nio.IntBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import railwayrouter.models.ArrivalQueue;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.Isochrone;
+import railwayrouter.models.SearchEngine;
+import railwayrouter.models.SearchStats;
+import railwayrouter.models.SearchWorkspace;
+import railwayrouter.models.Station;
+
+/**
+ * Search of {@code RouteFinder} for the stations reachable within budgets of minutes, on the CSR
+ * form of the network.
+ */
+final class IsochroneSearch {
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  /**
+   * Returns the stations reachable from a station in srcStations within each of {@code budgets}
+   * minutes of {@code startDateTime}, with a single search that never goes past the largest budget.
+   * See {@link RouteFinder#findIsochrone(List, LocalDateTime, int[], CsrGraph, SearchStats)}.
+   *
+   * @param srcStations
+   * @param startDateTime
+   * @param budgets budgets in minutes, in any order
+   * @param graph
+   * @param costModel
+   * @param searchEngine
+   * @param stats
+   * @return stations reachable within each budget
+   * @throws IllegalArgumentException if {@code budgets} is empty or has a negative budget
+   */
+  static Isochrone search(
+      List<Station> srcStations,
+      LocalDateTime startDateTime,
+      int[] budgets,
+      CsrGraph graph,
+      CostModel costModel,
+      SearchEngine searchEngine,
+      SearchStats stats) {
+    int[] sortedBudgets = budgets.clone();
+    Arrays.sort(sortedBudgets);
+    if (sortedBudgets.length == 0 || sortedBudgets[0] < 0) {
+      throw new IllegalArgumentException(
+          String.format("Invalid budgets: %s", Arrays.toString(budgets)));
+    }
+    int numStations = graph.getNumStations();
+    // indexed by state = origin * numStations + station id, arrival minutes after startDateTime
+    SearchWorkspace workspace =
+        SearchWorkspace.acquire(srcStations.size() * numStations, numStations);
+    try {
+      return search(
+          srcStations,
+          startDateTime,
+          sortedBudgets,
+          graph,
+          costModel,
+          searchEngine,
+          stats,
+          workspace);
+    } finally {
+      workspace.release();
+    }
+  }
+
+  private static Isochrone search(
+      List<Station> srcStations,
+      LocalDateTime startDateTime,
+      int[] sortedBudgets,
+      CsrGraph graph,
+      CostModel costModel,
+      SearchEngine searchEngine,
+      SearchStats stats,
+      SearchWorkspace workspace) {
+    int maxBudget = sortedBudgets[sortedBudgets.length - 1];
+    int numStations = graph.getNumStations();
+    IntBuffer offsets = graph.getOffsets();
+    IntBuffer targets = graph.getTargets();
+    int[][] costs = costModel.getCosts();
+    int startMinuteOfWeek = getMinuteOfWeek(toEpochMinute(startDateTime));
+    ArrivalQueue pq = workspace.getQueue(searchEngine, costModel);
+
+    for (int i = 0; i < srcStations.size(); i++) {
+      int state = i * numStations + srcStations.get(i).getId();
+      workspace.reach(state, 0, -1);
+      pq.add(0, state);
+      stats.incrementPushes();
+    }
+
+    while (!pq.isEmpty()) {
+      int state = ArrivalQueue.getState(pq.remove());
+      if (workspace.isSolved(state)) continue;
+      workspace.solve(state);
+      stats.incrementSettledNodes();
+      int cur = state % numStations;
+      int base = state - cur;
+      int arrivalMinutesCur = workspace.getArrivalMinutes(state);
+
+      // relax outgoing edges, up to the largest budget
+      int minuteOfWeek = (startMinuteOfWeek + arrivalMinutesCur) % MINUTES_PER_WEEK;
+      int[] timeOfDayCosts = costs[getTimeOfDayOfMinuteOfWeek(minuteOfWeek).ordinal()];
+      for (int edge = offsets.get(cur); edge < offsets.get(cur + 1); edge++) {
+        int v = targets.get(edge);
+        if (!workspace.isSolved(base + v)) {
+          int cost = timeOfDayCosts[edge];
+          stats.incrementRelaxations();
+          // CLOSED is over any budget, and checking cost first keeps the sum from overflowing
+          if (cost <= maxBudget && arrivalMinutesCur + cost <= maxBudget) {
+            int arrivalMinutesV = arrivalMinutesCur + cost;
+            if (arrivalMinutesV < workspace.getArrivalMinutes(base + v)) {
+              workspace.reach(base + v, arrivalMinutesV, cur);
+              pq.add(arrivalMinutesV, base + v);
+              stats.incrementPushes();
+            }
+          }
+        }
+      }
+    }
+
+    // every state reached is solved, so its arrival minutes are final
+    int numReached = 0;
+    for (int station = 0; station < numStations; station++) {
+      if (getFastestMinutes(station, srcStations.size(), numStations, workspace) != UNREACHABLE) {
+        numReached++;
+      }
+    }
+    // stations in increasing order of minutes, then of station id
+    long[] reached = new long[numReached];
+    for (int station = 0, i = 0; station < numStations; station++) {
+      int fastestMinutes = getFastestMinutes(station, srcStations.size(), numStations, workspace);
+      if (fastestMinutes != UNREACHABLE) {
+        reached[i++] = (long) fastestMinutes << 32 | station;
+      }
+    }
+    Arrays.sort(reached);
+    List<Station> stations = new ArrayList<>(numReached);
+    int[] minutes = new int[numReached];
+    for (int i = 0; i < numReached; i++) {
+      stations.add(graph.getStations()[(int) reached[i]]);
+      minutes[i] = (int) (reached[i] >>> 32);
+    }
+    return new Isochrone(sortedBudgets, stations, minutes);
+  }
+
+  /**
+   * @param station
+   * @param numOrigins
+   * @param numStations
+   * @param workspace
+   * @return fastest arrival minutes at {@code station} from any origin, or {@code UNREACHABLE}
+   */
+  private static int getFastestMinutes(
+      int station, int numOrigins, int numStations, SearchWorkspace workspace) {
+    int fastestMinutes = UNREACHABLE;
+    for (int origin = 0; origin < numOrigins; origin++) {
+      fastestMinutes =
+          Math.min(fastestMinutes, workspace.getArrivalMinutes(origin * numStations + station));
+    }
+    return fastestMinutes;
+  }
+}
@@ -0,0 +1,200 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.TimeOfDayUtil.MINUTES_PER_WEEK;
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDay;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDayOfMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
+
+import java.nio.IntBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import railwayrouter.models.ArrivalQueue;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.LandmarkTable;
+import railwayrouter.models.Route;
+import railwayrouter.models.SearchEngine;
+import railwayrouter.models.SearchStats;
+import railwayrouter.models.SearchWorkspace;
+import railwayrouter.models.Station;
+
+/** Search of the {@code ALT} engine of {@code RouteFinder}, on the CSR form of the network. */
+final class MultiSourceAStar {
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  /**
+   * Same as {@link MultiSourceDijkstra#search}, but settles states in increasing order of arrival
+   * minute plus a lower bound of the minutes left to the nearest station in destStations, from the
+   * landmark table of {@code graph} (A*). The lower bound never decreases by more than the cost of
+   * an edge along that edge, so every state is still settled with its final arrival minute, and
+   * only the states in a corridor towards destStations are settled. States that cannot reach
+   * destStations at all are never added.
+   *
+   * <p>To find the same route as {@link MultiSourceDijkstra#search}, the search does not stop at
+   * the first dest solved, but once no state left can arrive at the same time as it, and keeps the
+   * preceding station {@link MultiSourceDijkstra#search} would have settled first among all equally
+   * fast ones.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param startDateTime
+   * @param graph
+   * @param costModel
+   * @param landmarkTable landmark table of {@code graph}
+   * @param searchEngine
+   * @param stats
+   * @return shortest {@code Route} from a station in srcStations to a station in destStations
+   */
+  static Route search(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      CostModel costModel,
+      LandmarkTable landmarkTable,
+      SearchEngine searchEngine,
+      SearchStats stats) {
+    int numStations = graph.getNumStations();
+    // indexed by state = origin * numStations + station id, arrival minutes after startDateTime
+    SearchWorkspace workspace =
+        SearchWorkspace.acquire(srcStations.size() * numStations, numStations);
+    try {
+      return search(
+          srcStations,
+          destStations,
+          startDateTime,
+          graph,
+          costModel,
+          landmarkTable,
+          searchEngine,
+          stats,
+          workspace);
+    } finally {
+      workspace.release();
+    }
+  }
+
+  private static Route search(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      CostModel costModel,
+      LandmarkTable landmarkTable,
+      SearchEngine searchEngine,
+      SearchStats stats,
+      SearchWorkspace workspace) {
+    int numStations = graph.getNumStations();
+    IntBuffer offsets = graph.getOffsets();
+    IntBuffer targets = graph.getTargets();
+    int[][] costs = costModel.getCosts();
+    int startMinuteOfWeek = getMinuteOfWeek(toEpochMinute(startDateTime));
+    ArrivalQueue pq = workspace.getQueue(searchEngine, costModel);
+
+    for (int i = 0; i < destStations.size(); i++) {
+      workspace.setDestRank(destStations.get(i).getId(), i + 1);
+    }
+    for (int i = 0; i < srcStations.size(); i++) {
+      int src = srcStations.get(i).getId();
+      int lowerBound = getLowerBound(src, destStations, landmarkTable, workspace);
+      if (lowerBound == UNREACHABLE) continue;
+      workspace.reach(i * numStations + src, 0, -1);
+      pq.add(lowerBound, i * numStations + src);
+      stats.incrementPushes();
+    }
+
+    int best = -1; // state of the best dest found so far
+    while (!pq.isEmpty()) {
+      long entry = pq.remove();
+      int state = ArrivalQueue.getState(entry);
+      if (workspace.isSolved(state)) continue;
+      // the lower bound of a dest is 0, so no state left arrives at a dest as early as best
+      if (best != -1
+          && ArrivalQueue.getArrivalMinutes(entry) > workspace.getArrivalMinutes(best)) {
+        break;
+      }
+      int cur = state % numStations;
+      int origin = state / numStations;
+      int base = state - cur;
+      int arrivalMinutesCur = workspace.getArrivalMinutes(state);
+      workspace.solve(state);
+      stats.incrementSettledNodes();
+      int destRank = workspace.getDestRank(cur);
+      if (destRank > 0) {
+        int bestOrigin = best / numStations;
+        if (best == -1
+            || origin > bestOrigin
+            || (origin == bestOrigin && destRank > workspace.getDestRank(best % numStations))) {
+          best = state;
+        }
+        continue;
+      }
+
+      // relax outgoing edges
+      int minuteOfWeek = (startMinuteOfWeek + arrivalMinutesCur) % MINUTES_PER_WEEK;
+      int[] timeOfDayCosts = costs[getTimeOfDayOfMinuteOfWeek(minuteOfWeek).ordinal()];
+      for (int edge = offsets.get(cur); edge < offsets.get(cur + 1); edge++) {
+        int v = targets.get(edge);
+        int stateV = base + v;
+        int cost = timeOfDayCosts[edge];
+        if (!workspace.isSolved(stateV)) stats.incrementRelaxations();
+        if (cost == CostModel.CLOSED) continue; // line is not operating
+        int arrivalMinutesV = arrivalMinutesCur + cost;
+
+        // never true for solved states, whose arrival minutes are final
+        int arrivalMinutesStateV = workspace.getArrivalMinutes(stateV);
+        if (arrivalMinutesV < arrivalMinutesStateV) {
+          int lowerBound = getLowerBound(v, destStations, landmarkTable, workspace);
+          if (lowerBound == UNREACHABLE) continue;
+          workspace.reach(stateV, arrivalMinutesV, cur);
+          pq.add(arrivalMinutesV + lowerBound, stateV);
+          stats.incrementPushes();
+        } else if (arrivalMinutesV == arrivalMinutesStateV && workspace.getPrec(stateV) != -1) {
+          // MultiSourceDijkstra settles every equally fast preceding station before v, in order of
+          // arrival minute then id, and keeps the first one
+          int precV = workspace.getPrec(stateV);
+          int arrivalMinutesPrec = workspace.getArrivalMinutes(base + precV);
+          if (arrivalMinutesCur < arrivalMinutesPrec
+              || (arrivalMinutesCur == arrivalMinutesPrec && cur < precV)) {
+            workspace.setPrec(stateV, cur);
+          }
+        }
+      }
+    }
+    return best == -1
+        ? null
+        : MultiSourceDijkstra.getRoute(
+            best % numStations,
+            best - best % numStations,
+            getTimeOfDay(startDateTime),
+            workspace.getArrivalMinutes(),
+            workspace.getPrecs(),
+            graph);
+  }
+
+  /**
+   * @param station
+   * @param destStations
+   * @param landmarkTable
+   * @param workspace workspace of the search, holding the lower bounds computed so far, shared
+   *     by all origins
+   * @return lower bound of the minutes from station to the nearest station in destStations, or
+   *     {@code UNREACHABLE} if none is reachable
+   */
+  private static int getLowerBound(
+      int station,
+      List<Station> destStations,
+      LandmarkTable landmarkTable,
+      SearchWorkspace workspace) {
+    int lowerBound = workspace.getLowerBound(station);
+    if (lowerBound == SearchWorkspace.UNKNOWN_LOWER_BOUND) {
+      lowerBound = UNREACHABLE;
+      for (Station dest : destStations) {
+        lowerBound = Math.min(lowerBound, landmarkTable.getLowerBound(station, dest.getId()));
+      }
+      workspace.setLowerBound(station, lowerBound);
+    }
+    return lowerBound;
+  }
+}
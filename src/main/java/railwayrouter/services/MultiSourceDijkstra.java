@@ -0,0 +1,212 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.TimeOfDayUtil.MINUTES_PER_WEEK;
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getMinutesUntilTimeOfDayChange;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDay;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDayOfMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
+
+import java.nio.IntBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import railwayrouter.models.ArrivalQueue;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.Route;
+import railwayrouter.models.SearchEngine;
+import railwayrouter.models.SearchStats;
+import railwayrouter.models.SearchWorkspace;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+/**
+ * Search of the {@code DIJKSTRA} and {@code DIAL} engines of {@code RouteFinder}, on the CSR form
+ * of the network. Also reads back the routes of the other searches that keep one plane of arrival
+ * minutes per src.
+ */
+final class MultiSourceDijkstra {
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  /**
+   * Runs dijkstra algorithm from every station in srcStations at once, and stops once the first
+   * station in destStations is solved. Ties are broken the same way as comparing every (src, dest)
+   * pair in order with {@code <=}: among equally fast routes, the one from the later src wins, then
+   * the one to the later dest.
+   *
+   * <p>Each src keeps its own arrival date times (one "plane" of {@code numStations} entries per
+   * src) in a single shared priority queue. Costs change with the time of day, so arriving earlier
+   * is not always better, e.g. a transfer to another src platform may wait out a line that is not
+   * operating yet. Seeding every src into one shared set of arrival date times would lose such
+   * routes.
+   *
+   * <p>If {@code minutesUnchanged} is not null, {@code minutesUnchanged[0]} is lowered to the
+   * number of minutes every station relaxed keeps the same time of day for. Starting up to that
+   * many minutes later, the search relaxes every station with the same costs, at the same minutes
+   * after the start, so it returns the same route.
+   *
+   * <p>The queue is chosen by {@code searchEngine}. Every queue removes states with the same
+   * arrival time in increasing order of state, so the routes found do not depend on the engine.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param startDateTime
+   * @param graph
+   * @param costModel
+   * @param searchEngine
+   * @param stats
+   * @param minutesUnchanged array of one element to lower, or null
+   * @return shortest {@code Route} from a station in srcStations to a station in destStations
+   */
+  static Route search(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      CostModel costModel,
+      SearchEngine searchEngine,
+      SearchStats stats,
+      int[] minutesUnchanged) {
+    int numStations = graph.getNumStations();
+    // indexed by state = origin * numStations + station id, arrival minutes after startDateTime
+    SearchWorkspace workspace =
+        SearchWorkspace.acquire(srcStations.size() * numStations, numStations);
+    try {
+      return search(
+          srcStations,
+          destStations,
+          startDateTime,
+          graph,
+          costModel,
+          searchEngine,
+          stats,
+          minutesUnchanged,
+          workspace);
+    } finally {
+      workspace.release();
+    }
+  }
+
+  private static Route search(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      CostModel costModel,
+      SearchEngine searchEngine,
+      SearchStats stats,
+      int[] minutesUnchanged,
+      SearchWorkspace workspace) {
+    int numStations = graph.getNumStations();
+    IntBuffer offsets = graph.getOffsets();
+    IntBuffer targets = graph.getTargets();
+    int[][] costs = costModel.getCosts();
+    int startMinuteOfWeek = getMinuteOfWeek(toEpochMinute(startDateTime));
+    ArrivalQueue pq = workspace.getQueue(searchEngine, costModel);
+
+    for (int i = 0; i < destStations.size(); i++) {
+      workspace.setDestRank(destStations.get(i).getId(), i + 1);
+    }
+    for (int i = 0; i < srcStations.size(); i++) {
+      int state = i * numStations + srcStations.get(i).getId();
+      workspace.reach(state, 0, -1);
+      pq.add(0, state);
+      stats.incrementPushes();
+    }
+
+    int best = -1; // state of the best dest found so far
+    while (!pq.isEmpty()) {
+      int state = ArrivalQueue.getState(pq.remove());
+      if (workspace.isSolved(state)) continue;
+      int cur = state % numStations;
+      int origin = state / numStations;
+      int base = state - cur;
+      int arrivalMinutesCur = workspace.getArrivalMinutes(state);
+      if (best != -1) {
+        // every cost is positive, so all states arriving at the same time as the first solved
+        // dest already have their final arrival time, and need no relaxing
+        if (arrivalMinutesCur > workspace.getArrivalMinutes(best)) break;
+        int bestOrigin = best / numStations;
+        int destRank = workspace.getDestRank(cur);
+        if (destRank > 0
+            && (origin > bestOrigin
+                || (origin == bestOrigin
+                    && destRank > workspace.getDestRank(best % numStations)))) {
+          best = state;
+        }
+        continue;
+      }
+      workspace.solve(state);
+      stats.incrementSettledNodes();
+      if (workspace.getDestRank(cur) > 0) {
+        best = state;
+        continue;
+      }
+
+      // relax outgoing edges
+      int minuteOfWeek = (startMinuteOfWeek + arrivalMinutesCur) % MINUTES_PER_WEEK;
+      int[] timeOfDayCosts = costs[getTimeOfDayOfMinuteOfWeek(minuteOfWeek).ordinal()];
+      if (minutesUnchanged != null) {
+        minutesUnchanged[0] =
+            Math.min(minutesUnchanged[0], getMinutesUntilTimeOfDayChange(minuteOfWeek));
+      }
+      for (int edge = offsets.get(cur); edge < offsets.get(cur + 1); edge++) {
+        int v = targets.get(edge);
+        if (!workspace.isSolved(base + v)) {
+          int cost = timeOfDayCosts[edge];
+          stats.incrementRelaxations();
+          if (cost != CostModel.CLOSED) { // if cost == CLOSED, line is not operating
+            int arrivalMinutesV = arrivalMinutesCur + cost;
+
+            if (arrivalMinutesV < workspace.getArrivalMinutes(base + v)) {
+              workspace.reach(base + v, arrivalMinutesV, cur);
+              pq.add(arrivalMinutesV, base + v);
+              stats.incrementPushes();
+            }
+          }
+        }
+      }
+    }
+
+    return best == -1
+        ? null
+        : getRoute(
+            best % numStations,
+            best - best % numStations,
+            getTimeOfDay(startDateTime),
+            workspace.getArrivalMinutes(),
+            workspace.getPrecs(),
+            graph);
+  }
+
+  /**
+   * Gets the route to {@code dest} on the CSR form of the network, from a list of arrival minutes
+   * {@code arrivalMinutes}. This is the only point the search results are converted back to {@code
+   * Station} objects.
+   *
+   * @param dest
+   * @param base offset of the plane of arrival minutes and preceding stations to read from
+   * @param timeOfDay time of day at the start of travel
+   * @param arrivalMinutes minutes after the start of travel
+   * @param prec preceding station ids, -1 if none
+   * @param graph
+   * @return shortest {@code Route} to dest
+   */
+  static Route getRoute(
+      int dest, int base, TimeOfDay timeOfDay, int[] arrivalMinutes, int[] prec, CsrGraph graph) {
+    int minutes = arrivalMinutes[base + dest];
+    if (minutes == UNREACHABLE) return null; // no possible route from src to dest
+
+    // walk the preceding stations twice, to size the route and then fill it from the end
+    int numStations = 0;
+    for (int cur = dest; cur != -1; cur = prec[base + cur]) {
+      numStations++;
+    }
+    Station[] stations = new Station[numStations];
+    for (int cur = dest; cur != -1; cur = prec[base + cur]) {
+      stations[--numStations] = graph.getStations()[cur];
+    }
+    return new Route(minutes, Arrays.asList(stations), timeOfDay);
+  }
+}
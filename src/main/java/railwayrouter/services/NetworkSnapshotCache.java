@@ -0,0 +1,164 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.DataProcessor.*;
+
+import com.opencsv.exceptions.CsvValidationException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+import railwayrouter.models.NetworkEpochs;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.models.Station;
+import railwayrouter.utils.NetworkCompiler;
+
+/**
+ * Parses the station map once and precomputes one {@code NetworkSnapshot} per network epoch. Epoch
+ * k contains every station opened on or before the k-th distinct opening date, and epoch 0 is the
+ * empty network. Snapshots are built on first use and shared by all queries afterwards.
+ *
+ * <p>If a compiled network file is given, the snapshots are read from it instead of the station
+ * map, unless it cannot be used, e.g. because it was compiled from another station map. See {@code
+ * NetworkCompiler}.
+ */
+public class NetworkSnapshotCache {
+  private static final Logger LOGGER = Logger.getLogger(NetworkSnapshotCache.class.getName());
+
+  private final Path compiledNetworkPath; // null to parse the station map
+  private final boolean verifyPayload;
+  private volatile NetworkEpochs epochs;
+
+  public NetworkSnapshotCache() {
+    this(null);
+  }
+
+  /**
+   * Creates a cache reading its snapshots from the compiled network file at {@code
+   * compiledNetworkPath}, or from the station map if it is null or cannot be used. The file is
+   * checked against the checksums of the station map and of its payload.
+   *
+   * @param compiledNetworkPath
+   */
+  public NetworkSnapshotCache(Path compiledNetworkPath) {
+    this(compiledNetworkPath, true);
+  }
+
+  /**
+   * Creates a cache reading its snapshots from the compiled network file at {@code
+   * compiledNetworkPath}, or from the station map if it is null or cannot be used. The file is
+   * always checked against the checksum of the station map, and if {@code verifyPayload}, against
+   * the checksum of its payload too, which reads the whole file.
+   *
+   * @param compiledNetworkPath
+   * @param verifyPayload
+   */
+  public NetworkSnapshotCache(Path compiledNetworkPath, boolean verifyPayload) {
+    this.compiledNetworkPath = compiledNetworkPath;
+    this.verifyPayload = verifyPayload;
+  }
+
+  /**
+   * Returns the snapshot containing the stations open at {@code startDateTime}, i.e. the stations
+   * opened strictly before it.
+   *
+   * @param startDateTime
+   * @return network snapshot for the epoch in effect at {@code startDateTime}
+   */
+  public NetworkSnapshot getSnapshot(LocalDateTime startDateTime) throws CsvValidationException {
+    NetworkEpochs cur = getEpochs();
+    return cur.getSnapshot(getEpoch(cur.getOpeningDates(), startDateTime));
+  }
+
+  /**
+   * Returns the number of opening dates strictly before {@code startDateTime}, which is also the
+   * index of the epoch in effect at {@code startDateTime}.
+   *
+   * @param openingDates sorted distinct opening dates
+   * @param startDateTime
+   * @return epoch index
+   */
+  protected static int getEpoch(LocalDateTime[] openingDates, LocalDateTime startDateTime) {
+    int idx = Arrays.binarySearch(openingDates, startDateTime);
+    // a station opening exactly at startDateTime is not yet open
+    return idx >= 0 ? idx : -idx - 1;
+  }
+
+  private NetworkEpochs getEpochs() throws CsvValidationException {
+    NetworkEpochs cur = epochs;
+    if (cur == null) {
+      synchronized (this) {
+        cur = epochs;
+        if (cur == null) {
+          cur = buildEpochs();
+          epochs = cur;
+        }
+      }
+    }
+    return cur;
+  }
+
+  private NetworkEpochs buildEpochs() throws CsvValidationException {
+    if (compiledNetworkPath != null) {
+      try {
+        return NetworkCompiler.read(compiledNetworkPath, getStationMapChecksum(), verifyPayload);
+      } catch (IOException e) {
+        LOGGER.warning(
+            String.format(
+                "Compiled network %s cannot be used, parsing the station map instead: %s",
+                compiledNetworkPath, e.getMessage()));
+      }
+    }
+    return buildNetworkEpochs();
+  }
+
+  /**
+   * Parses the station map and builds every network snapshot.
+   *
+   * @return every network snapshot of the station map
+   */
+  public static NetworkEpochs buildNetworkEpochs() throws CsvValidationException {
+    List<Station> allStations = getOpenStations(LocalDateTime.MAX);
+    TreeSet<LocalDateTime> distinctOpeningDates = new TreeSet<>();
+    for (Station station : allStations) {
+      distinctOpeningDates.add(station.getOpeningDate());
+    }
+    LocalDateTime[] openingDates = distinctOpeningDates.toArray(new LocalDateTime[0]);
+
+    NetworkSnapshot[] snapshots = new NetworkSnapshot[openingDates.length + 1];
+    snapshots[0] = buildSnapshot(0, List.of());
+    for (int epoch = 1; epoch <= openingDates.length; epoch++) {
+      LocalDateTime lastOpeningDate = openingDates[epoch - 1];
+      List<Station> stations = new ArrayList<>();
+      for (Station station : allStations) {
+        if (!station.getOpeningDate().isAfter(lastOpeningDate)) {
+          // ids must be dense within each epoch, so renumber in station map order
+          stations.add(
+              new Station(
+                  stations.size(), station.getCode(), station.getName(), station.getOpeningDate()));
+        }
+      }
+      snapshots[epoch] = buildSnapshot(epoch, stations);
+    }
+    LOGGER.info(String.format("Built %d network snapshots", snapshots.length));
+    return new NetworkEpochs(openingDates, snapshots);
+  }
+
+  /**
+   * Builds the snapshot of {@code epoch} from its open stations.
+   *
+   * @param epoch
+   * @param stations open stations, with dense ids in station map order
+   * @return network snapshot of {@code epoch}
+   */
+  public static NetworkSnapshot buildSnapshot(int epoch, List<Station> stations) {
+    Map<String, List<Station>> lineCodeToStationsMap = generateLineCodeToStationsMap(stations);
+    Map<String, List<Station>> nameToStationsMap = generateNameToStationsMap(stations);
+    List<List<Station>> adjList = generateAdjList(nameToStationsMap, lineCodeToStationsMap);
+    return new NetworkSnapshot(epoch, stations, lineCodeToStationsMap, nameToStationsMap, adjList);
+  }
+}
@@ -0,0 +1,90 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.TimeOfDayUtil.fromEpochMinute;
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getMinutesUntilTimeOfDayChange;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.ProfileSegment;
+import railwayrouter.models.Route;
+import railwayrouter.models.SearchEngine;
+import railwayrouter.models.SearchStats;
+import railwayrouter.models.Station;
+
+/**
+ * Searches of {@code RouteFinder} for the fastest route of every departure minute of a window, on
+ * the CSR form of the network.
+ */
+final class ProfileSearch {
+
+  /**
+   * Returns the fastest routes from stations in srcStations to stations in destStations for every
+   * departure minute from {@code firstDepartureDateTime} to {@code lastDepartureDateTime}
+   * inclusive, searching again only where a station on the way changes time of day. See {@link
+   * RouteFinder#findProfile(List, List, LocalDateTime, LocalDateTime, CsrGraph, SearchStats)}.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param firstDepartureDateTime
+   * @param lastDepartureDateTime
+   * @param graph
+   * @param costModel
+   * @param searchEngine
+   * @param stats
+   * @return segments of departures in increasing order of departure, covering every minute
+   * @throws IllegalArgumentException if {@code lastDepartureDateTime} is before {@code
+   *     firstDepartureDateTime}
+   */
+  static List<ProfileSegment> search(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime firstDepartureDateTime,
+      LocalDateTime lastDepartureDateTime,
+      CsrGraph graph,
+      CostModel costModel,
+      SearchEngine searchEngine,
+      SearchStats stats) {
+    long firstDeparture = toEpochMinute(firstDepartureDateTime);
+    long lastDeparture = toEpochMinute(lastDepartureDateTime);
+    if (lastDeparture < firstDeparture) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Last departure %s is before first departure %s",
+              lastDepartureDateTime, firstDepartureDateTime));
+    }
+
+    List<ProfileSegment> segments = new ArrayList<>();
+    for (long departure = firstDeparture; departure <= lastDeparture; ) {
+      LocalDateTime departureDateTime = fromEpochMinute(departure);
+      // the time of day at departure is part of the route too
+      int[] minutesUnchanged = {getMinutesUntilTimeOfDayChange(getMinuteOfWeek(departure))};
+      Route route =
+          MultiSourceDijkstra.search(
+              srcStations,
+              destStations,
+              departureDateTime,
+              graph,
+              costModel,
+              searchEngine,
+              stats,
+              minutesUnchanged);
+      long segmentLastDeparture = Math.min(departure + minutesUnchanged[0] - 1, lastDeparture);
+
+      int last = segments.size() - 1;
+      if (last >= 0 && Objects.equals(segments.get(last).getRoute(), route)) {
+        departureDateTime = segments.get(last).getFirstDepartureDateTime();
+        segments.remove(last);
+      }
+      segments.add(
+          new ProfileSegment(departureDateTime, fromEpochMinute(segmentLastDeparture), route));
+      departure = segmentLastDeparture + 1;
+    }
+    return segments;
+  }
+}
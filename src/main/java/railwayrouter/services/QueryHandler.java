@@ -1,21 +1,27 @@
 package railwayrouter.services;
 
-import static railwayrouter.utils.DataProcessor.*;
-
 import com.opencsv.exceptions.CsvValidationException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Logger;
+import railwayrouter.models.Isochrone;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.models.ProfileSegment;
+import railwayrouter.models.QueryResult;
 import railwayrouter.models.Route;
 import railwayrouter.models.Station;
+import railwayrouter.models.StationNameIndex;
+import railwayrouter.models.TimedRoute;
 import railwayrouter.utils.ResponseBuilder;
 
-/** Handles the query given the query parameters and returns the response */
+/**
+ * Handles the query given the query parameters and returns the response. A query handler holds no
+ * per-query state, so one instance can be shared by any number of threads.
+ */
 public class QueryHandler {
   private static final Logger LOGGER = Logger.getLogger(QueryHandler.class.getName());
 
@@ -23,10 +29,39 @@ public class QueryHandler {
   protected static final String INVALID_STATION_STRING =
       "Source or destination station(s) does not exist at this point in time";
   protected static final String ROUTE_NOT_FOUND_STRING = "No route found";
+  private static final DateTimeFormatter DATE_TIME_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
   private final RouteFinder routeFinder;
+  private final NetworkSnapshotCache networkSnapshotCache;
+  private final RouteCache routeCache;
+  private final QueryMetrics metrics;
 
   public QueryHandler(RouteFinder routeFinder) {
+    this(routeFinder, new NetworkSnapshotCache());
+  }
+
+  public QueryHandler(RouteFinder routeFinder, NetworkSnapshotCache networkSnapshotCache) {
+    this(routeFinder, networkSnapshotCache, new RouteCache(RouteCache.DEFAULT_MAXIMUM_SIZE));
+  }
+
+  public QueryHandler(
+      RouteFinder routeFinder, NetworkSnapshotCache networkSnapshotCache, RouteCache routeCache) {
     this.routeFinder = routeFinder;
+    this.networkSnapshotCache = networkSnapshotCache;
+    this.routeCache = routeCache;
+    this.metrics = new QueryMetrics(routeFinder, routeCache);
+  }
+
+  public RouteCache getRouteCache() {
+    return routeCache;
+  }
+
+  /**
+   * @return latencies of the stages of the queries of {@link #resolveQuery}, and outcomes of every
+   *     query
+   */
+  public QueryMetrics getMetrics() {
+    return metrics;
   }
 
   /**
@@ -39,34 +74,231 @@ public class QueryHandler {
    */
   public String handleQuery(String src, String dest, String startDateTimeStr)
       throws CsvValidationException {
+    QueryResult result = resolveQuery(src, dest, startDateTimeStr);
+    if (result.getStatus() != QueryResult.Status.ROUTE_FOUND) {
+      return result.getMessage();
+    }
+    long renderNanos = System.nanoTime();
+    String response = ResponseBuilder.buildResponse(result.getRoute());
+    metrics.record(QueryMetrics.Stage.RENDER, renderNanos);
+    return response;
+  }
+
+  /**
+   * Same as {@link #handleQuery(String, String, String)}, but returns the route found, or the
+   * reason no route is returned, instead of the response string. Every stage and result is recorded
+   * in {@link #getMetrics()}.
+   *
+   * @param src
+   * @param dest
+   * @param startDateTimeStr
+   * @return result of the query
+   */
+  public QueryResult resolveQuery(String src, String dest, String startDateTimeStr)
+      throws CsvValidationException {
+    long startNanos = System.nanoTime();
     Optional<LocalDateTime> startDateTime = getDateTime(startDateTimeStr);
+    long stageNanos = metrics.record(QueryMetrics.Stage.PARSE, startNanos);
     if (startDateTime.isEmpty()) {
       LOGGER.info(String.format("Start date time %s is invalid", startDateTimeStr));
-      return INVALID_DATE_TIME_STRING;
+      return metrics.recordResult(
+          startNanos,
+          new QueryResult(QueryResult.Status.INVALID_DATE_TIME, INVALID_DATE_TIME_STRING));
     }
 
-    List<Station> stations = getOpenStations(startDateTime.get());
-    Map<String, List<Station>> lineCodeToStationsMap = generateLineCodeToStationsMap(stations);
-    Map<String, List<Station>> nameToStationsMap = generateNameToStationsMap(stations);
-    List<List<Station>> adjList = generateAdjList(nameToStationsMap, lineCodeToStationsMap);
+    NetworkSnapshot snapshot = networkSnapshotCache.getSnapshot(startDateTime.get());
+    Map<String, List<Station>> nameToStationsMap = snapshot.getNameIndex().asMap();
+    stageNanos = metrics.record(QueryMetrics.Stage.SNAPSHOT, stageNanos);
 
     List<Station> srcStations = getStations(src, nameToStationsMap);
     List<Station> destStations = getStations(dest, nameToStationsMap);
+    stageNanos = metrics.record(QueryMetrics.Stage.STATIONS, stageNanos);
 
     // validate stations input
     if (srcStations.isEmpty() || destStations.isEmpty()) {
       LOGGER.info(String.format("Station %s or %s is invalid", src, dest));
-      return INVALID_STATION_STRING;
+      return metrics.recordResult(
+          startNanos, new QueryResult(QueryResult.Status.INVALID_STATION, INVALID_STATION_STRING));
     }
 
     Optional<Route> route =
-        routeFinder.findRoute(srcStations, destStations, startDateTime.get(), adjList);
+        routeCache.findRoute(routeFinder, srcStations, destStations, startDateTime.get(), snapshot);
+    metrics.record(QueryMetrics.Stage.SEARCH, stageNanos);
+    if (route.isEmpty()) {
+      LOGGER.info(String.format("Route is not found for %s to %s", src, dest));
+      return metrics.recordResult(
+          startNanos, new QueryResult(QueryResult.Status.ROUTE_NOT_FOUND, ROUTE_NOT_FOUND_STRING));
+    }
+    return metrics.recordResult(startNanos, new QueryResult(route.get()));
+  }
+
+  /**
+   * Same as {@link #handleQuery(String, String, String)}, but for the latest route arriving by
+   * {@code arriveByDateTimeStr} instead of a route departing at a date time. The response also
+   * gives the departure and arrival date times of the route.
+   *
+   * @param src
+   * @param dest
+   * @param arriveByDateTimeStr
+   * @return response string
+   */
+  public String handleArriveByQuery(String src, String dest, String arriveByDateTimeStr)
+      throws CsvValidationException {
+    QueryResult result = resolveArriveByQuery(src, dest, arriveByDateTimeStr);
+    if (result.getStatus() != QueryResult.Status.ROUTE_FOUND) {
+      return result.getMessage();
+    }
+    return ResponseBuilder.buildTimedResponse((TimedRoute) result.getRoute());
+  }
+
+  /**
+   * Same as {@link #handleArriveByQuery(String, String, String)}, but returns the {@code
+   * TimedRoute} found, or the reason no route is returned, instead of the response string. The
+   * stations are the ones open at {@code arriveByDateTimeStr}. Routes are searched with a single
+   * backward search, and not cached. The result is recorded in {@link #getMetrics()}.
+   *
+   * @param src
+   * @param dest
+   * @param arriveByDateTimeStr
+   * @return result of the query
+   */
+  public QueryResult resolveArriveByQuery(String src, String dest, String arriveByDateTimeStr)
+      throws CsvValidationException {
+    long startNanos = System.nanoTime();
+    Optional<LocalDateTime> arriveByDateTime = getDateTime(arriveByDateTimeStr);
+    if (arriveByDateTime.isEmpty()) {
+      LOGGER.info(String.format("Arrive by date time %s is invalid", arriveByDateTimeStr));
+      return metrics.recordResult(
+          startNanos,
+          new QueryResult(QueryResult.Status.INVALID_DATE_TIME, INVALID_DATE_TIME_STRING));
+    }
+
+    NetworkSnapshot snapshot = networkSnapshotCache.getSnapshot(arriveByDateTime.get());
+    Map<String, List<Station>> nameToStationsMap = snapshot.getNameIndex().asMap();
+
+    List<Station> srcStations = getStations(src, nameToStationsMap);
+    List<Station> destStations = getStations(dest, nameToStationsMap);
+
+    // validate stations input
+    if (srcStations.isEmpty() || destStations.isEmpty()) {
+      LOGGER.info(String.format("Station %s or %s is invalid", src, dest));
+      return metrics.recordResult(
+          startNanos, new QueryResult(QueryResult.Status.INVALID_STATION, INVALID_STATION_STRING));
+    }
+
+    Optional<TimedRoute> route =
+        routeFinder.findArriveByRoute(
+            srcStations, destStations, arriveByDateTime.get(), snapshot.getGraph());
     if (route.isEmpty()) {
       LOGGER.info(String.format("Route is not found for %s to %s", src, dest));
-      return ROUTE_NOT_FOUND_STRING;
+      return metrics.recordResult(
+          startNanos, new QueryResult(QueryResult.Status.ROUTE_NOT_FOUND, ROUTE_NOT_FOUND_STRING));
+    }
+    return metrics.recordResult(startNanos, new QueryResult(route.get()));
+  }
+
+  /**
+   * Given string inputs, returns the response listing the fastest route for every departure from
+   * {@code firstDepartureDateTimeStr} to {@code lastDepartureDateTimeStr}, in segments of
+   * departures taking the same route. The stations are the ones open at {@code
+   * firstDepartureDateTimeStr}. See {@link RouteFinder#findProfile}.
+   *
+   * @param src
+   * @param dest
+   * @param firstDepartureDateTimeStr
+   * @param lastDepartureDateTimeStr
+   * @return response string
+   */
+  public String handleProfileQuery(
+      String src, String dest, String firstDepartureDateTimeStr, String lastDepartureDateTimeStr)
+      throws CsvValidationException {
+    long startNanos = System.nanoTime();
+    Optional<LocalDateTime> firstDepartureDateTime = getDateTime(firstDepartureDateTimeStr);
+    Optional<LocalDateTime> lastDepartureDateTime = getDateTime(lastDepartureDateTimeStr);
+    if (firstDepartureDateTime.isEmpty()
+        || lastDepartureDateTime.isEmpty()
+        || lastDepartureDateTime.get().isBefore(firstDepartureDateTime.get())) {
+      LOGGER.info(
+          String.format(
+              "Departure date times %s to %s are invalid",
+              firstDepartureDateTimeStr, lastDepartureDateTimeStr));
+      metrics.recordOutcome(startNanos, QueryResult.Status.INVALID_DATE_TIME);
+      return INVALID_DATE_TIME_STRING;
+    }
+
+    NetworkSnapshot snapshot = networkSnapshotCache.getSnapshot(firstDepartureDateTime.get());
+    Map<String, List<Station>> nameToStationsMap = snapshot.getNameIndex().asMap();
+
+    List<Station> srcStations = getStations(src, nameToStationsMap);
+    List<Station> destStations = getStations(dest, nameToStationsMap);
+
+    // validate stations input
+    if (srcStations.isEmpty() || destStations.isEmpty()) {
+      LOGGER.info(String.format("Station %s or %s is invalid", src, dest));
+      metrics.recordOutcome(startNanos, QueryResult.Status.INVALID_STATION);
+      return INVALID_STATION_STRING;
+    }
+
+    List<ProfileSegment> segments =
+        routeFinder.findProfile(
+            srcStations,
+            destStations,
+            firstDepartureDateTime.get(),
+            lastDepartureDateTime.get(),
+            snapshot.getGraph());
+    boolean routeFound = false;
+    for (ProfileSegment segment : segments) {
+      routeFound |= segment.getRoute() != null;
+    }
+    metrics.recordOutcome(
+        startNanos,
+        routeFound ? QueryResult.Status.ROUTE_FOUND : QueryResult.Status.ROUTE_NOT_FOUND);
+    return ResponseBuilder.buildProfileResponse(segments);
+  }
+
+  /**
+   * Given string inputs, returns the response listing the stations reachable from {@code src}
+   * within each of {@code budgets} minutes of {@code startDateTimeStr}, found with a single search.
+   * The stations are the ones open at {@code startDateTimeStr}. See {@link
+   * RouteFinder#findIsochrone}.
+   *
+   * @param src
+   * @param startDateTimeStr
+   * @param budgets budgets in minutes, in any order
+   * @return response string
+   * @throws IllegalArgumentException if {@code budgets} is empty or has a negative budget
+   */
+  public String handleIsochroneQuery(String src, String startDateTimeStr, int[] budgets)
+      throws CsvValidationException {
+    long startNanos = System.nanoTime();
+    Optional<LocalDateTime> startDateTime = getDateTime(startDateTimeStr);
+    if (startDateTime.isEmpty()) {
+      LOGGER.info(String.format("Start date time %s is invalid", startDateTimeStr));
+      metrics.recordOutcome(startNanos, QueryResult.Status.INVALID_DATE_TIME);
+      return INVALID_DATE_TIME_STRING;
+    }
+
+    NetworkSnapshot snapshot = networkSnapshotCache.getSnapshot(startDateTime.get());
+    List<Station> srcStations = getStations(src, snapshot.getNameIndex().asMap());
+    if (srcStations.isEmpty()) {
+      LOGGER.info(String.format("Station %s is invalid", src));
+      metrics.recordOutcome(startNanos, QueryResult.Status.INVALID_STATION);
+      return INVALID_STATION_STRING;
     }
 
-    return ResponseBuilder.buildResponse(route.get());
+    Isochrone isochrone =
+        routeFinder.findIsochrone(srcStations, startDateTime.get(), budgets, snapshot.getGraph());
+    // the sources are always reached
+    metrics.recordOutcome(startNanos, QueryResult.Status.ROUTE_FOUND);
+    return ResponseBuilder.buildIsochroneResponse(isochrone);
+  }
+
+  /**
+   * Loads the station map, builds every network snapshot, and precomputes the searches on the
+   * network open today, so that the first query does not pay for it.
+   */
+  public void warmUp() throws CsvValidationException {
+    routeFinder.precompute(networkSnapshotCache.getSnapshot(LocalDateTime.now()).getGraph());
   }
 
   /**
@@ -77,7 +309,22 @@ public class QueryHandler {
    * @return list of stations named {@code source}, else returns an empty list
    */
   protected List<Station> getStations(String source, Map<String, List<Station>> nameToStationsMap) {
-    return nameToStationsMap.getOrDefault(source, new ArrayList<>());
+    return nameToStationsMap.getOrDefault(source, List.of());
+  }
+
+  /**
+   * Returns up to {@code limit} names of the stations open now that complete {@code prefix}, for
+   * autocompletion. No route is searched. See {@link StationNameIndex#complete(String, int)}.
+   *
+   * @param prefix
+   * @param limit
+   * @return names completing {@code prefix}
+   */
+  public List<String> completeStationName(String prefix, int limit) throws CsvValidationException {
+    return networkSnapshotCache
+        .getSnapshot(LocalDateTime.now())
+        .getNameIndex()
+        .complete(prefix, limit);
   }
 
   /**
@@ -87,9 +334,8 @@ public class QueryHandler {
    * @param dateTimeStr
    */
   protected Optional<LocalDateTime> getDateTime(String dateTimeStr) {
-    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
     try {
-      return Optional.of(LocalDateTime.parse(dateTimeStr, formatter));
+      return Optional.of(LocalDateTime.parse(dateTimeStr, DATE_TIME_FORMATTER));
     } catch (DateTimeParseException e) {
       LOGGER.info(String.format("Datetime string %s cannot be parsed", dateTimeStr));
       return Optional.empty();
@@ -0,0 +1,255 @@
+package railwayrouter.services;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import railwayrouter.models.LatencyHistogram;
+import railwayrouter.models.QueryResult;
+import railwayrouter.models.SearchStats;
+
+/**
+ * Latency of every stage of the route queries of a {@code QueryHandler}, how many queries ended
+ * with each {@code QueryResult.Status}, and the work done by the searches of its {@code
+ * RouteFinder}. Stages are timed with {@link System#nanoTime()} into a {@code LatencyHistogram}
+ * each, so recording does not allocate. Safe to share across threads.
+ *
+ * <p>The metrics can be read with {@link #dump()}, or over JMX once {@link #register()} is called.
+ */
+public class QueryMetrics implements QueryMetricsMXBean {
+  private static final Logger LOGGER = Logger.getLogger(QueryMetrics.class.getName());
+
+  public static final String OBJECT_NAME = "railwayrouter:type=QueryMetrics";
+  protected static final double[] PERCENTILES = {50, 99, 99.9};
+  protected static final String[] PERCENTILE_NAMES = {"p50", "p99", "p999"};
+
+  /** Stages of a route query, in the order they run */
+  public enum Stage {
+    /** parsing the date time */
+    PARSE,
+    /** getting the network snapshot, which loads the station map on first use */
+    SNAPSHOT,
+    /** looking up the stations with the names given */
+    STATIONS,
+    /** finding the route, from the route cache or with a search */
+    SEARCH,
+    /** turning the route into the response */
+    RENDER,
+    /** every stage but RENDER, from parsing to the result */
+    RESOLVE;
+
+    String getName() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  private final RouteFinder routeFinder;
+  private final RouteCache routeCache;
+  private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+  private final LongAdder[] outcomes = new LongAdder[QueryResult.Status.values().length];
+
+  /**
+   * @param routeFinder route finder whose total search work is reported
+   * @param routeCache route cache whose hits and misses are reported
+   */
+  public QueryMetrics(RouteFinder routeFinder, RouteCache routeCache) {
+    this.routeFinder = routeFinder;
+    this.routeCache = routeCache;
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+    for (int i = 0; i < outcomes.length; i++) {
+      outcomes[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records that {@code stage} ran from {@code startNanos} until now, so that consecutive stages
+   * can be timed with one call to {@link System#nanoTime()} each.
+   *
+   * @param stage
+   * @param startNanos {@link System#nanoTime()} when {@code stage} started
+   * @return {@link System#nanoTime()} now, when the next stage starts
+   */
+  public long record(Stage stage, long startNanos) {
+    long nowNanos = System.nanoTime();
+    histograms[stage.ordinal()].record(nowNanos - startNanos);
+    return nowNanos;
+  }
+
+  /**
+   * Records a query that ran from {@code startNanos} until now, and ended with {@code result}.
+   *
+   * @param startNanos {@link System#nanoTime()} when the query started
+   * @param result
+   * @return {@code result}
+   */
+  public QueryResult recordResult(long startNanos, QueryResult result) {
+    recordOutcome(startNanos, result.getStatus());
+    return result;
+  }
+
+  /**
+   * Records a query that ran from {@code startNanos} until now, and ended with {@code status}, for
+   * queries whose response is not a single {@code QueryResult}, e.g. profiles and isochrones.
+   *
+   * @param startNanos {@link System#nanoTime()} when the query started
+   * @param status
+   */
+  public void recordOutcome(long startNanos, QueryResult.Status status) {
+    record(Stage.RESOLVE, startNanos);
+    outcomes[status.ordinal()].increment();
+  }
+
+  public LatencyHistogram getHistogram(Stage stage) {
+    return histograms[stage.ordinal()];
+  }
+
+  @Override
+  public long getQueries() {
+    long queries = 0;
+    for (LongAdder outcome : outcomes) {
+      queries += outcome.sum();
+    }
+    return queries;
+  }
+
+  @Override
+  public long getRoutesFound() {
+    return outcomes[QueryResult.Status.ROUTE_FOUND.ordinal()].sum();
+  }
+
+  @Override
+  public long getInvalidDateTimeQueries() {
+    return outcomes[QueryResult.Status.INVALID_DATE_TIME.ordinal()].sum();
+  }
+
+  @Override
+  public long getInvalidStationQueries() {
+    return outcomes[QueryResult.Status.INVALID_STATION.ordinal()].sum();
+  }
+
+  @Override
+  public long getRouteNotFoundQueries() {
+    return outcomes[QueryResult.Status.ROUTE_NOT_FOUND.ordinal()].sum();
+  }
+
+  @Override
+  public long getSettledNodes() {
+    return routeFinder.getTotalSearchStats().getSettledNodes();
+  }
+
+  @Override
+  public long getPushes() {
+    return routeFinder.getTotalSearchStats().getPushes();
+  }
+
+  @Override
+  public long getRelaxations() {
+    return routeFinder.getTotalSearchStats().getRelaxations();
+  }
+
+  @Override
+  public long getRouteCacheHits() {
+    return routeCache.getHitCount();
+  }
+
+  @Override
+  public long getRouteCacheMisses() {
+    return routeCache.getMissCount();
+  }
+
+  /**
+   * Returns the count, percentiles and maximum latency of every stage, keyed by stage and
+   * statistic, e.g. {@code search.count}, {@code search.p50}, {@code search.p99}, {@code
+   * search.p999} and {@code search.max}.
+   *
+   * @return counts, and latencies in nanoseconds, in order of stage
+   */
+  @Override
+  public Map<String, Long> getLatencyNanos() {
+    Map<String, Long> latencies = new LinkedHashMap<>();
+    for (Stage stage : Stage.values()) {
+      LatencyHistogram histogram = getHistogram(stage);
+      latencies.put(stage.getName() + ".count", histogram.getCount());
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        latencies.put(
+            stage.getName() + "." + PERCENTILE_NAMES[i],
+            histogram.getValueAtPercentile(PERCENTILES[i]));
+      }
+      latencies.put(stage.getName() + ".max", histogram.getMax());
+    }
+    return latencies;
+  }
+
+  /**
+   * Returns every metric as text: a table of the latency of every stage in microseconds, then the
+   * outcomes of the queries, the work done by the searches and the route cache hits, e.g.
+   *
+   * <pre>
+   * stage          count     p50 us     p99 us    p999 us     max us
+   * parse              2        0.9        3.1        3.1        3.1
+   * ...
+   * queries: 2, routes found: 1, invalid date time: 0, invalid station: 0, route not found: 1
+   * settled nodes: 168, pushes: 190, relaxations: 402
+   * route cache hits: 0, route cache misses: 2
+   * </pre>
+   *
+   * @return metrics text, ending with a newline
+   */
+  @Override
+  public String dump() {
+    StringBuilder sb = new StringBuilder(String.format("%-10s%10s", "stage", "count"));
+    for (String percentileName : PERCENTILE_NAMES) {
+      sb.append(String.format("%11s", percentileName + " us"));
+    }
+    sb.append(String.format("%11s\n", "max us"));
+    for (Stage stage : Stage.values()) {
+      LatencyHistogram histogram = getHistogram(stage);
+      sb.append(String.format("%-10s%10d", stage.getName(), histogram.getCount()));
+      for (double percentile : PERCENTILES) {
+        sb.append(
+            String.format(
+                Locale.ROOT, "%11.1f", histogram.getValueAtPercentile(percentile) / 1000.0));
+      }
+      sb.append(String.format(Locale.ROOT, "%11.1f\n", histogram.getMax() / 1000.0));
+    }
+
+    sb.append(
+        String.format(
+            "queries: %d, routes found: %d, invalid date time: %d, invalid station: %d,"
+                + " route not found: %d\n",
+            getQueries(),
+            getRoutesFound(),
+            getInvalidDateTimeQueries(),
+            getInvalidStationQueries(),
+            getRouteNotFoundQueries()));
+    SearchStats stats = routeFinder.getTotalSearchStats();
+    sb.append(
+        String.format(
+            "settled nodes: %d, pushes: %d, relaxations: %d\n",
+            stats.getSettledNodes(), stats.getPushes(), stats.getRelaxations()));
+    sb.append(
+        String.format(
+            "route cache hits: %d, route cache misses: %d\n",
+            getRouteCacheHits(), getRouteCacheMisses()));
+    return sb.toString();
+  }
+
+  /**
+   * Registers these metrics with the platform MBean server as {@code OBJECT_NAME}, so that they can
+   * be read over JMX. Logs a warning instead if they cannot be registered, e.g. because another
+   * instance already is.
+   */
+  public void register() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    } catch (JMException e) {
+      LOGGER.warning(String.format("Unable to register %s: %s", OBJECT_NAME, e));
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package railwayrouter.services;
+
+import java.util.Map;
+
+/** Management interface of {@link QueryMetrics}, for JMX clients such as JConsole */
+public interface QueryMetricsMXBean {
+  long getQueries();
+
+  long getRoutesFound();
+
+  long getInvalidDateTimeQueries();
+
+  long getInvalidStationQueries();
+
+  long getRouteNotFoundQueries();
+
+  long getSettledNodes();
+
+  long getPushes();
+
+  long getRelaxations();
+
+  long getRouteCacheHits();
+
+  long getRouteCacheMisses();
+
+  /**
+   * @return latencies in nanoseconds by stage and statistic, e.g. {@code search.p99}. See {@link
+   *     QueryMetrics#getLatencyNanos()}
+   */
+  Map<String, Long> getLatencyNanos();
+
+  /** @return every metric, as the text of {@link QueryMetrics#dump()} */
+  String dump();
+}
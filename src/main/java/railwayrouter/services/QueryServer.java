@@ -0,0 +1,294 @@
+package railwayrouter.services;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import railwayrouter.models.QueryResult;
+import railwayrouter.models.Route;
+import railwayrouter.utils.ResponseBuilder;
+import railwayrouter.utils.ResponseEncoder;
+
+/**
+ * HTTP server answering queries at {@code /route?src=&dest=&at=}, with one shared {@code
+ * QueryHandler}. The response is the same text as the command line, or JSON if {@code format=json}
+ * is given or the Accept header asks for application/json, or the binary form of {@code
+ * ResponseEncoder} if {@code format=binary} is given or the Accept header asks for
+ * application/octet-stream. Routes are encoded straight into the bytes sent, and errors are sent as
+ * text unless JSON is asked for.
+ *
+ * <p>Station names are autocompleted at {@code /stations?q=&limit=}, which always responds with
+ * JSON, e.g. {"stations":["Kovan","Kranji"]}.
+ *
+ * <p>The latencies and outcomes of the route queries so far are given as text at {@code /metrics}.
+ * See {@link QueryMetrics#dump()}.
+ *
+ * <p>Status codes: 200 if a route is found, 404 if there is no route or the path is not one of the
+ * above, 400 if a parameter is missing or invalid, 405 if the method is not GET, and 500 if the
+ * query fails.
+ */
+public class QueryServer {
+  private static final Logger LOGGER = Logger.getLogger(QueryServer.class.getName());
+
+  protected static final String ROUTE_PATH = "/route";
+  protected static final String SRC_PARAM = "src";
+  protected static final String DEST_PARAM = "dest";
+  protected static final String AT_PARAM = "at";
+  protected static final String FORMAT_PARAM = "format";
+  protected static final String STATIONS_PATH = "/stations";
+  protected static final String QUERY_PARAM = "q";
+  protected static final String LIMIT_PARAM = "limit";
+  protected static final String METRICS_PATH = "/metrics";
+  protected static final int DEFAULT_LIMIT = 10;
+  protected static final int MAX_LIMIT = 100;
+  protected static final String INVALID_LIMIT_STRING = "Invalid limit, expected 1 to " + MAX_LIMIT;
+  protected static final String JSON_FORMAT = "json";
+  protected static final String BINARY_FORMAT = "binary";
+  protected static final String MISSING_PARAM_STRING = "Missing parameter %s";
+  protected static final String ERROR_STRING = "Unable to process request.";
+  private static final int BACKLOG = 1024;
+
+  private final QueryHandler queryHandler;
+  private final HttpServer server;
+
+  /**
+   * Creates a server bound to {@code address}, handling requests on {@code executor}. The server
+   * does not accept requests until {@link #start()} is called.
+   *
+   * @param queryHandler
+   * @param address
+   * @param executor
+   */
+  public QueryServer(QueryHandler queryHandler, InetSocketAddress address, ExecutorService executor)
+      throws IOException {
+    this.queryHandler = queryHandler;
+    this.server = HttpServer.create(address, BACKLOG);
+    server.createContext(ROUTE_PATH, this::handle);
+    server.createContext(STATIONS_PATH, this::handleStations);
+    server.createContext(METRICS_PATH, this::handleMetrics);
+    server.setExecutor(executor);
+  }
+
+  public void start() {
+    server.start();
+    LOGGER.info(String.format("Listening on port %d", getPort()));
+  }
+
+  /**
+   * Stops accepting requests, and waits up to {@code delaySeconds} for requests being handled.
+   *
+   * @param delaySeconds
+   */
+  public void stop(int delaySeconds) {
+    server.stop(delaySeconds);
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Creates the executor requests are handled on. If {@code numThreads} is positive, it is a pool
+   * of that many threads. Otherwise every request gets its own virtual thread if the runtime
+   * supports them, or else it is a pool with one thread per processor.
+   *
+   * @param numThreads
+   * @return executor for {@code QueryServer}
+   */
+  public static ExecutorService newExecutor(int numThreads) {
+    if (numThreads > 0) {
+      return Executors.newFixedThreadPool(numThreads);
+    }
+    try {
+      // looked up reflectively so that the server still runs on runtimes without virtual threads
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      LOGGER.info("Virtual threads are not supported, using a thread per processor");
+      return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+  }
+
+  /**
+   * Parses a query string e.g. {@code src=Buangkok&dest=Kovan}, decoding each name and value.
+   *
+   * @param rawQuery undecoded query string, or null if there is none
+   * @return mapping from parameter name to value, keeping the first value of repeated parameters
+   */
+  protected static Map<String, String> parseQueryString(String rawQuery) {
+    Map<String, String> params = new HashMap<>();
+    if (rawQuery == null) return params;
+    for (String param : rawQuery.split("&")) {
+      if (param.isEmpty()) continue;
+      int separator = param.indexOf('=');
+      String name = separator == -1 ? param : param.substring(0, separator);
+      String value = separator == -1 ? "" : param.substring(separator + 1);
+      params.putIfAbsent(
+          URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return params;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!checkPath(exchange, ROUTE_PATH) || !checkMethod(exchange)) return;
+      Map<String, String> params = getParams(exchange);
+      ResponseEncoder.Format format = getFormat(exchange, params);
+      boolean json = format == ResponseEncoder.Format.JSON;
+
+      for (String name : new String[] {SRC_PARAM, DEST_PARAM, AT_PARAM}) {
+        if (!params.containsKey(name)) {
+          sendError(exchange, 400, String.format(MISSING_PARAM_STRING, name), json);
+          return;
+        }
+      }
+
+      QueryResult result;
+      try {
+        result =
+            queryHandler.resolveQuery(
+                params.get(SRC_PARAM), params.get(DEST_PARAM), params.get(AT_PARAM));
+      } catch (Exception e) {
+        LOGGER.severe(String.format("Query %s failed: %s", exchange.getRequestURI(), e));
+        sendError(exchange, 500, ERROR_STRING, json);
+        return;
+      }
+
+      switch (result.getStatus()) {
+        case ROUTE_FOUND:
+          long renderNanos = System.nanoTime();
+          Route route = result.getRoute();
+          ByteBuffer body = ByteBuffer.allocate(ResponseEncoder.getMaxLength(route));
+          ResponseEncoder.encode(route, format, body);
+          queryHandler.getMetrics().record(QueryMetrics.Stage.RENDER, renderNanos);
+          send(exchange, 200, body.flip(), format);
+          break;
+        case ROUTE_NOT_FOUND:
+          sendError(exchange, 404, result.getMessage(), json);
+          break;
+        default:
+          sendError(exchange, 400, result.getMessage(), json);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void handleStations(HttpExchange exchange) throws IOException {
+    try {
+      if (!checkPath(exchange, STATIONS_PATH) || !checkMethod(exchange)) return;
+      Map<String, String> params = getParams(exchange);
+      if (!params.containsKey(QUERY_PARAM)) {
+        sendError(exchange, 400, String.format(MISSING_PARAM_STRING, QUERY_PARAM), true);
+        return;
+      }
+      int limit = DEFAULT_LIMIT;
+      if (params.containsKey(LIMIT_PARAM)) {
+        try {
+          limit = Integer.parseInt(params.get(LIMIT_PARAM));
+        } catch (NumberFormatException e) {
+          limit = 0;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+          sendError(exchange, 400, INVALID_LIMIT_STRING, true);
+          return;
+        }
+      }
+
+      List<String> names;
+      try {
+        names = queryHandler.completeStationName(params.get(QUERY_PARAM), limit);
+      } catch (Exception e) {
+        LOGGER.severe(String.format("Query %s failed: %s", exchange.getRequestURI(), e));
+        sendError(exchange, 500, ERROR_STRING, true);
+        return;
+      }
+      send(exchange, 200, ResponseBuilder.buildJsonStationNames(names), true);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try {
+      if (!checkPath(exchange, METRICS_PATH) || !checkMethod(exchange)) return;
+      send(exchange, 200, queryHandler.getMetrics().dump(), false);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Responds with 404 unless the path of {@code exchange} is exactly {@code path}, since contexts
+   * also match every path starting with theirs, and returns false if so
+   */
+  private static boolean checkPath(HttpExchange exchange, String path) throws IOException {
+    if (exchange.getRequestURI().getPath().equals(path)) return true;
+    exchange.sendResponseHeaders(404, -1);
+    return false;
+  }
+
+  /** Responds with 405 unless the method of {@code exchange} is GET, and returns false if so */
+  private static boolean checkMethod(HttpExchange exchange) throws IOException {
+    if (exchange.getRequestMethod().equals("GET")) return true;
+    exchange.getResponseHeaders().set("Allow", "GET");
+    exchange.sendResponseHeaders(405, -1);
+    return false;
+  }
+
+  private static Map<String, String> getParams(HttpExchange exchange) {
+    try {
+      return parseQueryString(exchange.getRequestURI().getRawQuery());
+    } catch (IllegalArgumentException e) {
+      return Map.of(); // malformed escape, reported as a missing parameter
+    }
+  }
+
+  private static ResponseEncoder.Format getFormat(
+      HttpExchange exchange, Map<String, String> params) {
+    if (params.containsKey(FORMAT_PARAM)) {
+      String format = params.get(FORMAT_PARAM);
+      if (format.equalsIgnoreCase(JSON_FORMAT)) return ResponseEncoder.Format.JSON;
+      if (format.equalsIgnoreCase(BINARY_FORMAT)) return ResponseEncoder.Format.BINARY;
+      return ResponseEncoder.Format.TEXT;
+    }
+    String accept = exchange.getRequestHeaders().getFirst("Accept");
+    if (accept != null && accept.contains("application/json")) return ResponseEncoder.Format.JSON;
+    if (accept != null && accept.contains("application/octet-stream")) {
+      return ResponseEncoder.Format.BINARY;
+    }
+    return ResponseEncoder.Format.TEXT;
+  }
+
+  private static void sendError(HttpExchange exchange, int status, String message, boolean json)
+      throws IOException {
+    send(exchange, status, json ? ResponseBuilder.buildJsonError(message) : message, json);
+  }
+
+  private static void send(HttpExchange exchange, int status, String body, boolean json)
+      throws IOException {
+    ByteBuffer bytes = ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8));
+    send(exchange, status, bytes, json ? ResponseEncoder.Format.JSON : ResponseEncoder.Format.TEXT);
+  }
+
+  private static void send(
+      HttpExchange exchange, int status, ByteBuffer body, ResponseEncoder.Format format)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", format.getContentType());
+    exchange.sendResponseHeaders(status, body.remaining());
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+    }
+  }
+}
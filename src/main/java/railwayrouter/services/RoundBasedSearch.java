@@ -0,0 +1,339 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.TimeOfDayUtil.MINUTES_PER_WEEK;
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDay;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDayOfMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
+
+import java.nio.IntBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.LineRoutes;
+import railwayrouter.models.Route;
+import railwayrouter.models.SearchStats;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+/**
+ * Round-based search of {@code RouteFinder} for routes trading travel time off against line
+ * changes, on the CSR form of the network and its line routes. An instance holds the state of one
+ * {@link #search}, round after round.
+ */
+final class RoundBasedSearch {
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private final IntBuffer offsets;
+  private final IntBuffer targets;
+  private final byte[] edgeKinds;
+  private final int[][] costs;
+  private final int[] routeOffsets;
+  private final int[] routeStations;
+  private final int[] nextEdges;
+  private final int[] previousEdges;
+  private final int[] stationRoutes;
+  private final int[] positions;
+  private final int startMinuteOfWeek;
+  private final SearchStats stats;
+
+  // arrival minutes, preceding station id, and round of the preceding station, of every round
+  private final List<int[]> arrivalMinutes = new ArrayList<>();
+  private final List<int[]> precs = new ArrayList<>();
+  private final List<int[]> precRounds = new ArrayList<>();
+  private final int[] best; // fastest arrival minutes in any round so far
+  private int bestDestMinutes = UNREACHABLE; // fastest arrival minutes at a dest so far
+  private int round;
+  // stations reached faster in the current round, and in the previous round
+  private int[] marked;
+  private int numMarked;
+  private int[] previousMarked;
+  private final BitSet isMarked;
+  // first and last marked position of every route, -1 if none, and the routes with one
+  private final int[] firstPositions;
+  private final int[] lastPositions;
+  private final int[] markedRoutes;
+
+  /**
+   * Returns the Pareto set of routes from stations in srcStations to stations in destStations,
+   * trading travel time off against line changes, with one search per src. See {@link
+   * RouteFinder#findParetoRoutes(List, List, LocalDateTime, CsrGraph)}.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param startDateTime
+   * @param graph
+   * @param costModel
+   * @param lineRoutes line routes of {@code graph}
+   * @param stats
+   * @return routes in increasing order of line changes and decreasing order of minutes, or an empty
+   *     list if there is no route
+   */
+  static List<Route> findParetoRoutes(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      CostModel costModel,
+      LineRoutes lineRoutes,
+      SearchStats stats) {
+    int[] destRank = new int[graph.getNumStations()]; // 1 + index in destStations, 0 if not a dest
+    for (int i = 0; i < destStations.size(); i++) {
+      destRank[destStations.get(i).getId()] = i + 1;
+    }
+    // fastest route found with each number of line changes, from any src
+    List<Route> routes = new ArrayList<>();
+    for (Station src : srcStations) {
+      List<Route> srcRoutes =
+          search(src, destRank, startDateTime, graph, costModel, lineRoutes, stats);
+      for (int lineChanges = 0; lineChanges < srcRoutes.size(); lineChanges++) {
+        Route route = srcRoutes.get(lineChanges);
+        if (lineChanges == routes.size()) {
+          routes.add(route);
+        } else if (route != null
+            && (routes.get(lineChanges) == null
+                || route.getMinutes() <= routes.get(lineChanges).getMinutes())) {
+          routes.set(lineChanges, route);
+        }
+      }
+    }
+    List<Route> paretoRoutes = new ArrayList<>();
+    for (Route route : routes) {
+      if (route != null
+          && (paretoRoutes.isEmpty()
+              || route.getMinutes() < paretoRoutes.get(paretoRoutes.size() - 1).getMinutes())) {
+        paretoRoutes.add(route);
+      }
+    }
+    return paretoRoutes;
+  }
+
+  /**
+   * Runs a round-based search (RAPTOR) from src. Round {@code k} finds the fastest routes with
+   * {@code k} line changes: it changes lines at the stations reached faster in round {@code k - 1},
+   * then rides every line through a station reached faster in this round, both ways, station by
+   * station along the arrays of {@code LineRoutes}, without a priority queue. Only arrivals faster
+   * than at the same station with fewer line changes, and than at any dest in an earlier round, are
+   * kept, so the search stops once a round reaches no station faster.
+   *
+   * <p>Costs change with the time of day, so, as in {@link MultiSourceDijkstra#search}, the arrival
+   * times from each src are kept apart, with one search per src.
+   *
+   * @param src
+   * @param destRank 1 + index in destStations of every station, 0 if not a dest
+   * @param startDateTime
+   * @param graph
+   * @param costModel
+   * @param lineRoutes line routes of {@code graph}
+   * @param stats
+   * @return fastest route to a dest found in each round, or null if it is not faster than the
+   *     route found in an earlier round
+   */
+  private static List<Route> search(
+      Station src,
+      int[] destRank,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      CostModel costModel,
+      LineRoutes lineRoutes,
+      SearchStats stats) {
+    RoundBasedSearch search =
+        new RoundBasedSearch(
+            graph, costModel, lineRoutes, getMinuteOfWeek(toEpochMinute(startDateTime)), stats);
+    TimeOfDay timeOfDay = getTimeOfDay(startDateTime);
+    List<Route> routes = new ArrayList<>();
+    search.start(src.getId());
+    do {
+      search.rideLines();
+      int dest = search.updateFastestDest(destRank);
+      routes.add(dest == -1 ? null : search.getRoute(dest, timeOfDay, graph));
+    } while (search.changeLines());
+    return routes;
+  }
+
+  private RoundBasedSearch(
+      CsrGraph graph,
+      CostModel costModel,
+      LineRoutes lineRoutes,
+      int startMinuteOfWeek,
+      SearchStats stats) {
+    int numStations = graph.getNumStations();
+    int numRoutes = lineRoutes.getNumRoutes();
+    offsets = graph.getOffsets();
+    targets = graph.getTargets();
+    edgeKinds = graph.getEdgeKinds();
+    costs = costModel.getCosts();
+    routeOffsets = lineRoutes.getOffsets();
+    routeStations = lineRoutes.getStations();
+    nextEdges = lineRoutes.getNextEdges();
+    previousEdges = lineRoutes.getPreviousEdges();
+    stationRoutes = lineRoutes.getRoutes();
+    positions = lineRoutes.getPositions();
+    this.startMinuteOfWeek = startMinuteOfWeek;
+    this.stats = stats;
+    best = new int[numStations];
+    marked = new int[numStations];
+    previousMarked = new int[numStations];
+    isMarked = new BitSet(numStations);
+    firstPositions = new int[numRoutes];
+    lastPositions = new int[numRoutes];
+    markedRoutes = new int[numRoutes];
+    Arrays.fill(best, UNREACHABLE);
+    Arrays.fill(firstPositions, -1);
+  }
+
+  /** Starts round 0 at src */
+  private void start(int src) {
+    int numStations = best.length;
+    int[] arrival = new int[numStations];
+    int[] prec = new int[numStations];
+    Arrays.fill(arrival, UNREACHABLE);
+    Arrays.fill(prec, -1);
+    arrivalMinutes.add(arrival);
+    precs.add(prec);
+    precRounds.add(new int[numStations]);
+    arrival[src] = 0;
+    best[src] = 0;
+    mark(src);
+    stats.incrementPushes();
+  }
+
+  /**
+   * Starts the next round by changing lines at every station reached faster in the current one.
+   *
+   * @return whether any station is reached faster
+   */
+  private boolean changeLines() {
+    int[] previousArrival = arrivalMinutes.get(round);
+    arrivalMinutes.add(previousArrival.clone());
+    precs.add(precs.get(round).clone());
+    precRounds.add(precRounds.get(round).clone());
+    int[] swap = previousMarked;
+    previousMarked = marked;
+    marked = swap;
+    int numPreviousMarked = numMarked;
+    numMarked = 0;
+    isMarked.clear();
+    round++;
+    for (int i = 0; i < numPreviousMarked; i++) {
+      int cur = previousMarked[i];
+      for (int edge = offsets.get(cur); edge < offsets.get(cur + 1); edge++) {
+        if (edgeKinds[edge] == CsrGraph.TRANSFER) {
+          relax(cur, previousArrival[cur], round - 1, edge);
+        }
+      }
+    }
+    return numMarked > 0;
+  }
+
+  /** Rides every line through a station reached faster in the current round, both ways */
+  private void rideLines() {
+    int numMarkedRoutes = 0;
+    for (int i = 0; i < numMarked; i++) {
+      int route = stationRoutes[marked[i]];
+      int position = positions[marked[i]];
+      if (firstPositions[route] == -1) {
+        markedRoutes[numMarkedRoutes++] = route;
+        firstPositions[route] = position;
+        lastPositions[route] = position;
+      } else {
+        firstPositions[route] = Math.min(firstPositions[route], position);
+        lastPositions[route] = Math.max(lastPositions[route], position);
+      }
+    }
+    int[] arrival = arrivalMinutes.get(round);
+    for (int i = 0; i < numMarkedRoutes; i++) {
+      int route = markedRoutes[i];
+      for (int position = firstPositions[route];
+          position + 1 < routeOffsets[route + 1];
+          position++) {
+        int cur = routeStations[position];
+        if (isMarked.get(cur)) relax(cur, arrival[cur], round, nextEdges[position]);
+      }
+      for (int position = lastPositions[route]; position > routeOffsets[route]; position--) {
+        int cur = routeStations[position];
+        if (isMarked.get(cur)) relax(cur, arrival[cur], round, previousEdges[position]);
+      }
+      firstPositions[route] = -1;
+    }
+  }
+
+  /**
+   * Relaxes {@code edge} from {@code cur}, reached {@code arrivalMinutesCur} after the start of
+   * travel in round {@code curRound}, into the current round.
+   */
+  private void relax(int cur, int arrivalMinutesCur, int curRound, int edge) {
+    if (edge == LineRoutes.NO_EDGE) return;
+    int minuteOfWeek = (startMinuteOfWeek + arrivalMinutesCur) % MINUTES_PER_WEEK;
+    int cost = costs[getTimeOfDayOfMinuteOfWeek(minuteOfWeek).ordinal()][edge];
+    stats.incrementRelaxations();
+    if (cost == CostModel.CLOSED) return; // line is not operating
+    int v = targets.get(edge);
+    int arrivalMinutesV = arrivalMinutesCur + cost;
+    if (arrivalMinutesV < best[v] && arrivalMinutesV < bestDestMinutes) {
+      arrivalMinutes.get(round)[v] = arrivalMinutesV;
+      precs.get(round)[v] = cur;
+      precRounds.get(round)[v] = curRound;
+      best[v] = arrivalMinutesV;
+      mark(v);
+      stats.incrementPushes();
+    }
+  }
+
+  private void mark(int station) {
+    if (!isMarked.get(station)) {
+      isMarked.set(station);
+      marked[numMarked++] = station;
+    }
+  }
+
+  /**
+   * @param destRank
+   * @return dest reached fastest in the current round, the later in destStations if several, or
+   *     -1 if none is reached faster than in an earlier round
+   */
+  private int updateFastestDest(int[] destRank) {
+    int[] arrival = arrivalMinutes.get(round);
+    int fastest = -1;
+    for (int i = 0; i < numMarked; i++) {
+      int station = marked[i];
+      if (destRank[station] > 0
+          && (fastest == -1
+              || arrival[station] < arrival[fastest]
+              || (arrival[station] == arrival[fastest]
+                  && destRank[station] > destRank[fastest]))) {
+        fastest = station;
+      }
+    }
+    if (fastest != -1) bestDestMinutes = arrival[fastest];
+    return fastest;
+  }
+
+  /**
+   * @param dest
+   * @param timeOfDay time of day at the start of travel
+   * @param graph
+   * @return route to {@code dest} found in the current round
+   */
+  private Route getRoute(int dest, TimeOfDay timeOfDay, CsrGraph graph) {
+    int numStations = 0;
+    for (int cur = dest, curRound = round; cur != -1; ) {
+      numStations++;
+      int prec = precs.get(curRound)[cur];
+      curRound = precRounds.get(curRound)[cur];
+      cur = prec;
+    }
+    Station[] stations = new Station[numStations];
+    for (int cur = dest, curRound = round; cur != -1; ) {
+      stations[--numStations] = graph.getStations()[cur];
+      int prec = precs.get(curRound)[cur];
+      curRound = precRounds.get(curRound)[cur];
+      cur = prec;
+    }
+    return new Route(arrivalMinutes.get(round)[dest], Arrays.asList(stations), timeOfDay);
+  }
+}
@@ -0,0 +1,159 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getMinutesUntilTimeOfDayChange;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDay;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import railwayrouter.models.FrequencyTable;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.models.Route;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+/**
+ * Bounded cache of routes in front of {@link RouteFinder#findRoute}, keyed by source name,
+ * destination name, network epoch and the time of day at the start of travel.
+ *
+ * <p>While a journey stays within one time of day, every cost it sees is the same, so the search
+ * finds the same route whatever the start date time. A route is therefore only cached if it ends
+ * before the time of day changes, and only served from the cache if it would still end before the
+ * time of day changes at the new start date time. Otherwise the search is run. Queries with no
+ * route are not cached, since the search may have explored past a change of time of day.
+ *
+ * <p>Entries are also keyed by the frequencies in use, so replacing the frequencies never serves a
+ * stale route. Safe to share across threads.
+ */
+public class RouteCache {
+  public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+  private final long maximumSize;
+  private final Cache<Key, Route> cache;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /** @param maximumSize maximum number of routes kept, or 0 to disable caching */
+  public RouteCache(long maximumSize) {
+    this.maximumSize = maximumSize;
+    this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  /**
+   * Same as {@link RouteFinder#findRoute(List, List, LocalDateTime, railwayrouter.models.CsrGraph)}
+   * on the graph of {@code snapshot}, served from the cache when possible.
+   *
+   * @param routeFinder
+   * @param srcStations stations with the same name, as in {@code snapshot}
+   * @param destStations stations with the same name, as in {@code snapshot}
+   * @param startDateTime
+   * @param snapshot
+   * @return shortest {@code Route} from a station in srcStations to a station in destStations
+   */
+  public Optional<Route> findRoute(
+      RouteFinder routeFinder,
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      NetworkSnapshot snapshot) {
+    if (maximumSize == 0) {
+      return routeFinder.findRoute(srcStations, destStations, startDateTime, snapshot.getGraph());
+    }
+    Key key =
+        new Key(
+            srcStations.get(0).getName(),
+            destStations.get(0).getName(),
+            snapshot.getEpoch(),
+            getTimeOfDay(startDateTime),
+            routeFinder.getFrequencyTable());
+    int minutesLeft = getMinutesUntilTimeOfDayChange(getMinuteOfWeek(toEpochMinute(startDateTime)));
+
+    Route cached = cache.getIfPresent(key);
+    if (cached != null && cached.getMinutes() <= minutesLeft) {
+      hits.increment();
+      return Optional.of(cached);
+    }
+    misses.increment();
+    Optional<Route> route =
+        routeFinder.findRoute(srcStations, destStations, startDateTime, snapshot.getGraph());
+    if (route.isPresent() && route.get().getMinutes() <= minutesLeft) {
+      cache.put(key, route.get());
+    }
+    return route;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return cache.stats().evictionCount();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  @Override
+  public String toString() {
+    return "RouteCache{"
+        + "hits="
+        + getHitCount()
+        + ", misses="
+        + getMissCount()
+        + ", evictions="
+        + getEvictionCount()
+        + ", size="
+        + size()
+        + '}';
+  }
+
+  private static final class Key {
+    final String srcName;
+    final String destName;
+    final int epoch;
+    final TimeOfDay timeOfDay;
+    final FrequencyTable frequencyTable; // compared by identity
+
+    Key(
+        String srcName,
+        String destName,
+        int epoch,
+        TimeOfDay timeOfDay,
+        FrequencyTable frequencyTable) {
+      this.srcName = srcName;
+      this.destName = destName;
+      this.epoch = epoch;
+      this.timeOfDay = timeOfDay;
+      this.frequencyTable = frequencyTable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key key = (Key) o;
+      return epoch == key.epoch
+          && srcName.equals(key.srcName)
+          && destName.equals(key.destName)
+          && timeOfDay == key.timeOfDay
+          && frequencyTable == key.frequencyTable;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          srcName, destName, epoch, timeOfDay, System.identityHashCode(frequencyTable));
+    }
+  }
+}
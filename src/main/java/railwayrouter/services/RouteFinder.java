@@ -2,20 +2,280 @@ package railwayrouter.services;
 
 import static railwayrouter.models.Constants.getFrequencyMap;
 import static railwayrouter.models.Constants.getLineChangeFieldName;
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getMinutesUntilTimeOfDayChange;
 import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDay;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import railwayrouter.models.ContractionHierarchy;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.FrequencyTable;
+import railwayrouter.models.Isochrone;
+import railwayrouter.models.LandmarkTable;
+import railwayrouter.models.LineRoutes;
 import railwayrouter.models.Node;
+import railwayrouter.models.ProfileSegment;
 import railwayrouter.models.Route;
+import railwayrouter.models.SearchEngine;
+import railwayrouter.models.SearchStats;
 import railwayrouter.models.Station;
+import railwayrouter.models.StationNameIndex;
 import railwayrouter.models.TimeOfDay;
+import railwayrouter.models.TimedRoute;
+import railwayrouter.models.TravelTimeMatrix;
+import railwayrouter.models.TravelTimeTable;
+import railwayrouter.utils.ContractionHierarchyBuilder;
+import railwayrouter.utils.CostModelCompiler;
+import railwayrouter.utils.LandmarkTableBuilder;
+import railwayrouter.utils.LineRoutesBuilder;
+import railwayrouter.utils.TravelTimeTableBuilder;
 
+/**
+ * Finds the fastest route between stations. The frequencies are replaced atomically, and searches
+ * share no mutable state, so one route finder can be shared by any number of threads.
+ *
+ * <p>The searches of the {@code DIJKSTRA}, {@code DIAL}, {@code ALT} and {@code CH} engines, and
+ * the arrive by, isochrone, travel time matrix and profile searches, do not allocate their arrays
+ * per search, but take a {@code SearchWorkspace} from a shared pool. A workspace is confined to the
+ * thread of the search holding it: the search acquires it on entry, releases it in a {@code
+ * finally} block, and never keeps a reference to it, or to its arrays, in the route it returns. Its
+ * entries are stamped with the generation of the search, or reset by the {@code CH} search that
+ * wrote them, so an acquired workspace starts empty without being cleared. The round-based search
+ * of {@link #findParetoRoutes(List, List, LocalDateTime, CsrGraph)} keeps arrays of every round, so
+ * it still allocates them per search, as does the search on the adjacency list.
+ *
+ * <p>Every search on the CSR form of the network is run by a class of its own in this package, e.g.
+ * {@code MultiSourceDijkstra} or {@code ContractionHierarchyQuery}. The route finder picks the
+ * search for its engine, and hands it the cost model and precomputed tables of the network under
+ * the current frequencies.
+ *
+ * <p>With travel time tables, a route on the CSR form of the network that ends before the time of
+ * day changes is read from a table of the fastest routes between every pair of stations instead of
+ * searched. The tables are built once per network and set of frequencies, and so are the landmark
+ * tables of the {@code ALT} engine and the contraction hierarchies of the {@code CH} engine. With a
+ * hierarchy directory, contraction hierarchies are also written there, and read back on the next
+ * start instead of built. A contraction hierarchy only finds the routes a travel time table does,
+ * so the {@code CH} engine only uses one on networks too large for travel time tables, or without
+ * them.
+ */
 public class RouteFinder {
+  private static final Logger LOGGER = Logger.getLogger(RouteFinder.class.getName());
   private static final Map<TimeOfDay, Map<String, Integer>> FREQUENCY_MAP =
       Collections.unmodifiableMap(getFrequencyMap());
   private static final String LINE_CHANGE_FIELD_NAME = getLineChangeFieldName();
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private final SearchEngine searchEngine;
+  private final boolean useTravelTimeTables;
+  private final Path hierarchyDirectory; // null to build contraction hierarchies on every start
+
+  // swapped as a whole, so a search always sees one consistent set of frequencies
+  private final AtomicReference<FrequencyTable> frequencyTable =
+      new AtomicReference<>(new FrequencyTable(FREQUENCY_MAP, LINE_CHANGE_FIELD_NAME));
+  // work done by the searches of the overloads not given a SearchStats, summed across threads
+  private final LongAdder totalSettledNodes = new LongAdder();
+  private final LongAdder totalPushes = new LongAdder();
+  private final LongAdder totalRelaxations = new LongAdder();
+
+  public RouteFinder() {
+    this(SearchEngine.DIJKSTRA);
+  }
+
+  /**
+   * Creates a route finder whose searches on the CSR form of the network use {@code searchEngine}.
+   *
+   * @param searchEngine
+   */
+  public RouteFinder(SearchEngine searchEngine) {
+    this(searchEngine, false);
+  }
+
+  /**
+   * Creates a route finder whose searches on the CSR form of the network use {@code searchEngine},
+   * and that reads routes from travel time tables whenever possible if {@code useTravelTimeTables}.
+   * The routes found are the same either way.
+   *
+   * @param searchEngine
+   * @param useTravelTimeTables
+   */
+  public RouteFinder(SearchEngine searchEngine, boolean useTravelTimeTables) {
+    this(searchEngine, useTravelTimeTables, null);
+  }
+
+  /**
+   * Same as {@link #RouteFinder(SearchEngine, boolean)}, and keeps the contraction hierarchies it
+   * builds in {@code hierarchyDirectory}, one file per network and set of frequencies.
+   *
+   * @param searchEngine
+   * @param useTravelTimeTables
+   * @param hierarchyDirectory
+   */
+  public RouteFinder(
+      SearchEngine searchEngine, boolean useTravelTimeTables, Path hierarchyDirectory) {
+    this.searchEngine = searchEngine;
+    this.useTravelTimeTables = useTravelTimeTables;
+    this.hierarchyDirectory = hierarchyDirectory;
+  }
+
+  /**
+   * Returns the work done so far by the searches of every find method not given a {@code
+   * SearchStats}, e.g. {@link #findRoute(List, List, LocalDateTime, CsrGraph)}, on any thread.
+   *
+   * @return new {@code SearchStats} holding the totals
+   */
+  public SearchStats getTotalSearchStats() {
+    return new SearchStats(totalSettledNodes.sum(), totalPushes.sum(), totalRelaxations.sum());
+  }
+
+  private void addToTotalSearchStats(SearchStats stats) {
+    totalSettledNodes.add(stats.getSettledNodes());
+    totalPushes.add(stats.getPushes());
+    totalRelaxations.add(stats.getRelaxations());
+  }
+
+  /**
+   * Returns the frequencies used by searches starting now. Every call to {@link
+   * #setFrequencyMap(Map)} replaces it with a new instance.
+   *
+   * @return current frequency table
+   */
+  public FrequencyTable getFrequencyTable() {
+    return frequencyTable.get();
+  }
+
+  /**
+   * Replaces the frequencies used by all searches started afterwards. Searches already running
+   * finish with the frequencies they started with.
+   *
+   * @param frequencyMap
+   */
+  public void setFrequencyMap(Map<TimeOfDay, Map<String, Integer>> frequencyMap) {
+    frequencyTable.set(new FrequencyTable(frequencyMap, LINE_CHANGE_FIELD_NAME));
+  }
+
+  /**
+   * Replaces the frequencies used by all searches started afterwards with the ones read from the
+   * properties file at {@code path}. See {@link CostModelCompiler#loadFrequencyMap(Path)} for the
+   * file format.
+   *
+   * @param path
+   */
+  public void loadFrequencyMap(Path path) throws IOException {
+    setFrequencyMap(CostModelCompiler.loadFrequencyMap(path));
+  }
+
+  /**
+   * Returns the travel time of every edge of {@code graph} under the current frequencies, compiling
+   * it on first use.
+   *
+   * @param graph
+   * @return cost model of {@code graph}
+   */
+  protected CostModel getCostModel(CsrGraph graph) {
+    return getCostModel(graph, frequencyTable.get());
+  }
+
+  private static CostModel getCostModel(CsrGraph graph, FrequencyTable table) {
+    return table.getCostModel(graph, g -> CostModelCompiler.compile(g, table));
+  }
+
+  /**
+   * Returns the fastest travel times between every pair of stations of {@code graph} under the
+   * current frequencies, building them on first use.
+   *
+   * @param graph
+   * @return travel time table of {@code graph}
+   */
+  protected TravelTimeTable getTravelTimeTable(CsrGraph graph) {
+    FrequencyTable table = frequencyTable.get();
+    return table.getTravelTimeTable(
+        graph, g -> TravelTimeTableBuilder.build(g, getCostModel(g, table)));
+  }
+
+  /**
+   * Returns the landmark table of {@code graph} under the current frequencies, building it on first
+   * use.
+   *
+   * @param graph
+   * @return landmark table of {@code graph}
+   */
+  protected LandmarkTable getLandmarkTable(CsrGraph graph) {
+    FrequencyTable table = frequencyTable.get();
+    return table.getLandmarkTable(
+        graph, g -> LandmarkTableBuilder.build(g, getCostModel(g, table)));
+  }
+
+  /**
+   * Returns the contraction hierarchy of {@code graph} under the current frequencies, reading it
+   * from the hierarchy directory or building it on first use.
+   *
+   * @param graph
+   * @return contraction hierarchy of {@code graph}
+   */
+  protected ContractionHierarchy getContractionHierarchy(CsrGraph graph) {
+    FrequencyTable table = frequencyTable.get();
+    return table.getContractionHierarchy(
+        graph, g -> loadContractionHierarchy(g, getCostModel(g, table)));
+  }
+
+  private ContractionHierarchy loadContractionHierarchy(CsrGraph graph, CostModel costModel) {
+    if (hierarchyDirectory == null) {
+      return ContractionHierarchyBuilder.build(graph, costModel);
+    }
+    long checksum = ContractionHierarchyBuilder.getChecksum(graph, costModel);
+    Path path = hierarchyDirectory.resolve(String.format("%016x.ch", checksum));
+    if (Files.exists(path)) {
+      try {
+        return ContractionHierarchyBuilder.read(path, checksum);
+      } catch (IOException e) {
+        LOGGER.warning(
+            String.format(
+                "Contraction hierarchy %s cannot be used, building it instead: %s",
+                path, e.getMessage()));
+      }
+    }
+    ContractionHierarchy hierarchy = ContractionHierarchyBuilder.build(graph, costModel);
+    try {
+      ContractionHierarchyBuilder.write(hierarchy, checksum, path);
+    } catch (IOException e) {
+      LOGGER.warning(
+          String.format("Contraction hierarchy %s cannot be written: %s", path, e.getMessage()));
+    }
+    return hierarchy;
+  }
+
+  /**
+   * Compiles everything the searches on {@code graph} need under the current frequencies, so that
+   * the first query does not pay for it.
+   *
+   * @param graph
+   */
+  public void precompute(CsrGraph graph) {
+    getCostModel(graph);
+    if (canUseTravelTimeTable(graph)) {
+      getTravelTimeTable(graph);
+    }
+    if (searchEngine == SearchEngine.ALT) {
+      getLandmarkTable(graph);
+    }
+    if (searchEngine == SearchEngine.CH && !canUseTravelTimeTable(graph)) {
+      getContractionHierarchy(graph);
+    }
+  }
+
+  private boolean canUseTravelTimeTable(CsrGraph graph) {
+    return useTravelTimeTables && graph.getNumStations() <= TravelTimeTable.MAX_STATIONS;
+  }
 
   /**
    * Returns the shortest route from stations in srcStations to stations in destStations. e.g. if
@@ -46,7 +306,426 @@ public class RouteFinder {
   }
 
   /**
-   * Runs dijkstra algorithm from src, and returns the shortest route from src to dest
+   * Same as {@link #findRoute(List, List, LocalDateTime, List)}, but runs on the CSR form of the
+   * network, with a single search from all of srcStations at once.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param startDateTime
+   * @param graph
+   * @return shortest {@code Route} from a station in srcStations to a station in destStations
+   */
+  public Optional<Route> findRoute(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph) {
+    SearchStats stats = new SearchStats();
+    Optional<Route> route = findRoute(srcStations, destStations, startDateTime, graph, stats);
+    addToTotalSearchStats(stats);
+    return route;
+  }
+
+  /**
+   * Same as {@link #findRoute(List, List, LocalDateTime, CsrGraph)}, and adds the work done by the
+   * search to {@code stats}.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param startDateTime
+   * @param graph
+   * @param stats
+   * @return shortest {@code Route} from a station in srcStations to a station in destStations
+   */
+  public Optional<Route> findRoute(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      SearchStats stats) {
+    if (srcStations.isEmpty() || destStations.isEmpty()) {
+      return Optional.empty();
+    }
+    boolean lookedUp = canUseTravelTimeTable(graph);
+    if (lookedUp) {
+      Route route = lookUpRoute(srcStations, destStations, startDateTime, graph);
+      if (route != null) {
+        return Optional.of(route);
+      }
+    }
+    if (searchEngine == SearchEngine.ALT) {
+      return Optional.ofNullable(
+          MultiSourceAStar.search(
+              srcStations,
+              destStations,
+              startDateTime,
+              graph,
+              getCostModel(graph),
+              getLandmarkTable(graph),
+              searchEngine,
+              stats));
+    }
+    // the hierarchy returns null whenever the table does
+    if (searchEngine == SearchEngine.CH && !lookedUp) {
+      Route route =
+          ContractionHierarchyQuery.query(
+              srcStations,
+              destStations,
+              startDateTime,
+              graph,
+              getContractionHierarchy(graph),
+              stats);
+      if (route != null) {
+        return Optional.of(route);
+      }
+    }
+    return Optional.ofNullable(
+        MultiSourceDijkstra.search(
+            srcStations,
+            destStations,
+            startDateTime,
+            graph,
+            getCostModel(graph),
+            searchEngine,
+            stats,
+            null));
+  }
+
+  /**
+   * Returns the route departing as late as possible from a station in srcStations that still
+   * arrives at a station in destStations by {@code arriveByDateTime}, on the CSR form of the
+   * network, with a single search walking back from all of destStations at once. The route found is
+   * then replayed forward from its departure, waiting at a station only where that arrives earlier,
+   * and its arrival date time and waits are the ones of the replay.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param arriveByDateTime
+   * @param graph
+   * @return latest {@code TimedRoute} from a station in srcStations to a station in destStations
+   */
+  public Optional<TimedRoute> findArriveByRoute(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime arriveByDateTime,
+      CsrGraph graph) {
+    SearchStats stats = new SearchStats();
+    Optional<TimedRoute> route =
+        findArriveByRoute(srcStations, destStations, arriveByDateTime, graph, stats);
+    addToTotalSearchStats(stats);
+    return route;
+  }
+
+  /**
+   * Same as {@link #findArriveByRoute(List, List, LocalDateTime, CsrGraph)}, and adds the work done
+   * by the search to {@code stats}.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param arriveByDateTime
+   * @param graph
+   * @param stats
+   * @return latest {@code TimedRoute} from a station in srcStations to a station in destStations
+   */
+  public Optional<TimedRoute> findArriveByRoute(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime arriveByDateTime,
+      CsrGraph graph,
+      SearchStats stats) {
+    if (srcStations.isEmpty() || destStations.isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(
+        ArriveBySearch.search(
+            srcStations, destStations, arriveByDateTime, graph, getCostModel(graph), stats));
+  }
+
+  /**
+   * Returns the line routes of {@code graph}, building them on first use.
+   *
+   * @param graph
+   * @return line routes of {@code graph}
+   */
+  protected LineRoutes getLineRoutes(CsrGraph graph) {
+    return frequencyTable.get().getLineRoutes(graph, LineRoutesBuilder::build);
+  }
+
+  /**
+   * Returns the Pareto set of routes from stations in srcStations to stations in destStations,
+   * trading travel time off against line changes: the fastest route without any line change, then
+   * every route with more line changes that is faster than all the routes with fewer. They are
+   * found with a round-based search (RAPTOR) from every src, one round per line change.
+   *
+   * <p>The last one is at least as fast as the route {@link #findRoute(List, List, LocalDateTime,
+   * CsrGraph)} returns. It can be faster, or found when that one is not, as the search keeps on
+   * from a later arrival at a station with fewer line changes too, e.g. in time for a line that
+   * only starts operating after an earlier arrival with more line changes.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param startDateTime
+   * @param graph
+   * @return routes in increasing order of line changes and decreasing order of minutes, or an empty
+   *     list if there is no route
+   */
+  public List<Route> findParetoRoutes(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph) {
+    SearchStats stats = new SearchStats();
+    List<Route> routes = findParetoRoutes(srcStations, destStations, startDateTime, graph, stats);
+    addToTotalSearchStats(stats);
+    return routes;
+  }
+
+  /**
+   * Same as {@link #findParetoRoutes(List, List, LocalDateTime, CsrGraph)}, and adds the work done
+   * by the search to {@code stats}.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param startDateTime
+   * @param graph
+   * @param stats
+   * @return routes in increasing order of line changes and decreasing order of minutes, or an empty
+   *     list if there is no route
+   */
+  public List<Route> findParetoRoutes(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      SearchStats stats) {
+    return RoundBasedSearch.findParetoRoutes(
+        srcStations,
+        destStations,
+        startDateTime,
+        graph,
+        getCostModel(graph),
+        getLineRoutes(graph),
+        stats);
+  }
+
+  /**
+   * Returns the travel times from every station name of {@code nameIndex} to every other, starting
+   * at {@code startDateTime}. See {@link #findTravelTimeMatrix(List, List, LocalDateTime, CsrGraph,
+   * StationNameIndex)}.
+   *
+   * @param startDateTime
+   * @param graph
+   * @param nameIndex index of the names of the stations of {@code graph}
+   * @return travel time matrix between all the names of {@code nameIndex}, in alphabetical order
+   */
+  public TravelTimeMatrix findTravelTimeMatrix(
+      LocalDateTime startDateTime, CsrGraph graph, StationNameIndex nameIndex) {
+    List<String> names = new ArrayList<>(nameIndex.size());
+    for (int nameId = 0; nameId < nameIndex.size(); nameId++) {
+      names.add(nameIndex.getName(nameId));
+    }
+    return findTravelTimeMatrix(names, names, startDateTime, graph, nameIndex);
+  }
+
+  /**
+   * Returns the travel times from every station name in srcNames to every station name in
+   * destNames, starting at {@code startDateTime}. The travel time between two names is the one of
+   * the route {@link #findRoute(List, List, LocalDateTime, CsrGraph)} returns between their
+   * stations, but instead of one search per pair of names, each station with a name in srcNames is
+   * searched once, to every station. The names in srcNames are searched in parallel on the common
+   * fork-join pool, each filling its own row of the matrix.
+   *
+   * @param srcNames
+   * @param destNames
+   * @param startDateTime
+   * @param graph
+   * @param nameIndex index of the names of the stations of {@code graph}
+   * @return travel time matrix from srcNames to destNames
+   * @throws IllegalArgumentException if a name in srcNames or destNames is not in {@code
+   *     nameIndex}, or if the matrix has more than {@code Integer.MAX_VALUE} entries
+   */
+  public TravelTimeMatrix findTravelTimeMatrix(
+      List<String> srcNames,
+      List<String> destNames,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      StationNameIndex nameIndex) {
+    return TravelTimeMatrixSearch.find(
+        srcNames, destNames, startDateTime, graph, nameIndex, getCostModel(graph), searchEngine);
+  }
+
+  /**
+   * Returns the stations reachable from a station in srcStations within each of {@code budgets}
+   * minutes of {@code startDateTime}, with a single search that never goes past the largest budget.
+   * See {@link #findIsochrone(List, LocalDateTime, int[], CsrGraph, SearchStats)}.
+   *
+   * @param srcStations
+   * @param startDateTime
+   * @param budgets budgets in minutes, in any order
+   * @param graph
+   * @return stations reachable within each budget
+   * @throws IllegalArgumentException if {@code budgets} is empty or has a negative budget
+   */
+  public Isochrone findIsochrone(
+      List<Station> srcStations, LocalDateTime startDateTime, int[] budgets, CsrGraph graph) {
+    SearchStats stats = new SearchStats();
+    Isochrone isochrone = findIsochrone(srcStations, startDateTime, budgets, graph, stats);
+    addToTotalSearchStats(stats);
+    return isochrone;
+  }
+
+  /**
+   * Same as {@link #findIsochrone(List, LocalDateTime, int[], CsrGraph)}, and adds the work done by
+   * the search to {@code stats}.
+   *
+   * <p>As in the search of {@link #findRoute(List, List, LocalDateTime, CsrGraph)}, each src keeps
+   * its own arrival minutes, so every station is reached in the minutes of the route it returns to
+   * it. Stations are not searched past the largest budget, so the search settles only the stations
+   * within it.
+   *
+   * @param srcStations
+   * @param startDateTime
+   * @param budgets budgets in minutes, in any order
+   * @param graph
+   * @param stats
+   * @return stations reachable within each budget
+   * @throws IllegalArgumentException if {@code budgets} is empty or has a negative budget
+   */
+  public Isochrone findIsochrone(
+      List<Station> srcStations,
+      LocalDateTime startDateTime,
+      int[] budgets,
+      CsrGraph graph,
+      SearchStats stats) {
+    return IsochroneSearch.search(
+        srcStations, startDateTime, budgets, graph, getCostModel(graph), searchEngine, stats);
+  }
+
+  /**
+   * Returns the fastest routes from stations in srcStations to stations in destStations for every
+   * departure minute from {@code firstDepartureDateTime} to {@code lastDepartureDateTime}
+   * inclusive, as segments of consecutive departures taking the same route. See {@link
+   * #findProfile(List, List, LocalDateTime, LocalDateTime, CsrGraph, SearchStats)}.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param firstDepartureDateTime
+   * @param lastDepartureDateTime
+   * @param graph
+   * @return segments of departures in increasing order of departure, covering every minute
+   * @throws IllegalArgumentException if {@code lastDepartureDateTime} is before {@code
+   *     firstDepartureDateTime}
+   */
+  public List<ProfileSegment> findProfile(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime firstDepartureDateTime,
+      LocalDateTime lastDepartureDateTime,
+      CsrGraph graph) {
+    SearchStats stats = new SearchStats();
+    List<ProfileSegment> segments =
+        findProfile(
+            srcStations, destStations, firstDepartureDateTime, lastDepartureDateTime, graph, stats);
+    addToTotalSearchStats(stats);
+    return segments;
+  }
+
+  /**
+   * Same as {@link #findProfile(List, List, LocalDateTime, LocalDateTime, CsrGraph)}, and adds the
+   * work done by the searches to {@code stats}.
+   *
+   * <p>Costs only change when the time of day does, so a search is only run at the first departure
+   * and at every departure where one of the stations the previous search relaxed changes time of
+   * day, and its route holds for every departure in between. Each segment takes the route {@link
+   * #findRoute(List, List, LocalDateTime, CsrGraph)} finds for each of its departures with the
+   * {@code DIJKSTRA} or {@code DIAL} engine, and the searches use the frequencies of the first one.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param firstDepartureDateTime
+   * @param lastDepartureDateTime
+   * @param graph
+   * @param stats
+   * @return segments of departures in increasing order of departure, covering every minute
+   * @throws IllegalArgumentException if {@code lastDepartureDateTime} is before {@code
+   *     firstDepartureDateTime}
+   */
+  public List<ProfileSegment> findProfile(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime firstDepartureDateTime,
+      LocalDateTime lastDepartureDateTime,
+      CsrGraph graph,
+      SearchStats stats) {
+    return ProfileSearch.search(
+        srcStations,
+        destStations,
+        firstDepartureDateTime,
+        lastDepartureDateTime,
+        graph,
+        getCostModel(graph),
+        searchEngine,
+        stats);
+  }
+
+  /**
+   * Reads the shortest route from stations in srcStations to stations in destStations from the
+   * travel time table of {@code graph}, with the same ties as {@link MultiSourceDijkstra#search}.
+   *
+   * <p>While the time of day does not change, every cost is constant, so the search visits stations
+   * in the same order as the full search the table was built from. This holds for every station
+   * reached before the route ends, so the route from the table is exactly the one the search finds
+   * if it ends before the time of day changes. Otherwise, or if there is no such route in the
+   * table, returns null and the route has to be searched.
+   *
+   * @param srcStations
+   * @param destStations
+   * @param startDateTime
+   * @param graph
+   * @return shortest {@code Route} from a station in srcStations to a station in destStations, or
+   *     null if it cannot be read from the table
+   */
+  protected Route lookUpRoute(
+      List<Station> srcStations,
+      List<Station> destStations,
+      LocalDateTime startDateTime,
+      CsrGraph graph) {
+    TravelTimeTable travelTimeTable = getTravelTimeTable(graph);
+    TimeOfDay timeOfDay = getTimeOfDay(startDateTime);
+    int bestSrc = -1;
+    int bestDest = -1;
+    int bestMinutes = UNREACHABLE;
+    for (Station src : srcStations) {
+      for (Station dest : destStations) {
+        int minutes = travelTimeTable.getTravelTime(timeOfDay, src.getId(), dest.getId());
+        if (minutes != UNREACHABLE && minutes <= bestMinutes) {
+          bestSrc = src.getId();
+          bestDest = dest.getId();
+          bestMinutes = minutes;
+        }
+      }
+    }
+    int minutesLeft = getMinutesUntilTimeOfDayChange(getMinuteOfWeek(toEpochMinute(startDateTime)));
+    if (bestSrc == -1 || bestMinutes > minutesLeft) return null;
+
+    int numStations = 0;
+    for (int cur = bestDest;
+        cur != -1;
+        cur = travelTimeTable.getPrecedingStationId(timeOfDay, bestSrc, cur)) {
+      numStations++;
+    }
+    Station[] stations = new Station[numStations];
+    for (int cur = bestDest;
+        cur != -1;
+        cur = travelTimeTable.getPrecedingStationId(timeOfDay, bestSrc, cur)) {
+      stations[--numStations] = graph.getStations()[cur];
+    }
+    return new Route(bestMinutes, Arrays.asList(stations), timeOfDay);
+  }
+
+  /**
+   * Runs dijkstra algorithm from src, and returns the shortest route from src to dest. The search
+   * stops as soon as dest is solved.
    *
    * @param src
    * @param dest
@@ -56,10 +735,30 @@ public class RouteFinder {
    */
   protected Route dijkstra(
       Station src, Station dest, LocalDateTime startDateTime, List<List<Station>> adjList) {
+    return dijkstra(src, dest, startDateTime, adjList, new SearchStats());
+  }
+
+  /**
+   * Same as {@link #dijkstra(Station, Station, LocalDateTime, List)}, and adds the work done by the
+   * search to {@code stats}.
+   *
+   * @param src
+   * @param dest
+   * @param startDateTime
+   * @param adjList
+   * @param stats
+   * @return shortest {@code Route} from src to dest
+   */
+  protected Route dijkstra(
+      Station src,
+      Station dest,
+      LocalDateTime startDateTime,
+      List<List<Station>> adjList,
+      SearchStats stats) {
     int numStations = adjList.size();
     LocalDateTime[] arrivalDateTimes = new LocalDateTime[numStations];
     Station[] prec = new Station[numStations]; // store preceding station in shortest path
-    Set<Integer> solved = new HashSet<>();
+    BitSet solved = new BitSet(numStations);
     PriorityQueue<Node> pq = new PriorityQueue<>(numStations);
 
     for (int i = 0; i < numStations; i++) {
@@ -67,34 +766,62 @@ public class RouteFinder {
     }
 
     pq.add(new Node(src, startDateTime));
+    stats.incrementPushes();
     arrivalDateTimes[src.getId()] = startDateTime;
 
-    while (!pq.isEmpty() && solved.size() < numStations) {
+    while (!pq.isEmpty()) {
       Station cur = pq.remove().getStation();
-      solved.add(cur.getId());
+      if (solved.get(cur.getId())) continue; // stale entry, cur was solved via a faster route
+      solved.set(cur.getId());
+      stats.incrementSettledNodes();
+      if (cur.getId() == dest.getId()) break;
 
       // relax outgoing edges
+      LocalDateTime arrivalDateTimeCur = arrivalDateTimes[cur.getId()];
       List<Station> neighbours = adjList.get(cur.getId());
       for (int i = 0; i < neighbours.size(); i++) {
         Station v = neighbours.get(i);
-        if (!solved.contains(v.getId())) {
-          LocalDateTime arrivalDateTimeCur = arrivalDateTimes[cur.getId()];
+        if (!solved.get(v.getId())) {
           int cost = getCost(cur, v, arrivalDateTimeCur); // cost of travelling from cur -> v
+          stats.incrementRelaxations();
           if (cost != Integer.MAX_VALUE) { // if cost == Integer.MAX_VALUE, line is not operating
-            LocalDateTime arrivalDateTimeV = arrivalDateTimes[cur.getId()].plusMinutes(cost);
+            LocalDateTime arrivalDateTimeV = arrivalDateTimeCur.plusMinutes(cost);
 
             if (arrivalDateTimeV.isBefore(arrivalDateTimes[v.getId()])) {
               arrivalDateTimes[v.getId()] = arrivalDateTimeV;
               prec[v.getId()] = cur;
+              pq.add(new Node(v, arrivalDateTimeV));
+              stats.incrementPushes();
             }
           }
-          pq.add(new Node(v, arrivalDateTimes[v.getId()]));
         }
       }
     }
     return getRoute(dest, startDateTime, arrivalDateTimes, prec);
   }
 
+  /**
+   * Runs dijkstra algorithm from src on the CSR form of the network, and returns the shortest route
+   * from src to dest. The search stops as soon as dest is solved.
+   *
+   * @param src
+   * @param dest
+   * @param startDateTime
+   * @param graph
+   * @return shortest {@code Route} from src to dest
+   */
+  protected Route dijkstra(Station src, Station dest, LocalDateTime startDateTime, CsrGraph graph) {
+    return MultiSourceDijkstra.search(
+        List.of(src),
+        List.of(dest),
+        startDateTime,
+        graph,
+        getCostModel(graph),
+        searchEngine,
+        new SearchStats(),
+        null);
+  }
+
   /**
    * Gets the route to {@code dest}, from a list of arrival date times {@code arrivalDateTimes}
    *
@@ -113,16 +840,11 @@ public class RouteFinder {
     long minutes = Duration.between(startDateTime, arrivalDateTime).toMinutes();
 
     TimeOfDay timeOfDay = getTimeOfDay(startDateTime);
-    Stack<Station> stack = new Stack<>();
-    Station cur = dest;
-    while (cur != null) {
-      stack.push(cur);
-      cur = prec[cur.getId()];
-    }
     List<Station> stations = new ArrayList<>();
-    while (!stack.isEmpty()) {
-      stations.add(stack.pop());
+    for (Station cur = dest; cur != null; cur = prec[cur.getId()]) {
+      stations.add(cur);
     }
+    Collections.reverse(stations);
     return new Route(minutes, stations, timeOfDay);
   }
 
@@ -138,7 +860,7 @@ public class RouteFinder {
    */
   protected int getCost(Station cur, Station next, LocalDateTime arrivalTime) {
     TimeOfDay timeOfDay = getTimeOfDay(arrivalTime);
-    Map<String, Integer> frequency = FREQUENCY_MAP.get(timeOfDay);
+    Map<String, Integer> frequency = frequencyTable.get().getFrequencyMap().get(timeOfDay);
     String curLine = cur.getLineCode();
     String nextLine = next.getLineCode();
     if (curLine.equals(nextLine)) {
@@ -0,0 +1,162 @@
+package railwayrouter.services;
+
+import static railwayrouter.utils.TimeOfDayUtil.MINUTES_PER_WEEK;
+import static railwayrouter.utils.TimeOfDayUtil.getMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDayOfMinuteOfWeek;
+import static railwayrouter.utils.TimeOfDayUtil.toEpochMinute;
+
+import java.nio.IntBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import railwayrouter.models.ArrivalQueue;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.SearchEngine;
+import railwayrouter.models.SearchWorkspace;
+import railwayrouter.models.StationNameIndex;
+import railwayrouter.models.TravelTimeMatrix;
+
+/**
+ * Searches of {@code RouteFinder} for the travel times between station names, one search from every
+ * source station to all stations, on the CSR form of the network.
+ */
+final class TravelTimeMatrixSearch {
+  private static final Logger LOGGER = Logger.getLogger(TravelTimeMatrixSearch.class.getName());
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  /**
+   * Returns the travel times from every station name in srcNames to every station name in
+   * destNames, starting at {@code startDateTime}, searching each station with a name in srcNames
+   * once, to every station. See {@link RouteFinder#findTravelTimeMatrix(List, List, LocalDateTime,
+   * CsrGraph, StationNameIndex)}.
+   *
+   * @param srcNames
+   * @param destNames
+   * @param startDateTime
+   * @param graph
+   * @param nameIndex index of the names of the stations of {@code graph}
+   * @param costModel
+   * @param searchEngine
+   * @return travel time matrix from srcNames to destNames
+   * @throws IllegalArgumentException if a name in srcNames or destNames is not in {@code
+   *     nameIndex}, or if the matrix has more than {@code Integer.MAX_VALUE} entries
+   */
+  static TravelTimeMatrix find(
+      List<String> srcNames,
+      List<String> destNames,
+      LocalDateTime startDateTime,
+      CsrGraph graph,
+      StationNameIndex nameIndex,
+      CostModel costModel,
+      SearchEngine searchEngine) {
+    int[][] srcStationIds = getStationIds(srcNames, nameIndex);
+    int[][] destStationIds = getStationIds(destNames, nameIndex);
+    int startMinuteOfWeek = getMinuteOfWeek(toEpochMinute(startDateTime));
+    int numDests = destNames.size();
+    long numEntries = (long) srcNames.size() * numDests;
+    if (numEntries > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Travel time matrix of %d x %d names is too large", srcNames.size(), numDests));
+    }
+    int[] minutes = new int[(int) numEntries];
+
+    long startNanos = System.nanoTime();
+    IntStream.range(0, srcNames.size())
+        .parallel()
+        .forEach(
+            src -> {
+              int rowOffset = src * numDests;
+              Arrays.fill(minutes, rowOffset, rowOffset + numDests, UNREACHABLE);
+              for (int srcId : srcStationIds[src]) {
+                SearchWorkspace workspace =
+                    SearchWorkspace.acquire(graph.getNumStations(), graph.getNumStations());
+                try {
+                  oneToAllDijkstra(
+                      srcId, startMinuteOfWeek, graph, costModel, searchEngine, workspace);
+                  for (int dest = 0; dest < numDests; dest++) {
+                    for (int destId : destStationIds[dest]) {
+                      minutes[rowOffset + dest] =
+                          Math.min(minutes[rowOffset + dest], workspace.getArrivalMinutes(destId));
+                    }
+                  }
+                } finally {
+                  workspace.release();
+                }
+              }
+            });
+    LOGGER.info(
+        String.format(
+            "Found travel time matrix of %d x %d names in %d ms",
+            srcNames.size(), numDests, (System.nanoTime() - startNanos) / 1_000_000));
+    return new TravelTimeMatrix(srcNames, destNames, minutes);
+  }
+
+  /**
+   * @param names
+   * @param nameIndex
+   * @return ids of the stations with each name in {@code names}
+   * @throws IllegalArgumentException if a name is not in {@code nameIndex}
+   */
+  private static int[][] getStationIds(List<String> names, StationNameIndex nameIndex) {
+    int[][] stationIds = new int[names.size()][];
+    for (int i = 0; i < names.size(); i++) {
+      stationIds[i] = nameIndex.getStationIds(names.get(i));
+      if (stationIds[i].length == 0) {
+        throw new IllegalArgumentException(String.format("Unknown station %s", names.get(i)));
+      }
+    }
+    return stationIds;
+  }
+
+  /**
+   * Runs dijkstra algorithm from src to every station, with the costs of the time of day at each
+   * station, the same as one plane of {@link MultiSourceDijkstra#search} that does not stop at any
+   * dest.
+   *
+   * @param src
+   * @param startMinuteOfWeek
+   * @param graph
+   * @param costModel
+   * @param searchEngine
+   * @param workspace workspace of the search, left with the minutes taken to reach every station
+   */
+  private static void oneToAllDijkstra(
+      int src,
+      int startMinuteOfWeek,
+      CsrGraph graph,
+      CostModel costModel,
+      SearchEngine searchEngine,
+      SearchWorkspace workspace) {
+    IntBuffer offsets = graph.getOffsets();
+    IntBuffer targets = graph.getTargets();
+    int[][] costs = costModel.getCosts();
+    ArrivalQueue pq = workspace.getQueue(searchEngine, costModel);
+
+    workspace.reach(src, 0, -1);
+    pq.add(0, src);
+    while (!pq.isEmpty()) {
+      int cur = ArrivalQueue.getState(pq.remove());
+      if (workspace.isSolved(cur)) continue;
+      workspace.solve(cur);
+
+      int arrivalMinutesCur = workspace.getArrivalMinutes(cur);
+      int minuteOfWeek = (startMinuteOfWeek + arrivalMinutesCur) % MINUTES_PER_WEEK;
+      int[] timeOfDayCosts = costs[getTimeOfDayOfMinuteOfWeek(minuteOfWeek).ordinal()];
+      for (int edge = offsets.get(cur); edge < offsets.get(cur + 1); edge++) {
+        int v = targets.get(edge);
+        int cost = timeOfDayCosts[edge];
+        if (!workspace.isSolved(v) && cost != CostModel.CLOSED) {
+          int arrivalMinutesV = arrivalMinutesCur + cost;
+          if (arrivalMinutesV < workspace.getArrivalMinutes(v)) {
+            workspace.reach(v, arrivalMinutesV, cur);
+            pq.add(arrivalMinutesV, v);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,592 @@
+package railwayrouter.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import railwayrouter.models.ArrivalQueue;
+import railwayrouter.models.ContractionHierarchy;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.HeapArrivalQueue;
+
+/**
+ * Builds the contraction hierarchy of a graph, and writes and reads it as a binary file, so that it
+ * does not have to be built again on startup.
+ *
+ * <p>Format, all numbers big-endian:
+ *
+ * <pre>
+ * header:  int MAGIC, int VERSION, long graph checksum, long payload CRC32, int payload length
+ * payload: int number of stations, int[] rank of each station,
+ *          int number of edges, int number of times of day,
+ *          int[] edge sources, int[] edge targets, int[] first children, int[] second children,
+ *          for each time of day: int[] edge costs
+ * </pre>
+ *
+ * A file is rejected if it was built from another graph or set of frequencies, see {@link
+ * #getChecksum(CsrGraph, CostModel)}, or if its payload does not match its checksum.
+ */
+public class ContractionHierarchyBuilder {
+  private static final Logger LOGGER =
+      Logger.getLogger(ContractionHierarchyBuilder.class.getName());
+
+  protected static final int MAGIC = 0x52524348; // "RRCH"
+  protected static final int VERSION = 1;
+  protected static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+  // a witness search giving up early only adds shortcuts that are not needed
+  private static final int MAX_WITNESS_SETTLED = 500;
+
+  /**
+   * Builds the contraction hierarchy of {@code graph}, with the costs of every time of day.
+   *
+   * <p>Stations are contracted in rounds. Every round contracts the stations whose priority, the
+   * number of shortcuts their contraction adds minus the number of edges it removes plus the number
+   * of their neighbours already contracted, is lower than all of their neighbours'. None of them
+   * are neighbours, so they are contracted in parallel on the common fork-join pool, with witness
+   * searches that avoid them all. A shortcut is added if, for some time of day, no other path is as
+   * fast.
+   *
+   * @param graph
+   * @param costModel
+   * @return contraction hierarchy of {@code graph}
+   */
+  public static ContractionHierarchy build(CsrGraph graph, CostModel costModel) {
+    long startNanos = System.nanoTime();
+    ContractionHierarchy hierarchy = new Contraction(graph, costModel).contract();
+    LOGGER.info(
+        String.format(
+            "Built contraction hierarchy of %d stations with %d edges in %d ms",
+            hierarchy.getNumStations(),
+            hierarchy.getNumEdges(),
+            (System.nanoTime() - startNanos) / 1_000_000));
+    return hierarchy;
+  }
+
+  /**
+   * @param graph
+   * @param costModel
+   * @return checksum of the edges of {@code graph} and their costs, that a contraction hierarchy
+   *     file must have been written with to be used for {@code graph}
+   */
+  public static long getChecksum(CsrGraph graph, CostModel costModel) {
+    int[][] costs = costModel.getCosts();
+    ByteBuffer buffer =
+        ByteBuffer.allocate(
+            4 * (graph.getOffsets().limit() + graph.getNumEdges() * (1 + costs.length)));
+    buffer.asIntBuffer().put(graph.getOffsets().duplicate());
+    buffer.position(4 * graph.getOffsets().limit());
+    buffer.asIntBuffer().put(graph.getTargets().duplicate());
+    for (int[] timeOfDayCosts : costs) {
+      buffer.position(buffer.position() + 4 * graph.getNumEdges());
+      buffer.asIntBuffer().put(timeOfDayCosts);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array());
+    return crc.getValue();
+  }
+
+  /**
+   * Writes {@code hierarchy} to the file at {@code path}, replacing it if it exists.
+   *
+   * @param hierarchy
+   * @param checksum checksum of the graph {@code hierarchy} was built from
+   * @param path
+   */
+  public static void write(ContractionHierarchy hierarchy, long checksum, Path path)
+      throws IOException {
+    ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+    try (DataOutputStream payload = new DataOutputStream(payloadBytes)) {
+      payload.writeInt(hierarchy.getNumStations());
+      writeInts(payload, hierarchy.getRanks());
+      payload.writeInt(hierarchy.getNumEdges());
+      payload.writeInt(hierarchy.getCosts().length);
+      writeInts(payload, hierarchy.getEdgeSources());
+      writeInts(payload, hierarchy.getEdgeTargets());
+      writeInts(payload, hierarchy.getFirstChildren());
+      writeInts(payload, hierarchy.getSecondChildren());
+      for (int[] timeOfDayCosts : hierarchy.getCosts()) {
+        writeInts(payload, timeOfDayCosts);
+      }
+    }
+    byte[] payload = payloadBytes.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    header.putInt(MAGIC).putInt(VERSION).putLong(checksum).putLong(crc.getValue());
+    header.putInt(payload.length);
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      header.flip();
+      channel.write(new ByteBuffer[] {header, ByteBuffer.wrap(payload)});
+    }
+    LOGGER.info(
+        String.format(
+            "Wrote contraction hierarchy of %d stations to %s", hierarchy.getNumStations(), path));
+  }
+
+  /**
+   * Reads a contraction hierarchy from the file at {@code path}.
+   *
+   * @param path
+   * @param checksum checksum the file must have been written with
+   * @return contraction hierarchy in the file
+   * @throws IOException if the file cannot be read, or is stale or corrupt
+   */
+  public static ContractionHierarchy read(Path path, long checksum) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // the mapping stays valid after the channel is closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    ByteBuffer payload = checkHeader(path, buffer, checksum);
+
+    int[] ranks = readInts(payload, payload.getInt());
+    int numEdges = payload.getInt();
+    int[][] costs = new int[payload.getInt()][];
+    int[] edgeSources = readInts(payload, numEdges);
+    int[] edgeTargets = readInts(payload, numEdges);
+    int[] firstChildren = readInts(payload, numEdges);
+    int[] secondChildren = readInts(payload, numEdges);
+    for (int timeOfDay = 0; timeOfDay < costs.length; timeOfDay++) {
+      costs[timeOfDay] = readInts(payload, numEdges);
+    }
+    return new ContractionHierarchy(
+        ranks, edgeSources, edgeTargets, costs, firstChildren, secondChildren);
+  }
+
+  /**
+   * Checks the header of the file in {@code buffer}, and the checksum of its payload.
+   *
+   * @param path
+   * @param buffer whole file
+   * @param checksum checksum the file must have been written with
+   * @return payload of the file
+   * @throws IOException if the file is stale or corrupt
+   */
+  private static ByteBuffer checkHeader(Path path, ByteBuffer buffer, long checksum)
+      throws IOException {
+    if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+      throw new IOException(String.format("%s is not a contraction hierarchy", path));
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException(
+          String.format("%s has version %d, expected %d", path, version, VERSION));
+    }
+    if (buffer.getLong() != checksum) {
+      throw new IOException(
+          String.format("%s was built from another network or set of frequencies", path));
+    }
+    long payloadChecksum = buffer.getLong();
+    int payloadLength = buffer.getInt();
+    if (payloadLength != buffer.remaining()) {
+      throw new IOException(String.format("%s is truncated", path));
+    }
+    ByteBuffer payload = buffer.slice();
+    CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+    if (crc.getValue() != payloadChecksum) {
+      throw new IOException(String.format("%s is corrupt", path));
+    }
+    return payload;
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    for (int value : values) {
+      out.writeInt(value);
+    }
+  }
+
+  private static int[] readInts(ByteBuffer in, int length) {
+    int[] values = new int[length];
+    in.asIntBuffer().get(values);
+    in.position(in.position() + 4 * length);
+    return values;
+  }
+
+  /** Growable list of ints, e.g. the edges of a station */
+  private static final class IntList {
+    int[] values = new int[4];
+    int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, 2 * size);
+      }
+      values[size++] = value;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  /** Shortcut to add, skipping the target of firstChild and source of secondChild */
+  private static final class Shortcut {
+    final int firstChild;
+    final int secondChild;
+    final int[] costs;
+
+    Shortcut(int firstChild, int secondChild, int[] costs) {
+      this.firstChild = firstChild;
+      this.secondChild = secondChild;
+      this.costs = costs;
+    }
+  }
+
+  /** State of the contraction of one graph */
+  private static final class Contraction {
+    final int numStations;
+    final int numTimesOfDay;
+    final IntList edgeSources = new IntList();
+    final IntList edgeTargets = new IntList();
+    final IntList firstChildren = new IntList();
+    final IntList secondChildren = new IntList();
+    final List<int[]> edgeCosts = new ArrayList<>(); // cost of every edge for every time of day
+    // edges between stations not removed yet, plus edges to stations removed this round
+    final IntList[] outEdges;
+    final IntList[] inEdges;
+    final boolean[] removed; // contracted, or being contracted this round
+    final int[] contractedNeighbours;
+    final int[] priorities;
+    final int[] lastContractedNeighbour; // -1 if none yet
+    final boolean[] touched; // neighbour of a station contracted this round
+    // idle witness searches, garbage collected with the contraction, unlike thread locals of the
+    // common pool
+    final Queue<WitnessSearch> witnessSearches = new ConcurrentLinkedQueue<>();
+
+    Contraction(CsrGraph graph, CostModel costModel) {
+      numStations = graph.getNumStations();
+      numTimesOfDay = costModel.getCosts().length;
+      outEdges = new IntList[numStations];
+      inEdges = new IntList[numStations];
+      for (int i = 0; i < numStations; i++) {
+        outEdges[i] = new IntList();
+        inEdges[i] = new IntList();
+      }
+      removed = new boolean[numStations];
+      contractedNeighbours = new int[numStations];
+      priorities = new int[numStations];
+      lastContractedNeighbour = new int[numStations];
+      Arrays.fill(lastContractedNeighbour, -1);
+      touched = new boolean[numStations];
+
+      IntBuffer offsets = graph.getOffsets();
+      IntBuffer targets = graph.getTargets();
+      for (int station = 0; station < numStations; station++) {
+        for (int edge = offsets.get(station); edge < offsets.get(station + 1); edge++) {
+          int[] costs = new int[numTimesOfDay];
+          boolean operating = false;
+          for (int timeOfDay = 0; timeOfDay < numTimesOfDay; timeOfDay++) {
+            costs[timeOfDay] = costModel.getCosts()[timeOfDay][edge];
+            operating |= costs[timeOfDay] != CostModel.CLOSED;
+          }
+          // an edge that is never operating is never part of a route
+          if (operating) {
+            addEdge(
+                station,
+                targets.get(edge),
+                costs,
+                ContractionHierarchy.NO_CHILD,
+                ContractionHierarchy.NO_CHILD);
+          }
+        }
+      }
+    }
+
+    ContractionHierarchy contract() {
+      int[] ranks = new int[numStations];
+      IntStream.range(0, numStations).parallel().forEach(v -> priorities[v] = getPriority(v));
+      int[] remaining = IntStream.range(0, numStations).toArray();
+      int numRemaining = numStations;
+      int nextRank = 0;
+      while (numRemaining > 0) {
+        IntList round = new IntList();
+        for (int i = 0; i < numRemaining; i++) {
+          if (isLocalMinimum(remaining[i])) {
+            round.add(remaining[i]);
+          }
+        }
+        int[] stations = round.toArray();
+        for (int v : stations) {
+          removed[v] = true;
+        }
+        List<List<Shortcut>> shortcuts =
+            Arrays.stream(stations)
+                .parallel()
+                .mapToObj(this::findShortcuts)
+                .collect(Collectors.toList());
+
+        IntList neighbours = new IntList();
+        for (int i = 0; i < stations.length; i++) {
+          int v = stations[i];
+          ranks[v] = nextRank++;
+          for (Shortcut shortcut : shortcuts.get(i)) {
+            addEdge(
+                edgeSources.values[shortcut.firstChild],
+                edgeTargets.values[shortcut.secondChild],
+                shortcut.costs,
+                shortcut.firstChild,
+                shortcut.secondChild);
+          }
+          addNeighbours(v, outEdges[v], edgeTargets, neighbours);
+          addNeighbours(v, inEdges[v], edgeSources, neighbours);
+        }
+        int[] stationsTouched = neighbours.toArray();
+        for (int w : stationsTouched) {
+          touched[w] = false;
+          removeEdgesToRemoved(outEdges[w], edgeTargets);
+          removeEdgesToRemoved(inEdges[w], edgeSources);
+        }
+        Arrays.stream(stationsTouched).parallel().forEach(w -> priorities[w] = getPriority(w));
+
+        int numLeft = 0;
+        for (int i = 0; i < numRemaining; i++) {
+          if (!removed[remaining[i]]) {
+            remaining[numLeft++] = remaining[i];
+          }
+        }
+        numRemaining = numLeft;
+      }
+
+      int[][] costs = new int[numTimesOfDay][edgeCosts.size()];
+      for (int edge = 0; edge < edgeCosts.size(); edge++) {
+        for (int timeOfDay = 0; timeOfDay < numTimesOfDay; timeOfDay++) {
+          costs[timeOfDay][edge] = edgeCosts.get(edge)[timeOfDay];
+        }
+      }
+      return new ContractionHierarchy(
+          ranks,
+          edgeSources.toArray(),
+          edgeTargets.toArray(),
+          costs,
+          firstChildren.toArray(),
+          secondChildren.toArray());
+    }
+
+    private void addEdge(int source, int target, int[] costs, int firstChild, int secondChild) {
+      int edge = edgeSources.size;
+      edgeSources.add(source);
+      edgeTargets.add(target);
+      edgeCosts.add(costs);
+      firstChildren.add(firstChild);
+      secondChildren.add(secondChild);
+      outEdges[source].add(edge);
+      inEdges[target].add(edge);
+    }
+
+    /**
+     * Counts v as contracted in each of its neighbours along {@code edges}, and adds the ones not
+     * touched yet this round to {@code neighbours}.
+     */
+    private void addNeighbours(int v, IntList edges, IntList ends, IntList neighbours) {
+      for (int i = 0; i < edges.size; i++) {
+        int w = ends.values[edges.values[i]];
+        if (removed[w] || lastContractedNeighbour[w] == v) continue;
+        lastContractedNeighbour[w] = v;
+        contractedNeighbours[w]++;
+        if (!touched[w]) {
+          touched[w] = true;
+          neighbours.add(w);
+        }
+      }
+    }
+
+    private void removeEdgesToRemoved(IntList edges, IntList ends) {
+      int size = 0;
+      for (int i = 0; i < edges.size; i++) {
+        if (!removed[ends.values[edges.values[i]]]) {
+          edges.values[size++] = edges.values[i];
+        }
+      }
+      edges.size = size;
+    }
+
+    /** Whether v has a lower priority, then scrambled id, than every neighbour not removed yet */
+    private boolean isLocalMinimum(int v) {
+      return isLocalMinimum(v, outEdges[v], edgeTargets)
+          && isLocalMinimum(v, inEdges[v], edgeSources);
+    }
+
+    private boolean isLocalMinimum(int v, IntList edges, IntList ends) {
+      for (int i = 0; i < edges.size; i++) {
+        int w = ends.values[edges.values[i]];
+        if (!removed[w]
+            && (priorities[w] < priorities[v]
+                || (priorities[w] == priorities[v] && scramble(w) < scramble(v)))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // tie break that does not follow the order of the stations along lines, so that as many
+    // stations as possible are contracted in each round
+    private static long scramble(int v) {
+      return ((v * 0x9e3779b9L) & 0xffffffffL) << 32 | v;
+    }
+
+    private int getPriority(int v) {
+      return findShortcuts(v).size()
+          - outEdges[v].size
+          - inEdges[v].size
+          + contractedNeighbours[v];
+    }
+
+    /**
+     * Finds the shortcuts to add to contract v, with witness searches that avoid v and every
+     * removed station.
+     *
+     * @param v
+     * @return shortcuts needed to contract v
+     */
+    private List<Shortcut> findShortcuts(int v) {
+      WitnessSearch witnessSearch = witnessSearches.poll();
+      if (witnessSearch == null) {
+        witnessSearch = new WitnessSearch(numStations);
+      }
+      try {
+        return findShortcuts(v, witnessSearch);
+      } finally {
+        witnessSearches.add(witnessSearch);
+      }
+    }
+
+    private List<Shortcut> findShortcuts(int v, WitnessSearch witnessSearch) {
+      List<Shortcut> shortcuts = new ArrayList<>();
+      IntList in = inEdges[v];
+      IntList out = outEdges[v];
+      boolean[] needed = new boolean[out.size];
+      for (int i = 0; i < in.size; i++) {
+        int firstChild = in.values[i];
+        int u = edgeSources.values[firstChild];
+        if (removed[u]) continue;
+        int[] firstCosts = edgeCosts.get(firstChild);
+        Arrays.fill(needed, false);
+        for (int timeOfDay = 0; timeOfDay < numTimesOfDay; timeOfDay++) {
+          int maxCost = -1;
+          for (int j = 0; j < out.size; j++) {
+            int w = edgeTargets.values[out.values[j]];
+            int cost = add(firstCosts[timeOfDay], edgeCosts.get(out.values[j])[timeOfDay]);
+            if (!removed[w] && w != u && cost != CostModel.CLOSED) {
+              maxCost = Math.max(maxCost, cost);
+            }
+          }
+          if (maxCost == -1) continue;
+          witnessSearch.run(this, u, v, timeOfDay, maxCost);
+          for (int j = 0; j < out.size; j++) {
+            int w = edgeTargets.values[out.values[j]];
+            int cost = add(firstCosts[timeOfDay], edgeCosts.get(out.values[j])[timeOfDay]);
+            if (!removed[w]
+                && w != u
+                && cost != CostModel.CLOSED
+                && witnessSearch.getMinutes(w) > cost) {
+              needed[j] = true;
+            }
+          }
+        }
+        for (int j = 0; j < out.size; j++) {
+          if (needed[j]) {
+            int secondChild = out.values[j];
+            int[] costs = new int[numTimesOfDay];
+            for (int timeOfDay = 0; timeOfDay < numTimesOfDay; timeOfDay++) {
+              costs[timeOfDay] = add(firstCosts[timeOfDay], edgeCosts.get(secondChild)[timeOfDay]);
+            }
+            shortcuts.add(new Shortcut(firstChild, secondChild, costs));
+          }
+        }
+      }
+      return shortcuts;
+    }
+
+    private static int add(int cost1, int cost2) {
+      if (cost1 == CostModel.CLOSED || cost2 == CostModel.CLOSED) return CostModel.CLOSED;
+      return cost1 + cost2;
+    }
+  }
+
+  /** Dijkstra search between stations not removed yet, used by one station at a time */
+  private static final class WitnessSearch {
+    final int[] minutes;
+    final IntList reached = new IntList();
+
+    WitnessSearch(int numStations) {
+      minutes = new int[numStations];
+      Arrays.fill(minutes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches from src, avoiding {@code excluded} and every removed station, until every station
+     * within {@code maxMinutes} is solved or {@code MAX_WITNESS_SETTLED} stations are.
+     *
+     * @param contraction
+     * @param src
+     * @param excluded
+     * @param timeOfDay
+     * @param maxMinutes
+     */
+    void run(Contraction contraction, int src, int excluded, int timeOfDay, int maxMinutes) {
+      for (int i = 0; i < reached.size; i++) {
+        minutes[reached.values[i]] = Integer.MAX_VALUE;
+      }
+      reached.size = 0;
+      ArrivalQueue pq = new HeapArrivalQueue(MAX_WITNESS_SETTLED);
+      minutes[src] = 0;
+      reached.add(src);
+      pq.add(0, src);
+      int numSettled = 0;
+      while (!pq.isEmpty()) {
+        long entry = pq.remove();
+        int cur = ArrivalQueue.getState(entry);
+        int minutesCur = ArrivalQueue.getArrivalMinutes(entry);
+        if (minutesCur > minutes[cur]) continue; // stale entry
+        if (minutesCur > maxMinutes || ++numSettled > MAX_WITNESS_SETTLED) break;
+
+        IntList out = contraction.outEdges[cur];
+        for (int i = 0; i < out.size; i++) {
+          int edge = out.values[i];
+          int v = contraction.edgeTargets.values[edge];
+          int cost = contraction.edgeCosts.get(edge)[timeOfDay];
+          if (v == excluded || contraction.removed[v] || cost == CostModel.CLOSED) continue;
+          int minutesV = minutesCur + cost;
+          if (minutesV < minutes[v]) {
+            if (minutes[v] == Integer.MAX_VALUE) {
+              reached.add(v);
+            }
+            minutes[v] = minutesV;
+            pq.add(minutesV, v);
+          }
+        }
+      }
+    }
+
+    /** Minutes to v found by the last search, {@code Integer.MAX_VALUE} if not reached */
+    int getMinutes(int v) {
+      return minutes[v];
+    }
+  }
+}
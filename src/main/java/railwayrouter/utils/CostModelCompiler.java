@@ -0,0 +1,139 @@
+package railwayrouter.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
+import railwayrouter.models.Constants;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.FrequencyTable;
+import railwayrouter.models.TimeOfDay;
+
+public class CostModelCompiler {
+  private static final Logger LOGGER = Logger.getLogger(CostModelCompiler.class.getName());
+
+  protected static final String CLOSED_VALUE = "closed";
+  // one day, so that sums of costs along a route stay far from overflowing, and fit the travel time
+  // tables
+  protected static final int MAX_FREQUENCY = 24 * 60;
+
+  /**
+   * Compiles the frequency table into the travel time of every edge of {@code graph}, for every
+   * time of day. Lines missing from the frequency table, or with frequency Integer.MAX_VALUE, are
+   * not operating and compile to {@code CostModel.CLOSED}.
+   *
+   * @param graph
+   * @param frequencyTable
+   * @return cost model aligned with the edges of {@code graph}
+   */
+  public static CostModel compile(CsrGraph graph, FrequencyTable frequencyTable) {
+    IntBuffer offsets = graph.getOffsets();
+    byte[] edgeKinds = graph.getEdgeKinds();
+    int[] lineIds = graph.getLineIds();
+    String[] lineCodes = graph.getLineCodes();
+
+    TimeOfDay[] timesOfDay = TimeOfDay.values();
+    int[][] costs = new int[timesOfDay.length][graph.getNumEdges()];
+    for (TimeOfDay timeOfDay : timesOfDay) {
+      Map<String, Integer> frequency = frequencyTable.getFrequencyMap().get(timeOfDay);
+      int[] lineCosts = new int[lineCodes.length];
+      for (int i = 0; i < lineCodes.length; i++) {
+        lineCosts[i] = toCost(frequency, lineCodes[i]);
+      }
+      int lineChangeCost = toCost(frequency, frequencyTable.getLineChangeFieldName());
+
+      int[] timeOfDayCosts = costs[timeOfDay.ordinal()];
+      for (int cur = 0; cur < graph.getNumStations(); cur++) {
+        for (int edge = offsets.get(cur); edge < offsets.get(cur + 1); edge++) {
+          timeOfDayCosts[edge] =
+              edgeKinds[edge] == CsrGraph.RIDE ? lineCosts[lineIds[cur]] : lineChangeCost;
+        }
+      }
+    }
+    return new CostModel(costs);
+  }
+
+  /**
+   * Reads a frequency map from a properties file. Each key is a time of day and a line code (or the
+   * line change field name) separated by a dot, and each value is a number of minutes from 1 to
+   * {@code MAX_FREQUENCY} or "closed". e.g. {@code NIGHT.CG=closed}, {@code PEAK.lineChange=15}
+   *
+   * @param path
+   * @return frequency map read from {@code path}
+   * @throws IllegalArgumentException if a key or value cannot be parsed, or a key has a line code
+   *     not in {@code Constants.getFrequencyMap()}
+   */
+  public static Map<TimeOfDay, Map<String, Integer>> loadFrequencyMap(Path path)
+      throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+
+    Set<String> fields = getKnownFields();
+    Map<TimeOfDay, Map<String, Integer>> frequencyMap = new EnumMap<>(TimeOfDay.class);
+    for (TimeOfDay timeOfDay : TimeOfDay.values()) {
+      frequencyMap.put(timeOfDay, new HashMap<>());
+    }
+    for (String key : properties.stringPropertyNames()) {
+      int separator = key.indexOf('.');
+      if (separator == -1) {
+        throw new IllegalArgumentException(String.format("Invalid frequency key %s", key));
+      }
+      TimeOfDay timeOfDay;
+      try {
+        timeOfDay = TimeOfDay.valueOf(key.substring(0, separator));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(String.format("Invalid time of day in key %s", key));
+      }
+      String field = key.substring(separator + 1);
+      if (!fields.contains(field)) {
+        throw new IllegalArgumentException(String.format("Unknown line code in key %s", key));
+      }
+      frequencyMap.get(timeOfDay).put(field, toFrequency(key, properties));
+    }
+    LOGGER.info(String.format("Loaded %d frequencies from %s", properties.size(), path));
+    return frequencyMap;
+  }
+
+  private static int toFrequency(String key, Properties properties) {
+    String value = properties.getProperty(key).trim();
+    if (value.equalsIgnoreCase(CLOSED_VALUE)) {
+      return Integer.MAX_VALUE;
+    }
+    try {
+      int frequency = Integer.parseInt(value);
+      if (frequency > 0 && frequency <= MAX_FREQUENCY) {
+        return frequency;
+      }
+    } catch (NumberFormatException e) {
+      // fall through
+    }
+    throw new IllegalArgumentException(String.format("Invalid frequency %s=%s", key, value));
+  }
+
+  // the line codes of the default frequency map, and the line change field name
+  private static Set<String> getKnownFields() {
+    Set<String> fields = new HashSet<>();
+    for (Map<String, Integer> frequency : Constants.getFrequencyMap().values()) {
+      fields.addAll(frequency.keySet());
+    }
+    fields.add(Constants.getLineChangeFieldName());
+    return fields;
+  }
+
+  private static int toCost(Map<String, Integer> frequency, String field) {
+    Integer cost = frequency == null ? null : frequency.get(field);
+    return cost == null ? CostModel.CLOSED : cost;
+  }
+}
@@ -1,75 +1,72 @@
 package railwayrouter.utils;
 
 import static java.lang.String.CASE_INSENSITIVE_ORDER;
-import static java.time.temporal.ChronoField.DAY_OF_MONTH;
 
-import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvValidationException;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.time.LocalDate;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
 import java.util.*;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.zip.CRC32;
 import railwayrouter.models.Station;
 
 public class DataProcessor {
 
   private static final Logger LOGGER = Logger.getLogger(DataProcessor.class.getName());
 
+  protected static final String STATION_MAP_RESOURCE = "/StationMap.csv";
+
   /**
    * Parses resources/StationMap.csv to get the list of open stations at {@code startDateTime}. If
    * no day of month is specified in csv file, default station opening date to first day of month.
+   * Malformed rows are skipped. See {@code StationMapLoader}.
    *
    * @param startDateTime
    * @return list of open stations
    */
   public static List<Station> getOpenStations(LocalDateTime startDateTime)
       throws CsvValidationException {
-    InputStream in = DataProcessor.class.getResourceAsStream("/StationMap.csv");
-    BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(in));
-
+    InputStream in = DataProcessor.class.getResourceAsStream(STATION_MAP_RESOURCE);
     List<Station> stations = new ArrayList<>();
-    try (CSVReader reader = new CSVReader(bufferedReader)) {
-      String[] line = reader.readNext(); // skip header
-      int id = 0;
-      List<DateTimeFormatter> formatters =
-          List.of(
-              DateTimeFormatter.ofPattern("dd MMMM yyyy"),
-              DateTimeFormatter.ofPattern("d MMMM yyyy"),
-              new DateTimeFormatterBuilder()
-                  .appendPattern("MMMM yyyy")
-                  .parseDefaulting(DAY_OF_MONTH, 1)
-                  .toFormatter());
-      while (line != null) {
-        line = reader.readNext();
-        for (DateTimeFormatter formatter : formatters) {
-          try {
-            // try the different parsing formats - there's more than one format in the csv file
-            LocalDateTime openingDate = LocalDate.parse(line[2], formatter).atStartOfDay();
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      StationMapLoader.load(
+          reader,
+          (code, name, openingDate) -> {
             if (openingDate.isBefore(startDateTime)) {
-              Station station = new Station(id++, line[0], line[1], openingDate);
-              stations.add(station);
+              stations.add(new Station(stations.size(), code, name, openingDate));
             }
-            break;
-          } catch (Exception e) {
-            // do nothing
-          }
-        }
-      }
-    } catch (IOException | CsvValidationException e) {
+          });
+    } catch (IOException e) {
       LOGGER.severe("Stations.csv cannot be read");
       throw new CsvValidationException(e.getMessage());
     }
     return stations;
   }
 
+  /**
+   * Returns the CRC32 checksum of resources/StationMap.csv, which identifies the station map a
+   * compiled network was built from.
+   *
+   * @return CRC32 checksum of the station map
+   */
+  public static long getStationMapChecksum() throws IOException {
+    CRC32 crc = new CRC32();
+    try (InputStream in = DataProcessor.class.getResourceAsStream(STATION_MAP_RESOURCE)) {
+      byte[] buffer = new byte[8192];
+      for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+        crc.update(buffer, 0, n);
+      }
+    }
+    return crc.getValue();
+  }
+
   /**
    * Generates a mapping from line code to stations. e.g. "CC": [Serangoon station object, Bishan
    * station object]
@@ -0,0 +1,179 @@
+package railwayrouter.utils;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.logging.Logger;
+import railwayrouter.models.ArrivalQueue;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.HeapArrivalQueue;
+import railwayrouter.models.LandmarkTable;
+
+public class LandmarkTableBuilder {
+  private static final Logger LOGGER = Logger.getLogger(LandmarkTableBuilder.class.getName());
+
+  public static final int DEFAULT_NUM_LANDMARKS = 8;
+
+  /**
+   * Builds the landmark table of {@code graph} with {@code DEFAULT_NUM_LANDMARKS} landmarks.
+   *
+   * @param graph
+   * @param costModel
+   * @return landmark table of {@code graph}
+   */
+  public static LandmarkTable build(CsrGraph graph, CostModel costModel) {
+    return build(graph, costModel, DEFAULT_NUM_LANDMARKS);
+  }
+
+  /**
+   * Builds the landmark table of {@code graph}, with the cheapest cost of every edge at any time of
+   * day, so that its lower bounds hold whatever the time of day.
+   *
+   * <p>Landmarks are picked greedily, each the station farthest from the landmarks picked so far,
+   * starting from the station farthest from station 0. A station unreachable from every landmark is
+   * the farthest of all, so every part of a disconnected network gets a landmark if there are
+   * enough.
+   *
+   * @param graph
+   * @param costModel
+   * @param numLandmarks
+   * @return landmark table of {@code graph}, with at most {@code numLandmarks} landmarks
+   */
+  public static LandmarkTable build(CsrGraph graph, CostModel costModel, int numLandmarks) {
+    long startNanos = System.nanoTime();
+    int numStations = graph.getNumStations();
+    numLandmarks = Math.min(numLandmarks, numStations);
+    IntBuffer offsets = graph.getOffsets();
+    IntBuffer targets = graph.getTargets();
+    int[] minCosts = getMinCosts(costModel, targets.limit());
+
+    // reverse graph, for the travel times to a landmark
+    int[] reverseOffsets = new int[numStations + 1];
+    for (int edge = 0; edge < targets.limit(); edge++) {
+      reverseOffsets[targets.get(edge) + 1]++;
+    }
+    for (int i = 0; i < numStations; i++) {
+      reverseOffsets[i + 1] += reverseOffsets[i];
+    }
+    int[] reverseTargets = new int[targets.limit()];
+    int[] reverseMinCosts = new int[targets.limit()];
+    int[] next = Arrays.copyOf(reverseOffsets, numStations);
+    for (int station = 0; station < numStations; station++) {
+      for (int edge = offsets.get(station); edge < offsets.get(station + 1); edge++) {
+        int reverseEdge = next[targets.get(edge)]++;
+        reverseTargets[reverseEdge] = station;
+        reverseMinCosts[reverseEdge] = minCosts[edge];
+      }
+    }
+
+    int[] landmarks = new int[numLandmarks];
+    int[] fromLandmarks = new int[numStations * numLandmarks];
+    int[] toLandmarks = new int[numStations * numLandmarks];
+    // minutes from station 0 of every station, then from the nearest landmark picked so far
+    int[] nearest =
+        numLandmarks == 0 ? new int[0] : dijkstra(0, offsets, targets, minCosts, numStations);
+    for (int i = 0; i < numLandmarks; i++) {
+      int landmark = getFarthest(nearest, landmarks, i);
+      landmarks[i] = landmark;
+      int[] from = dijkstra(landmark, offsets, targets, minCosts, numStations);
+      int[] to =
+          dijkstra(
+              landmark,
+              IntBuffer.wrap(reverseOffsets),
+              IntBuffer.wrap(reverseTargets),
+              reverseMinCosts,
+              numStations);
+      for (int station = 0; station < numStations; station++) {
+        fromLandmarks[station * numLandmarks + i] = from[station];
+        toLandmarks[station * numLandmarks + i] = to[station];
+        nearest[station] = i == 0 ? from[station] : Math.min(nearest[station], from[station]);
+      }
+    }
+    LOGGER.info(
+        String.format(
+            "Built landmark table of %d stations with %d landmarks in %d ms",
+            numStations, numLandmarks, (System.nanoTime() - startNanos) / 1_000_000));
+    return new LandmarkTable(landmarks, fromLandmarks, toLandmarks);
+  }
+
+  /**
+   * @param costModel
+   * @param numEdges
+   * @return cheapest cost of every edge at any time of day, or {@code CostModel.CLOSED} if the line
+   *     is never operating
+   */
+  protected static int[] getMinCosts(CostModel costModel, int numEdges) {
+    int[] minCosts = new int[numEdges];
+    Arrays.fill(minCosts, CostModel.CLOSED);
+    for (int[] timeOfDayCosts : costModel.getCosts()) {
+      for (int edge = 0; edge < numEdges; edge++) {
+        minCosts[edge] = Math.min(minCosts[edge], timeOfDayCosts[edge]);
+      }
+    }
+    return minCosts;
+  }
+
+  /**
+   * @param nearest minutes from the nearest landmark of every station
+   * @param landmarks
+   * @param numLandmarks number of landmarks picked so far
+   * @return station with the most minutes from its nearest landmark, the smallest id if several
+   */
+  private static int getFarthest(int[] nearest, int[] landmarks, int numLandmarks) {
+    int farthest = -1;
+    for (int station = 0; station < nearest.length; station++) {
+      if ((farthest == -1 || nearest[station] > nearest[farthest])
+          && !contains(landmarks, numLandmarks, station)) {
+        farthest = station;
+      }
+    }
+    return farthest;
+  }
+
+  private static boolean contains(int[] array, int length, int value) {
+    for (int i = 0; i < length; i++) {
+      if (array[i] == value) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Runs dijkstra algorithm from src to every station, with constant costs.
+   *
+   * @param src
+   * @param offsets
+   * @param targets
+   * @param costs cost of every edge, or {@code CostModel.CLOSED}
+   * @param numStations
+   * @return minutes taken to reach every station, or {@code LandmarkTable.UNREACHABLE}
+   */
+  private static int[] dijkstra(
+      int src, IntBuffer offsets, IntBuffer targets, int[] costs, int numStations) {
+    int[] arrivalMinutes = new int[numStations];
+    BitSet solved = new BitSet(numStations);
+    ArrivalQueue pq = new HeapArrivalQueue(numStations);
+
+    Arrays.fill(arrivalMinutes, LandmarkTable.UNREACHABLE);
+    arrivalMinutes[src] = 0;
+    pq.add(0, src);
+    while (!pq.isEmpty()) {
+      int cur = ArrivalQueue.getState(pq.remove());
+      if (solved.get(cur)) continue;
+      solved.set(cur);
+
+      for (int edge = offsets.get(cur); edge < offsets.get(cur + 1); edge++) {
+        int v = targets.get(edge);
+        int cost = costs[edge];
+        if (!solved.get(v) && cost != CostModel.CLOSED) {
+          int arrivalMinutesV = arrivalMinutes[cur] + cost;
+          if (arrivalMinutesV < arrivalMinutes[v]) {
+            arrivalMinutes[v] = arrivalMinutesV;
+            pq.add(arrivalMinutesV, v);
+          }
+        }
+      }
+    }
+    return arrivalMinutes;
+  }
+}
@@ -0,0 +1,68 @@
+package railwayrouter.utils;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.LineRoutes;
+import railwayrouter.models.Station;
+
+public class LineRoutesBuilder {
+
+  /**
+   * Builds the routes of {@code graph}, one per line, from the stations of each line sorted by
+   * {@link DataProcessor#generateLineCodeToStationsMap(List)}. Consecutive stations of a line are
+   * joined by the ride edges between them, if any.
+   *
+   * @param graph
+   * @return routes of {@code graph}, in order of line code
+   */
+  public static LineRoutes build(CsrGraph graph) {
+    int numStations = graph.getNumStations();
+    Map<String, List<Station>> lineCodeToStationsMap =
+        DataProcessor.generateLineCodeToStationsMap(Arrays.asList(graph.getStations()));
+    List<String> lineCodes = new ArrayList<>(lineCodeToStationsMap.keySet());
+    Collections.sort(lineCodes);
+
+    int[] offsets = new int[lineCodes.size() + 1];
+    int[] stations = new int[numStations];
+    int[] nextEdges = new int[numStations];
+    int[] previousEdges = new int[numStations];
+    int i = 0;
+    for (int route = 0; route < lineCodes.size(); route++) {
+      List<Station> line = lineCodeToStationsMap.get(lineCodes.get(route));
+      for (int j = 0; j < line.size(); j++) {
+        int station = line.get(j).getId();
+        stations[i] = station;
+        nextEdges[i] =
+            j + 1 < line.size()
+                ? getRideEdge(graph, station, line.get(j + 1).getId())
+                : LineRoutes.NO_EDGE;
+        previousEdges[i] =
+            j > 0 ? getRideEdge(graph, station, line.get(j - 1).getId()) : LineRoutes.NO_EDGE;
+        i++;
+      }
+      offsets[route + 1] = i;
+    }
+    return new LineRoutes(offsets, stations, nextEdges, previousEdges);
+  }
+
+  /**
+   * @param graph
+   * @param source
+   * @param target
+   * @return ride edge from source to target, or {@code LineRoutes.NO_EDGE} if none
+   */
+  private static int getRideEdge(CsrGraph graph, int source, int target) {
+    IntBuffer offsets = graph.getOffsets();
+    for (int edge = offsets.get(source); edge < offsets.get(source + 1); edge++) {
+      if (graph.getTargets().get(edge) == target && graph.getEdgeKinds()[edge] == CsrGraph.RIDE) {
+        return edge;
+      }
+    }
+    return LineRoutes.NO_EDGE;
+  }
+}
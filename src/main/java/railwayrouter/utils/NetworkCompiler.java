@@ -0,0 +1,423 @@
+package railwayrouter.utils;
+
+import static railwayrouter.utils.DataProcessor.generateLineCodeToStationsMap;
+import static railwayrouter.utils.DataProcessor.generateNameToStationsMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.NetworkEpochs;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.models.Station;
+
+/**
+ * Writes and reads every network snapshot of the station map as a binary file, so that the station
+ * map does not have to be parsed on startup. The file is read through a read-only memory mapping,
+ * and the CSR offsets and targets of every graph are views over it rather than copies, so processes
+ * reading the same file share those pages in the page cache. The stations of a snapshot are decoded
+ * on its first use, so opening the file only reads the header, the strings, the station table and
+ * the ints of the epochs, without decoding them.
+ *
+ * <p>Format, all numbers little-endian, and every int array aligned to 4 bytes:
+ *
+ * <pre>
+ * header:  int MAGIC, int VERSION, long station map CRC32, long payload CRC32, int payload length
+ * payload: int number of strings, then for each: int length, UTF-8 bytes, zeros up to 4 bytes
+ *          int number of stations, then for each: int code string, int name string,
+ *              long opening date in seconds since 1970-01-01T00:00
+ *          int number of opening dates, then for each: long seconds since 1970-01-01T00:00
+ *          int[] position in the payload of each epoch (number of opening dates + 1)
+ *          for each epoch, from 0 to the number of opening dates:
+ *              int number of stations, int[] index of each station in the station table,
+ *              int[] CSR offsets (number of stations + 1), int[] CSR targets (offsets[last])
+ * </pre>
+ *
+ * Codes and names are interned in the string table. Reading rejects a file written from a different
+ * station map, and checks that the epochs follow each other to the end of the payload, and that
+ * their station indices, CSR offsets and CSR targets are in range, so a stale or damaged file is
+ * rejected when the file is opened, while the station map can still be parsed instead, rather than
+ * when an epoch is decoded during a query. The payload checksum is only checked if asked for.
+ */
+public class NetworkCompiler {
+  private static final Logger LOGGER = Logger.getLogger(NetworkCompiler.class.getName());
+
+  protected static final int MAGIC = 0x52524e54; // "RRNT"
+  protected static final int VERSION = 2;
+  protected static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+
+  /**
+   * Writes {@code networkEpochs} to the file at {@code path}, replacing it if it exists.
+   *
+   * @param networkEpochs
+   * @param stationMapChecksum checksum of the station map {@code networkEpochs} was built from
+   * @param path
+   */
+  public static void write(NetworkEpochs networkEpochs, long stationMapChecksum, Path path)
+      throws IOException {
+    NetworkSnapshot[] snapshots = networkEpochs.getSnapshots();
+    LocalDateTime[] openingDates = networkEpochs.getOpeningDates();
+
+    // every station of every epoch, and the strings they use, in order of first appearance
+    List<String> strings = new ArrayList<>();
+    Map<String, Integer> stringIndices = new HashMap<>();
+    List<Station> stationTable = new ArrayList<>();
+    Map<Station, Integer> stationIndices = new HashMap<>();
+    for (NetworkSnapshot snapshot : snapshots) {
+      for (Station station : snapshot.getStations()) {
+        if (stationIndices.putIfAbsent(toKey(station), stationTable.size()) == null) {
+          stationTable.add(station);
+          intern(station.getCode(), strings, stringIndices);
+          intern(station.getName(), strings, stringIndices);
+        }
+      }
+    }
+
+    List<byte[]> stringBytes = new ArrayList<>(strings.size());
+    int payloadLength = 4;
+    for (String string : strings) {
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      stringBytes.add(bytes);
+      payloadLength += 4 + align(bytes.length);
+    }
+    payloadLength += 4 + 16 * stationTable.size() + 4 + 8 * openingDates.length;
+    payloadLength += 4 * snapshots.length;
+    for (NetworkSnapshot snapshot : snapshots) {
+      CsrGraph graph = snapshot.getGraph();
+      payloadLength += 4 * (1 + 2 * graph.getNumStations() + 1 + graph.getNumEdges());
+    }
+
+    ByteBuffer payload = ByteBuffer.allocate(payloadLength).order(ByteOrder.LITTLE_ENDIAN);
+    payload.putInt(strings.size());
+    for (byte[] bytes : stringBytes) {
+      payload.putInt(bytes.length);
+      payload.put(bytes);
+      payload.position(payload.position() + align(bytes.length) - bytes.length);
+    }
+    payload.putInt(stationTable.size());
+    for (Station station : stationTable) {
+      payload.putInt(stringIndices.get(station.getCode()));
+      payload.putInt(stringIndices.get(station.getName()));
+      payload.putLong(toEpochSecond(station.getOpeningDate()));
+    }
+    payload.putInt(openingDates.length);
+    for (LocalDateTime openingDate : openingDates) {
+      payload.putLong(toEpochSecond(openingDate));
+    }
+    int epochPositions = payload.position();
+    payload.position(epochPositions + 4 * snapshots.length);
+    for (int epoch = 0; epoch < snapshots.length; epoch++) {
+      payload.putInt(epochPositions + 4 * epoch, payload.position());
+      NetworkSnapshot snapshot = snapshots[epoch];
+      CsrGraph graph = snapshot.getGraph();
+      payload.putInt(graph.getNumStations());
+      for (Station station : snapshot.getStations()) {
+        payload.putInt(stationIndices.get(toKey(station)));
+      }
+      payload.asIntBuffer().put(graph.getOffsets().duplicate());
+      payload.position(payload.position() + 4 * (graph.getNumStations() + 1));
+      payload.asIntBuffer().put(graph.getTargets().duplicate());
+      payload.position(payload.position() + 4 * graph.getNumEdges());
+    }
+    payload.flip();
+    CRC32 crc = new CRC32();
+    crc.update(payload.duplicate());
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(MAGIC).putInt(VERSION).putLong(stationMapChecksum).putLong(crc.getValue());
+    header.putInt(payloadLength);
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      header.flip();
+      ByteBuffer[] buffers = {header, payload};
+      while (payload.hasRemaining()) {
+        channel.write(buffers);
+      }
+    }
+    LOGGER.info(
+        String.format(
+            "Compiled %d stations in %d network snapshots to %s",
+            stationTable.size(), snapshots.length, path));
+  }
+
+  /**
+   * Reads every network snapshot from the file at {@code path}, checking that it was compiled from
+   * the current station map, but not its payload checksum.
+   *
+   * @param path
+   * @return every network snapshot in the file, each decoded on first use
+   * @throws IOException if the file or the station map cannot be read, or the file is stale or
+   *     corrupt
+   */
+  public static NetworkEpochs read(Path path) throws IOException {
+    return read(path, DataProcessor.getStationMapChecksum(), false);
+  }
+
+  /**
+   * Reads every network snapshot from the file at {@code path}, checking that it was compiled from
+   * the station map with {@code stationMapChecksum}, and if {@code verifyPayload}, that its payload
+   * matches its checksum, which reads the whole file.
+   *
+   * @param path
+   * @param stationMapChecksum checksum the file must have been written with
+   * @param verifyPayload
+   * @return every network snapshot in the file, each decoded on first use
+   * @throws IOException if the file cannot be read, or is stale or corrupt
+   */
+  public static NetworkEpochs read(Path path, long stationMapChecksum, boolean verifyPayload)
+      throws IOException {
+    long startNanos = System.nanoTime();
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // the mapping stays valid after the channel is closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    ByteBuffer payload = checkHeader(path, buffer, stationMapChecksum, verifyPayload);
+
+    Station[] stationTable;
+    LocalDateTime[] openingDates;
+    int[] epochPositions;
+    try {
+      String[] strings = new String[payload.getInt()];
+      for (int i = 0; i < strings.length; i++) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        payload.position(payload.position() + align(bytes.length) - bytes.length);
+        strings[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+      stationTable = new Station[payload.getInt()];
+      for (int i = 0; i < stationTable.length; i++) {
+        String code = strings[payload.getInt()];
+        String name = strings[payload.getInt()];
+        stationTable[i] = new Station(i, code, name, fromEpochSecond(payload.getLong()));
+      }
+      openingDates = new LocalDateTime[payload.getInt()];
+      for (int i = 0; i < openingDates.length; i++) {
+        openingDates[i] = fromEpochSecond(payload.getLong());
+      }
+      epochPositions = new int[openingDates.length + 1];
+      for (int epoch = 0; epoch < epochPositions.length; epoch++) {
+        epochPositions[epoch] = payload.getInt();
+      }
+    } catch (RuntimeException e) {
+      // e.g. a length or index past the end of the payload or of the tables
+      throw new IOException(String.format("%s is corrupt", path), e);
+    }
+    checkEpochs(path, payload, epochPositions, stationTable.length);
+
+    LOGGER.info(
+        String.format(
+            "Opened %d network snapshots in %s in %d us",
+            epochPositions.length, path, (System.nanoTime() - startNanos) / 1000));
+    return new NetworkEpochs(
+        openingDates, epoch -> readSnapshot(payload, epochPositions[epoch], epoch, stationTable));
+  }
+
+  /**
+   * Decodes the snapshot of {@code epoch}. Its CSR offsets and targets are views over {@code
+   * payload}.
+   *
+   * @param payload payload of the file
+   * @param position position of the epoch in {@code payload}
+   * @param epoch
+   * @param stationTable every station of the file
+   * @return network snapshot of {@code epoch}
+   */
+  private static NetworkSnapshot readSnapshot(
+      ByteBuffer payload, int position, int epoch, Station[] stationTable) {
+    IntBuffer ints = view(payload, position, (payload.limit() - position) / 4);
+    int numStations = ints.get(0);
+    List<Station> stations = new ArrayList<>(numStations);
+    for (int id = 0; id < numStations; id++) {
+      Station station = stationTable[ints.get(1 + id)];
+      stations.add(new Station(id, station.getCode(), station.getName(), station.getOpeningDate()));
+    }
+    int offsetsPosition = position + 4 * (1 + numStations);
+    IntBuffer offsets = view(payload, offsetsPosition, numStations + 1);
+    IntBuffer targets =
+        view(payload, offsetsPosition + 4 * (numStations + 1), offsets.get(numStations));
+    return new NetworkSnapshot(
+        epoch,
+        stations,
+        CsrGraph.fromCsr(stations, offsets, targets),
+        () -> generateLineCodeToStationsMap(stations),
+        () -> generateNameToStationsMap(stations));
+  }
+
+  /**
+   * Checks that the epochs of the file, at {@code epochPositions} in {@code payload}, follow each
+   * other from the end of the table of positions to the end of the payload, as they are written,
+   * and that each one can be decoded into a valid graph.
+   *
+   * @param path
+   * @param payload payload of the file, positioned after the table of epoch positions
+   * @param epochPositions position in {@code payload} of each epoch
+   * @param stationTableLength number of stations in the station table of the file
+   * @throws IOException if an epoch does not start where the previous one ends, the last one does
+   *     not end at the end of the payload, or an epoch is not valid
+   */
+  private static void checkEpochs(
+      Path path, ByteBuffer payload, int[] epochPositions, int stationTableLength)
+      throws IOException {
+    long position = payload.position();
+    for (int epochPosition : epochPositions) {
+      if (epochPosition != position || position > payload.limit() - 4) {
+        throw new IOException(String.format("%s is corrupt", path));
+      }
+      long numStations = payload.getInt(epochPosition);
+      long lastOffsetPosition = position + 4 * (1 + 2 * numStations);
+      if (numStations < 0 || lastOffsetPosition > payload.limit() - 4) {
+        throw new IOException(String.format("%s is corrupt", path));
+      }
+      long numEdges = payload.getInt((int) lastOffsetPosition);
+      if (numEdges < 0) {
+        throw new IOException(String.format("%s is corrupt", path));
+      }
+      position = lastOffsetPosition + 4 * (1 + numEdges);
+      if (position > payload.limit()) {
+        throw new IOException(String.format("%s is corrupt", path));
+      }
+      IntBuffer ints = view(payload, epochPosition, (int) (position - epochPosition) / 4);
+      if (!isValidEpoch(ints, (int) numStations, stationTableLength)) {
+        throw new IOException(String.format("%s is corrupt", path));
+      }
+    }
+    if (position != payload.limit()) {
+      throw new IOException(String.format("%s is corrupt", path));
+    }
+  }
+
+  /**
+   * @param ints ints of an epoch, from its number of stations to its last CSR target
+   * @param numStations number of stations of the epoch
+   * @param stationTableLength number of stations in the station table of the file
+   * @return whether every station index is in the station table, the CSR offsets start at 0 and
+   *     never decrease, and every CSR target is a station of the epoch
+   */
+  private static boolean isValidEpoch(IntBuffer ints, int numStations, int stationTableLength) {
+    for (int id = 0; id < numStations; id++) {
+      int index = ints.get(1 + id);
+      if (index < 0 || index >= stationTableLength) {
+        return false;
+      }
+    }
+    int offsets = 1 + numStations;
+    if (ints.get(offsets) != 0) {
+      return false;
+    }
+    for (int id = 0; id < numStations; id++) {
+      if (ints.get(offsets + id + 1) < ints.get(offsets + id)) {
+        return false;
+      }
+    }
+    for (int edge = offsets + numStations + 1; edge < ints.limit(); edge++) {
+      int target = ints.get(edge);
+      if (target < 0 || target >= numStations) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks the header of the file in {@code buffer} and the checksum of the station map, and if
+   * {@code verifyPayload}, the checksum of the payload.
+   *
+   * @param path
+   * @param buffer whole file
+   * @param stationMapChecksum checksum the file must have been written with
+   * @param verifyPayload
+   * @return payload of the file
+   * @throws IOException if the file is not a compiled network of this version, is truncated or
+   *     stale, or if {@code verifyPayload}, is corrupt
+   */
+  private static ByteBuffer checkHeader(
+      Path path, ByteBuffer buffer, long stationMapChecksum, boolean verifyPayload)
+      throws IOException {
+    if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+      throw new IOException(String.format("%s is not a compiled network", path));
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException(
+          String.format("%s has version %d, expected %d", path, version, VERSION));
+    }
+    long fileStationMapChecksum = buffer.getLong();
+    long payloadChecksum = buffer.getLong();
+    int payloadLength = buffer.getInt();
+    if (fileStationMapChecksum != stationMapChecksum) {
+      throw new IOException(String.format("%s was compiled from another station map", path));
+    }
+    if (payloadLength != buffer.remaining()) {
+      throw new IOException(String.format("%s is truncated", path));
+    }
+    ByteBuffer payload = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    if (verifyPayload) {
+      CRC32 crc = new CRC32();
+      crc.update(payload.duplicate());
+      if (crc.getValue() != payloadChecksum) {
+        throw new IOException(String.format("%s is corrupt", path));
+      }
+    }
+    return payload;
+  }
+
+  /**
+   * @param buffer little-endian
+   * @param position position of the first int in {@code buffer}
+   * @param length number of ints
+   * @return read-only view of {@code length} ints of {@code buffer} from {@code position}
+   */
+  private static IntBuffer view(ByteBuffer buffer, int position, int length) {
+    ByteBuffer slice = buffer.duplicate();
+    slice.position(position).limit(position + 4 * length);
+    return slice.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().asReadOnlyBuffer();
+  }
+
+  // strings are padded so that the ints after them stay aligned
+  private static int align(int numBytes) {
+    return (numBytes + 3) & ~3;
+  }
+
+  private static void intern(String string, List<String> strings, Map<String, Integer> indices) {
+    if (indices.putIfAbsent(string, strings.size()) == null) {
+      strings.add(string);
+    }
+  }
+
+  // stations are equal across epochs if everything but their id is equal
+  private static Station toKey(Station station) {
+    return new Station(0, station.getCode(), station.getName(), station.getOpeningDate());
+  }
+
+  private static long toEpochSecond(LocalDateTime dateTime) {
+    return dateTime.toEpochSecond(ZoneOffset.UTC);
+  }
+
+  private static LocalDateTime fromEpochSecond(long epochSecond) {
+    return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+  }
+}
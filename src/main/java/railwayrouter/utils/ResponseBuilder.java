@@ -1,44 +1,396 @@
 package railwayrouter.utils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import railwayrouter.models.Isochrone;
+import railwayrouter.models.ProfileSegment;
 import railwayrouter.models.Route;
 import railwayrouter.models.Station;
+import railwayrouter.models.TimedRoute;
+import railwayrouter.models.TravelTimeMatrix;
 
+/**
+ * Builds the text and JSON responses of routes, profiles and isochrones, and the CSV form of travel
+ * time matrices. Responses are appended piece by piece to an {@code Appendable}, e.g. the {@code
+ * Writer} of a batch export, without formatting or building any intermediate strings. See {@code
+ * ResponseEncoder} to encode responses directly into a {@code ByteBuffer}.
+ */
 public class ResponseBuilder {
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+  private static final DateTimeFormatter DATE_TIME_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+  /** Appends a response to an {@code Appendable} */
+  private interface ResponseAppender {
+    void appendTo(Appendable out) throws IOException;
+  }
+
   public static String buildResponse(Route route) {
-    long minutes = route.getMinutes();
+    return build(out -> appendResponse(route, out));
+  }
+
+  /**
+   * Appends the response of {@code route} to {@code out}, e.g. "Travel from Pasir Ris to Tampines
+   * during peak hours\nTime: 10 minutes\nRoute: [EW1, EW2]\n\nTake EW line from Pasir Ris to
+   * Tampines".
+   *
+   * @param route
+   * @param out
+   */
+  public static void appendResponse(Route route, Appendable out) throws IOException {
+    appendResponse(route, null, null, null, out);
+  }
+
+  public static String buildTimedResponse(TimedRoute route) {
+    return build(out -> appendTimedResponse(route, out));
+  }
+
+  /**
+   * Appends the response of {@code route} to {@code out}, with its departure and arrival date times
+   * after its time, e.g. "Travel from Pasir Ris to Tampines during peak hours\nTime: 10
+   * minutes\nDepart at: 2021-01-28T08:49\nArrive at: 2021-01-28T08:59\nRoute: [EW1, EW2]\n\nTake EW
+   * line from Pasir Ris to Tampines". A wait at a station is a step of its own, before the step
+   * leaving the station, e.g. "Wait 45 minutes at Botanic Gardens".
+   *
+   * @param route
+   * @param out
+   */
+  public static void appendTimedResponse(TimedRoute route, Appendable out) throws IOException {
+    appendResponse(
+        route,
+        route.getDepartureDateTime(),
+        route.getArrivalDateTime(),
+        route.getWaitMinutes(),
+        out);
+  }
+
+  private static void appendResponse(
+      Route route,
+      LocalDateTime departureDateTime,
+      LocalDateTime arrivalDateTime,
+      int[] waitMinutes,
+      Appendable out)
+      throws IOException {
     List<Station> stations = route.getStations();
-    List<String> stationCodes =
-        stations.stream().map(Station::getCode).collect(Collectors.toList());
-    String timeOfDay = route.getTimeOfDay().getName();
     int numStations = stations.size();
 
-    StringBuilder stringBuilder = new StringBuilder();
-    stringBuilder
-        .append(
-            String.format(
-                "Travel from %s to %s during %s hours",
-                stations.get(0).getName(), stations.get(numStations - 1).getName(), timeOfDay))
-        .append(String.format("\nTime: %s minutes", minutes))
-        .append(String.format("\nRoute: %s\n", stationCodes));
+    out.append("Travel from ")
+        .append(stations.get(0).getName())
+        .append(" to ")
+        .append(stations.get(numStations - 1).getName())
+        .append(" during ")
+        .append(route.getTimeOfDay().getName())
+        .append(" hours\nTime: ");
+    appendNumber(out, route.getMinutes());
+    out.append(" minutes\n");
+    if (departureDateTime != null) {
+      out.append("Depart at: ");
+      DATE_TIME_FORMATTER.formatTo(departureDateTime, out);
+      out.append("\nArrive at: ");
+      DATE_TIME_FORMATTER.formatTo(arrivalDateTime, out);
+      out.append('\n');
+    }
+    out.append("Route: [");
+    for (int i = 0; i < numStations; i++) {
+      if (i > 0) out.append(", ");
+      out.append(stations.get(i).getLineCode());
+      appendNumber(out, stations.get(i).getNumber());
+    }
+    out.append("]\n");
+
+    for (int i = 0; i < numStations - 1; i++) {
+      Station cur = stations.get(i);
+      Station next = stations.get(i + 1);
+      if (waitMinutes != null && waitMinutes[i] > 0) {
+        out.append("\nWait ");
+        appendNumber(out, waitMinutes[i]);
+        out.append(" minutes at ").append(cur.getName());
+      }
+      if (cur.getName().equals(next.getName())) {
+        out.append("\nChange from ")
+            .append(cur.getLineCode())
+            .append(" line to ")
+            .append(next.getLineCode())
+            .append(" line");
+      } else {
+        out.append("\nTake ")
+            .append(cur.getLineCode())
+            .append(" line from ")
+            .append(cur.getName())
+            .append(" to ")
+            .append(next.getName());
+      }
+    }
+  }
+
+  public static String buildProfileResponse(List<ProfileSegment> segments) {
+    return build(out -> appendProfileResponse(segments, out));
+  }
+
+  /**
+   * Appends the response of a profile to {@code out}, one line per segment of departures, e.g.
+   * "Depart 2021-01-28T17:00 to 2021-01-28T17:59: 10 minutes, Route: [EW1, EW2]\nDepart
+   * 2021-01-28T18:00 to 2021-01-28T18:30: No route found\n".
+   *
+   * @param segments
+   * @param out
+   */
+  public static void appendProfileResponse(List<ProfileSegment> segments, Appendable out)
+      throws IOException {
+    for (ProfileSegment segment : segments) {
+      out.append("Depart ");
+      DATE_TIME_FORMATTER.formatTo(segment.getFirstDepartureDateTime(), out);
+      out.append(" to ");
+      DATE_TIME_FORMATTER.formatTo(segment.getLastDepartureDateTime(), out);
+      Route route = segment.getRoute();
+      if (route == null) {
+        out.append(": No route found\n");
+        continue;
+      }
+      out.append(": ");
+      appendNumber(out, route.getMinutes());
+      out.append(" minutes, Route: [");
+      List<Station> stations = route.getStations();
+      for (int i = 0; i < stations.size(); i++) {
+        if (i > 0) out.append(", ");
+        out.append(stations.get(i).getLineCode());
+        appendNumber(out, stations.get(i).getNumber());
+      }
+      out.append("]\n");
+    }
+  }
+
+  public static String buildIsochroneResponse(Isochrone isochrone) {
+    return build(out -> appendIsochroneResponse(isochrone, out));
+  }
 
+  /**
+   * Appends the response of {@code isochrone} to {@code out}, listing each station name once, under
+   * the smallest budget it is reachable within, e.g. "Stations reachable from Kovan\nWithin 5
+   * minutes:\nKovan: 0 minutes\nHougang: 2 minutes\nWithin 10 minutes:\nSerangoon: 6 minutes\n".
+   *
+   * @param isochrone
+   * @param out
+   */
+  public static void appendIsochroneResponse(Isochrone isochrone, Appendable out)
+      throws IOException {
+    List<Station> stations = isochrone.getStations();
+    int[] minutes = isochrone.getMinutes();
+    int[] budgets = isochrone.getBudgets();
+    int[] counts = isochrone.getCounts();
+    Set<String> names = new HashSet<>();
+
+    out.append("Stations reachable from ").append(stations.get(0).getName()).append('\n');
+    for (int i = 0, station = 0; i < budgets.length; i++) {
+      out.append("Within ");
+      appendNumber(out, budgets[i]);
+      out.append(" minutes:\n");
+      for (; station < counts[i]; station++) {
+        String name = stations.get(station).getName();
+        if (names.add(name)) {
+          out.append(name).append(": ");
+          appendNumber(out, minutes[station]);
+          out.append(" minutes\n");
+        }
+      }
+    }
+  }
+
+  /**
+   * Builds the JSON form of the response, e.g. {"source":"Pasir Ris","destination":"Tampines",
+   * "timeOfDay":"peak","minutes":10,"route":["EW1","EW2"],"steps":[{"type":"ride","line":"EW",
+   * "from":"Pasir Ris","to":"Tampines"}]}. A line change step has type "change", and the line
+   * changed from and to instead.
+   *
+   * @param route
+   * @return JSON object describing {@code route}
+   */
+  public static String buildJsonResponse(Route route) {
+    return build(out -> appendJsonResponse(route, out));
+  }
+
+  /**
+   * Appends the JSON form of the response of {@code route} to {@code out}. See {@link
+   * #buildJsonResponse(Route)}.
+   *
+   * @param route
+   * @param out
+   */
+  public static void appendJsonResponse(Route route, Appendable out) throws IOException {
+    List<Station> stations = route.getStations();
+    int numStations = stations.size();
+
+    out.append("{\"source\":");
+    appendJsonString(out, stations.get(0).getName());
+    out.append(",\"destination\":");
+    appendJsonString(out, stations.get(numStations - 1).getName());
+    out.append(",\"timeOfDay\":");
+    appendJsonString(out, route.getTimeOfDay().getName());
+    out.append(",\"minutes\":");
+    appendNumber(out, route.getMinutes());
+
+    out.append(",\"route\":[");
     for (int i = 0; i < numStations; i++) {
+      if (i > 0) out.append(',');
+      out.append('"');
+      appendJsonChars(out, stations.get(i).getLineCode());
+      appendNumber(out, stations.get(i).getNumber());
+      out.append('"');
+    }
+    out.append("],\"steps\":[");
+    for (int i = 0; i < numStations - 1; i++) {
       Station cur = stations.get(i);
-      if (i < numStations - 1) {
-        Station next = stations.get(i + 1);
-        if (cur.getName().equals(next.getName()))
-          stringBuilder.append(
-              String.format(
-                  "\nChange from %s line to %s line", cur.getLineCode(), next.getLineCode()));
-        else
-          stringBuilder.append(
-              String.format(
-                  "\nTake %s line from %s to %s",
-                  cur.getLineCode(), cur.getName(), next.getName()));
+      Station next = stations.get(i + 1);
+      if (i > 0) out.append(',');
+      if (cur.getName().equals(next.getName())) {
+        out.append("{\"type\":\"change\",\"from\":");
+        appendJsonString(out, cur.getLineCode());
+        out.append(",\"to\":");
+        appendJsonString(out, next.getLineCode());
+      } else {
+        out.append("{\"type\":\"ride\",\"line\":");
+        appendJsonString(out, cur.getLineCode());
+        out.append(",\"from\":");
+        appendJsonString(out, cur.getName());
+        out.append(",\"to\":");
+        appendJsonString(out, next.getName());
+      }
+      out.append('}');
+    }
+    out.append("]}");
+  }
+
+  /**
+   * Builds the JSON form of a response without a route, e.g. {"error":"No route found"}
+   *
+   * @param message
+   * @return JSON object containing {@code message}
+   */
+  public static String buildJsonError(String message) {
+    return build(
+        out -> {
+          out.append("{\"error\":");
+          appendJsonString(out, message);
+          out.append('}');
+        });
+  }
+
+  /**
+   * Builds the JSON form of a list of station names, e.g. {"stations":["Kovan","Kranji"]}
+   *
+   * @param names
+   * @return JSON object containing {@code names}
+   */
+  public static String buildJsonStationNames(List<String> names) {
+    return build(
+        out -> {
+          out.append("{\"stations\":[");
+          for (int i = 0; i < names.size(); i++) {
+            if (i > 0) out.append(',');
+            appendJsonString(out, names.get(i));
+          }
+          out.append("]}");
+        });
+  }
+
+  /**
+   * Appends {@code matrix} to {@code out} as CSV, one row per source name, e.g.
+   * "source,Kovan,Serangoon\nKovan,0,2\nSerangoon,2,0\n". The travel time to an unreachable
+   * destination is left empty. Rows are appended one at a time, so a matrix can be streamed to a
+   * file through a {@code Writer}.
+   *
+   * @param matrix
+   * @param out
+   */
+  public static void appendTravelTimeMatrix(TravelTimeMatrix matrix, Appendable out)
+      throws IOException {
+    List<String> srcNames = matrix.getSrcNames();
+    List<String> destNames = matrix.getDestNames();
+    int[] minutes = matrix.getMinutes();
+
+    out.append("source");
+    for (String destName : destNames) {
+      out.append(',');
+      appendCsvString(out, destName);
+    }
+    out.append('\n');
+    for (int src = 0; src < srcNames.size(); src++) {
+      appendCsvString(out, srcNames.get(src));
+      for (int i = src * destNames.size(); i < (src + 1) * destNames.size(); i++) {
+        out.append(',');
+        if (minutes[i] != TravelTimeMatrix.UNREACHABLE) appendNumber(out, minutes[i]);
       }
+      out.append('\n');
     }
+  }
 
+  private static String build(ResponseAppender appender) {
+    StringBuilder stringBuilder = new StringBuilder();
+    try {
+      appender.appendTo(stringBuilder);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // never thrown by a StringBuilder
+    }
     return stringBuilder.toString();
   }
+
+  private static void appendCsvString(Appendable out, String str) throws IOException {
+    if (str.indexOf(',') == -1 && str.indexOf('"') == -1 && str.indexOf('\n') == -1) {
+      out.append(str);
+      return;
+    }
+    out.append('"');
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      if (c == '"') out.append('"');
+      out.append(c);
+    }
+    out.append('"');
+  }
+
+  private static void appendJsonString(Appendable out, CharSequence str) throws IOException {
+    out.append('"');
+    appendJsonChars(out, str);
+    out.append('"');
+  }
+
+  private static void appendJsonChars(Appendable out, CharSequence str) throws IOException {
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.append('\\').append(c);
+      } else if (c < 0x20) {
+        out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+      } else {
+        out.append(c);
+      }
+    }
+  }
+
+  // same as out.append(String.valueOf(number)), without creating the string
+  private static void appendNumber(Appendable out, long number) throws IOException {
+    if (out instanceof StringBuilder) {
+      ((StringBuilder) out).append(number);
+      return;
+    }
+    // digits are taken from the negated number, since -Long.MIN_VALUE overflows
+    long negated = number;
+    if (number < 0) {
+      out.append('-');
+    } else {
+      negated = -number;
+    }
+    long power = 1;
+    while (negated / power <= -10) {
+      power *= 10;
+    }
+    for (; power > 0; power /= 10) {
+      out.append((char) ('0' - (negated / power) % 10));
+    }
+  }
 }
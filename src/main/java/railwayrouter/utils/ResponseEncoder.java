@@ -0,0 +1,288 @@
+package railwayrouter.utils;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import railwayrouter.models.Route;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+/**
+ * Encodes the responses of routes directly into a {@code ByteBuffer}, copying the line codes and
+ * names each {@code Station} holds pre-encoded as UTF-8, so encoding a route allocates nothing.
+ * {@code TEXT} and {@code JSON} are the same bytes as the UTF-8 encoding of {@code
+ * ResponseBuilder.buildResponse} and {@code ResponseBuilder.buildJsonResponse}. {@code BINARY} is a
+ * compact form for machine clients, all numbers big-endian:
+ *
+ * <pre>
+ * byte BINARY_VERSION, byte time of day (TimeOfDay ordinal), int minutes,
+ * unsigned short number of stations, then for each station:
+ *     unsigned byte line code length, line code UTF-8 bytes, int station number,
+ *     unsigned short name length, name UTF-8 bytes
+ * </pre>
+ *
+ * A step of a binary route is a line change if its two stations have the same name, and a ride
+ * otherwise, as in the other formats.
+ */
+public class ResponseEncoder {
+  protected static final byte BINARY_VERSION = 1;
+  private static final int FIXED_MAX_BYTES = 192;
+  private static final int STATION_MAX_BYTES = 64;
+  private static final int MAX_JSON_ESCAPE_BYTES = 6; // \u001f
+  private static final byte[] HEX_DIGITS = bytes("0123456789abcdef");
+
+  private static final byte[] TRAVEL_FROM = bytes("Travel from ");
+  private static final byte[] TO = bytes(" to ");
+  private static final byte[] DURING = bytes(" during ");
+  private static final byte[] HOURS_TIME = bytes(" hours\nTime: ");
+  private static final byte[] MINUTES_ROUTE = bytes(" minutes\nRoute: [");
+  private static final byte[] STATION_SEPARATOR = bytes(", ");
+  private static final byte[] ROUTE_END = bytes("]\n");
+  private static final byte[] CHANGE_FROM = bytes("\nChange from ");
+  private static final byte[] LINE_TO = bytes(" line to ");
+  private static final byte[] LINE = bytes(" line");
+  private static final byte[] TAKE = bytes("\nTake ");
+  private static final byte[] LINE_FROM = bytes(" line from ");
+
+  private static final byte[] JSON_SOURCE = bytes("{\"source\":");
+  private static final byte[] JSON_DESTINATION = bytes(",\"destination\":");
+  private static final byte[] JSON_TIME_OF_DAY = bytes(",\"timeOfDay\":");
+  private static final byte[] JSON_MINUTES = bytes(",\"minutes\":");
+  private static final byte[] JSON_ROUTE = bytes(",\"route\":[");
+  private static final byte[] JSON_STEPS = bytes("],\"steps\":[");
+  private static final byte[] JSON_CHANGE = bytes("{\"type\":\"change\",\"from\":");
+  private static final byte[] JSON_RIDE = bytes("{\"type\":\"ride\",\"line\":");
+  private static final byte[] JSON_FROM = bytes(",\"from\":");
+  private static final byte[] JSON_TO = bytes(",\"to\":");
+  private static final byte[] JSON_END = bytes("]}");
+  private static final byte[][] TIME_OF_DAY_NAMES = new byte[TimeOfDay.values().length][];
+
+  static {
+    for (TimeOfDay timeOfDay : TimeOfDay.values()) {
+      TIME_OF_DAY_NAMES[timeOfDay.ordinal()] = bytes(timeOfDay.getName());
+    }
+  }
+
+  public enum Format {
+    TEXT("text/plain; charset=utf-8"),
+    JSON("application/json; charset=utf-8"),
+    BINARY("application/octet-stream");
+
+    private final String contentType;
+
+    Format(String contentType) {
+      this.contentType = contentType;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+  }
+
+  /**
+   * Encodes the response of {@code route} in {@code format} into {@code out}, starting at its
+   * position. If it does not fit, the position of {@code out} is undefined; a buffer of {@link
+   * #getMaxLength(Route)} bytes always fits.
+   *
+   * @param route
+   * @param format
+   * @param out
+   * @throws BufferOverflowException if {@code out} has too few bytes remaining
+   * @throws IllegalArgumentException if {@code route} cannot be encoded in {@code BINARY}
+   */
+  public static void encode(Route route, Format format, ByteBuffer out) {
+    switch (format) {
+      case TEXT:
+        encodeText(route, out);
+        break;
+      case JSON:
+        encodeJson(route, out);
+        break;
+      default:
+        encodeBinary(route, out);
+    }
+  }
+
+  /**
+   * @param route
+   * @return upper bound of the number of bytes {@code route} is encoded in, in any format
+   */
+  public static int getMaxLength(Route route) {
+    int maxLength = FIXED_MAX_BYTES;
+    for (Station station : route.getStations()) {
+      // a name or line code appears at most 3 times, every char escaped in JSON
+      int stringBytes = station.getNameByteLength() + station.getLineCodeByteLength();
+      maxLength += STATION_MAX_BYTES + 3 * MAX_JSON_ESCAPE_BYTES * stringBytes;
+    }
+    return maxLength;
+  }
+
+  private static void encodeText(Route route, ByteBuffer out) {
+    List<Station> stations = route.getStations();
+    int numStations = stations.size();
+
+    out.put(TRAVEL_FROM);
+    stations.get(0).putNameBytes(out);
+    out.put(TO);
+    stations.get(numStations - 1).putNameBytes(out);
+    out.put(DURING).put(TIME_OF_DAY_NAMES[route.getTimeOfDay().ordinal()]);
+    out.put(HOURS_TIME);
+    putNumber(out, route.getMinutes());
+    out.put(MINUTES_ROUTE);
+    for (int i = 0; i < numStations; i++) {
+      if (i > 0) out.put(STATION_SEPARATOR);
+      stations.get(i).putLineCodeBytes(out);
+      putNumber(out, stations.get(i).getNumber());
+    }
+    out.put(ROUTE_END);
+
+    for (int i = 0; i < numStations - 1; i++) {
+      Station cur = stations.get(i);
+      Station next = stations.get(i + 1);
+      if (cur.getName().equals(next.getName())) {
+        out.put(CHANGE_FROM);
+        cur.putLineCodeBytes(out);
+        out.put(LINE_TO);
+        next.putLineCodeBytes(out).put(LINE);
+      } else {
+        out.put(TAKE);
+        cur.putLineCodeBytes(out);
+        out.put(LINE_FROM);
+        cur.putNameBytes(out);
+        out.put(TO);
+        next.putNameBytes(out);
+      }
+    }
+  }
+
+  private static void encodeJson(Route route, ByteBuffer out) {
+    List<Station> stations = route.getStations();
+    int numStations = stations.size();
+
+    out.put(JSON_SOURCE);
+    putJsonName(out, stations.get(0));
+    out.put(JSON_DESTINATION);
+    putJsonName(out, stations.get(numStations - 1));
+    out.put(JSON_TIME_OF_DAY);
+    putJsonString(out, TIME_OF_DAY_NAMES[route.getTimeOfDay().ordinal()]);
+    out.put(JSON_MINUTES);
+    putNumber(out, route.getMinutes());
+
+    out.put(JSON_ROUTE);
+    for (int i = 0; i < numStations; i++) {
+      if (i > 0) out.put((byte) ',');
+      out.put((byte) '"');
+      putJsonLineCodeChars(out, stations.get(i));
+      putNumber(out, stations.get(i).getNumber());
+      out.put((byte) '"');
+    }
+    out.put(JSON_STEPS);
+    for (int i = 0; i < numStations - 1; i++) {
+      Station cur = stations.get(i);
+      Station next = stations.get(i + 1);
+      if (i > 0) out.put((byte) ',');
+      if (cur.getName().equals(next.getName())) {
+        out.put(JSON_CHANGE);
+        putJsonLineCode(out, cur);
+        out.put(JSON_TO);
+        putJsonLineCode(out, next);
+      } else {
+        out.put(JSON_RIDE);
+        putJsonLineCode(out, cur);
+        out.put(JSON_FROM);
+        putJsonName(out, cur);
+        out.put(JSON_TO);
+        putJsonName(out, next);
+      }
+      out.put((byte) '}');
+    }
+    out.put(JSON_END);
+  }
+
+  private static void encodeBinary(Route route, ByteBuffer out) {
+    List<Station> stations = route.getStations();
+    checkFits(route.getMinutes(), Integer.MAX_VALUE, "minutes");
+    checkFits(stations.size(), 0xffff, "number of stations");
+
+    out.put(BINARY_VERSION).put((byte) route.getTimeOfDay().ordinal());
+    out.putInt((int) route.getMinutes()).putShort((short) stations.size());
+    for (Station station : stations) {
+      checkFits(station.getLineCodeByteLength(), 0xff, "line code length");
+      checkFits(station.getNameByteLength(), 0xffff, "name length");
+      out.put((byte) station.getLineCodeByteLength());
+      station.putLineCodeBytes(out).putInt(station.getNumber());
+      out.putShort((short) station.getNameByteLength());
+      station.putNameBytes(out);
+    }
+  }
+
+  private static void putJsonString(ByteBuffer out, byte[] utf8) {
+    out.put((byte) '"');
+    for (byte b : utf8) {
+      putJsonChar(out, b);
+    }
+    out.put((byte) '"');
+  }
+
+  private static void putJsonName(ByteBuffer out, Station station) {
+    out.put((byte) '"');
+    for (int i = 0; i < station.getNameByteLength(); i++) {
+      putJsonChar(out, station.getNameByte(i));
+    }
+    out.put((byte) '"');
+  }
+
+  private static void putJsonLineCode(ByteBuffer out, Station station) {
+    out.put((byte) '"');
+    putJsonLineCodeChars(out, station);
+    out.put((byte) '"');
+  }
+
+  private static void putJsonLineCodeChars(ByteBuffer out, Station station) {
+    for (int i = 0; i < station.getLineCodeByteLength(); i++) {
+      putJsonChar(out, station.getLineCodeByte(i));
+    }
+  }
+
+  // bytes of multi-byte UTF-8 sequences are all >= 0x80, so escaping byte by byte is safe
+  private static void putJsonChar(ByteBuffer out, byte b) {
+    if (b == '"' || b == '\\') {
+      out.put((byte) '\\').put(b);
+    } else if (b >= 0 && b < 0x20) {
+      out.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0');
+      out.put(HEX_DIGITS[b >> 4]).put(HEX_DIGITS[b & 0xf]);
+    } else {
+      out.put(b);
+    }
+  }
+
+  // same as out.put(String.valueOf(number).getBytes()), without creating the string
+  private static void putNumber(ByteBuffer out, long number) {
+    // digits are taken from the negated number, since -Long.MIN_VALUE overflows
+    long negated = number;
+    if (number < 0) {
+      out.put((byte) '-');
+    } else {
+      negated = -number;
+    }
+    long power = 1;
+    while (negated / power <= -10) {
+      power *= 10;
+    }
+    for (; power > 0; power /= 10) {
+      out.put((byte) ('0' - (negated / power) % 10));
+    }
+  }
+
+  private static void checkFits(long value, long max, String name) {
+    if (value < 0 || value > max) {
+      throw new IllegalArgumentException(
+          String.format("Cannot encode %s %d, expected 0 to %d", name, value, max));
+    }
+  }
+
+  private static byte[] bytes(String str) {
+    return str.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,211 @@
+package railwayrouter.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Streams the rows of a station map csv file to a {@code StationHandler}, one row at a time, so
+ * files of any size are read in a single pass without keeping the rows in memory.
+ *
+ * <p>Each row after the header has a station code, a station name and an opening date, either "d
+ * MMMM yyyy" (one or two digit day) or "MMMM yyyy" (first day of the month), e.g. "7 January 2006"
+ * or "June 2003". Fields may be quoted, with "" for a quote inside a quoted field. Rows that cannot
+ * be parsed are reported to the handler with their line number and skipped, and blank lines are
+ * ignored. Parsing never throws for a malformed row.
+ */
+public class StationMapLoader {
+  private static final Logger LOGGER = Logger.getLogger(StationMapLoader.class.getName());
+
+  private static final int NUM_FIELDS = 3;
+  private static final String[] MONTH_NAMES = {
+    "January",
+    "February",
+    "March",
+    "April",
+    "May",
+    "June",
+    "July",
+    "August",
+    "September",
+    "October",
+    "November",
+    "December"
+  };
+
+  /** Receives the rows of a station map, in file order */
+  public interface StationHandler {
+    /**
+     * Called for every well-formed row.
+     *
+     * @param code station code, e.g. NE3
+     * @param name station name
+     * @param openingDate
+     */
+    void onStation(String code, String name, LocalDateTime openingDate);
+
+    /**
+     * Called for every malformed row, which is then skipped. Logs a warning by default.
+     *
+     * @param lineNumber 1-based line number in the file
+     * @param line
+     * @param reason
+     */
+    default void onMalformedRow(long lineNumber, String line, String reason) {
+      LOGGER.warning(
+          String.format("Skipping line %d of station map (%s): %s", lineNumber, reason, line));
+    }
+  }
+
+  /**
+   * Reads every row of the station map from {@code reader}, skipping the header, and passes it to
+   * {@code handler}.
+   *
+   * @param reader
+   * @param handler
+   * @return number of rows passed to {@code handler.onStation}
+   */
+  public static long load(BufferedReader reader, StationHandler handler) throws IOException {
+    long numStations = 0;
+    long lineNumber = 1;
+    List<String> fields = new ArrayList<>(NUM_FIELDS);
+    StringBuilder field = new StringBuilder();
+    reader.readLine(); // skip header
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      lineNumber++;
+      if (line.isBlank()) continue;
+
+      String reason = tokenize(line, fields, field);
+      LocalDateTime openingDate = null;
+      if (reason == null) {
+        if (fields.size() != NUM_FIELDS) {
+          reason = String.format("expected %d fields, found %d", NUM_FIELDS, fields.size());
+        } else if (!isValidCode(fields.get(0))) {
+          reason = "invalid station code";
+        } else {
+          openingDate = parseDate(fields.get(2));
+          if (openingDate == null) reason = "invalid opening date";
+        }
+      }
+      if (reason != null) {
+        handler.onMalformedRow(lineNumber, line, reason);
+      } else {
+        handler.onStation(fields.get(0), fields.get(1), openingDate);
+        numStations++;
+      }
+    }
+    return numStations;
+  }
+
+  /**
+   * Splits {@code line} on commas into {@code fields}.
+   *
+   * @param line
+   * @param fields cleared, then filled with the fields of {@code line}
+   * @param field buffer for the field being read
+   * @return null, or the reason {@code line} cannot be split
+   */
+  protected static String tokenize(String line, List<String> fields, StringBuilder field) {
+    fields.clear();
+    int i = 0;
+    int n = line.length();
+    while (true) {
+      field.setLength(0);
+      if (i < n && line.charAt(i) == '"') {
+        i++;
+        while (true) {
+          if (i == n) return "unterminated quote";
+          char c = line.charAt(i++);
+          if (c != '"') {
+            field.append(c);
+          } else if (i < n && line.charAt(i) == '"') {
+            field.append('"');
+            i++;
+          } else {
+            break;
+          }
+        }
+        if (i < n && line.charAt(i) != ',') return "unexpected character after quote";
+      } else {
+        int end = line.indexOf(',', i);
+        end = end == -1 ? n : end;
+        field.append(line, i, end);
+        i = end;
+      }
+      fields.add(field.toString());
+      if (i == n) return null;
+      i++; // skip comma
+    }
+  }
+
+  /**
+   * Parses an opening date in the format "d MMMM yyyy", "dd MMMM yyyy" or "MMMM yyyy", without
+   * throwing.
+   *
+   * @param str
+   * @return opening date at the start of the day, or null if {@code str} is not a valid date
+   */
+  protected static LocalDateTime parseDate(String str) {
+    int n = str.length();
+    int i = 0;
+    int day = 1;
+    if (i < n && isDigit(str.charAt(i))) {
+      day = 0;
+      while (i < n && i < 2 && isDigit(str.charAt(i))) {
+        day = day * 10 + (str.charAt(i++) - '0');
+      }
+      if (i == n || str.charAt(i++) != ' ') return null;
+    }
+
+    int monthEnd = str.indexOf(' ', i);
+    if (monthEnd == -1) return null;
+    int month = parseMonth(str, i, monthEnd);
+    if (month == 0) return null;
+
+    i = monthEnd + 1;
+    if (n - i != 4) return null;
+    int year = 0;
+    for (; i < n; i++) {
+      if (!isDigit(str.charAt(i))) return null;
+      year = year * 10 + (str.charAt(i) - '0');
+    }
+
+    if (day < 1 || day > Month.of(month).length(Year.isLeap(year))) return null;
+    return LocalDateTime.of(year, month, day, 0, 0);
+  }
+
+  /**
+   * @param str
+   * @param start
+   * @param end
+   * @return 1-based month of the full English month name in {@code str[start, end)}, or 0 if none
+   */
+  private static int parseMonth(String str, int start, int end) {
+    int length = end - start;
+    for (int month = 0; month < MONTH_NAMES.length; month++) {
+      String monthName = MONTH_NAMES[month];
+      if (monthName.length() == length && str.regionMatches(start, monthName, 0, length)) {
+        return month + 1;
+      }
+    }
+    return 0;
+  }
+
+  // same as the Station constructor expects: a 2 letter line code and a number
+  private static boolean isValidCode(String code) {
+    if (code.length() < 3 || code.length() > 11) return false;
+    for (int i = 2; i < code.length(); i++) {
+      if (!isDigit(code.charAt(i))) return false;
+    }
+    return Long.parseLong(code.substring(2)) <= Integer.MAX_VALUE;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
@@ -1,9 +1,22 @@
 package railwayrouter.utils;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import railwayrouter.models.TimeOfDay;
 
 public class TimeOfDayUtil {
+  public static final int MINUTES_PER_DAY = 24 * 60;
+  public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+  // epoch minute 0 is 1970-01-01T00:00, a Thursday, i.e. 3 days after the start of the week
+  private static final int EPOCH_MINUTE_OF_WEEK = 3 * MINUTES_PER_DAY;
+  // a Monday, used to enumerate one week of minutes
+  private static final LocalDateTime START_OF_WEEK = LocalDateTime.of(2021, 1, 4, 0, 0);
+  private static final TimeOfDay[] TIMES_OF_DAY = TimeOfDay.values();
+  private static final byte[] MINUTE_OF_WEEK_TO_TIME_OF_DAY = generateMinuteOfWeekTable();
+  private static final int[] MINUTES_UNTIL_TIME_OF_DAY_CHANGE = generateMinutesUntilChangeTable();
+  private static final int[] MINUTES_SINCE_TIME_OF_DAY_CHANGE = generateMinutesSinceChangeTable();
+
   /**
    * PEAK: Mon-Fri, 0600-0900, 1800-2100 NIGHT: 2200-0559 NONPEAK: all other hours
    *
@@ -27,4 +40,110 @@ public class TimeOfDayUtil {
       return TimeOfDay.NONPEAK;
     }
   }
+
+  /**
+   * Same as {@link #getTimeOfDay(LocalDateTime)}, looked up from a precomputed table
+   *
+   * @param epochMinute minutes since 1970-01-01T00:00
+   * @return TimeOfDay enum
+   */
+  public static TimeOfDay getTimeOfDay(long epochMinute) {
+    return getTimeOfDayOfMinuteOfWeek(getMinuteOfWeek(epochMinute));
+  }
+
+  /**
+   * Same as {@link #getTimeOfDay(LocalDateTime)}, looked up from a precomputed table
+   *
+   * @param minuteOfWeek minutes since Monday 0000, between 0 and MINUTES_PER_WEEK - 1
+   * @return TimeOfDay enum
+   */
+  public static TimeOfDay getTimeOfDayOfMinuteOfWeek(int minuteOfWeek) {
+    return TIMES_OF_DAY[MINUTE_OF_WEEK_TO_TIME_OF_DAY[minuteOfWeek]];
+  }
+
+  /**
+   * Returns the number of minutes from {@code minuteOfWeek} until the time of day changes, e.g. 1
+   * at Monday 0900, the last minute of peak hours.
+   *
+   * @param minuteOfWeek minutes since Monday 0000, between 0 and MINUTES_PER_WEEK - 1
+   * @return number of consecutive minutes, starting at {@code minuteOfWeek}, with the same time of
+   *     day
+   */
+  public static int getMinutesUntilTimeOfDayChange(int minuteOfWeek) {
+    return MINUTES_UNTIL_TIME_OF_DAY_CHANGE[minuteOfWeek];
+  }
+
+  /**
+   * Returns the number of minutes from the last change of time of day up to {@code minuteOfWeek},
+   * e.g. 1 at Monday 0600, the first minute of peak hours.
+   *
+   * @param minuteOfWeek minutes since Monday 0000, between 0 and MINUTES_PER_WEEK - 1
+   * @return number of consecutive minutes, ending at {@code minuteOfWeek}, with the same time of
+   *     day
+   */
+  public static int getMinutesSinceTimeOfDayChange(int minuteOfWeek) {
+    return MINUTES_SINCE_TIME_OF_DAY_CHANGE[minuteOfWeek];
+  }
+
+  /**
+   * @param epochMinute minutes since 1970-01-01T00:00
+   * @return minutes since Monday 0000 of the same week
+   */
+  public static int getMinuteOfWeek(long epochMinute) {
+    return (int) Math.floorMod(epochMinute + EPOCH_MINUTE_OF_WEEK, (long) MINUTES_PER_WEEK);
+  }
+
+  /**
+   * @param dateTime
+   * @return minutes since 1970-01-01T00:00
+   */
+  public static long toEpochMinute(LocalDateTime dateTime) {
+    return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+  }
+
+  /**
+   * @param epochMinute minutes since 1970-01-01T00:00
+   * @return date time {@code epochMinute} minutes after 1970-01-01T00:00
+   */
+  public static LocalDateTime fromEpochMinute(long epochMinute) {
+    return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+  }
+
+  private static int[] generateMinutesUntilChangeTable() {
+    int[] table = new int[MINUTES_PER_WEEK];
+    // walk back over two weeks, so that the runs wrapping around Sunday 2359 are counted in full
+    int run = 0;
+    for (int i = 2 * MINUTES_PER_WEEK - 1; i >= 0; i--) {
+      int minuteOfWeek = i % MINUTES_PER_WEEK;
+      int next = (i + 1) % MINUTES_PER_WEEK;
+      boolean sameAsNext =
+          MINUTE_OF_WEEK_TO_TIME_OF_DAY[minuteOfWeek] == MINUTE_OF_WEEK_TO_TIME_OF_DAY[next];
+      run = sameAsNext ? run + 1 : 1;
+      table[minuteOfWeek] = run;
+    }
+    return table;
+  }
+
+  private static int[] generateMinutesSinceChangeTable() {
+    int[] table = new int[MINUTES_PER_WEEK];
+    // walk forward over two weeks, so that the runs wrapping around Monday 0000 are counted in full
+    int run = 0;
+    for (int i = 0; i < 2 * MINUTES_PER_WEEK; i++) {
+      int minuteOfWeek = i % MINUTES_PER_WEEK;
+      int previous = (i + MINUTES_PER_WEEK - 1) % MINUTES_PER_WEEK;
+      boolean sameAsPrevious =
+          MINUTE_OF_WEEK_TO_TIME_OF_DAY[minuteOfWeek] == MINUTE_OF_WEEK_TO_TIME_OF_DAY[previous];
+      run = sameAsPrevious ? run + 1 : 1;
+      table[minuteOfWeek] = run;
+    }
+    return table;
+  }
+
+  private static byte[] generateMinuteOfWeekTable() {
+    byte[] table = new byte[MINUTES_PER_WEEK];
+    for (int i = 0; i < MINUTES_PER_WEEK; i++) {
+      table[i] = (byte) getTimeOfDay(START_OF_WEEK.plusMinutes(i)).ordinal();
+    }
+    return table;
+  }
 }
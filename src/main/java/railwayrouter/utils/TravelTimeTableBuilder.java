@@ -0,0 +1,117 @@
+package railwayrouter.utils;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import railwayrouter.models.ArrivalQueue;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.HeapArrivalQueue;
+import railwayrouter.models.TimeOfDay;
+import railwayrouter.models.TravelTimeTable;
+
+public class TravelTimeTableBuilder {
+  private static final Logger LOGGER = Logger.getLogger(TravelTimeTableBuilder.class.getName());
+
+  /**
+   * Builds the travel time table of {@code graph} by running a full dijkstra search from every
+   * station, for every time of day, with the costs of that time of day. The searches are
+   * independent, and run in parallel on the common fork-join pool.
+   *
+   * <p>Every search removes states with the same arrival time in increasing order of station id,
+   * and only replaces a preceding station with a strictly faster one, the same as {@code
+   * RouteFinder}. So the route read back from the table is the route {@code RouteFinder} finds,
+   * whenever the time of day does not change during travel.
+   *
+   * @param graph
+   * @param costModel
+   * @return travel time table of {@code graph}
+   * @throws IllegalArgumentException if {@code graph} has more than {@code
+   *     TravelTimeTable.MAX_STATIONS} stations
+   */
+  public static TravelTimeTable build(CsrGraph graph, CostModel costModel) {
+    int numStations = graph.getNumStations();
+    if (numStations > TravelTimeTable.MAX_STATIONS) {
+      throw new IllegalArgumentException(
+          String.format("Too many stations for a travel time table: %d", numStations));
+    }
+    TimeOfDay[] timesOfDay = TimeOfDay.values();
+    short[][][] minutes = new short[timesOfDay.length][numStations][];
+    short[][][] prec = new short[timesOfDay.length][numStations][];
+
+    long startNanos = System.nanoTime();
+    IntStream.range(0, timesOfDay.length * numStations)
+        .parallel()
+        .forEach(
+            i -> {
+              int timeOfDay = i / numStations;
+              int src = i % numStations;
+              minutes[timeOfDay][src] = new short[numStations];
+              prec[timeOfDay][src] = new short[numStations];
+              dijkstra(
+                  src,
+                  graph,
+                  costModel.getCosts()[timeOfDay],
+                  minutes[timeOfDay][src],
+                  prec[timeOfDay][src]);
+            });
+    LOGGER.info(
+        String.format(
+            "Built travel time table of %d stations in %d ms",
+            numStations, (System.nanoTime() - startNanos) / 1_000_000));
+    return new TravelTimeTable(minutes, prec);
+  }
+
+  /**
+   * Runs dijkstra algorithm from src to every station, with constant costs.
+   *
+   * @param src
+   * @param graph
+   * @param timeOfDayCosts cost of every edge of {@code graph}
+   * @param minutes filled with the minutes taken to reach every station, or {@code
+   *     TravelTimeTable.UNREACHABLE}
+   * @param prec filled with the preceding station id of every station, or -1 if none
+   */
+  protected static void dijkstra(
+      int src, CsrGraph graph, int[] timeOfDayCosts, short[] minutes, short[] prec) {
+    int numStations = graph.getNumStations();
+    IntBuffer offsets = graph.getOffsets();
+    IntBuffer targets = graph.getTargets();
+    int[] arrivalMinutes = new int[numStations];
+    BitSet solved = new BitSet(numStations);
+    ArrivalQueue pq = new HeapArrivalQueue(numStations);
+
+    Arrays.fill(arrivalMinutes, Integer.MAX_VALUE);
+    Arrays.fill(prec, (short) -1);
+    arrivalMinutes[src] = 0;
+    pq.add(0, src);
+    while (!pq.isEmpty()) {
+      int cur = ArrivalQueue.getState(pq.remove());
+      if (solved.get(cur)) continue;
+      solved.set(cur);
+
+      for (int edge = offsets.get(cur); edge < offsets.get(cur + 1); edge++) {
+        int v = targets.get(edge);
+        int cost = timeOfDayCosts[edge];
+        if (!solved.get(v) && cost != CostModel.CLOSED) {
+          int arrivalMinutesV = arrivalMinutes[cur] + cost;
+          if (arrivalMinutesV < arrivalMinutes[v]) {
+            arrivalMinutes[v] = arrivalMinutesV;
+            prec[v] = (short) cur;
+            pq.add(arrivalMinutesV, v);
+          }
+        }
+      }
+    }
+
+    for (int i = 0; i < numStations; i++) {
+      // too slow to fit in a short is as good as unreachable, the search is used instead
+      minutes[i] =
+          arrivalMinutes[i] > Short.MAX_VALUE
+              ? TravelTimeTable.UNREACHABLE
+              : (short) arrivalMinutes[i];
+    }
+  }
+}
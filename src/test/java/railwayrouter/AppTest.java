@@ -54,6 +54,31 @@ public class AppTest {
     assertEquals(expected, outContent.toString());
   }
 
+  @Test
+  public void testRunArriveBy() throws IOException, CsvValidationException {
+    String input = "Buangkok\nKovan\n2021-01-28T09:00\n";
+    InputStream stream = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    OutputStream outContent = new ByteArrayOutputStream();
+
+    System.setIn(stream);
+    System.setOut(new PrintStream(outContent));
+    String testResponse = "Test response";
+    String expected =
+        "Enter starting station: "
+            + "Enter destination station: "
+            + "Enter arrival date time (YYYY-MM-DDTHH:mm e.g. 2021-01-28T09:00): "
+            + testResponse
+            + "\n";
+
+    doReturn(testResponse)
+        .when(mockQueryHandler)
+        .handleArriveByQuery("Buangkok", "Kovan", "2021-01-28T09:00");
+
+    app.run(true);
+
+    assertEquals(expected, outContent.toString());
+  }
+
   @Test
   public void testRunExceptionThrownErrorStringReturned()
       throws IOException, CsvValidationException {
@@ -77,6 +102,46 @@ public class AppTest {
     assertEquals(expected, outContent.toString());
   }
 
+  @Test
+  public void testRunBatch() throws IOException, CsvValidationException {
+    String input = "Buangkok,Kovan,2021-01-28T07:00\nKovan\tBuangkok\t2021-01-28T08:00\n";
+    InputStream stream = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    OutputStream outContent = new ByteArrayOutputStream();
+
+    System.setIn(stream);
+    System.setOut(new PrintStream(outContent));
+
+    doReturn("Test response 1")
+        .when(mockQueryHandler)
+        .handleQuery("Buangkok", "Kovan", "2021-01-28T07:00");
+    doReturn("Test response 2")
+        .when(mockQueryHandler)
+        .handleQuery("Kovan", "Buangkok", "2021-01-28T08:00");
+
+    app.runBatch(App.STDIN_PATH, 2);
+
+    String expected =
+        "> Buangkok,Kovan,2021-01-28T07:00\nTest response 1\n\n"
+            + "> Kovan\tBuangkok\t2021-01-28T08:00\nTest response 2\n\n";
+    assertEquals(expected, outContent.toString());
+  }
+
+  @Test
+  public void testCheckOptions() {
+    App.checkOptions(new String[] {"--server", "8080", "--threads", "4"});
+    App.checkOptions(new String[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCheckOptionsUnknownOption() {
+    App.checkOptions(new String[] {"--sever", "8080"});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCheckOptionsMissingValue() {
+    App.checkOptions(new String[] {"--threads", "4", "--server"});
+  }
+
   @After
   public void tearDown() {
     System.setIn(ORIGINAL_STD_IN);
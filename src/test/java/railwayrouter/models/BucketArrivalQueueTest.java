@@ -0,0 +1,68 @@
+package railwayrouter.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BucketArrivalQueueTest {
+
+  @Test
+  public void testRemoveSortsByArrivalThenState() {
+    BucketArrivalQueue queue = new BucketArrivalQueue(3);
+    queue.add(0, 5);
+    queue.add(0, 2);
+    assertEquals(ArrivalQueue.toEntry(0, 2), queue.remove());
+    queue.add(3, 7);
+    queue.add(1, 4);
+    queue.add(3, 1);
+    assertEquals(ArrivalQueue.toEntry(0, 5), queue.remove());
+    assertEquals(ArrivalQueue.toEntry(1, 4), queue.remove());
+    assertEquals(ArrivalQueue.toEntry(3, 1), queue.remove());
+    assertEquals(ArrivalQueue.toEntry(3, 7), queue.remove());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void testBucketsWrapAround() {
+    BucketArrivalQueue queue = new BucketArrivalQueue(3);
+    queue.add(0, 0);
+    for (int i = 0; i < 10; i++) {
+      long entry = queue.remove();
+      assertEquals(3 * i, ArrivalQueue.getArrivalMinutes(entry));
+      assertEquals(i, ArrivalQueue.getState(entry));
+      queue.add(3 * i + 3, i + 1);
+    }
+    assertFalse(queue.isEmpty());
+  }
+
+  @Test
+  public void testBucketGrows() {
+    BucketArrivalQueue queue = new BucketArrivalQueue(1);
+    for (int state = 9; state >= 0; state--) {
+      queue.add(1, state);
+    }
+    for (int state = 0; state < 10; state++) {
+      assertEquals(ArrivalQueue.toEntry(1, state), queue.remove());
+    }
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void testClear() {
+    BucketArrivalQueue queue = new BucketArrivalQueue(3);
+    queue.add(0, 1);
+    queue.add(2, 3);
+    queue.remove();
+    queue.clear();
+    assertTrue(queue.isEmpty());
+
+    // the minute restarts at 0
+    queue.add(1, 0);
+    queue.add(0, 4);
+    assertEquals(ArrivalQueue.toEntry(0, 4), queue.remove());
+    assertEquals(ArrivalQueue.toEntry(1, 0), queue.remove());
+    assertTrue(queue.isEmpty());
+  }
+}
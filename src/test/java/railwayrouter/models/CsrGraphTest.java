@@ -0,0 +1,58 @@
+package railwayrouter.models;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.IntBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.Test;
+
+public class CsrGraphTest {
+  private static final Station KOVAN =
+      new Station(0, "NE4", "Kovan", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON =
+      new Station(1, "NE5", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON_2 =
+      new Station(2, "CC16", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station LORONG_CHUAN =
+      new Station(3, "CC17", "Lorong Chuan", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  @Test
+  public void testFromAdjList() {
+    List<List<Station>> adjList =
+        List.of(
+            List.of(SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2));
+    CsrGraph graph =
+        CsrGraph.fromAdjList(List.of(KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN), adjList);
+
+    assertEquals(4, graph.getNumStations());
+    assertEquals(6, graph.getNumEdges());
+    assertEquals(IntBuffer.wrap(new int[] {0, 1, 3, 5, 6}), graph.getOffsets());
+    assertEquals(IntBuffer.wrap(new int[] {1, 0, 2, 3, 1, 2}), graph.getTargets());
+    assertArrayEquals(
+        new byte[] {
+          CsrGraph.RIDE,
+          CsrGraph.RIDE,
+          CsrGraph.TRANSFER,
+          CsrGraph.RIDE,
+          CsrGraph.TRANSFER,
+          CsrGraph.RIDE
+        },
+        graph.getEdgeKinds());
+    assertArrayEquals(new String[] {"CC", "NE"}, graph.getLineCodes());
+    assertArrayEquals(new int[] {1, 1, 0, 0}, graph.getLineIds());
+    assertEquals(SERANGOON_2, graph.getStations()[2]);
+  }
+
+  @Test
+  public void testFromAdjListEmptyList() {
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(), List.of());
+    assertEquals(0, graph.getNumStations());
+    assertEquals(0, graph.getNumEdges());
+    assertEquals(IntBuffer.wrap(new int[] {0}), graph.getOffsets());
+  }
+}
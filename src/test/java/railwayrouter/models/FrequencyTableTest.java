@@ -0,0 +1,93 @@
+package railwayrouter.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class FrequencyTableTest {
+  private static final Station KOVAN =
+      new Station(0, "NE4", "Kovan", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON =
+      new Station(1, "NE5", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  private static CsrGraph newGraph() {
+    return CsrGraph.fromAdjList(
+        List.of(KOVAN, SERANGOON), List.of(List.of(SERANGOON), List.of(KOVAN)));
+  }
+
+  @Test
+  public void testGetCostModelBuildsOncePerGraph() {
+    FrequencyTable frequencyTable = new FrequencyTable(Map.of(), "");
+    CsrGraph graph = newGraph();
+    AtomicInteger builds = new AtomicInteger();
+
+    CostModel costModel =
+        frequencyTable.getCostModel(
+            graph,
+            g -> {
+              builds.incrementAndGet();
+              return new CostModel(new int[][] {{1, 1}});
+            });
+
+    assertSame(costModel, frequencyTable.getCostModel(graph, g -> null));
+    assertEquals(1, builds.get());
+  }
+
+  @Test
+  public void testBuildDoesNotBlockOtherGraphs() throws Exception {
+    FrequencyTable frequencyTable = new FrequencyTable(Map.of(), "");
+    CsrGraph slowGraph = newGraph();
+    CsrGraph graph = newGraph();
+    CountDownLatch building = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<CostModel> slowCostModel =
+          executor.submit(
+              () ->
+                  frequencyTable.getCostModel(
+                      slowGraph,
+                      g -> {
+                        building.countDown();
+                        try {
+                          release.await();
+                        } catch (InterruptedException e) {
+                          Thread.currentThread().interrupt();
+                        }
+                        return new CostModel(new int[][] {{2, 2}});
+                      }));
+      assertTrue(building.await(10, TimeUnit.SECONDS));
+
+      // returns while slowGraph is still being built
+      CostModel costModel = new CostModel(new int[][] {{1, 1}});
+      assertSame(costModel, frequencyTable.getCostModel(graph, g -> costModel));
+      assertTrue(!slowCostModel.isDone());
+
+      release.countDown();
+      assertEquals(2, slowCostModel.get(10, TimeUnit.SECONDS).getMinCost());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBuilderExceptionRethrown() {
+    new FrequencyTable(Map.of(), "")
+        .getCostModel(
+            newGraph(),
+            g -> {
+              throw new IllegalArgumentException("test exception");
+            });
+  }
+}
@@ -0,0 +1,52 @@
+package railwayrouter.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HeapArrivalQueueTest {
+
+  @Test
+  public void testRemoveSortsByArrivalThenState() {
+    HeapArrivalQueue queue = new HeapArrivalQueue(4);
+    queue.add(3, 7);
+    queue.add(0, 5);
+    queue.add(1, 4);
+    queue.add(0, 2);
+    queue.add(3, 1);
+    assertEquals(ArrivalQueue.toEntry(0, 2), queue.remove());
+    assertEquals(ArrivalQueue.toEntry(0, 5), queue.remove());
+    assertEquals(ArrivalQueue.toEntry(1, 4), queue.remove());
+    assertEquals(ArrivalQueue.toEntry(3, 1), queue.remove());
+    assertEquals(ArrivalQueue.toEntry(3, 7), queue.remove());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void testHeapGrows() {
+    HeapArrivalQueue queue = new HeapArrivalQueue(1);
+    for (int state = 99; state >= 0; state--) {
+      queue.add(state % 10, state);
+    }
+    for (int minutes = 0; minutes < 10; minutes++) {
+      for (int state = minutes; state < 100; state += 10) {
+        assertEquals(ArrivalQueue.toEntry(minutes, state), queue.remove());
+      }
+    }
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void testClear() {
+    HeapArrivalQueue queue = new HeapArrivalQueue(2);
+    queue.add(0, 1);
+    queue.add(2, 3);
+    queue.clear();
+    assertTrue(queue.isEmpty());
+
+    queue.add(5, 0);
+    assertEquals(ArrivalQueue.toEntry(5, 0), queue.remove());
+    assertTrue(queue.isEmpty());
+  }
+}
@@ -0,0 +1,66 @@
+package railwayrouter.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testGetBucket() {
+    // one bucket per value below 128, then 64 buckets per power of two
+    assertEquals(0, LatencyHistogram.getBucket(0));
+    assertEquals(127, LatencyHistogram.getBucket(127));
+    assertEquals(128, LatencyHistogram.getBucket(128));
+    assertEquals(128, LatencyHistogram.getBucket(129));
+    assertEquals(129, LatencyHistogram.getBucket(130));
+    assertEquals(192, LatencyHistogram.getBucket(256));
+    assertEquals(255, LatencyHistogram.getBucket(511));
+
+    for (long value = 0; value < 100_000; value += 7) {
+      int bucket = LatencyHistogram.getBucket(value);
+      assertTrue(value <= LatencyHistogram.getHighestValue(bucket));
+      assertTrue(bucket == 0 || value > LatencyHistogram.getHighestValue(bucket - 1));
+    }
+    int lastBucket = LatencyHistogram.getBucket(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.getHighestValue(lastBucket));
+  }
+
+  @Test
+  public void testGetValueAtPercentile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 100; value++) {
+      histogram.record(value * 1000);
+    }
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(100_000, histogram.getMax());
+    assertEquals(50_500, histogram.getMean(), 0);
+    // within 1/64 of the exact percentiles, and never above the maximum
+    assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 / 64);
+    assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 / 64);
+    assertEquals(100_000, histogram.getValueAtPercentile(99.9));
+    assertEquals(100_000, histogram.getValueAtPercentile(100));
+    assertEquals(1000, histogram.getValueAtPercentile(0), 1000 / 64);
+  }
+
+  @Test
+  public void testRecordNegative() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+
+    assertEquals(1, histogram.getCount());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+  }
+
+  @Test
+  public void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getMean(), 0);
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+}
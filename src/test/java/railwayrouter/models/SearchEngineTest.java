@@ -0,0 +1,27 @@
+package railwayrouter.models;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SearchEngineTest {
+
+  @Test
+  public void testNewQueueDial() {
+    CostModel costModel = new CostModel(new int[][] {{2, CostModel.CLOSED}, {15}});
+    assertTrue(SearchEngine.DIAL.newQueue(costModel, 2) instanceof BucketArrivalQueue);
+    assertTrue(SearchEngine.DIJKSTRA.newQueue(costModel, 2) instanceof HeapArrivalQueue);
+  }
+
+  @Test
+  public void testNewQueueDialCostTooLarge() {
+    CostModel costModel = new CostModel(new int[][] {{2, SearchEngine.MAX_BUCKETS}});
+    assertTrue(SearchEngine.DIAL.newQueue(costModel, 2) instanceof HeapArrivalQueue);
+  }
+
+  @Test
+  public void testNewQueueDialZeroCost() {
+    CostModel costModel = new CostModel(new int[][] {{0, 1}});
+    assertTrue(SearchEngine.DIAL.newQueue(costModel, 2) instanceof HeapArrivalQueue);
+  }
+}
@@ -0,0 +1,109 @@
+package railwayrouter.models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class SearchWorkspaceTest {
+
+  @Test
+  public void testAcquireResetsState() {
+    SearchWorkspace workspace = SearchWorkspace.acquire(4, 2);
+    workspace.reach(3, 7, 1);
+    workspace.solve(3);
+    workspace.setDestRank(1, 2);
+    assertEquals(7, workspace.getArrivalMinutes(3));
+    assertEquals(1, workspace.getPrec(3));
+    assertTrue(workspace.isSolved(3));
+    assertEquals(2, workspace.getDestRank(1));
+
+    workspace.release();
+
+    workspace = SearchWorkspace.acquire(4, 2);
+    assertEquals(SearchWorkspace.UNREACHABLE, workspace.getArrivalMinutes(3));
+    assertFalse(workspace.isSolved(3));
+    assertEquals(0, workspace.getDestRank(1));
+    workspace.release();
+  }
+
+  @Test
+  public void testStartGrows() {
+    SearchWorkspace workspace = SearchWorkspace.acquire(2, 1);
+    workspace.reach(1, 3, 0);
+    workspace.release();
+
+    workspace = SearchWorkspace.acquire(6, 3);
+    assertTrue(workspace.getArrivalMinutes().length >= 6);
+    for (int state = 0; state < 6; state++) {
+      assertEquals(SearchWorkspace.UNREACHABLE, workspace.getArrivalMinutes(state));
+    }
+    workspace.reach(5, 4, 2);
+    workspace.setDestRank(2, 1);
+    assertEquals(4, workspace.getArrivalMinutes(5));
+    assertEquals(1, workspace.getDestRank(2));
+    workspace.release();
+  }
+
+  @Test
+  public void testGetQueueReusesQueue() {
+    SearchWorkspace workspace = SearchWorkspace.acquire(2, 2);
+    CostModel costModel = new CostModel(new int[][] {{2, 3}});
+    CostModel largerCostModel = new CostModel(new int[][] {{2, 5}});
+
+    ArrivalQueue heapQueue = workspace.getQueue(SearchEngine.DIJKSTRA, costModel);
+    heapQueue.add(0, 1);
+    assertSame(heapQueue, workspace.getQueue(SearchEngine.DIJKSTRA, costModel));
+    assertTrue(heapQueue.isEmpty());
+
+    ArrivalQueue bucketQueue = workspace.getQueue(SearchEngine.DIAL, largerCostModel);
+    assertTrue(bucketQueue instanceof BucketArrivalQueue);
+    bucketQueue.add(0, 1);
+    assertSame(bucketQueue, workspace.getQueue(SearchEngine.DIAL, costModel));
+    assertTrue(bucketQueue.isEmpty());
+    CostModel evenLargerCostModel = new CostModel(new int[][] {{2, 9}});
+    assertNotSame(bucketQueue, workspace.getQueue(SearchEngine.DIAL, evenLargerCostModel));
+    workspace.release();
+  }
+
+  @Test
+  public void testReleaseFullPoolDropsWorkspace() {
+    List<SearchWorkspace> workspaces = new ArrayList<>();
+    for (int i = 0; i < SearchWorkspace.MAX_POOLED + 1; i++) {
+      workspaces.add(SearchWorkspace.acquire(1, 1));
+    }
+    for (SearchWorkspace workspace : workspaces) {
+      workspace.release();
+    }
+    assertEquals(SearchWorkspace.MAX_POOLED, SearchWorkspace.getNumPooled());
+  }
+
+  @Test
+  public void testReleaseOversizedDropsWorkspace() {
+    SearchWorkspace workspace = SearchWorkspace.acquire(SearchWorkspace.MAX_POOLED_LENGTH + 1, 1);
+    int numPooled = SearchWorkspace.getNumPooled();
+    workspace.release();
+
+    assertEquals(numPooled, SearchWorkspace.getNumPooled());
+  }
+
+  @Test
+  public void testClearHierarchy() {
+    SearchWorkspace workspace = SearchWorkspace.acquire(0, 3);
+    workspace.getHierarchyMinutes(3)[1] = 5;
+    workspace.getHierarchyPrecEdges(3)[2] = 4;
+
+    workspace.clearHierarchy();
+
+    for (int station = 0; station < 3; station++) {
+      assertEquals(SearchWorkspace.UNREACHABLE, workspace.getHierarchyMinutes(3)[station]);
+      assertEquals(-1, workspace.getHierarchyPrecEdges(3)[station]);
+    }
+    workspace.release();
+  }
+}
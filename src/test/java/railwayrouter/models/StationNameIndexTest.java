@@ -0,0 +1,92 @@
+package railwayrouter.models;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class StationNameIndexTest {
+  private static final Station KOVAN =
+      new Station(0, "NE4", "Kovan", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON =
+      new Station(1, "NE5", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON_2 =
+      new Station(2, "CC13", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station KRANJI =
+      new Station(3, "NS7", "Kranji", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station KALLANG =
+      new Station(4, "EW10", "Kallang", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  private final StationNameIndex index =
+      new StationNameIndex(List.of(KOVAN, SERANGOON, SERANGOON_2, KRANJI, KALLANG));
+
+  @Test
+  public void testGetStationIds() {
+    assertEquals(4, index.size());
+    assertArrayEquals(new int[] {1, 2}, index.getStationIds("Serangoon"));
+    assertArrayEquals(new int[] {1, 2}, index.getStationIds("seraNgOon"));
+    assertArrayEquals(new int[] {0}, index.getStationIds(new StringBuilder("KOVAN")));
+    assertArrayEquals(new int[0], index.getStationIds("Serangoo"));
+    assertArrayEquals(new int[0], index.getStationIds(""));
+  }
+
+  @Test
+  public void testGetNameId() {
+    assertEquals("Kallang", index.getName(index.getNameId("kallang")));
+    assertEquals(-1, index.getNameId("Kallangg"));
+  }
+
+  @Test
+  public void testEmpty() {
+    StationNameIndex emptyIndex = new StationNameIndex(List.of());
+    assertEquals(-1, emptyIndex.getNameId("Kovan"));
+    assertEquals(List.of(), emptyIndex.complete("K", 10));
+  }
+
+  @Test
+  public void testCompletePrefix() {
+    assertEquals(List.of("Kallang", "Kovan", "Kranji"), index.complete("k", 10));
+    assertEquals(List.of("Kallang", "Kovan"), index.complete("K", 2));
+    assertEquals(List.of("Serangoon"), index.complete("SERANG", 10));
+    assertEquals(List.of("Serangoon"), index.complete("Serangoon", 10));
+  }
+
+  @Test
+  public void testCompleteTypo() {
+    // prefix matches first, then names one substitution, insertion or deletion away
+    assertEquals(List.of("Kranji", "Kallang"), index.complete("Kra", 10));
+    assertEquals(List.of("Kranji"), index.complete("Kra", 1));
+    assertEquals(List.of(), index.complete("Ki", 10)); // too short for typos
+    assertEquals(List.of("Kovan"), index.complete("Kivan", 10));
+    assertEquals(List.of("Kovan"), index.complete("Kovvan", 10));
+    assertEquals(List.of("Kovan", "Kranji"), index.complete("Kvan", 10));
+    assertEquals(List.of(), index.complete("Xyz", 10));
+  }
+
+  @Test
+  public void testStartsWithinOneEdit() {
+    assertTrue(StationNameIndex.startsWithinOneEdit("serangoon", "sera"));
+    assertTrue(StationNameIndex.startsWithinOneEdit("serangoon", "sira"));
+    assertTrue(StationNameIndex.startsWithinOneEdit("serangoon", "serra"));
+    assertTrue(StationNameIndex.startsWithinOneEdit("serangoon", "sra"));
+    assertTrue(StationNameIndex.startsWithinOneEdit("serangoon", "serangoonx"));
+    assertFalse(StationNameIndex.startsWithinOneEdit("serangoon", "sxxa"));
+    assertFalse(StationNameIndex.startsWithinOneEdit("kovan", "kovanxx"));
+  }
+
+  @Test
+  public void testAsMap() {
+    Map<String, List<Station>> map = index.asMap();
+    assertEquals(List.of(SERANGOON, SERANGOON_2), map.get("serangoon"));
+    assertEquals(List.of(KOVAN), map.getOrDefault("KOVAN", List.of()));
+    assertNull(map.get("Nowhere"));
+    assertFalse(map.containsKey(1));
+    assertEquals(List.of("Kallang", "Kovan", "Kranji", "Serangoon"), List.copyOf(map.keySet()));
+  }
+}
@@ -0,0 +1,34 @@
+package railwayrouter.models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import org.junit.Test;
+
+public class StationTest {
+  private static final Station STATION =
+      new Station(0, "EW1", "Pasir Ris", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  @Test
+  public void testGetBytes() {
+    assertEquals(2, STATION.getLineCodeByteLength());
+    assertEquals('W', STATION.getLineCodeByte(1));
+    assertEquals(9, STATION.getNameByteLength());
+    assertEquals('R', STATION.getNameByte(6));
+  }
+
+  @Test
+  public void testPutBytes() {
+    ByteBuffer out = ByteBuffer.allocate(16);
+    STATION.putNameBytes(STATION.putLineCodeBytes(out).put((byte) ' '));
+
+    out.flip();
+    assertEquals(ByteBuffer.wrap(bytes("EW Pasir Ris")), out);
+  }
+
+  private static byte[] bytes(String str) {
+    return str.getBytes(StandardCharsets.UTF_8);
+  }
+}
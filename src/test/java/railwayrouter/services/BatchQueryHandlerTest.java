@@ -0,0 +1,133 @@
+package railwayrouter.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static railwayrouter.services.BatchQueryHandler.ERROR_STRING;
+import static railwayrouter.services.BatchQueryHandler.INVALID_QUERY_STRING;
+
+import com.opencsv.exceptions.CsvValidationException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class BatchQueryHandlerTest {
+
+  /** Answers "src-dest", after waiting for {@code latch} if the source is "Slow" */
+  private static class FakeQueryHandler extends QueryHandler {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger numQueries = new AtomicInteger();
+
+    FakeQueryHandler() {
+      super(new RouteFinder(), new NetworkSnapshotCache());
+    }
+
+    @Override
+    public String handleQuery(String src, String dest, String startDateTimeStr)
+        throws CsvValidationException {
+      numQueries.incrementAndGet();
+      if (src.equals("Fail")) throw new CsvValidationException("test exception");
+      if (src.equals("Slow")) {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return src + "-" + dest;
+    }
+  }
+
+  @Test
+  public void testHandleQueriesInInputOrder() throws IOException, InterruptedException {
+    FakeQueryHandler queryHandler = new FakeQueryHandler();
+    queryHandler.latch.countDown();
+    StringBuilder input = new StringBuilder("# source,destination,date time\n\n");
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      input.append(String.format("A%d,B%d,2021-01-28T07:00\n", i, i));
+      expected.append(String.format("> A%d,B%d,2021-01-28T07:00\nA%d-B%d\n\n", i, i, i, i));
+    }
+    StringWriter writer = new StringWriter();
+
+    long numQueries =
+        new BatchQueryHandler(queryHandler, 4, 8)
+            .handleQueries(new BufferedReader(new StringReader(input.toString())), writer);
+
+    assertEquals(100, numQueries);
+    assertEquals(expected.toString(), writer.toString());
+  }
+
+  @Test
+  public void testHandleQueriesInvalidQueryAndException()
+      throws IOException, InterruptedException {
+    FakeQueryHandler queryHandler = new FakeQueryHandler();
+    String input = "Buangkok\tKovan\t2021-01-28T07:00\nKovan\nFail,Kovan,2021-01-28T07:00\n";
+    StringWriter writer = new StringWriter();
+
+    new BatchQueryHandler(queryHandler, 2)
+        .handleQueries(new BufferedReader(new StringReader(input)), writer);
+
+    String expected =
+        "> Buangkok\tKovan\t2021-01-28T07:00\nBuangkok-Kovan\n\n"
+            + ("> Kovan\n" + INVALID_QUERY_STRING + "\n\n")
+            + ("> Fail,Kovan,2021-01-28T07:00\n" + ERROR_STRING + "\n\n");
+    assertEquals(expected, writer.toString());
+  }
+
+  @Test
+  public void testHandleQueriesBoundsQueriesInFlight() throws Exception {
+    FakeQueryHandler queryHandler = new FakeQueryHandler();
+    StringBuilder input = new StringBuilder("Slow,A,2021-01-28T07:00\n");
+    for (int i = 0; i < 10; i++) {
+      input.append("Fast,A,2021-01-28T07:00\n");
+    }
+    StringWriter writer = new StringWriter();
+    BatchQueryHandler batchQueryHandler = new BatchQueryHandler(queryHandler, 4, 3);
+
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                batchQueryHandler.handleQueries(
+                    new BufferedReader(new StringReader(input.toString())), writer);
+              } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    thread.start();
+    // the slow query holds back every response, so no more than 3 queries are read
+    TimeUnit.MILLISECONDS.sleep(200);
+    assertEquals(3, queryHandler.numQueries.get());
+    queryHandler.latch.countDown();
+    thread.join();
+
+    assertEquals(11, queryHandler.numQueries.get());
+    String expected =
+        "> Slow,A,2021-01-28T07:00\nSlow-A\n\n"
+            + "> Fast,A,2021-01-28T07:00\nFast-A\n\n".repeat(10);
+    assertEquals(expected, writer.toString());
+  }
+
+  @Test
+  public void testParseQuery() {
+    assertArrayEquals(
+        new String[] {"Buangkok", "Kovan", "2021-01-28T07:00"},
+        BatchQueryHandler.parseQuery("Buangkok, Kovan, 2021-01-28T07:00"));
+    assertArrayEquals(
+        new String[] {"Buangkok", "Kovan", "2021-01-28T07:00"},
+        BatchQueryHandler.parseQuery("Buangkok\tKovan\t2021-01-28T07:00"));
+    assertNull(BatchQueryHandler.parseQuery("Buangkok,Kovan"));
+    assertNull(BatchQueryHandler.parseQuery("Buangkok,Kovan,2021-01-28T07:00,extra"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNumThreads() {
+    new BatchQueryHandler(new FakeQueryHandler(), 0);
+  }
+}
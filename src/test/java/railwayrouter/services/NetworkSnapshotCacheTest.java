@@ -0,0 +1,160 @@
+package railwayrouter.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.opencsv.exceptions.CsvValidationException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import railwayrouter.models.NetworkEpochs;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.models.Station;
+import railwayrouter.utils.DataProcessor;
+import railwayrouter.utils.NetworkCompiler;
+
+public class NetworkSnapshotCacheTest {
+  private static final LocalDateTime HOUGANG_OPENING_DATE = LocalDate.of(2003, 6, 1).atStartOfDay();
+  private static final LocalDateTime KOVAN_OPENING_DATE = LocalDate.of(2003, 6, 20).atStartOfDay();
+  private static final LocalDateTime BUANGKOK_OPENING_DATE =
+      LocalDate.of(2006, 1, 7).atStartOfDay();
+
+  private NetworkSnapshotCache networkSnapshotCache;
+
+  @Before
+  public void setUp() {
+    networkSnapshotCache = new NetworkSnapshotCache();
+  }
+
+  @Test
+  public void testGetSnapshotAllOpen() throws CsvValidationException {
+    List<Station> expected =
+        List.of(
+            new Station(0, "NE2", "Buangkok", BUANGKOK_OPENING_DATE),
+            new Station(1, "NE3", "Hougang", HOUGANG_OPENING_DATE),
+            new Station(2, "NE4", "Kovan", KOVAN_OPENING_DATE));
+    NetworkSnapshot snapshot =
+        networkSnapshotCache.getSnapshot(LocalDateTime.of(2020, 10, 21, 7, 0));
+    assertEquals(3, snapshot.getEpoch());
+    assertEquals(expected, snapshot.getStations());
+    assertEquals(List.of(expected.get(0), expected.get(2)), snapshot.getAdjList().get(1));
+  }
+
+  @Test
+  public void testGetSnapshotSomeNotOpen() throws CsvValidationException {
+    List<Station> expected =
+        List.of(
+            new Station(0, "NE3", "Hougang", HOUGANG_OPENING_DATE),
+            new Station(1, "NE4", "Kovan", KOVAN_OPENING_DATE));
+    NetworkSnapshot snapshot =
+        networkSnapshotCache.getSnapshot(LocalDateTime.of(2003, 10, 21, 7, 0));
+    assertEquals(expected, snapshot.getStations());
+    assertEquals(List.of(expected.get(0)), snapshot.getNameToStationsMap().get("hougang"));
+  }
+
+  @Test
+  public void testGetSnapshotAllNotOpen() throws CsvValidationException {
+    NetworkSnapshot snapshot =
+        networkSnapshotCache.getSnapshot(LocalDateTime.of(1999, 10, 21, 7, 0));
+    assertEquals(0, snapshot.getEpoch());
+    assertEquals(List.of(), snapshot.getStations());
+    assertEquals(List.of(), snapshot.getAdjList());
+  }
+
+  @Test
+  public void testGetSnapshotStationOpeningAtStartDateTimeNotOpen() throws CsvValidationException {
+    NetworkSnapshot snapshot = networkSnapshotCache.getSnapshot(KOVAN_OPENING_DATE);
+    assertEquals(
+        List.of(new Station(0, "NE3", "Hougang", HOUGANG_OPENING_DATE)), snapshot.getStations());
+  }
+
+  @Test
+  public void testGetSnapshotSameEpochReturnsSameSnapshot() throws CsvValidationException {
+    assertSame(
+        networkSnapshotCache.getSnapshot(LocalDateTime.of(2003, 7, 1, 7, 0)),
+        networkSnapshotCache.getSnapshot(LocalDateTime.of(2005, 12, 31, 23, 59)));
+  }
+
+  @Test
+  public void testGetEpoch() {
+    LocalDateTime[] openingDates = {
+      HOUGANG_OPENING_DATE, KOVAN_OPENING_DATE, BUANGKOK_OPENING_DATE
+    };
+    assertEquals(0, NetworkSnapshotCache.getEpoch(openingDates, HOUGANG_OPENING_DATE));
+    assertEquals(1, NetworkSnapshotCache.getEpoch(openingDates, HOUGANG_OPENING_DATE.plusDays(1)));
+    assertEquals(1, NetworkSnapshotCache.getEpoch(openingDates, KOVAN_OPENING_DATE));
+    assertEquals(3, NetworkSnapshotCache.getEpoch(openingDates, LocalDateTime.MAX));
+  }
+
+  @Test
+  public void testGetSnapshotCompiledNetwork() throws CsvValidationException, IOException {
+    Path path = Files.createTempFile("network", ".bin");
+    NetworkCompiler.write(
+        NetworkSnapshotCache.buildNetworkEpochs(), DataProcessor.getStationMapChecksum(), path);
+    NetworkSnapshotCache compiledNetworkSnapshotCache = new NetworkSnapshotCache(path);
+
+    for (LocalDateTime startDateTime :
+        List.of(
+            LocalDateTime.of(1999, 10, 21, 7, 0),
+            LocalDateTime.of(2003, 10, 21, 7, 0),
+            LocalDateTime.of(2020, 10, 21, 7, 0))) {
+      NetworkSnapshot expected = networkSnapshotCache.getSnapshot(startDateTime);
+      NetworkSnapshot snapshot = compiledNetworkSnapshotCache.getSnapshot(startDateTime);
+      assertEquals(expected.getEpoch(), snapshot.getEpoch());
+      assertEquals(expected.getStations(), snapshot.getStations());
+      assertEquals(expected.getAdjList(), snapshot.getAdjList());
+      assertEquals(expected.getNameToStationsMap(), snapshot.getNameToStationsMap());
+    }
+  }
+
+  @Test
+  public void testGetSnapshotStaleCompiledNetworkParsesStationMap()
+      throws CsvValidationException, IOException {
+    Path path = Files.createTempFile("network", ".bin");
+    NetworkCompiler.write(
+        NetworkSnapshotCache.buildNetworkEpochs(), DataProcessor.getStationMapChecksum() + 1, path);
+    NetworkSnapshotCache compiledNetworkSnapshotCache = new NetworkSnapshotCache(path, false);
+
+    NetworkSnapshot snapshot =
+        compiledNetworkSnapshotCache.getSnapshot(LocalDateTime.of(2020, 10, 21, 7, 0));
+    assertEquals(3, snapshot.getStations().size());
+  }
+
+  @Test
+  public void testGetSnapshotCorruptCompiledNetworkParsesStationMap()
+      throws CsvValidationException, IOException {
+    Path path = Files.createTempFile("network", ".bin");
+    NetworkEpochs networkEpochs = NetworkSnapshotCache.buildNetworkEpochs();
+    NetworkCompiler.write(networkEpochs, DataProcessor.getStationMapChecksum(), path);
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+    // the last epoch ends with its targets, after its last offset
+    NetworkSnapshot last = networkEpochs.getSnapshot(networkEpochs.getNumSnapshots() - 1);
+    int lastOffsetPosition = bytes.limit() - 4 * (last.getGraph().getNumEdges() + 1);
+    bytes.putInt(lastOffsetPosition, bytes.getInt(lastOffsetPosition) + 1);
+    Files.write(path, bytes.array());
+    NetworkSnapshotCache compiledNetworkSnapshotCache = new NetworkSnapshotCache(path, false);
+
+    NetworkSnapshot snapshot =
+        compiledNetworkSnapshotCache.getSnapshot(LocalDateTime.of(2020, 10, 21, 7, 0));
+    assertEquals(3, snapshot.getStations().size());
+  }
+
+  @Test
+  public void testGetSnapshotNotCompiledNetworkParsesStationMap()
+      throws CsvValidationException, IOException {
+    Path path = Files.createTempFile("network", ".bin");
+    Files.writeString(path, "Station Code,Station Name,Opening Date\n");
+    NetworkSnapshotCache compiledNetworkSnapshotCache = new NetworkSnapshotCache(path);
+
+    NetworkSnapshot snapshot =
+        compiledNetworkSnapshotCache.getSnapshot(LocalDateTime.of(2020, 10, 21, 7, 0));
+    assertEquals(3, snapshot.getStations().size());
+  }
+}
@@ -6,6 +6,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static railwayrouter.services.QueryHandler.INVALID_DATE_TIME_STRING;
 import static railwayrouter.services.QueryHandler.INVALID_STATION_STRING;
+import static railwayrouter.services.QueryHandler.ROUTE_NOT_FOUND_STRING;
 import static railwayrouter.testutils.TestUtils.*;
 
 import com.opencsv.exceptions.CsvValidationException;
@@ -19,9 +20,14 @@ import org.mockito.Mock;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.Isochrone;
+import railwayrouter.models.ProfileSegment;
+import railwayrouter.models.QueryResult;
 import railwayrouter.models.Route;
 import railwayrouter.models.Station;
 import railwayrouter.models.TimeOfDay;
+import railwayrouter.models.TimedRoute;
 import railwayrouter.utils.DataProcessor;
 import railwayrouter.utils.ResponseBuilder;
 
@@ -132,7 +138,9 @@ public class QueryHandlerTest {
 
     doReturn(Optional.of(startDateTime)).when(spiedQueryHandler).getDateTime(startDateTimeStr);
     doReturn(List.of(HOUGANG), List.of(KOVAN)).when(spiedQueryHandler).getStations(any(), any());
-    doReturn(Optional.of(route)).when(mockRouteFinder).findRoute(any(), any(), any(), any());
+    doReturn(Optional.of(route))
+        .when(mockRouteFinder)
+        .findRoute(any(), any(), any(), any(CsrGraph.class));
 
     assertEquals(TEST_RESULT_STRING, spiedQueryHandler.handleQuery(src, dest, startDateTimeStr));
   }
@@ -218,4 +226,167 @@ public class QueryHandlerTest {
     assertEquals(
         INVALID_DATE_TIME_STRING, spiedQueryHandler.handleQuery(src, dest, emptyStartDateTimeStr));
   }
+
+  @Test
+  public void testResolveQuery() throws CsvValidationException {
+    String startDateTimeStr = "2020-01-20T07:00";
+    LocalDateTime startDateTime = LocalDateTime.of(2020, 1, 20, 7, 0);
+    Route route = new Route(100, List.of(HOUGANG, KOVAN), TimeOfDay.PEAK);
+
+    doReturn(Optional.of(startDateTime)).when(spiedQueryHandler).getDateTime(startDateTimeStr);
+    doReturn(List.of(HOUGANG), List.of(KOVAN)).when(spiedQueryHandler).getStations(any(), any());
+    doReturn(Optional.of(route))
+        .when(mockRouteFinder)
+        .findRoute(any(), any(), any(), any(CsrGraph.class));
+
+    assertEquals(
+        new QueryResult(route),
+        spiedQueryHandler.resolveQuery("Hougang", "Kovan", startDateTimeStr));
+  }
+
+  @Test
+  public void testResolveQueryRouteNotFound() throws CsvValidationException {
+    String startDateTimeStr = "2020-01-20T07:00";
+    LocalDateTime startDateTime = LocalDateTime.of(2020, 1, 20, 7, 0);
+
+    doReturn(Optional.of(startDateTime)).when(spiedQueryHandler).getDateTime(startDateTimeStr);
+    doReturn(List.of(HOUGANG), List.of(KOVAN)).when(spiedQueryHandler).getStations(any(), any());
+    doReturn(Optional.empty())
+        .when(mockRouteFinder)
+        .findRoute(any(), any(), any(), any(CsrGraph.class));
+
+    assertEquals(
+        new QueryResult(QueryResult.Status.ROUTE_NOT_FOUND, ROUTE_NOT_FOUND_STRING),
+        spiedQueryHandler.resolveQuery("Hougang", "Kovan", startDateTimeStr));
+  }
+
+  @Test
+  public void testResolveQueryRecordsMetrics() throws CsvValidationException {
+    String startDateTimeStr = "2020-01-20T07:00";
+    LocalDateTime startDateTime = LocalDateTime.of(2020, 1, 20, 7, 0);
+
+    doReturn(Optional.of(startDateTime)).when(spiedQueryHandler).getDateTime(startDateTimeStr);
+    doReturn(List.of(HOUGANG), List.of(KOVAN)).when(spiedQueryHandler).getStations(any(), any());
+    doReturn(Optional.empty())
+        .when(mockRouteFinder)
+        .findRoute(any(), any(), any(), any(CsrGraph.class));
+
+    spiedQueryHandler.resolveQuery("Hougang", "Kovan", startDateTimeStr);
+    spiedQueryHandler.resolveQuery("Hougang", "Kovan", "2020-01-20 07:00");
+
+    QueryMetrics metrics = spiedQueryHandler.getMetrics();
+    assertEquals(2, metrics.getQueries());
+    assertEquals(1, metrics.getRouteNotFoundQueries());
+    assertEquals(1, metrics.getInvalidDateTimeQueries());
+    assertEquals(2, metrics.getHistogram(QueryMetrics.Stage.PARSE).getCount());
+    assertEquals(1, metrics.getHistogram(QueryMetrics.Stage.SEARCH).getCount());
+    assertEquals(2, metrics.getHistogram(QueryMetrics.Stage.RESOLVE).getCount());
+  }
+
+  @Test
+  public void testResolveArriveByQuery() throws CsvValidationException {
+    String arriveByDateTimeStr = "2020-01-20T09:00";
+    LocalDateTime arriveByDateTime = LocalDateTime.of(2020, 1, 20, 9, 0);
+    TimedRoute route =
+        new TimedRoute(
+            List.of(HOUGANG, KOVAN),
+            TimeOfDay.PEAK,
+            arriveByDateTime.minusMinutes(10),
+            arriveByDateTime);
+
+    doReturn(Optional.of(arriveByDateTime))
+        .when(spiedQueryHandler)
+        .getDateTime(arriveByDateTimeStr);
+    doReturn(List.of(HOUGANG), List.of(KOVAN)).when(spiedQueryHandler).getStations(any(), any());
+    doReturn(Optional.of(route))
+        .when(mockRouteFinder)
+        .findArriveByRoute(any(), any(), any(), any(CsrGraph.class));
+
+    assertEquals(
+        new QueryResult(route),
+        spiedQueryHandler.resolveArriveByQuery("Hougang", "Kovan", arriveByDateTimeStr));
+  }
+
+  @Test
+  public void testResolveArriveByQueryInvalidDateTime() throws CsvValidationException {
+    assertEquals(
+        new QueryResult(QueryResult.Status.INVALID_DATE_TIME, INVALID_DATE_TIME_STRING),
+        spiedQueryHandler.resolveArriveByQuery("Hougang", "Kovan", "2020-01-20 09:00"));
+  }
+
+  @Test
+  public void testResolveArriveByQueryRecordsMetrics() throws CsvValidationException {
+    spiedQueryHandler.resolveArriveByQuery("Hougang", "Kovan", "2020-01-20 09:00");
+
+    QueryMetrics metrics = spiedQueryHandler.getMetrics();
+    assertEquals(1, metrics.getQueries());
+    assertEquals(1, metrics.getInvalidDateTimeQueries());
+  }
+
+  @Test
+  public void testHandleIsochroneQuery() throws CsvValidationException {
+    String startDateTimeStr = "2020-01-20T08:00";
+    int[] budgets = {15, 30};
+    Isochrone isochrone = new Isochrone(budgets, List.of(KOVAN, HOUGANG), new int[] {0, 12});
+
+    doReturn(Optional.of(LocalDateTime.of(2020, 1, 20, 8, 0)))
+        .when(spiedQueryHandler)
+        .getDateTime(startDateTimeStr);
+    doReturn(List.of(KOVAN)).when(spiedQueryHandler).getStations(any(), any());
+    doReturn(isochrone)
+        .when(mockRouteFinder)
+        .findIsochrone(any(), any(), any(), any(CsrGraph.class));
+    when(ResponseBuilder.buildIsochroneResponse(isochrone)).thenReturn(TEST_RESULT_STRING);
+
+    assertEquals(
+        TEST_RESULT_STRING,
+        spiedQueryHandler.handleIsochroneQuery("Kovan", startDateTimeStr, budgets));
+  }
+
+  @Test
+  public void testHandleIsochroneQueryInvalidStation() throws CsvValidationException {
+    String startDateTimeStr = "2020-01-20T08:00";
+
+    doReturn(Optional.of(LocalDateTime.of(2020, 1, 20, 8, 0)))
+        .when(spiedQueryHandler)
+        .getDateTime(startDateTimeStr);
+    doReturn(List.of()).when(spiedQueryHandler).getStations(any(), any());
+
+    assertEquals(
+        INVALID_STATION_STRING,
+        spiedQueryHandler.handleIsochroneQuery("Kovan", startDateTimeStr, new int[] {15}));
+    assertEquals(1, spiedQueryHandler.getMetrics().getInvalidStationQueries());
+  }
+
+  @Test
+  public void testHandleProfileQuery() throws CsvValidationException {
+    LocalDateTime firstDepartureDateTime = LocalDateTime.of(2020, 1, 20, 17, 0);
+    List<ProfileSegment> segments =
+        List.of(
+            new ProfileSegment(
+                firstDepartureDateTime,
+                firstDepartureDateTime.plusMinutes(30),
+                new Route(10, List.of(HOUGANG, KOVAN), TimeOfDay.NONPEAK)));
+
+    doReturn(List.of(HOUGANG), List.of(KOVAN)).when(spiedQueryHandler).getStations(any(), any());
+    doReturn(segments)
+        .when(mockRouteFinder)
+        .findProfile(any(), any(), any(), any(), any(CsrGraph.class));
+    when(ResponseBuilder.buildProfileResponse(segments)).thenReturn(TEST_RESULT_STRING);
+
+    assertEquals(
+        TEST_RESULT_STRING,
+        spiedQueryHandler.handleProfileQuery(
+            "Hougang", "Kovan", "2020-01-20T17:00", "2020-01-20T17:30"));
+    assertEquals(1, spiedQueryHandler.getMetrics().getRoutesFound());
+  }
+
+  @Test
+  public void testHandleProfileQueryLastDepartureBeforeFirst() throws CsvValidationException {
+    assertEquals(
+        INVALID_DATE_TIME_STRING,
+        spiedQueryHandler.handleProfileQuery(
+            "Hougang", "Kovan", "2020-01-20T17:30", "2020-01-20T17:00"));
+    assertEquals(1, spiedQueryHandler.getMetrics().getInvalidDateTimeQueries());
+  }
 }
@@ -0,0 +1,90 @@
+package railwayrouter.services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import railwayrouter.models.QueryResult;
+import railwayrouter.models.Route;
+import railwayrouter.models.TimeOfDay;
+
+public class QueryMetricsTest {
+  private static final Route ROUTE = new Route(12, List.of(), TimeOfDay.PEAK);
+
+  @Test
+  public void testRecordResult() {
+    QueryMetrics metrics = new QueryMetrics(new RouteFinder(), new RouteCache(0));
+    long startNanos = System.nanoTime();
+    metrics.recordResult(
+        startNanos,
+        new QueryResult(QueryResult.Status.INVALID_STATION, QueryHandler.INVALID_STATION_STRING));
+    metrics.recordResult(startNanos, new QueryResult(ROUTE));
+    metrics.recordResult(startNanos, new QueryResult(ROUTE));
+
+    assertEquals(3, metrics.getQueries());
+    assertEquals(2, metrics.getRoutesFound());
+    assertEquals(1, metrics.getInvalidStationQueries());
+    assertEquals(0, metrics.getInvalidDateTimeQueries());
+    assertEquals(0, metrics.getRouteNotFoundQueries());
+    assertEquals(3, metrics.getHistogram(QueryMetrics.Stage.RESOLVE).getCount());
+  }
+
+  @Test
+  public void testRecordOutcome() {
+    QueryMetrics metrics = new QueryMetrics(new RouteFinder(), new RouteCache(0));
+    metrics.recordOutcome(System.nanoTime(), QueryResult.Status.ROUTE_NOT_FOUND);
+
+    assertEquals(1, metrics.getQueries());
+    assertEquals(1, metrics.getRouteNotFoundQueries());
+    assertEquals(1, metrics.getHistogram(QueryMetrics.Stage.RESOLVE).getCount());
+  }
+
+  @Test
+  public void testRecordChainsStages() {
+    QueryMetrics metrics = new QueryMetrics(new RouteFinder(), new RouteCache(0));
+    long startNanos = System.nanoTime();
+    long stageNanos = metrics.record(QueryMetrics.Stage.PARSE, startNanos);
+    long endNanos = metrics.record(QueryMetrics.Stage.SNAPSHOT, stageNanos);
+
+    long parseNanos = metrics.getHistogram(QueryMetrics.Stage.PARSE).getMax();
+    long snapshotNanos = metrics.getHistogram(QueryMetrics.Stage.SNAPSHOT).getMax();
+    assertEquals(endNanos - startNanos, parseNanos + snapshotNanos);
+  }
+
+  @Test
+  public void testGetLatencyNanos() {
+    QueryMetrics metrics = new QueryMetrics(new RouteFinder(), new RouteCache(0));
+    metrics.getHistogram(QueryMetrics.Stage.SEARCH).record(3000);
+
+    Map<String, Long> latencies = metrics.getLatencyNanos();
+    assertEquals(5 * QueryMetrics.Stage.values().length, latencies.size());
+    assertEquals(1, (long) latencies.get("search.count"));
+    assertEquals(3000, (long) latencies.get("search.p50"));
+    assertEquals(3000, (long) latencies.get("search.p999"));
+    assertEquals(3000, (long) latencies.get("search.max"));
+    assertEquals(0, (long) latencies.get("parse.count"));
+  }
+
+  @Test
+  public void testDump() {
+    QueryMetrics metrics = new QueryMetrics(new RouteFinder(), new RouteCache(0));
+    metrics.getHistogram(QueryMetrics.Stage.PARSE).record(900);
+    metrics.getHistogram(QueryMetrics.Stage.PARSE).record(3100);
+    metrics.recordResult(
+        System.nanoTime(),
+        new QueryResult(QueryResult.Status.ROUTE_NOT_FOUND, QueryHandler.ROUTE_NOT_FOUND_STRING));
+
+    String[] lines = metrics.dump().split("\n");
+    assertEquals(QueryMetrics.Stage.values().length + 4, lines.length);
+    assertEquals("stage          count     p50 us     p99 us    p999 us     max us", lines[0]);
+    assertEquals("parse              2        0.9        3.1        3.1        3.1", lines[1]);
+    assertEquals("snapshot           0        0.0        0.0        0.0        0.0", lines[2]);
+    assertEquals(
+        "queries: 1, routes found: 0, invalid date time: 0, invalid station: 0,"
+            + " route not found: 1",
+        lines[lines.length - 3]);
+    assertEquals("settled nodes: 0, pushes: 0, relaxations: 0", lines[lines.length - 2]);
+    assertEquals("route cache hits: 0, route cache misses: 0", lines[lines.length - 1]);
+  }
+}
@@ -0,0 +1,226 @@
+package railwayrouter.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import railwayrouter.models.QueryResult;
+import railwayrouter.models.Route;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+public class QueryServerTest {
+  private static final Station BUANGKOK =
+      new Station(0, "NE2", "Buangkok", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station HOUGANG =
+      new Station(1, "NE3", "Hougang", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  /** Finds a route from Buangkok to Hougang only, and fails for Error */
+  private static class FakeQueryHandler extends QueryHandler {
+    FakeQueryHandler() {
+      super(new RouteFinder(), new NetworkSnapshotCache());
+    }
+
+    @Override
+    public QueryResult resolveQuery(String src, String dest, String startDateTimeStr) {
+      if (src.equals("Error")) throw new IllegalStateException("test exception");
+      if (!src.equals("Buangkok")) {
+        return new QueryResult(QueryResult.Status.INVALID_STATION, INVALID_STATION_STRING);
+      }
+      if (!dest.equals("Hougang")) {
+        return new QueryResult(QueryResult.Status.ROUTE_NOT_FOUND, ROUTE_NOT_FOUND_STRING);
+      }
+      return new QueryResult(new Route(12, List.of(BUANGKOK, HOUGANG), TimeOfDay.PEAK));
+    }
+
+    @Override
+    public List<String> completeStationName(String prefix, int limit) {
+      if (prefix.equals("Error")) throw new IllegalStateException("test exception");
+      return List.of("Buangkok", "Hougang").subList(0, Math.min(limit, 2));
+    }
+  }
+
+  private ExecutorService executor;
+  private QueryServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    executor = QueryServer.newExecutor(2);
+    server =
+        new QueryServer(new FakeQueryHandler(), new InetSocketAddress("localhost", 0), executor);
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testRoute() throws IOException {
+    HttpURLConnection connection = get("/route?src=Buangkok&dest=Hougang&at=2021-01-28T07:00");
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("text/plain; charset=utf-8", connection.getHeaderField("Content-Type"));
+    assertEquals(
+        "Travel from Buangkok to Hougang during peak hours\n"
+            + "Time: 12 minutes\n"
+            + "Route: [NE2, NE3]\n"
+            + "\n"
+            + "Take NE line from Buangkok to Hougang",
+        read(connection.getInputStream()));
+  }
+
+  @Test
+  public void testRouteJson() throws IOException {
+    HttpURLConnection connection =
+        get("/route?src=Buangkok&dest=Hougang&at=2021-01-28T07%3A00&format=json");
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("application/json; charset=utf-8", connection.getHeaderField("Content-Type"));
+    assertEquals(
+        "{\"source\":\"Buangkok\",\"destination\":\"Hougang\",\"timeOfDay\":\"peak\","
+            + "\"minutes\":12,\"route\":[\"NE2\",\"NE3\"],\"steps\":[{\"type\":\"ride\","
+            + "\"line\":\"NE\",\"from\":\"Buangkok\",\"to\":\"Hougang\"}]}",
+        read(connection.getInputStream()));
+  }
+
+  @Test
+  public void testRouteBinary() throws IOException {
+    HttpURLConnection connection = get("/route?src=Buangkok&dest=Hougang&at=2021-01-28T07:00");
+    connection.setRequestProperty("Accept", "application/octet-stream");
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("application/octet-stream", connection.getHeaderField("Content-Type"));
+    ByteBuffer body = ByteBuffer.wrap(connection.getInputStream().readAllBytes());
+    assertEquals(1, body.get()); // version
+    assertEquals(TimeOfDay.PEAK.ordinal(), body.get());
+    assertEquals(12, body.getInt());
+    assertEquals(2, body.getShort());
+  }
+
+  @Test
+  public void testRouteNotFound() throws IOException {
+    HttpURLConnection connection = get("/route?src=Buangkok&dest=Kovan&at=2021-01-28T07:00");
+    assertEquals(404, connection.getResponseCode());
+    assertEquals(QueryHandler.ROUTE_NOT_FOUND_STRING, read(connection.getErrorStream()));
+  }
+
+  @Test
+  public void testInvalidStationJson() throws IOException {
+    HttpURLConnection connection = get("/route?src=Nowhere&dest=Hougang&at=2021-01-28T07:00");
+    connection.setRequestProperty("Accept", "application/json");
+    assertEquals(400, connection.getResponseCode());
+    assertEquals(
+        "{\"error\":\"" + QueryHandler.INVALID_STATION_STRING + "\"}",
+        read(connection.getErrorStream()));
+  }
+
+  @Test
+  public void testMissingParam() throws IOException {
+    HttpURLConnection connection = get("/route?src=Buangkok&dest=Hougang");
+    assertEquals(400, connection.getResponseCode());
+    assertEquals("Missing parameter at", read(connection.getErrorStream()));
+  }
+
+  @Test
+  public void testQueryFails() throws IOException {
+    HttpURLConnection connection = get("/route?src=Error&dest=Hougang&at=2021-01-28T07:00");
+    assertEquals(500, connection.getResponseCode());
+    assertEquals(QueryServer.ERROR_STRING, read(connection.getErrorStream()));
+  }
+
+  @Test
+  public void testPathNotFound() throws IOException {
+    String params = "?src=Buangkok&dest=Hougang&at=2021-01-28T07:00";
+    assertEquals(404, get("/routes" + params).getResponseCode());
+    assertEquals(404, get("/route/x" + params).getResponseCode());
+    assertEquals(404, get("/stations/x?q=Bu").getResponseCode());
+    assertEquals(404, get("/metricsx").getResponseCode());
+  }
+
+  @Test
+  public void testMethodNotAllowed() throws IOException {
+    HttpURLConnection connection = get("/route?src=Buangkok&dest=Hougang&at=2021-01-28T07:00");
+    connection.setRequestMethod("DELETE");
+    assertEquals(405, connection.getResponseCode());
+  }
+
+  @Test
+  public void testStations() throws IOException {
+    HttpURLConnection connection = get("/stations?q=b&limit=1");
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("application/json; charset=utf-8", connection.getHeaderField("Content-Type"));
+    assertEquals("{\"stations\":[\"Buangkok\"]}", read(connection.getInputStream()));
+
+    connection = get("/stations?q=b");
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("{\"stations\":[\"Buangkok\",\"Hougang\"]}", read(connection.getInputStream()));
+  }
+
+  @Test
+  public void testStationsInvalidParams() throws IOException {
+    HttpURLConnection connection = get("/stations?limit=1");
+    assertEquals(400, connection.getResponseCode());
+    assertEquals("{\"error\":\"Missing parameter q\"}", read(connection.getErrorStream()));
+
+    for (String limit : new String[] {"0", "101", "ten"}) {
+      connection = get("/stations?q=b&limit=" + limit);
+      assertEquals(400, connection.getResponseCode());
+      assertEquals(
+          "{\"error\":\"" + QueryServer.INVALID_LIMIT_STRING + "\"}",
+          read(connection.getErrorStream()));
+    }
+  }
+
+  @Test
+  public void testStationsFails() throws IOException {
+    HttpURLConnection connection = get("/stations?q=Error");
+    assertEquals(500, connection.getResponseCode());
+  }
+
+  @Test
+  public void testMetrics() throws IOException {
+    get("/route?src=Buangkok&dest=Hougang&at=2021-01-28T07:00").getResponseCode();
+
+    HttpURLConnection connection = get("/metrics");
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("text/plain; charset=utf-8", connection.getHeaderField("Content-Type"));
+    String body = read(connection.getInputStream());
+    assertTrue(body.startsWith("stage          count     p50 us"));
+    // the fake query handler skips every other stage
+    assertTrue(body.contains("\nrender             1 "));
+    assertTrue(body.contains("\nsearch             0 "));
+  }
+
+  @Test
+  public void testParseQueryString() {
+    assertEquals(
+        Map.of("src", "Holland Village", "dest", "Boon Keng", "at", "2021-01-28T07:00"),
+        QueryServer.parseQueryString(
+            "src=Holland+Village&dest=Boon%20Keng&at=2021-01-28T07%3A00&src=Kovan"));
+    assertEquals(Map.of(), QueryServer.parseQueryString(null));
+  }
+
+  private HttpURLConnection get(String path) throws IOException {
+    URL url = new URL("http", "localhost", server.getPort(), path);
+    return (HttpURLConnection) url.openConnection();
+  }
+
+  private static String read(InputStream in) throws IOException {
+    try (in) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
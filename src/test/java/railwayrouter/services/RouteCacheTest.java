@@ -0,0 +1,132 @@
+package railwayrouter.services;
+
+import static org.junit.Assert.assertEquals;
+import static railwayrouter.utils.DataProcessor.generateAdjList;
+import static railwayrouter.utils.DataProcessor.generateLineCodeToStationsMap;
+import static railwayrouter.utils.DataProcessor.generateNameToStationsMap;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.models.Route;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+public class RouteCacheTest {
+  private static final Station BUANGKOK =
+      new Station(0, "NE2", "Buangkok", LocalDate.of(2006, 1, 7).atStartOfDay());
+  private static final Station HOUGANG =
+      new Station(1, "NE3", "Hougang", LocalDate.of(2003, 6, 1).atStartOfDay());
+  private static final Station KOVAN =
+      new Station(2, "NE4", "Kovan", LocalDate.of(2003, 6, 20).atStartOfDay());
+
+  // Monday, 24 minutes from Buangkok to Kovan during peak hours
+  private static final LocalDateTime PEAK_DATE_TIME = LocalDateTime.of(2021, 1, 25, 7, 0);
+
+  /** Counts the searches run */
+  private static class CountingRouteFinder extends RouteFinder {
+    int numSearches;
+
+    @Override
+    public Optional<Route> findRoute(
+        List<Station> srcStations,
+        List<Station> destStations,
+        LocalDateTime startDateTime,
+        CsrGraph graph) {
+      numSearches++;
+      return super.findRoute(srcStations, destStations, startDateTime, graph);
+    }
+  }
+
+  private CountingRouteFinder routeFinder;
+  private NetworkSnapshot snapshot;
+
+  @Before
+  public void setUp() {
+    routeFinder = new CountingRouteFinder();
+    List<Station> stations = List.of(BUANGKOK, HOUGANG, KOVAN);
+    Map<String, List<Station>> lineCodeToStationsMap = generateLineCodeToStationsMap(stations);
+    Map<String, List<Station>> nameToStationsMap = generateNameToStationsMap(stations);
+    List<List<Station>> adjList = generateAdjList(nameToStationsMap, lineCodeToStationsMap);
+    snapshot = new NetworkSnapshot(3, stations, lineCodeToStationsMap, nameToStationsMap, adjList);
+  }
+
+  @Test
+  public void testFindRouteSameTimeOfDayHit() {
+    RouteCache routeCache = new RouteCache(10);
+    Route expected = new Route(24, List.of(BUANGKOK, HOUGANG, KOVAN), TimeOfDay.PEAK);
+
+    assertEquals(Optional.of(expected), findRoute(routeCache, PEAK_DATE_TIME));
+    assertEquals(Optional.of(expected), findRoute(routeCache, PEAK_DATE_TIME.plusMinutes(47)));
+    // the next day, still during peak hours
+    assertEquals(Optional.of(expected), findRoute(routeCache, PEAK_DATE_TIME.plusDays(1)));
+
+    assertEquals(1, routeFinder.numSearches);
+    assertEquals(2, routeCache.getHitCount());
+    assertEquals(1, routeCache.getMissCount());
+  }
+
+  @Test
+  public void testFindRouteCrossesTimeOfDayMiss() {
+    RouteCache routeCache = new RouteCache(10);
+    findRoute(routeCache, PEAK_DATE_TIME);
+    // 0850 + 24 minutes ends after peak hours
+    findRoute(routeCache, PEAK_DATE_TIME.plusMinutes(110));
+
+    assertEquals(2, routeFinder.numSearches);
+    assertEquals(0, routeCache.getHitCount());
+  }
+
+  @Test
+  public void testFindRouteCrossingTimeOfDayNotCached() {
+    RouteCache routeCache = new RouteCache(10);
+    findRoute(routeCache, PEAK_DATE_TIME.plusMinutes(110));
+    assertEquals(0, routeCache.size());
+  }
+
+  @Test
+  public void testFindRouteFrequenciesReplacedMiss() {
+    RouteCache routeCache = new RouteCache(10);
+    findRoute(routeCache, PEAK_DATE_TIME);
+    routeFinder.setFrequencyMap(
+        Map.of(
+            TimeOfDay.PEAK, Map.of("NE", 5, "lineChange", 1),
+            TimeOfDay.NIGHT, Map.of("NE", 5, "lineChange", 1),
+            TimeOfDay.NONPEAK, Map.of("NE", 5, "lineChange", 1)));
+
+    Route expected = new Route(10, List.of(BUANGKOK, HOUGANG, KOVAN), TimeOfDay.PEAK);
+    assertEquals(Optional.of(expected), findRoute(routeCache, PEAK_DATE_TIME));
+    assertEquals(2, routeFinder.numSearches);
+  }
+
+  @Test
+  public void testFindRouteEviction() {
+    RouteCache routeCache = new RouteCache(1);
+    findRoute(routeCache, PEAK_DATE_TIME);
+    routeCache.findRoute(routeFinder, List.of(KOVAN), List.of(BUANGKOK), PEAK_DATE_TIME, snapshot);
+
+    assertEquals(1, routeCache.size());
+    assertEquals(1, routeCache.getEvictionCount());
+  }
+
+  @Test
+  public void testFindRouteDisabled() {
+    RouteCache routeCache = new RouteCache(0);
+    findRoute(routeCache, PEAK_DATE_TIME);
+    findRoute(routeCache, PEAK_DATE_TIME);
+
+    assertEquals(2, routeFinder.numSearches);
+    assertEquals(0, routeCache.size());
+  }
+
+  private Optional<Route> findRoute(RouteCache routeCache, LocalDateTime startDateTime) {
+    return routeCache.findRoute(
+        routeFinder, List.of(BUANGKOK), List.of(KOVAN), startDateTime, snapshot);
+  }
+}
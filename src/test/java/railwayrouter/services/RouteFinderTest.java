@@ -1,14 +1,23 @@
 package railwayrouter.services;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 import static railwayrouter.testutils.TestUtils.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -16,9 +25,17 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import railwayrouter.models.Constants;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.Isochrone;
+import railwayrouter.models.ProfileSegment;
 import railwayrouter.models.Route;
+import railwayrouter.models.SearchEngine;
+import railwayrouter.models.SearchStats;
 import railwayrouter.models.Station;
+import railwayrouter.models.StationNameIndex;
 import railwayrouter.models.TimeOfDay;
+import railwayrouter.models.TimedRoute;
+import railwayrouter.models.TravelTimeMatrix;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest(Constants.class)
@@ -467,4 +484,1170 @@ public class RouteFinderTest {
         new Route(22, List.of(station0, station1, station2, station3), TimeOfDay.NONPEAK);
     assertEquals(expected, spiedRouteFinder.dijkstra(station0, station3, startDateTime, adjList));
   }
+
+  @Test
+  /** 0 (NS) - 1 - 2 - 3 | 4 (CC) - 5 | 6 (NE) - 7 - 8 - 3 */
+  public void testDijkstraCsrGraphMultipleTransfer() {
+    LocalDateTime startDateTime = VALID_PEAK_DATE_TIME;
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NS1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NS2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NS3", "Station C", stationOpenDateTime);
+    Station station3 = new Station(3, "NS4", "Station D", stationOpenDateTime);
+    Station station4 = new Station(4, "CC1", "Station B", stationOpenDateTime);
+    Station station5 = new Station(5, "CC2", "Station E", stationOpenDateTime);
+    Station station6 = new Station(6, "NE1", "Station E", stationOpenDateTime);
+    Station station7 = new Station(7, "NE2", "Station F", stationOpenDateTime);
+    Station station8 = new Station(8, "NE3", "Station G", stationOpenDateTime);
+
+    List<Station> stations =
+        List.of(
+            station0,
+            station1,
+            station2,
+            station3,
+            station4,
+            station5,
+            station6,
+            station7,
+            station8);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(station1),
+            List.of(station0, station2, station4),
+            List.of(station1, station3),
+            List.of(station2, station8),
+            List.of(station1, station5),
+            List.of(station4, station6),
+            List.of(station5, station7),
+            List.of(station6, station8),
+            List.of(station3, station7));
+
+    Route expected =
+        new Route(
+            15,
+            List.of(station0, station1, station4, station5, station6, station7, station8, station3),
+            TimeOfDay.PEAK);
+    assertEquals(
+        expected,
+        spiedRouteFinder.dijkstra(
+            station0, station3, startDateTime, CsrGraph.fromAdjList(stations, adjList)));
+  }
+
+  @Test
+  /** 0 (peak) - 1 - 2 (non-peak) - 3 */
+  public void testDijkstraCsrGraphPeakToNonPeak() {
+    LocalDateTime startDateTime = VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME;
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NS1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NS2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NS3", "Station C", stationOpenDateTime);
+    Station station3 = new Station(3, "NS4", "Station D", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(
+            List.of(station1),
+            List.of(station0, station2),
+            List.of(station1, station3),
+            List.of(station2));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2, station3), adjList);
+
+    Route expected = new Route(23, List.of(station0, station1, station2, station3), TimeOfDay.PEAK);
+    assertEquals(expected, spiedRouteFinder.dijkstra(station0, station3, startDateTime, graph));
+  }
+
+  @Test
+  /** Night start, CG line is not operating 0 - 1 | 2 (closed) - 3 */
+  public void testDijkstraCsrGraphNoRouteTransferLineClosed() {
+    LocalDateTime startDateTime = VALID_NIGHT_DATE_TIME;
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "CG3", "Station B", stationOpenDateTime);
+    Station station3 = new Station(3, "CG4", "Station D", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(
+            List.of(station1),
+            List.of(station0, station2),
+            List.of(station1, station3),
+            List.of(station2));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2, station3), adjList);
+
+    Route expected = null;
+    assertEquals(expected, spiedRouteFinder.dijkstra(station0, station3, startDateTime, graph));
+  }
+
+  @Test
+  public void testFindRouteCsrGraphMultiSourceDest() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+
+    Route expected = new Route(2, List.of(SERANGOON_2, LORONG_CHUAN), TimeOfDay.PEAK);
+    assertEquals(
+        Optional.of(expected),
+        spiedRouteFinder.findRoute(
+            List.of(SERANGOON, SERANGOON_2),
+            List.of(LORONG_CHUAN, LORONG_CHUAN_2),
+            VALID_PEAK_DATE_TIME,
+            graph));
+  }
+
+  @Test
+  /**
+   * 2 mins before peak, CG line is not operating at night. Transferring 0 (NE) | 1 (CG) first
+   * reaches the CG line once it operates, so the route starting from 0 is the only one. 0 | 1 - 2
+   */
+  public void testFindRouteCsrGraphTransferBetweenSourcesUntilLineOperates() {
+    LocalDateTime startDateTime = VALID_2_MINS_BEFORE_PEAK_DATE_TIME;
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "CG1", "Station A", stationOpenDateTime);
+    Station station2 = new Station(2, "CG2", "Station B", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(List.of(station1), List.of(station0, station2), List.of(station1));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2), adjList);
+
+    Route expected = new Route(9, List.of(station0, station1, station2), TimeOfDay.NIGHT);
+    assertEquals(
+        Optional.of(expected),
+        spiedRouteFinder.findRoute(
+            List.of(station1, station0), List.of(station2), startDateTime, graph));
+  }
+
+  @Test
+  public void testFindRouteCsrGraphEmptySource() {
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(BUANGKOK), List.of(List.of()));
+    assertEquals(
+        Optional.empty(),
+        spiedRouteFinder.findRoute(List.of(), List.of(BUANGKOK), VALID_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  /** 0 - 1 - 2 - 3, stops once 1 is solved */
+  public void testDijkstraStopsAtDest() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE3", "Station C", stationOpenDateTime);
+    Station station3 = new Station(3, "NE4", "Station D", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(
+            List.of(station1),
+            List.of(station0, station2),
+            List.of(station1, station3),
+            List.of(station2));
+    SearchStats stats = new SearchStats();
+
+    Route expected = new Route(1, List.of(station0, station1), TimeOfDay.PEAK);
+    assertEquals(
+        expected,
+        spiedRouteFinder.dijkstra(station0, station1, VALID_PEAK_DATE_TIME, adjList, stats));
+    assertEquals(2, stats.getSettledNodes());
+    assertEquals(2, stats.getPushes());
+    assertEquals(1, stats.getRelaxations());
+  }
+
+  @Test
+  /** 0 - 1 - 2 - 3, stops once 1 is solved */
+  public void testFindRouteCsrGraphStopsAtDest() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE3", "Station C", stationOpenDateTime);
+    Station station3 = new Station(3, "NE4", "Station D", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(
+            List.of(station1),
+            List.of(station0, station2),
+            List.of(station1, station3),
+            List.of(station2));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2, station3), adjList);
+    SearchStats stats = new SearchStats();
+
+    Route expected = new Route(1, List.of(station0, station1), TimeOfDay.PEAK);
+    assertEquals(
+        Optional.of(expected),
+        spiedRouteFinder.findRoute(
+            List.of(station0), List.of(station1), VALID_PEAK_DATE_TIME, graph, stats));
+    assertEquals(2, stats.getSettledNodes());
+    assertEquals(2, stats.getPushes());
+    assertEquals(1, stats.getRelaxations());
+  }
+
+  @Test
+  /** 0 - 1 - 2 - 3, only the searches not given a SearchStats are added to the totals */
+  public void testGetTotalSearchStats() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE3", "Station C", stationOpenDateTime);
+    Station station3 = new Station(3, "NE4", "Station D", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(
+            List.of(station1),
+            List.of(station0, station2),
+            List.of(station1, station3),
+            List.of(station2));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2, station3), adjList);
+
+    for (int i = 0; i < 2; i++) {
+      spiedRouteFinder.findRoute(List.of(station0), List.of(station1), VALID_PEAK_DATE_TIME, graph);
+    }
+    spiedRouteFinder.findRoute(
+        List.of(station0), List.of(station1), VALID_PEAK_DATE_TIME, graph, new SearchStats());
+
+    SearchStats stats = spiedRouteFinder.getTotalSearchStats();
+    assertEquals(4, stats.getSettledNodes());
+    assertEquals(4, stats.getPushes());
+    assertEquals(2, stats.getRelaxations());
+  }
+
+  @Test
+  /** 0 - 1 - 2, NE line is closed after the frequency map is replaced */
+  public void testSetFrequencyMap() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE3", "Station C", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(List.of(station1), List.of(station0, station2), List.of(station1));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2), adjList);
+
+    Route expected = new Route(2, List.of(station0, station1, station2), TimeOfDay.PEAK);
+    assertEquals(expected, routeFinder.dijkstra(station0, station2, VALID_PEAK_DATE_TIME, graph));
+
+    routeFinder.setFrequencyMap(
+        Map.of(
+            TimeOfDay.PEAK, Map.of("NE", 3, "lineChange", 1),
+            TimeOfDay.NIGHT, Map.of("lineChange", 1),
+            TimeOfDay.NONPEAK, Map.of("lineChange", 1)));
+    expected = new Route(6, List.of(station0, station1, station2), TimeOfDay.PEAK);
+    assertEquals(expected, routeFinder.dijkstra(station0, station2, VALID_PEAK_DATE_TIME, graph));
+
+    routeFinder.setFrequencyMap(
+        Map.of(
+            TimeOfDay.PEAK, Map.of("lineChange", 1),
+            TimeOfDay.NIGHT, Map.of("lineChange", 1),
+            TimeOfDay.NONPEAK, Map.of("lineChange", 1)));
+    assertEquals(null, routeFinder.dijkstra(station0, station2, VALID_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  public void testFindRouteCsrGraphDialSameAsDijkstra() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    RouteFinder dialRouteFinder = new RouteFinder(SearchEngine.DIAL);
+
+    for (LocalDateTime startDateTime :
+        List.of(
+            VALID_PEAK_DATE_TIME, VALID_NIGHT_DATE_TIME, VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME)) {
+      for (Station src : stations) {
+        for (Station dest : stations) {
+          assertEquals(
+              routeFinder.findRoute(List.of(src), List.of(dest), startDateTime, graph),
+              dialRouteFinder.findRoute(List.of(src), List.of(dest), startDateTime, graph));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFindRouteCsrGraphAltSameAsDijkstra() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    RouteFinder altRouteFinder = new RouteFinder(SearchEngine.ALT);
+
+    for (LocalDateTime startDateTime :
+        List.of(
+            VALID_PEAK_DATE_TIME, VALID_NIGHT_DATE_TIME, VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME)) {
+      for (Station src : stations) {
+        for (Station dest : stations) {
+          assertEquals(
+              routeFinder.findRoute(List.of(src), List.of(dest), startDateTime, graph),
+              altRouteFinder.findRoute(List.of(src), List.of(dest), startDateTime, graph));
+        }
+      }
+      List<Station> srcStations = List.of(SERANGOON, SERANGOON_2);
+      List<Station> destStations = List.of(BUANGKOK, LORONG_CHUAN_2);
+      assertEquals(
+          routeFinder.findRoute(srcStations, destStations, startDateTime, graph),
+          altRouteFinder.findRoute(srcStations, destStations, startDateTime, graph));
+    }
+  }
+
+  @Test
+  /** 0 - 1 - 2 - 3 - 4, where the search from 2 to 4 never settles 0 or 1 */
+  public void testFindRouteCsrGraphAltSettlesCorridor() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+    List<Station> stations = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      stations.add(new Station(i, "NE" + (i + 1), "Station " + i, stationOpenDateTime));
+    }
+    List<List<Station>> adjList = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      List<Station> neighbours = new ArrayList<>();
+      if (i > 0) neighbours.add(stations.get(i - 1));
+      if (i < 4) neighbours.add(stations.get(i + 1));
+      adjList.add(neighbours);
+    }
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    RouteFinder altRouteFinder = new RouteFinder(SearchEngine.ALT);
+
+    SearchStats stats = new SearchStats();
+    Route expected =
+        new Route(2, List.of(stations.get(2), stations.get(3), stations.get(4)), TimeOfDay.PEAK);
+    assertEquals(
+        Optional.of(expected),
+        altRouteFinder.findRoute(
+            List.of(stations.get(2)),
+            List.of(stations.get(4)),
+            VALID_PEAK_DATE_TIME,
+            graph,
+            stats));
+    assertEquals(3, stats.getSettledNodes());
+
+    stats = new SearchStats();
+    routeFinder.findRoute(
+        List.of(stations.get(2)), List.of(stations.get(4)), VALID_PEAK_DATE_TIME, graph, stats);
+    assertEquals(5, stats.getSettledNodes());
+  }
+
+  @Test
+  public void testFindRouteCsrGraphChSameAsDijkstra() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    RouteFinder chRouteFinder = new RouteFinder(SearchEngine.CH);
+
+    // one route between every pair, so the routes are the same, not only as fast
+    for (LocalDateTime startDateTime :
+        List.of(
+            VALID_PEAK_DATE_TIME, VALID_NIGHT_DATE_TIME, VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME)) {
+      for (Station src : stations) {
+        for (Station dest : stations) {
+          assertEquals(
+              routeFinder.findRoute(List.of(src), List.of(dest), startDateTime, graph),
+              chRouteFinder.findRoute(List.of(src), List.of(dest), startDateTime, graph));
+        }
+      }
+      List<Station> srcStations = List.of(SERANGOON, SERANGOON_2);
+      List<Station> destStations = List.of(BUANGKOK, LORONG_CHUAN_2);
+      assertEquals(
+          routeFinder.findRoute(srcStations, destStations, startDateTime, graph),
+          chRouteFinder.findRoute(srcStations, destStations, startDateTime, graph));
+    }
+  }
+
+  @Test
+  /** 0 - 1 - 2, night to peak after the first stop, so the hierarchy is not used */
+  public void testFindRouteCsrGraphChTimeOfDayChanges() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE3", "Station C", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(List.of(station1), List.of(station0, station2), List.of(station1));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2), adjList);
+    RouteFinder chRouteFinder = new RouteFinder(SearchEngine.CH);
+
+    Route expected = new Route(2, List.of(station0, station1, station2), TimeOfDay.PEAK);
+    assertEquals(
+        Optional.of(expected),
+        chRouteFinder.findRoute(List.of(station0), List.of(station2), VALID_PEAK_DATE_TIME, graph));
+
+    // 4 minutes to station B at night, then 1 minute to station C at peak
+    expected = new Route(5, List.of(station0, station1, station2), TimeOfDay.NIGHT);
+    assertEquals(
+        Optional.of(expected),
+        chRouteFinder.findRoute(
+            List.of(station0), List.of(station2), VALID_2_MINS_BEFORE_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  public void testFindRouteCsrGraphChHierarchyDirectory() throws IOException {
+    List<Station> stations = List.of(BUANGKOK, HOUGANG, KOVAN);
+    List<List<Station>> adjList =
+        List.of(List.of(HOUGANG), List.of(BUANGKOK, KOVAN), List.of(HOUGANG));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    Path hierarchyDirectory = Files.createTempDirectory("hierarchies");
+
+    RouteFinder chRouteFinder = new RouteFinder(SearchEngine.CH, false, hierarchyDirectory);
+    chRouteFinder.precompute(graph);
+    try (Stream<Path> files = Files.list(hierarchyDirectory)) {
+      assertEquals(1, files.count());
+    }
+
+    // read back from the file written by the first route finder
+    chRouteFinder = new RouteFinder(SearchEngine.CH, false, hierarchyDirectory);
+    assertEquals(
+        routeFinder.findRoute(List.of(BUANGKOK), List.of(KOVAN), VALID_PEAK_DATE_TIME, graph),
+        chRouteFinder.findRoute(List.of(BUANGKOK), List.of(KOVAN), VALID_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  public void testFindRouteCsrGraphChTravelTimeTablesDoesNotBuildHierarchy() throws IOException {
+    List<Station> stations = List.of(BUANGKOK, HOUGANG, KOVAN);
+    List<List<Station>> adjList =
+        List.of(List.of(HOUGANG), List.of(BUANGKOK, KOVAN), List.of(HOUGANG));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    Path hierarchyDirectory = Files.createTempDirectory("hierarchies");
+
+    RouteFinder chRouteFinder = new RouteFinder(SearchEngine.CH, true, hierarchyDirectory);
+    chRouteFinder.precompute(graph);
+    for (LocalDateTime startDateTime :
+        List.of(VALID_PEAK_DATE_TIME, VALID_2_MINS_BEFORE_PEAK_DATE_TIME)) {
+      assertEquals(
+          routeFinder.findRoute(List.of(BUANGKOK), List.of(KOVAN), startDateTime, graph),
+          chRouteFinder.findRoute(List.of(BUANGKOK), List.of(KOVAN), startDateTime, graph));
+    }
+    try (Stream<Path> files = Files.list(hierarchyDirectory)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  public void testFindRouteCsrGraphTravelTimeTablesSameAsSearch() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    RouteFinder tableRouteFinder = new RouteFinder(SearchEngine.DIJKSTRA, true);
+
+    for (LocalDateTime startDateTime :
+        List.of(
+            VALID_PEAK_DATE_TIME, VALID_NIGHT_DATE_TIME, VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME)) {
+      for (Station src : stations) {
+        for (Station dest : stations) {
+          assertEquals(
+              routeFinder.findRoute(List.of(src), List.of(dest), startDateTime, graph),
+              tableRouteFinder.findRoute(List.of(src), List.of(dest), startDateTime, graph));
+        }
+      }
+      List<Station> srcStations = List.of(SERANGOON, SERANGOON_2);
+      List<Station> destStations = List.of(BUANGKOK, LORONG_CHUAN_2);
+      assertEquals(
+          routeFinder.findRoute(srcStations, destStations, startDateTime, graph),
+          tableRouteFinder.findRoute(srcStations, destStations, startDateTime, graph));
+    }
+  }
+
+  @Test
+  /** 0 - 1 - 2, night to peak after the first stop, so the table of night routes is not used */
+  public void testFindRouteCsrGraphTravelTimeTablesTimeOfDayChanges() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE3", "Station C", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(List.of(station1), List.of(station0, station2), List.of(station1));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2), adjList);
+    RouteFinder tableRouteFinder = new RouteFinder(SearchEngine.DIJKSTRA, true);
+
+    SearchStats stats = new SearchStats();
+    Route expected = new Route(2, List.of(station0, station1, station2), TimeOfDay.PEAK);
+    assertEquals(
+        Optional.of(expected),
+        tableRouteFinder.findRoute(
+            List.of(station0), List.of(station2), VALID_PEAK_DATE_TIME, graph, stats));
+    assertEquals(0, stats.getSettledNodes());
+
+    // 4 minutes to station B at night, then 1 minute to station C at peak
+    expected = new Route(5, List.of(station0, station1, station2), TimeOfDay.NIGHT);
+    assertEquals(
+        Optional.of(expected),
+        tableRouteFinder.findRoute(
+            List.of(station0),
+            List.of(station2),
+            VALID_2_MINS_BEFORE_PEAK_DATE_TIME,
+            graph,
+            stats));
+    assertEquals(3, stats.getSettledNodes());
+  }
+
+  @Test
+  /** Within one time of day, the same route as departing at the latest departure date time */
+  public void testFindArriveByRouteSameAsDepartAt() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+
+    LocalDateTime peakDateTime = VALID_PEAK_DATE_TIME.plusHours(1);
+    for (LocalDateTime arriveByDateTime :
+        List.of(peakDateTime, VALID_NONPEAK_DATE_TIME, VALID_NIGHT_DATE_TIME)) {
+      for (Station src : stations) {
+        for (Station dest : stations) {
+          TimedRoute route =
+              routeFinder
+                  .findArriveByRoute(List.of(src), List.of(dest), arriveByDateTime, graph)
+                  .get();
+          LocalDateTime departureDateTime = route.getDepartureDateTime();
+          assertEquals(
+              Optional.of(
+                  new Route(route.getMinutes(), route.getStations(), route.getTimeOfDay())),
+              routeFinder.findRoute(List.of(src), List.of(dest), departureDateTime, graph));
+          assertFalse(route.getArrivalDateTime().isAfter(arriveByDateTime));
+          // departing a minute later arrives too late
+          Route laterRoute =
+              routeFinder
+                  .findRoute(List.of(src), List.of(dest), departureDateTime.plusMinutes(1), graph)
+                  .get();
+          assertTrue(
+              departureDateTime
+                  .plusMinutes(1 + laterRoute.getMinutes())
+                  .isAfter(arriveByDateTime));
+        }
+      }
+    }
+  }
+
+  @Test
+  /** 0 - 1 - 2, night to peak after the first stop */
+  public void testFindArriveByRouteTimeOfDayChanges() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE3", "Station C", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(List.of(station1), List.of(station0, station2), List.of(station1));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2), adjList);
+    LocalDateTime peakStartDateTime = VALID_2_MINS_BEFORE_PEAK_DATE_TIME.plusMinutes(2);
+
+    TimedRoute expected =
+        new TimedRoute(
+            List.of(station0, station1, station2),
+            TimeOfDay.PEAK,
+            peakStartDateTime,
+            peakStartDateTime.plusMinutes(2));
+    assertEquals(
+        Optional.of(expected),
+        routeFinder.findArriveByRoute(
+            List.of(station0), List.of(station2), peakStartDateTime.plusMinutes(2), graph));
+
+    // 4 minutes to station B at night, then 1 minute to station C at peak
+    expected =
+        new TimedRoute(
+            List.of(station0, station1, station2),
+            TimeOfDay.NIGHT,
+            peakStartDateTime.minusMinutes(4),
+            peakStartDateTime.plusMinutes(1));
+    assertEquals(
+        Optional.of(expected),
+        routeFinder.findArriveByRoute(
+            List.of(station0), List.of(station2), peakStartDateTime.plusMinutes(1), graph));
+  }
+
+  @Test
+  /**
+   * 0 - 1 (CG) | 2 - 3 (NE), arriving at non-peak. The CG line is only operating at peak, so the
+   * route waits at station B for the transfer.
+   */
+  public void testFindArriveByRouteWaitsForTransfer() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "CG1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "CG2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE1", "Station B", stationOpenDateTime);
+    Station station3 = new Station(3, "NE2", "Station C", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(
+            List.of(station1),
+            List.of(station0, station2),
+            List.of(station1, station3),
+            List.of(station2));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2, station3), adjList);
+    LocalDateTime peakEndDateTime = VALID_PEAK_DATE_TIME.withHour(9);
+    SearchStats stats = new SearchStats();
+
+    // the last departure at peak, then 7 minutes to station B, and 3 + 7 minutes at non-peak
+    TimedRoute expected =
+        new TimedRoute(
+            List.of(station0, station1, station2, station3),
+            TimeOfDay.PEAK,
+            peakEndDateTime,
+            peakEndDateTime.plusMinutes(17));
+    assertEquals(
+        Optional.of(expected),
+        routeFinder.findArriveByRoute(
+            List.of(station0), List.of(station3), peakEndDateTime.plusMinutes(30), graph, stats));
+    assertEquals(4, stats.getSettledNodes());
+  }
+
+  @Test
+  /**
+   * 0 - 1 (CG) | 2 - 3 (NE) | 4 - 5 (CG), arriving early at peak. The first CG ride is only
+   * possible at the evening peak before, so the route waits at station C overnight for the CG line
+   * to start operating again.
+   */
+  public void testFindArriveByRouteWaitsForClosedLine() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "CG1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "CG2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE1", "Station B", stationOpenDateTime);
+    Station station3 = new Station(3, "NE2", "Station C", stationOpenDateTime);
+    Station station4 = new Station(4, "CG3", "Station C", stationOpenDateTime);
+    Station station5 = new Station(5, "CG4", "Station D", stationOpenDateTime);
+
+    List<Station> stations = List.of(station0, station1, station2, station3, station4, station5);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(station1),
+            List.of(station2),
+            List.of(station3),
+            List.of(station4),
+            List.of(station5),
+            List.of());
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    LocalDateTime peakStartDateTime = VALID_PEAK_DATE_TIME.plusDays(1).withHour(6);
+
+    // the last departure at the evening peak, at 21:00, reaches station C at 21:20 at non-peak
+    LocalDateTime departureDateTime = peakStartDateTime.minusHours(9);
+    TimedRoute expected =
+        new TimedRoute(
+            stations,
+            TimeOfDay.PEAK,
+            departureDateTime,
+            peakStartDateTime.plusMinutes(7),
+            new int[] {0, 0, 0, 0, 520});
+    assertEquals(
+        Optional.of(expected),
+        routeFinder.findArriveByRoute(
+            List.of(station0), List.of(station5), peakStartDateTime.plusMinutes(10), graph));
+  }
+
+  @Test
+  /** 0 - 1 - 2, departing later from station B than from station A */
+  public void testFindArriveByRouteMultiSource() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE3", "Station C", stationOpenDateTime);
+
+    List<List<Station>> adjList =
+        List.of(List.of(station1), List.of(station0, station2), List.of(station1));
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2), adjList);
+
+    TimedRoute expected =
+        new TimedRoute(
+            List.of(station1, station2),
+            TimeOfDay.PEAK,
+            VALID_PEAK_DATE_TIME.minusMinutes(1),
+            VALID_PEAK_DATE_TIME);
+    assertEquals(
+        Optional.of(expected),
+        routeFinder.findArriveByRoute(
+            List.of(station0, station1), List.of(station2), VALID_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  public void testFindArriveByRouteEmptySource() {
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(BUANGKOK), List.of(List.of()));
+    assertEquals(
+        Optional.empty(),
+        routeFinder.findArriveByRoute(List.of(), List.of(BUANGKOK), VALID_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  /** 0 - 1, not connected to 2 */
+  public void testFindArriveByRouteNoRoute() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "CG1", "Station C", stationOpenDateTime);
+
+    List<List<Station>> adjList = List.of(List.of(station1), List.of(station0), List.of());
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2), adjList);
+
+    assertEquals(
+        Optional.empty(),
+        routeFinder.findArriveByRoute(
+            List.of(station0), List.of(station2), VALID_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  /**
+   * 0 - 1 - 2 (NS) and 3 - 4 - 5 (NE), changing lines at station A and station C. NS takes 8
+   * minutes per stop at peak, NE 1 minute, and a line change 1 minute.
+   */
+  public void testFindParetoRoutes() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NS1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NS2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NS3", "Station C", stationOpenDateTime);
+    Station station3 = new Station(3, "NE1", "Station A", stationOpenDateTime);
+    Station station4 = new Station(4, "NE2", "Station D", stationOpenDateTime);
+    Station station5 = new Station(5, "NE3", "Station C", stationOpenDateTime);
+
+    List<Station> stations = List.of(station0, station1, station2, station3, station4, station5);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(station1, station3),
+            List.of(station0, station2),
+            List.of(station1, station5),
+            List.of(station4, station0),
+            List.of(station3, station5),
+            List.of(station4, station2));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    SearchStats stats = new SearchStats();
+
+    List<Route> expected =
+        List.of(
+            new Route(16, List.of(station0, station1, station2), TimeOfDay.PEAK),
+            new Route(
+                4, List.of(station0, station3, station4, station5, station2), TimeOfDay.PEAK));
+    assertEquals(
+        expected,
+        routeFinder.findParetoRoutes(
+            List.of(station0), List.of(station2), VALID_PEAK_DATE_TIME, graph, stats));
+    assertEquals(
+        Optional.of(expected.get(1)),
+        routeFinder.findRoute(List.of(station0), List.of(station2), VALID_PEAK_DATE_TIME, graph));
+    // station A, B and C on NS, then A, D and C on NE after a line change, then C on NS again
+    assertEquals(7, stats.getPushes());
+
+    // riding NE from station A to station C needs no line change
+    assertEquals(
+        List.of(new Route(2, List.of(station3, station4, station5), TimeOfDay.PEAK)),
+        routeFinder.findParetoRoutes(
+            List.of(station0, station3), List.of(station2, station5), VALID_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  public void testFindParetoRoutesFastestSameAsFindRoute() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+
+    // one route between every pair, so the fastest route is the same, not only as fast
+    for (LocalDateTime startDateTime :
+        List.of(
+            VALID_PEAK_DATE_TIME, VALID_NIGHT_DATE_TIME, VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME)) {
+      for (Station src : stations) {
+        for (Station dest : stations) {
+          List<Route> routes =
+              routeFinder.findParetoRoutes(List.of(src), List.of(dest), startDateTime, graph);
+          assertEquals(
+              routeFinder.findRoute(List.of(src), List.of(dest), startDateTime, graph),
+              Optional.of(routes.get(routes.size() - 1)));
+          assertEquals(1, routes.size());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFindParetoRoutesEmptySource() {
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(BUANGKOK), List.of(List.of()));
+    assertEquals(
+        List.of(),
+        routeFinder.findParetoRoutes(List.of(), List.of(BUANGKOK), VALID_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  /** 0 - 1, not connected to 2 */
+  public void testFindParetoRoutesNoRoute() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "CG1", "Station C", stationOpenDateTime);
+
+    List<List<Station>> adjList = List.of(List.of(station1), List.of(station0), List.of());
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2), adjList);
+
+    assertEquals(
+        List.of(),
+        routeFinder.findParetoRoutes(
+            List.of(station0), List.of(station2), VALID_PEAK_DATE_TIME, graph));
+  }
+
+  @Test
+  public void testFindTravelTimeMatrixSameAsFindRoute() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    StationNameIndex nameIndex = new StationNameIndex(stations);
+
+    for (LocalDateTime startDateTime :
+        List.of(
+            VALID_PEAK_DATE_TIME, VALID_NIGHT_DATE_TIME, VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME)) {
+      TravelTimeMatrix matrix = routeFinder.findTravelTimeMatrix(startDateTime, graph, nameIndex);
+
+      assertEquals(nameIndex.size(), matrix.getSrcNames().size());
+      for (int src = 0; src < nameIndex.size(); src++) {
+        for (int dest = 0; dest < nameIndex.size(); dest++) {
+          Optional<Route> route =
+              routeFinder.findRoute(
+                  nameIndex.asMap().get(matrix.getSrcNames().get(src)),
+                  nameIndex.asMap().get(matrix.getDestNames().get(dest)),
+                  startDateTime,
+                  graph);
+          long expected = route.isPresent() ? route.get().getMinutes() : Integer.MAX_VALUE;
+          assertEquals(expected, matrix.getTravelTime(src, dest));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFindTravelTimeMatrixOneToMany() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+
+    // NE5 - NE4 - NE3 - NE2, and CC16 - CC17
+    TravelTimeMatrix matrix =
+        routeFinder.findTravelTimeMatrix(
+            List.of("Serangoon"),
+            List.of("Buangkok", "Lorong Chuan"),
+            VALID_PEAK_DATE_TIME,
+            graph,
+            new StationNameIndex(stations));
+    assertArrayEquals(new int[] {3, 2}, matrix.getMinutes());
+  }
+
+  @Test
+  public void testFindTravelTimeMatrixNoRoute() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "CG1", "Station C", stationOpenDateTime);
+
+    List<Station> stations = List.of(station0, station1, station2);
+    List<List<Station>> adjList = List.of(List.of(station1), List.of(station0), List.of());
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+
+    TravelTimeMatrix matrix =
+        routeFinder.findTravelTimeMatrix(
+            List.of("Station A"),
+            List.of("Station B", "Station C"),
+            VALID_PEAK_DATE_TIME,
+            graph,
+            new StationNameIndex(stations));
+    assertArrayEquals(new int[] {1, TravelTimeMatrix.UNREACHABLE}, matrix.getMinutes());
+    assertEquals(Integer.MAX_VALUE, matrix.getTravelTime(0, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindTravelTimeMatrixUnknownStation() {
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(BUANGKOK), List.of(List.of()));
+    routeFinder.findTravelTimeMatrix(
+        List.of("Buangkok"),
+        List.of("Kovan"),
+        VALID_PEAK_DATE_TIME,
+        graph,
+        new StationNameIndex(List.of(BUANGKOK)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindTravelTimeMatrixTooLarge() {
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(BUANGKOK), List.of(List.of()));
+    // 2^16 x 2^16 entries do not fit in an int
+    List<String> names = Collections.nCopies(1 << 16, "Buangkok");
+    routeFinder.findTravelTimeMatrix(
+        names, names, VALID_PEAK_DATE_TIME, graph, new StationNameIndex(List.of(BUANGKOK)));
+  }
+
+  @Test
+  public void testFindIsochrone() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+
+    SearchStats stats = new SearchStats();
+    Isochrone isochrone =
+        routeFinder.findIsochrone(
+            List.of(KOVAN), VALID_PEAK_DATE_TIME, new int[] {4, 2}, graph, stats);
+
+    assertArrayEquals(new int[] {2, 4}, isochrone.getBudgets());
+    assertEquals(
+        List.of(KOVAN, HOUGANG, SERANGOON, BUANGKOK, SERANGOON_2, LORONG_CHUAN),
+        isochrone.getStations());
+    assertArrayEquals(new int[] {0, 1, 1, 2, 2, 4}, isochrone.getMinutes());
+    assertEquals(
+        List.of(KOVAN, HOUGANG, SERANGOON, BUANGKOK, SERANGOON_2), isochrone.getStationsWithin(0));
+    assertEquals(isochrone.getStations(), isochrone.getStationsWithin(1));
+    // Lorong Chuan on AA is 5 minutes away, and never searched
+    assertEquals(6, stats.getSettledNodes());
+  }
+
+  @Test
+  public void testFindIsochroneSameAsFindRoute() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    List<Station> srcStations = List.of(SERANGOON, SERANGOON_2);
+
+    for (LocalDateTime startDateTime :
+        List.of(
+            VALID_PEAK_DATE_TIME, VALID_NIGHT_DATE_TIME, VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME)) {
+      Isochrone isochrone =
+          routeFinder.findIsochrone(srcStations, startDateTime, new int[] {20}, graph);
+
+      for (Station dest : stations) {
+        Optional<Route> route =
+            routeFinder.findRoute(srcStations, List.of(dest), startDateTime, graph);
+        int i = isochrone.getStations().indexOf(dest);
+        if (route.isPresent() && route.get().getMinutes() <= 20) {
+          assertEquals(route.get().getMinutes(), isochrone.getMinutes()[i]);
+        } else {
+          assertEquals(-1, i);
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindIsochroneNegativeBudget() {
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(BUANGKOK), List.of(List.of()));
+    routeFinder.findIsochrone(List.of(BUANGKOK), VALID_PEAK_DATE_TIME, new int[] {15, -1}, graph);
+  }
+
+  @Test
+  /**
+   * 0 - 1 - 2, peak to nonpeak 11 mins after the first departure, as 2100 is still peak. Departing
+   * 1 min before nonpeak rides the second stop at nonpeak.
+   */
+  public void testFindProfileTimeOfDayChanges() {
+    LocalDateTime startDateTime = VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME;
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "NE3", "Station C", stationOpenDateTime);
+
+    List<Station> stations = List.of(station0, station1, station2);
+    List<List<Station>> adjList =
+        List.of(List.of(station1), List.of(station0, station2), List.of(station1));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+
+    SearchStats stats = new SearchStats();
+    List<ProfileSegment> expected =
+        List.of(
+            new ProfileSegment(
+                startDateTime,
+                startDateTime.plusMinutes(9),
+                new Route(2, stations, TimeOfDay.PEAK)),
+            new ProfileSegment(
+                startDateTime.plusMinutes(10),
+                startDateTime.plusMinutes(10),
+                new Route(8, stations, TimeOfDay.PEAK)),
+            new ProfileSegment(
+                startDateTime.plusMinutes(11),
+                startDateTime.plusMinutes(20),
+                new Route(14, stations, TimeOfDay.NONPEAK)));
+    assertEquals(
+        expected,
+        routeFinder.findProfile(
+            List.of(station0),
+            List.of(station2),
+            startDateTime,
+            startDateTime.plusMinutes(20),
+            graph,
+            stats));
+    // one search per segment, instead of one per departure
+    assertEquals(3 * 3, stats.getSettledNodes());
+  }
+
+  @Test
+  public void testFindProfileSameAsFindRoute() {
+    List<Station> stations =
+        List.of(BUANGKOK, HOUGANG, KOVAN, SERANGOON, SERANGOON_2, LORONG_CHUAN, LORONG_CHUAN_2);
+    List<List<Station>> adjList =
+        List.of(
+            List.of(HOUGANG),
+            List.of(BUANGKOK, KOVAN),
+            List.of(HOUGANG, SERANGOON),
+            List.of(KOVAN, SERANGOON_2),
+            List.of(LORONG_CHUAN, SERANGOON),
+            List.of(SERANGOON_2, LORONG_CHUAN_2),
+            List.of(LORONG_CHUAN));
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+    List<Station> srcStations = List.of(BUANGKOK);
+    List<Station> destStations = List.of(LORONG_CHUAN, LORONG_CHUAN_2);
+    LocalDateTime firstDepartureDateTime = VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME.minusMinutes(30);
+
+    List<ProfileSegment> segments =
+        routeFinder.findProfile(
+            srcStations,
+            destStations,
+            firstDepartureDateTime,
+            firstDepartureDateTime.plusMinutes(60),
+            graph);
+
+    LocalDateTime departureDateTime = firstDepartureDateTime;
+    for (ProfileSegment segment : segments) {
+      assertEquals(departureDateTime, segment.getFirstDepartureDateTime());
+      for (;
+          !departureDateTime.isAfter(segment.getLastDepartureDateTime());
+          departureDateTime = departureDateTime.plusMinutes(1)) {
+        assertEquals(
+            routeFinder.findRoute(srcStations, destStations, departureDateTime, graph),
+            Optional.of(segment.getRoute()));
+      }
+    }
+    assertEquals(firstDepartureDateTime.plusMinutes(61), departureDateTime);
+  }
+
+  @Test
+  public void testFindProfileNoRoute() {
+    LocalDateTime stationOpenDateTime = VALID_PEAK_DATE_TIME.minusMonths(3);
+
+    Station station0 = new Station(0, "NE1", "Station A", stationOpenDateTime);
+    Station station1 = new Station(1, "NE2", "Station B", stationOpenDateTime);
+    Station station2 = new Station(2, "CG1", "Station C", stationOpenDateTime);
+
+    List<List<Station>> adjList = List.of(List.of(station1), List.of(station0), List.of());
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(station0, station1, station2), adjList);
+
+    assertEquals(
+        List.of(
+            new ProfileSegment(
+                VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME,
+                VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME.plusMinutes(20),
+                null)),
+        routeFinder.findProfile(
+            List.of(station0),
+            List.of(station2),
+            VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME,
+            VALID_10_MINS_BEFORE_NONPEAK_DATE_TIME.plusMinutes(20),
+            graph));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFindProfileLastDepartureBeforeFirst() {
+    CsrGraph graph = CsrGraph.fromAdjList(List.of(BUANGKOK), List.of(List.of()));
+    routeFinder.findProfile(
+        List.of(BUANGKOK),
+        List.of(BUANGKOK),
+        VALID_PEAK_DATE_TIME,
+        VALID_PEAK_DATE_TIME.minusMinutes(1),
+        graph);
+  }
 }
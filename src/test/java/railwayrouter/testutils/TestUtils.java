@@ -12,6 +12,8 @@ public class TestUtils {
       LocalDateTime.of(2021, 1, 25, 21, 50);
   public static LocalDateTime VALID_3_MINS_BEFORE_PEAK_DATE_TIME =
       LocalDateTime.of(2021, 1, 25, 5, 57);
+  public static LocalDateTime VALID_2_MINS_BEFORE_PEAK_DATE_TIME =
+      LocalDateTime.of(2021, 1, 25, 5, 58);
   public static LocalDateTime VALID_10_MINS_NONPEAK_TO_PEAK_DATE_TIME =
       LocalDateTime.of(2021, 1, 25, 17, 50);
 }
@@ -0,0 +1,187 @@
+package railwayrouter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.opencsv.exceptions.CsvValidationException;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import railwayrouter.models.Constants;
+import railwayrouter.models.ContractionHierarchy;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.FrequencyTable;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+import railwayrouter.services.NetworkSnapshotCache;
+
+public class ContractionHierarchyBuilderTest {
+  private static final Station KOVAN =
+      new Station(0, "NE4", "Kovan", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON =
+      new Station(1, "NE5", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON_2 =
+      new Station(2, "CC16", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  private static final CsrGraph GRAPH =
+      CsrGraph.fromAdjList(
+          List.of(KOVAN, SERANGOON, SERANGOON_2),
+          List.of(List.of(SERANGOON), List.of(KOVAN, SERANGOON_2), List.of(SERANGOON)));
+
+  private static final FrequencyTable FREQUENCY_TABLE =
+      new FrequencyTable(
+          Map.of(
+              TimeOfDay.PEAK, Map.of("NE", 12, "CC", 10, "lineChange", 15),
+              TimeOfDay.NIGHT, Map.of("NE", 10, "CC", Integer.MAX_VALUE, "lineChange", 10),
+              TimeOfDay.NONPEAK, Map.of("CC", 10, "lineChange", 10)),
+          "lineChange");
+
+  @Test
+  public void testBuild() {
+    CostModel costModel = CostModelCompiler.compile(GRAPH, FREQUENCY_TABLE);
+
+    ContractionHierarchy hierarchy = ContractionHierarchyBuilder.build(GRAPH, costModel);
+
+    int[] ranks = hierarchy.getRanks().clone();
+    Arrays.sort(ranks);
+    assertArrayEquals(new int[] {0, 1, 2}, ranks);
+    assertShortcutsMatchGraph(GRAPH, costModel, hierarchy);
+  }
+
+  @Test
+  public void testBuildLineNotOperating() {
+    FrequencyTable frequencyTable =
+        new FrequencyTable(
+            Map.of(
+                TimeOfDay.PEAK, Map.of("CC", 10, "lineChange", 15),
+                TimeOfDay.NIGHT, Map.of("CC", 10, "lineChange", 10),
+                TimeOfDay.NONPEAK, Map.of("CC", 10, "lineChange", 10)),
+            "lineChange");
+    CostModel costModel = CostModelCompiler.compile(GRAPH, frequencyTable);
+
+    ContractionHierarchy hierarchy = ContractionHierarchyBuilder.build(GRAPH, costModel);
+
+    // the NE line is never operating, so only the line changes are left
+    for (int edge = 0; edge < hierarchy.getNumEdges(); edge++) {
+      assertTrue(hierarchy.getEdgeSources()[edge] != 0 && hierarchy.getEdgeTargets()[edge] != 0);
+    }
+    assertShortcutsMatchGraph(GRAPH, costModel, hierarchy);
+  }
+
+  @Test
+  public void testBuildStationMap() throws CsvValidationException {
+    NetworkSnapshot[] snapshots = NetworkSnapshotCache.buildNetworkEpochs().getSnapshots();
+    CsrGraph graph = snapshots[snapshots.length - 1].getGraph();
+    CostModel costModel =
+        CostModelCompiler.compile(
+            graph,
+            new FrequencyTable(Constants.getFrequencyMap(), Constants.getLineChangeFieldName()));
+
+    ContractionHierarchy hierarchy = ContractionHierarchyBuilder.build(graph, costModel);
+
+    assertEquals(graph.getNumStations(), hierarchy.getNumStations());
+    assertShortcutsMatchGraph(graph, costModel, hierarchy);
+  }
+
+  @Test
+  public void testWriteRead() throws IOException {
+    CostModel costModel = CostModelCompiler.compile(GRAPH, FREQUENCY_TABLE);
+    ContractionHierarchy hierarchy = ContractionHierarchyBuilder.build(GRAPH, costModel);
+    long checksum = ContractionHierarchyBuilder.getChecksum(GRAPH, costModel);
+    Path path = Files.createTempFile("hierarchy", ".ch");
+
+    ContractionHierarchyBuilder.write(hierarchy, checksum, path);
+    ContractionHierarchy actual = ContractionHierarchyBuilder.read(path, checksum);
+
+    assertArrayEquals(hierarchy.getRanks(), actual.getRanks());
+    assertArrayEquals(hierarchy.getEdgeSources(), actual.getEdgeSources());
+    assertArrayEquals(hierarchy.getEdgeTargets(), actual.getEdgeTargets());
+    assertArrayEquals(hierarchy.getCosts(), actual.getCosts());
+    assertArrayEquals(hierarchy.getFirstChildren(), actual.getFirstChildren());
+    assertArrayEquals(hierarchy.getSecondChildren(), actual.getSecondChildren());
+    assertArrayEquals(hierarchy.getUpEdges(), actual.getUpEdges());
+    assertArrayEquals(hierarchy.getDownEdges(), actual.getDownEdges());
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadOtherChecksum() throws IOException {
+    CostModel costModel = CostModelCompiler.compile(GRAPH, FREQUENCY_TABLE);
+    long checksum = ContractionHierarchyBuilder.getChecksum(GRAPH, costModel);
+    Path path = Files.createTempFile("hierarchy", ".ch");
+    ContractionHierarchyBuilder.write(
+        ContractionHierarchyBuilder.build(GRAPH, costModel), checksum, path);
+
+    ContractionHierarchyBuilder.read(path, checksum + 1);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadCorrupt() throws IOException {
+    CostModel costModel = CostModelCompiler.compile(GRAPH, FREQUENCY_TABLE);
+    long checksum = ContractionHierarchyBuilder.getChecksum(GRAPH, costModel);
+    Path path = Files.createTempFile("hierarchy", ".ch");
+    ContractionHierarchyBuilder.write(
+        ContractionHierarchyBuilder.build(GRAPH, costModel), checksum, path);
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(path, bytes);
+
+    ContractionHierarchyBuilder.read(path, checksum);
+  }
+
+  @Test
+  public void testGetChecksum() {
+    CostModel costModel = CostModelCompiler.compile(GRAPH, FREQUENCY_TABLE);
+    int[][] otherCosts = costModel.getCosts().clone();
+    otherCosts[0] = otherCosts[0].clone();
+    otherCosts[0][0]++;
+    CostModel otherCostModel = new CostModel(otherCosts);
+
+    assertEquals(
+        ContractionHierarchyBuilder.getChecksum(GRAPH, costModel),
+        ContractionHierarchyBuilder.getChecksum(GRAPH, costModel));
+    assertNotEquals(
+        ContractionHierarchyBuilder.getChecksum(GRAPH, costModel),
+        ContractionHierarchyBuilder.getChecksum(GRAPH, otherCostModel));
+  }
+
+  /**
+   * Checks that every edge of {@code hierarchy} unpacks to a path of {@code graph}, and costs the
+   * same as that path at every time of day.
+   */
+  private static void assertShortcutsMatchGraph(
+      CsrGraph graph, CostModel costModel, ContractionHierarchy hierarchy) {
+    for (int edge = 0; edge < hierarchy.getNumEdges(); edge++) {
+      int[] stationIds = new int[graph.getNumStations()];
+      stationIds[0] = hierarchy.getEdgeSources()[edge];
+      int numStationIds = hierarchy.unpack(edge, stationIds, 1);
+      assertEquals(hierarchy.getEdgeTargets()[edge], stationIds[numStationIds - 1]);
+      for (TimeOfDay timeOfDay : TimeOfDay.values()) {
+        int cost = 0;
+        for (int i = 0; i + 1 < numStationIds && cost != CostModel.CLOSED; i++) {
+          int graphEdge = getEdge(graph, stationIds[i], stationIds[i + 1]);
+          int graphCost = costModel.getCost(timeOfDay, graphEdge);
+          cost = graphCost == CostModel.CLOSED ? CostModel.CLOSED : cost + graphCost;
+        }
+        assertEquals(cost, hierarchy.getCosts()[timeOfDay.ordinal()][edge]);
+      }
+    }
+  }
+
+  private static int getEdge(CsrGraph graph, int source, int target) {
+    IntBuffer offsets = graph.getOffsets();
+    for (int edge = offsets.get(source); edge < offsets.get(source + 1); edge++) {
+      if (graph.getTargets().get(edge) == target) return edge;
+    }
+    throw new AssertionError(String.format("No edge from %d to %d", source, target));
+  }
+}
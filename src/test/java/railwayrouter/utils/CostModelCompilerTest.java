@@ -0,0 +1,133 @@
+package railwayrouter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.FrequencyTable;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+public class CostModelCompilerTest {
+  private static final Station KOVAN =
+      new Station(0, "NE4", "Kovan", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON =
+      new Station(1, "NE5", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON_2 =
+      new Station(2, "CC16", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  private static final CsrGraph GRAPH =
+      CsrGraph.fromAdjList(
+          List.of(KOVAN, SERANGOON, SERANGOON_2),
+          List.of(List.of(SERANGOON), List.of(KOVAN, SERANGOON_2), List.of(SERANGOON)));
+
+  @Test
+  public void testCompile() {
+    FrequencyTable frequencyTable =
+        new FrequencyTable(
+            Map.of(
+                TimeOfDay.PEAK, Map.of("NE", 12, "CC", 10, "lineChange", 15),
+                TimeOfDay.NIGHT, Map.of("NE", 10, "CC", Integer.MAX_VALUE, "lineChange", 10),
+                TimeOfDay.NONPEAK, Map.of("NE", 10, "lineChange", 10)),
+            "lineChange");
+
+    CostModel costModel = CostModelCompiler.compile(GRAPH, frequencyTable);
+
+    // edges: 0 -> 1 (NE), 1 -> 0 (NE), 1 -> 2 (change), 2 -> 1 (change)
+    assertArrayEquals(new int[] {12, 12, 15, 15}, costModel.getCosts()[TimeOfDay.PEAK.ordinal()]);
+    assertArrayEquals(new int[] {10, 10, 10, 10}, costModel.getCosts()[TimeOfDay.NIGHT.ordinal()]);
+    assertArrayEquals(
+        new int[] {10, 10, 10, 10}, costModel.getCosts()[TimeOfDay.NONPEAK.ordinal()]);
+    assertEquals(15, costModel.getCost(TimeOfDay.PEAK, 2));
+  }
+
+  @Test
+  public void testCompileLineNotOperating() {
+    Station serangoon =
+        new Station(0, "CC16", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station lorongChuan =
+        new Station(1, "CC17", "Lorong Chuan", LocalDate.of(2021, 2, 21).atStartOfDay());
+    CsrGraph graph =
+        CsrGraph.fromAdjList(
+            List.of(serangoon, lorongChuan), List.of(List.of(lorongChuan), List.of(serangoon)));
+    FrequencyTable frequencyTable =
+        new FrequencyTable(
+            Map.of(
+                TimeOfDay.PEAK, Map.of("CC", 10, "lineChange", 15),
+                TimeOfDay.NIGHT, Map.of("CC", Integer.MAX_VALUE, "lineChange", 10),
+                TimeOfDay.NONPEAK, Map.of("lineChange", 10)),
+            "lineChange");
+
+    CostModel costModel = CostModelCompiler.compile(graph, frequencyTable);
+
+    assertEquals(CostModel.CLOSED, costModel.getCost(TimeOfDay.NIGHT, 0));
+    assertEquals(CostModel.CLOSED, costModel.getCost(TimeOfDay.NONPEAK, 1));
+  }
+
+  @Test
+  public void testLoadFrequencyMap() throws IOException {
+    Path path = Files.createTempFile("frequencies", ".properties");
+    Files.writeString(
+        path, "# test frequencies\nPEAK.NE=12\nPEAK.lineChange=15\nNIGHT.CC=closed\n");
+
+    Map<TimeOfDay, Map<String, Integer>> expected =
+        Map.of(
+            TimeOfDay.PEAK, Map.of("NE", 12, "lineChange", 15),
+            TimeOfDay.NIGHT, Map.of("CC", Integer.MAX_VALUE),
+            TimeOfDay.NONPEAK, Map.of());
+    assertEquals(expected, CostModelCompiler.loadFrequencyMap(path));
+    Files.delete(path);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadFrequencyMapInvalidTimeOfDay() throws IOException {
+    Path path = Files.createTempFile("frequencies", ".properties");
+    Files.writeString(path, "EVENING.NE=12\n");
+    try {
+      CostModelCompiler.loadFrequencyMap(path);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadFrequencyMapUnknownLineCode() throws IOException {
+    Path path = Files.createTempFile("frequencies", ".properties");
+    Files.writeString(path, "PEAK.XX=12\n");
+    try {
+      CostModelCompiler.loadFrequencyMap(path);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadFrequencyMapFrequencyTooLarge() throws IOException {
+    Path path = Files.createTempFile("frequencies", ".properties");
+    Files.writeString(path, "PEAK.NE=" + (CostModelCompiler.MAX_FREQUENCY + 1) + "\n");
+    try {
+      CostModelCompiler.loadFrequencyMap(path);
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLoadFrequencyMapInvalidFrequency() throws IOException {
+    Path path = Files.createTempFile("frequencies", ".properties");
+    Files.writeString(path, "PEAK.NE=0\n");
+    try {
+      CostModelCompiler.loadFrequencyMap(path);
+    } finally {
+      Files.delete(path);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package railwayrouter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.FrequencyTable;
+import railwayrouter.models.LandmarkTable;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+import railwayrouter.models.TravelTimeTable;
+
+public class LandmarkTableBuilderTest {
+  private static final Station KOVAN =
+      new Station(0, "NE4", "Kovan", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON =
+      new Station(1, "NE5", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON_2 =
+      new Station(2, "CC16", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station TUAS_LINK =
+      new Station(3, "EW33", "Tuas Link", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  private static final CsrGraph GRAPH =
+      CsrGraph.fromAdjList(
+          List.of(KOVAN, SERANGOON, SERANGOON_2),
+          List.of(List.of(SERANGOON), List.of(KOVAN, SERANGOON_2), List.of(SERANGOON)));
+
+  private static final FrequencyTable FREQUENCY_TABLE =
+      new FrequencyTable(
+          Map.of(
+              TimeOfDay.PEAK, Map.of("NE", 12, "CC", 10, "EW", 10, "lineChange", 15),
+              TimeOfDay.NIGHT, Map.of("NE", 10, "CC", Integer.MAX_VALUE, "lineChange", 10),
+              TimeOfDay.NONPEAK, Map.of("CC", 10, "lineChange", 10)),
+          "lineChange");
+
+  @Test
+  public void testBuild() {
+    CostModel costModel = CostModelCompiler.compile(GRAPH, FREQUENCY_TABLE);
+
+    LandmarkTable landmarkTable = LandmarkTableBuilder.build(GRAPH, costModel, 2);
+
+    // farthest from station 0, then farthest from that
+    assertArrayEquals(new int[] {2, 0}, landmarkTable.getLandmarks());
+    // cheapest NE ride is 10 minutes at night, cheapest line change 10 minutes
+    assertEquals(20, landmarkTable.getLowerBound(0, 2));
+    assertEquals(10, landmarkTable.getLowerBound(2, 1));
+    assertEquals(0, landmarkTable.getLowerBound(1, 1));
+  }
+
+  @Test
+  public void testLowerBoundAtMostTravelTime() {
+    CostModel costModel = CostModelCompiler.compile(GRAPH, FREQUENCY_TABLE);
+    TravelTimeTable travelTimeTable = TravelTimeTableBuilder.build(GRAPH, costModel);
+
+    LandmarkTable landmarkTable = LandmarkTableBuilder.build(GRAPH, costModel);
+
+    assertEquals(3, landmarkTable.getLandmarks().length);
+    for (TimeOfDay timeOfDay : TimeOfDay.values()) {
+      for (int src = 0; src < GRAPH.getNumStations(); src++) {
+        for (int dest = 0; dest < GRAPH.getNumStations(); dest++) {
+          assertTrue(
+              landmarkTable.getLowerBound(src, dest)
+                  <= travelTimeTable.getTravelTime(timeOfDay, src, dest));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBuildDisconnected() {
+    CsrGraph graph =
+        CsrGraph.fromAdjList(
+            List.of(KOVAN, SERANGOON, SERANGOON_2, TUAS_LINK),
+            List.of(
+                List.of(SERANGOON), List.of(KOVAN, SERANGOON_2), List.of(SERANGOON), List.of()));
+    CostModel costModel = CostModelCompiler.compile(graph, FREQUENCY_TABLE);
+
+    LandmarkTable landmarkTable = LandmarkTableBuilder.build(graph, costModel, 2);
+
+    // unreachable from station 0, so the farthest of all
+    assertArrayEquals(new int[] {3, 0}, landmarkTable.getLandmarks());
+    assertEquals(LandmarkTable.UNREACHABLE, landmarkTable.getLowerBound(0, 3));
+    assertEquals(LandmarkTable.UNREACHABLE, landmarkTable.getLowerBound(3, 0));
+    assertEquals(20, landmarkTable.getLowerBound(0, 2));
+  }
+}
@@ -0,0 +1,97 @@
+package railwayrouter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.opencsv.exceptions.CsvValidationException;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.Test;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.LineRoutes;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.models.Station;
+import railwayrouter.services.NetworkSnapshotCache;
+
+public class LineRoutesBuilderTest {
+  private static final Station KOVAN =
+      new Station(0, "NE4", "Kovan", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON =
+      new Station(1, "NE5", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON_2 =
+      new Station(2, "CC16", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station HOUGANG =
+      new Station(3, "NE3", "Hougang", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station LORONG_CHUAN =
+      new Station(4, "CC17", "Lorong Chuan", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  @Test
+  public void testBuild() {
+    // Lorong Chuan is not joined to Serangoon
+    CsrGraph graph =
+        CsrGraph.fromAdjList(
+            List.of(KOVAN, SERANGOON, SERANGOON_2, HOUGANG, LORONG_CHUAN),
+            List.of(
+                List.of(HOUGANG, SERANGOON),
+                List.of(KOVAN, SERANGOON_2),
+                List.of(SERANGOON),
+                List.of(KOVAN),
+                List.of()));
+
+    LineRoutes lineRoutes = LineRoutesBuilder.build(graph);
+
+    // CC, then NE
+    assertEquals(2, lineRoutes.getNumRoutes());
+    assertArrayEquals(new int[] {0, 2, 5}, lineRoutes.getOffsets());
+    assertArrayEquals(new int[] {2, 4, 3, 0, 1}, lineRoutes.getStations());
+    assertArrayEquals(new int[] {1, 1, 0, 1, 0}, lineRoutes.getRoutes());
+    assertArrayEquals(new int[] {3, 4, 0, 2, 1}, lineRoutes.getPositions());
+    assertArrayEquals(
+        new int[] {
+          LineRoutes.NO_EDGE,
+          LineRoutes.NO_EDGE,
+          getEdge(graph, HOUGANG, KOVAN),
+          getEdge(graph, KOVAN, SERANGOON),
+          LineRoutes.NO_EDGE
+        },
+        lineRoutes.getNextEdges());
+    assertArrayEquals(
+        new int[] {
+          LineRoutes.NO_EDGE,
+          LineRoutes.NO_EDGE,
+          LineRoutes.NO_EDGE,
+          getEdge(graph, KOVAN, HOUGANG),
+          getEdge(graph, SERANGOON, KOVAN)
+        },
+        lineRoutes.getPreviousEdges());
+  }
+
+  @Test
+  public void testBuildStationMap() throws CsvValidationException {
+    NetworkSnapshot[] snapshots = NetworkSnapshotCache.buildNetworkEpochs().getSnapshots();
+    CsrGraph graph = snapshots[snapshots.length - 1].getGraph();
+
+    LineRoutes lineRoutes = LineRoutesBuilder.build(graph);
+
+    // every ride edge joins two consecutive stations of a route
+    int numRideEdges = 0;
+    for (byte edgeKind : graph.getEdgeKinds()) {
+      if (edgeKind == CsrGraph.RIDE) numRideEdges++;
+    }
+    int numRouteEdges = 0;
+    for (int i = 0; i < graph.getNumStations(); i++) {
+      if (lineRoutes.getNextEdges()[i] != LineRoutes.NO_EDGE) numRouteEdges++;
+      if (lineRoutes.getPreviousEdges()[i] != LineRoutes.NO_EDGE) numRouteEdges++;
+    }
+    assertEquals(numRideEdges, numRouteEdges);
+  }
+
+  private static int getEdge(CsrGraph graph, Station source, Station target) {
+    for (int edge = graph.getOffsets().get(source.getId());
+        edge < graph.getOffsets().get(source.getId() + 1);
+        edge++) {
+      if (graph.getTargets().get(edge) == target.getId()) return edge;
+    }
+    throw new AssertionError(String.format("No edge from %s to %s", source, target));
+  }
+}
@@ -0,0 +1,149 @@
+package railwayrouter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.opencsv.exceptions.CsvValidationException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import railwayrouter.models.NetworkEpochs;
+import railwayrouter.models.NetworkSnapshot;
+import railwayrouter.services.NetworkSnapshotCache;
+
+public class NetworkCompilerTest {
+  private static final long STATION_MAP_CHECKSUM = 42;
+
+  private NetworkEpochs networkEpochs;
+  private Path path;
+
+  @Before
+  public void setUp() throws CsvValidationException, IOException {
+    networkEpochs = NetworkSnapshotCache.buildNetworkEpochs();
+    path = Files.createTempFile("network", ".bin");
+  }
+
+  @Test
+  public void testWriteRead() throws IOException {
+    NetworkCompiler.write(networkEpochs, STATION_MAP_CHECKSUM, path);
+
+    NetworkEpochs actual = NetworkCompiler.read(path, STATION_MAP_CHECKSUM, true);
+
+    assertArrayEquals(networkEpochs.getOpeningDates(), actual.getOpeningDates());
+    assertEquals(networkEpochs.getNumSnapshots(), actual.getNumSnapshots());
+    for (int epoch = 0; epoch < actual.getNumSnapshots(); epoch++) {
+      NetworkSnapshot expected = networkEpochs.getSnapshot(epoch);
+      NetworkSnapshot snapshot = actual.getSnapshot(epoch);
+      assertEquals(epoch, snapshot.getEpoch());
+      assertEquals(expected.getStations(), snapshot.getStations());
+      assertEquals(expected.getAdjList(), snapshot.getAdjList());
+      assertEquals(expected.getLineCodeToStationsMap(), snapshot.getLineCodeToStationsMap());
+      assertEquals(expected.getNameToStationsMap(), snapshot.getNameToStationsMap());
+      assertEquals(expected.getGraph().getOffsets(), snapshot.getGraph().getOffsets());
+      assertEquals(expected.getGraph().getTargets(), snapshot.getGraph().getTargets());
+    }
+  }
+
+  @Test
+  public void testReadWithoutVerifyingPayload() throws IOException {
+    NetworkCompiler.write(networkEpochs, DataProcessor.getStationMapChecksum(), path);
+
+    NetworkEpochs actual = NetworkCompiler.read(path);
+
+    assertEquals(networkEpochs.getNumSnapshots(), actual.getNumSnapshots());
+    for (int epoch = 0; epoch < actual.getNumSnapshots(); epoch++) {
+      NetworkSnapshot expected = networkEpochs.getSnapshot(epoch);
+      NetworkSnapshot snapshot = actual.getSnapshot(epoch);
+      assertEquals(expected.getStations(), snapshot.getStations());
+      assertEquals(expected.getGraph().getOffsets(), snapshot.getGraph().getOffsets());
+      assertEquals(expected.getGraph().getTargets(), snapshot.getGraph().getTargets());
+      // the graph is read from the mapping, not copied
+      assertTrue(snapshot.getGraph().getOffsets().isDirect());
+      assertTrue(snapshot.getGraph().getTargets().isDirect());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadTruncated() throws IOException {
+    NetworkCompiler.write(networkEpochs, STATION_MAP_CHECKSUM, path);
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 4));
+
+    NetworkCompiler.read(path, STATION_MAP_CHECKSUM, false);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadOtherStationMap() throws IOException {
+    NetworkCompiler.write(networkEpochs, STATION_MAP_CHECKSUM, path);
+
+    NetworkCompiler.read(path, STATION_MAP_CHECKSUM + 1, false);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadStale() throws IOException {
+    NetworkCompiler.write(networkEpochs, DataProcessor.getStationMapChecksum() + 1, path);
+
+    NetworkCompiler.read(path);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadCorruptEpochSize() throws IOException {
+    NetworkCompiler.write(networkEpochs, STATION_MAP_CHECKSUM, path);
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+    // the last epoch ends with its targets, so its last offset is its number of edges
+    NetworkSnapshot last = networkEpochs.getSnapshot(networkEpochs.getNumSnapshots() - 1);
+    int lastOffsetPosition = bytes.limit() - 4 * (last.getGraph().getNumEdges() + 1);
+    bytes.putInt(lastOffsetPosition, bytes.getInt(lastOffsetPosition) + 1);
+    Files.write(path, bytes.array());
+
+    NetworkCompiler.read(path, STATION_MAP_CHECKSUM, false);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadCorruptOffsets() throws IOException {
+    NetworkCompiler.write(networkEpochs, STATION_MAP_CHECKSUM, path);
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+    NetworkSnapshot last = networkEpochs.getSnapshot(networkEpochs.getNumSnapshots() - 1);
+    int numEdges = last.getGraph().getNumEdges();
+    int offsetsPosition = bytes.limit() - 4 * (numEdges + last.getGraph().getNumStations() + 1);
+    // the first offset past the last one, so the offsets decrease
+    bytes.putInt(offsetsPosition + 4, numEdges + 1);
+    Files.write(path, bytes.array());
+
+    NetworkCompiler.read(path, STATION_MAP_CHECKSUM, false);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadCorruptTarget() throws IOException {
+    NetworkCompiler.write(networkEpochs, STATION_MAP_CHECKSUM, path);
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+    NetworkSnapshot last = networkEpochs.getSnapshot(networkEpochs.getNumSnapshots() - 1);
+    bytes.putInt(bytes.limit() - 4, last.getGraph().getNumStations());
+    Files.write(path, bytes.array());
+
+    NetworkCompiler.read(path, STATION_MAP_CHECKSUM, false);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadCorrupt() throws IOException {
+    NetworkCompiler.write(networkEpochs, STATION_MAP_CHECKSUM, path);
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[bytes.length - 1] ^= 1;
+    Files.write(path, bytes);
+
+    NetworkCompiler.read(path, STATION_MAP_CHECKSUM, true);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadNotCompiledNetwork() throws IOException {
+    Files.writeString(path, "Station Code,Station Name,Opening Date\n");
+
+    NetworkCompiler.read(path, STATION_MAP_CHECKSUM, false);
+  }
+}
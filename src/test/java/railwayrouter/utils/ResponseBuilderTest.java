@@ -2,12 +2,18 @@ package railwayrouter.utils;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import org.junit.Test;
+import railwayrouter.models.Isochrone;
+import railwayrouter.models.ProfileSegment;
 import railwayrouter.models.Route;
 import railwayrouter.models.Station;
 import railwayrouter.models.TimeOfDay;
+import railwayrouter.models.TimedRoute;
+import railwayrouter.models.TravelTimeMatrix;
 
 public class ResponseBuilderTest {
 
@@ -44,4 +50,142 @@ public class ResponseBuilderTest {
             + "Take NS line from Tampines to Simei",
         ResponseBuilder.buildResponse(route));
   }
+
+  @Test
+  public void testBuildResponseTimedRoute() {
+    Station src = new Station(0, "EW1", "Pasir Ris", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station dest = new Station(1, "EW2", "Tampines", LocalDate.of(2021, 2, 21).atStartOfDay());
+    TimedRoute route =
+        new TimedRoute(
+            List.of(src, dest),
+            TimeOfDay.PEAK,
+            LocalDateTime.of(2021, 3, 1, 8, 49),
+            LocalDateTime.of(2021, 3, 1, 8, 59));
+    assertEquals(
+        "Travel from Pasir Ris to Tampines during peak hours\n"
+            + "Time: 10 minutes\n"
+            + "Depart at: 2021-03-01T08:49\n"
+            + "Arrive at: 2021-03-01T08:59\n"
+            + "Route: [EW1, EW2]\n"
+            + "\n"
+            + "Take EW line from Pasir Ris to Tampines",
+        ResponseBuilder.buildTimedResponse(route));
+  }
+
+  @Test
+  public void testBuildResponseTimedRouteWithWait() {
+    Station src = new Station(0, "NE6", "Dhoby Ghaut", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station between =
+        new Station(1, "NE7", "Little India", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station between2 =
+        new Station(2, "DT12", "Little India", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station dest = new Station(3, "DT11", "Newton", LocalDate.of(2021, 2, 21).atStartOfDay());
+    TimedRoute route =
+        new TimedRoute(
+            List.of(src, between, between2, dest),
+            TimeOfDay.NIGHT,
+            LocalDateTime.of(2021, 3, 1, 5, 30),
+            LocalDateTime.of(2021, 3, 1, 6, 25),
+            new int[] {0, 0, 15});
+    assertEquals(
+        "Travel from Dhoby Ghaut to Newton during night hours\n"
+            + "Time: 55 minutes\n"
+            + "Depart at: 2021-03-01T05:30\n"
+            + "Arrive at: 2021-03-01T06:25\n"
+            + "Route: [NE6, NE7, DT12, DT11]\n"
+            + "\n"
+            + "Take NE line from Dhoby Ghaut to Little India\n"
+            + "Change from NE line to DT line\n"
+            + "Wait 15 minutes at Little India\n"
+            + "Take DT line from Little India to Newton",
+        ResponseBuilder.buildTimedResponse(route));
+  }
+
+  @Test
+  public void testBuildJsonResponseWithLineChange() {
+    Station src = new Station(0, "EW1", "Pasir Ris", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station between = new Station(1, "EW2", "Tampines", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station between2 = new Station(2, "NS4", "Tampines", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station dest = new Station(3, "NS5", "Simei", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Route route = new Route(100, List.of(src, between, between2, dest), TimeOfDay.PEAK);
+    assertEquals(
+        "{\"source\":\"Pasir Ris\",\"destination\":\"Simei\",\"timeOfDay\":\"peak\","
+            + "\"minutes\":100,\"route\":[\"EW1\",\"EW2\",\"NS4\",\"NS5\"],\"steps\":["
+            + "{\"type\":\"ride\",\"line\":\"EW\",\"from\":\"Pasir Ris\",\"to\":\"Tampines\"},"
+            + "{\"type\":\"change\",\"from\":\"EW\",\"to\":\"NS\"},"
+            + "{\"type\":\"ride\",\"line\":\"NS\",\"from\":\"Tampines\",\"to\":\"Simei\"}]}",
+        ResponseBuilder.buildJsonResponse(route));
+  }
+
+  @Test
+  public void testBuildJsonErrorEscapes() {
+    assertEquals(
+        "{\"error\":\"Station \\\"A\\\\B\\\" \\u000a\"}",
+        ResponseBuilder.buildJsonError("Station \"A\\B\" \n"));
+  }
+
+  @Test
+  public void testBuildJsonStationNames() {
+    assertEquals(
+        "{\"stations\":[\"Kovan\",\"Kranji\"]}",
+        ResponseBuilder.buildJsonStationNames(List.of("Kovan", "Kranji")));
+    assertEquals("{\"stations\":[]}", ResponseBuilder.buildJsonStationNames(List.of()));
+  }
+
+  @Test
+  public void testAppendTravelTimeMatrix() throws IOException {
+    TravelTimeMatrix matrix =
+        new TravelTimeMatrix(
+            List.of("Kovan", "Harbour, \"Front\""),
+            List.of("Kovan", "Kranji"),
+            new int[] {0, TravelTimeMatrix.UNREACHABLE, 12, 40});
+    StringBuilder out = new StringBuilder();
+
+    ResponseBuilder.appendTravelTimeMatrix(matrix, out);
+
+    assertEquals(
+        "source,Kovan,Kranji\nKovan,0,\n\"Harbour, \"\"Front\"\"\",12,40\n", out.toString());
+  }
+
+  @Test
+  public void testBuildIsochroneResponse() {
+    Station kovan = new Station(0, "NE4", "Kovan", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station hougang = new Station(1, "NE3", "Hougang", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station serangoon =
+        new Station(2, "NE5", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station serangoon2 =
+        new Station(3, "CC16", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Isochrone isochrone =
+        new Isochrone(
+            new int[] {5, 10, 15},
+            List.of(kovan, hougang, serangoon, serangoon2),
+            new int[] {0, 2, 6, 9});
+
+    assertEquals(
+        "Stations reachable from Kovan\nWithin 5 minutes:\nKovan: 0 minutes\nHougang: 2 minutes\n"
+            + "Within 10 minutes:\nSerangoon: 6 minutes\nWithin 15 minutes:\n",
+        ResponseBuilder.buildIsochroneResponse(isochrone));
+  }
+
+  @Test
+  public void testBuildProfileResponse() {
+    Station src = new Station(0, "EW1", "Pasir Ris", LocalDate.of(2021, 2, 21).atStartOfDay());
+    Station dest = new Station(1, "EW2", "Tampines", LocalDate.of(2021, 2, 21).atStartOfDay());
+    LocalDateTime firstDepartureDateTime = LocalDateTime.of(2021, 1, 28, 17, 0);
+    List<ProfileSegment> segments =
+        List.of(
+            new ProfileSegment(
+                firstDepartureDateTime,
+                firstDepartureDateTime.plusMinutes(59),
+                new Route(10, List.of(src, dest), TimeOfDay.NONPEAK)),
+            new ProfileSegment(
+                firstDepartureDateTime.plusMinutes(60),
+                firstDepartureDateTime.plusMinutes(90),
+                null));
+
+    assertEquals(
+        "Depart 2021-01-28T17:00 to 2021-01-28T17:59: 10 minutes, Route: [EW1, EW2]\n"
+            + "Depart 2021-01-28T18:00 to 2021-01-28T18:30: No route found\n",
+        ResponseBuilder.buildProfileResponse(segments));
+  }
 }
@@ -0,0 +1,99 @@
+package railwayrouter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.Test;
+import railwayrouter.models.Route;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+
+public class ResponseEncoderTest {
+  private static final Station PASIR_RIS =
+      new Station(0, "EW1", "Pasir Ris", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station TAMPINES =
+      new Station(1, "EW2", "Tampines", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station TAMPINES_2 =
+      new Station(2, "DT32", "Tampines", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station ODD_NAME =
+      new Station(3, "DT33", "Tampines \"\u00c9\\\n", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  private static final Route ROUTE =
+      new Route(123, List.of(PASIR_RIS, TAMPINES, TAMPINES_2, ODD_NAME), TimeOfDay.NONPEAK);
+
+  @Test
+  public void testEncodeTextSameAsResponseBuilder() {
+    assertEquals(
+        ResponseBuilder.buildResponse(ROUTE),
+        new String(encode(ROUTE, ResponseEncoder.Format.TEXT), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testEncodeJsonSameAsResponseBuilder() {
+    assertEquals(
+        ResponseBuilder.buildJsonResponse(ROUTE),
+        new String(encode(ROUTE, ResponseEncoder.Format.JSON), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testEncodeOneStation() {
+    Route route = new Route(0, List.of(ODD_NAME), TimeOfDay.PEAK);
+    assertEquals(
+        ResponseBuilder.buildResponse(route),
+        new String(encode(route, ResponseEncoder.Format.TEXT), StandardCharsets.UTF_8));
+    assertEquals(
+        ResponseBuilder.buildJsonResponse(route),
+        new String(encode(route, ResponseEncoder.Format.JSON), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testEncodeBinary() {
+    ByteBuffer buffer = ByteBuffer.wrap(encode(ROUTE, ResponseEncoder.Format.BINARY));
+    assertEquals(ResponseEncoder.BINARY_VERSION, buffer.get());
+    assertEquals(TimeOfDay.NONPEAK.ordinal(), buffer.get());
+    assertEquals(123, buffer.getInt());
+    assertEquals(4, buffer.getShort());
+    for (Station station : ROUTE.getStations()) {
+      byte[] lineCode = new byte[buffer.get()];
+      buffer.get(lineCode);
+      assertEquals(station.getLineCode(), new String(lineCode, StandardCharsets.UTF_8));
+      assertEquals(station.getNumber(), buffer.getInt());
+      byte[] name = new byte[buffer.getShort()];
+      buffer.get(name);
+      assertEquals(station.getName(), new String(name, StandardCharsets.UTF_8));
+    }
+    assertEquals(0, buffer.remaining());
+  }
+
+  @Test
+  public void testMaxLength() {
+    int maxLength = ResponseEncoder.getMaxLength(ROUTE);
+    for (ResponseEncoder.Format format : ResponseEncoder.Format.values()) {
+      assertTrue(encode(ROUTE, format).length <= maxLength);
+    }
+  }
+
+  @Test(expected = BufferOverflowException.class)
+  public void testEncodeOverflow() {
+    ResponseEncoder.encode(ROUTE, ResponseEncoder.Format.TEXT, ByteBuffer.allocate(16));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEncodeBinaryMinutesTooLarge() {
+    Route route = new Route(1L << 40, List.of(PASIR_RIS, TAMPINES), TimeOfDay.PEAK);
+    ResponseEncoder.encode(route, ResponseEncoder.Format.BINARY, ByteBuffer.allocate(1024));
+  }
+
+  private static byte[] encode(Route route, ResponseEncoder.Format format) {
+    ByteBuffer buffer = ByteBuffer.allocate(ResponseEncoder.getMaxLength(route));
+    ResponseEncoder.encode(route, format, buffer);
+    byte[] bytes = new byte[buffer.position()];
+    buffer.flip().get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,103 @@
+package railwayrouter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class StationMapLoaderTest {
+  private static final String HEADER = "Station Code,Station Name,Opening Date\n";
+
+  /** Records every row it receives */
+  private static class RecordingHandler implements StationMapLoader.StationHandler {
+    final List<String> stations = new ArrayList<>();
+    final List<String> malformedRows = new ArrayList<>();
+
+    @Override
+    public void onStation(String code, String name, LocalDateTime openingDate) {
+      stations.add(code + "|" + name + "|" + openingDate.toLocalDate());
+    }
+
+    @Override
+    public void onMalformedRow(long lineNumber, String line, String reason) {
+      malformedRows.add(lineNumber + ": " + reason);
+    }
+  }
+
+  private static RecordingHandler load(String csv) throws IOException {
+    RecordingHandler handler = new RecordingHandler();
+    StationMapLoader.load(new BufferedReader(new StringReader(csv)), handler);
+    return handler;
+  }
+
+  @Test
+  public void testLoad() throws IOException {
+    RecordingHandler handler =
+        load(
+            HEADER
+                + "NE2,Buangkok,7 January 2006\n"
+                + "NE3,Hougang,June 2003\n"
+                + "NE4,Kovan,20 June 2003\n"
+                + "\n"
+                + "CC1,\"Dhoby, \"\"Ghaut\"\"\",05 December 2009\n");
+
+    assertEquals(
+        List.of(
+            "NE2|Buangkok|2006-01-07",
+            "NE3|Hougang|2003-06-01",
+            "NE4|Kovan|2003-06-20",
+            "CC1|Dhoby, \"Ghaut\"|2009-12-05"),
+        handler.stations);
+    assertEquals(List.of(), handler.malformedRows);
+  }
+
+  @Test
+  public void testLoadMalformedRows() throws IOException {
+    RecordingHandler handler =
+        load(
+            HEADER
+                + "NE2,Buangkok\n"
+                + "Buangkok,7 January 2006,NE2\n"
+                + "NE3,Hougang,Jun 2003\n"
+                + "NE4,Kovan,31 June 2003\n"
+                + "NE5,\"Serangoon,1 June 2003\n"
+                + "NE6,Woodleigh,20 June 2003\n");
+
+    assertEquals(List.of("NE6|Woodleigh|2003-06-20"), handler.stations);
+    assertEquals(
+        List.of(
+            "2: expected 3 fields, found 2",
+            "3: invalid station code",
+            "4: invalid opening date",
+            "5: invalid opening date",
+            "6: unterminated quote"),
+        handler.malformedRows);
+  }
+
+  @Test
+  public void testParseDate() {
+    assertEquals(
+        LocalDate.of(1990, 3, 10).atStartOfDay(), StationMapLoader.parseDate("10 March 1990"));
+    assertEquals(
+        LocalDate.of(1990, 3, 1).atStartOfDay(), StationMapLoader.parseDate("1 March 1990"));
+    assertEquals(
+        LocalDate.of(1990, 3, 1).atStartOfDay(), StationMapLoader.parseDate("01 March 1990"));
+    assertEquals(LocalDate.of(1990, 3, 1).atStartOfDay(), StationMapLoader.parseDate("March 1990"));
+    assertEquals(
+        LocalDate.of(2020, 2, 29).atStartOfDay(), StationMapLoader.parseDate("29 February 2020"));
+    assertNull(StationMapLoader.parseDate("29 February 2021"));
+    assertNull(StationMapLoader.parseDate("0 March 1990"));
+    assertNull(StationMapLoader.parseDate("100 March 1990"));
+    assertNull(StationMapLoader.parseDate("10 march 1990"));
+    assertNull(StationMapLoader.parseDate("10 March 90"));
+    assertNull(StationMapLoader.parseDate("10 March"));
+    assertNull(StationMapLoader.parseDate(""));
+  }
+}
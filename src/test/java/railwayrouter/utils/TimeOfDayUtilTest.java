@@ -1,11 +1,13 @@
 package railwayrouter.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static railwayrouter.models.TimeOfDay.*;
-import static railwayrouter.utils.TimeOfDayUtil.getTimeOfDay;
+import static railwayrouter.utils.TimeOfDayUtil.*;
 
 import java.time.LocalDateTime;
 import org.junit.Test;
+import railwayrouter.models.TimeOfDay;
 
 public class TimeOfDayUtilTest {
   @Test
@@ -127,4 +129,78 @@ public class TimeOfDayUtilTest {
     LocalDateTime dateTime = LocalDateTime.of(2021, 01, 28, 15, 0);
     assertEquals(NONPEAK, getTimeOfDay(dateTime));
   }
+
+  @Test
+  public void testGetTimeOfDayEpochMinuteMatchesDateTime() {
+    LocalDateTime dateTime = LocalDateTime.of(2021, 01, 28, 0, 0);
+    for (int i = 0; i < MINUTES_PER_WEEK + MINUTES_PER_DAY; i++) {
+      assertEquals(getTimeOfDay(dateTime), getTimeOfDay(toEpochMinute(dateTime)));
+      dateTime = dateTime.plusMinutes(1);
+    }
+  }
+
+  @Test
+  public void testGetMinuteOfWeek() {
+    assertEquals(0, getMinuteOfWeek(toEpochMinute(LocalDateTime.of(2021, 01, 25, 0, 0))));
+    assertEquals(
+        MINUTES_PER_WEEK - 1,
+        getMinuteOfWeek(toEpochMinute(LocalDateTime.of(2021, 01, 31, 23, 59))));
+    // 1970-01-01 is a Thursday
+    assertEquals(3 * MINUTES_PER_DAY + 7 * 60, getMinuteOfWeek(7 * 60));
+  }
+
+  @Test
+  public void testGetMinuteOfWeekBeforeEpoch() {
+    assertEquals(0, getMinuteOfWeek(toEpochMinute(LocalDateTime.of(1969, 12, 29, 0, 0))));
+  }
+
+  @Test
+  public void testFromEpochMinute() {
+    LocalDateTime dateTime = LocalDateTime.of(2021, 01, 28, 7, 0);
+    assertEquals(dateTime, fromEpochMinute(toEpochMinute(dateTime)));
+  }
+
+  @Test
+  public void testGetMinutesUntilTimeOfDayChange() {
+    // Monday 0600 to 0900 is peak
+    assertEquals(181, getMinutesUntilTimeOfDayChange(6 * 60));
+    assertEquals(1, getMinutesUntilTimeOfDayChange(9 * 60));
+    // Friday 2101 to 2159 is non-peak
+    assertEquals(59, getMinutesUntilTimeOfDayChange(4 * MINUTES_PER_DAY + 21 * 60 + 1));
+    // Sunday 2200 to Monday 0559 is night, wrapping around the end of the week
+    assertEquals(8 * 60, getMinutesUntilTimeOfDayChange(6 * MINUTES_PER_DAY + 22 * 60));
+  }
+
+  @Test
+  public void testGetMinutesUntilTimeOfDayChangeMatchesDateTime() {
+    LocalDateTime dateTime = LocalDateTime.of(2021, 01, 25, 0, 0);
+    for (int i = 0; i < MINUTES_PER_WEEK; i += 7) {
+      int minutes = getMinutesUntilTimeOfDayChange(i);
+      TimeOfDay timeOfDay = getTimeOfDay(dateTime.plusMinutes(i));
+      assertEquals(timeOfDay, getTimeOfDay(dateTime.plusMinutes(i + minutes - 1)));
+      assertNotEquals(timeOfDay, getTimeOfDay(dateTime.plusMinutes(i + minutes)));
+    }
+  }
+
+  @Test
+  public void testGetMinutesSinceTimeOfDayChange() {
+    // Monday 0600 to 0900 is peak
+    assertEquals(1, getMinutesSinceTimeOfDayChange(6 * 60));
+    assertEquals(181, getMinutesSinceTimeOfDayChange(9 * 60));
+    // Friday 2101 to 2159 is non-peak
+    assertEquals(59, getMinutesSinceTimeOfDayChange(4 * MINUTES_PER_DAY + 21 * 60 + 59));
+    // Sunday 2200 to Monday 0559 is night, wrapping around the start of the week
+    assertEquals(8 * 60, getMinutesSinceTimeOfDayChange(5 * 60 + 59));
+  }
+
+  @Test
+  public void testGetMinutesSinceTimeOfDayChangeMatchesDateTime() {
+    LocalDateTime dateTime = LocalDateTime.of(2021, 01, 25, 0, 0);
+    for (int i = 0; i < MINUTES_PER_WEEK; i += 7) {
+      int minutes = getMinutesSinceTimeOfDayChange(i);
+      TimeOfDay timeOfDay = getTimeOfDay(dateTime.plusMinutes(i));
+      assertEquals(timeOfDay, getTimeOfDay(dateTime.plusMinutes(i - minutes + 1)));
+      assertNotEquals(timeOfDay, getTimeOfDay(dateTime.plusMinutes(i - minutes)));
+    }
+  }
 }
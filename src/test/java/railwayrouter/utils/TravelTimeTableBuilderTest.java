@@ -0,0 +1,80 @@
+package railwayrouter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import railwayrouter.models.CostModel;
+import railwayrouter.models.CsrGraph;
+import railwayrouter.models.FrequencyTable;
+import railwayrouter.models.Station;
+import railwayrouter.models.TimeOfDay;
+import railwayrouter.models.TravelTimeTable;
+
+public class TravelTimeTableBuilderTest {
+  private static final Station KOVAN =
+      new Station(0, "NE4", "Kovan", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON =
+      new Station(1, "NE5", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+  private static final Station SERANGOON_2 =
+      new Station(2, "CC16", "Serangoon", LocalDate.of(2021, 2, 21).atStartOfDay());
+
+  private static final CsrGraph GRAPH =
+      CsrGraph.fromAdjList(
+          List.of(KOVAN, SERANGOON, SERANGOON_2),
+          List.of(List.of(SERANGOON), List.of(KOVAN, SERANGOON_2), List.of(SERANGOON)));
+
+  private static final FrequencyTable FREQUENCY_TABLE =
+      new FrequencyTable(
+          Map.of(
+              TimeOfDay.PEAK, Map.of("NE", 12, "CC", 10, "lineChange", 15),
+              TimeOfDay.NIGHT, Map.of("NE", 10, "CC", Integer.MAX_VALUE, "lineChange", 10),
+              TimeOfDay.NONPEAK, Map.of("CC", 10, "lineChange", 10)),
+          "lineChange");
+
+  @Test
+  public void testBuild() {
+    CostModel costModel = CostModelCompiler.compile(GRAPH, FREQUENCY_TABLE);
+
+    TravelTimeTable travelTimeTable = TravelTimeTableBuilder.build(GRAPH, costModel);
+
+    assertArrayEquals(
+        new short[] {0, 12, 27}, travelTimeTable.getMinutes()[TimeOfDay.PEAK.ordinal()][0]);
+    assertArrayEquals(
+        new short[] {27, 15, 0}, travelTimeTable.getMinutes()[TimeOfDay.PEAK.ordinal()][2]);
+    assertArrayEquals(
+        new short[] {-1, 0, 1}, travelTimeTable.getPrec()[TimeOfDay.PEAK.ordinal()][0]);
+    assertArrayEquals(
+        new short[] {1, 2, -1}, travelTimeTable.getPrec()[TimeOfDay.PEAK.ordinal()][2]);
+    assertEquals(20, travelTimeTable.getTravelTime(TimeOfDay.NIGHT, 0, 2));
+  }
+
+  @Test
+  public void testBuildLineNotOperating() {
+    CostModel costModel = CostModelCompiler.compile(GRAPH, FREQUENCY_TABLE);
+
+    TravelTimeTable travelTimeTable = TravelTimeTableBuilder.build(GRAPH, costModel);
+
+    // NE line is not operating during non-peak hours
+    assertEquals(Integer.MAX_VALUE, travelTimeTable.getTravelTime(TimeOfDay.NONPEAK, 0, 1));
+    assertEquals(10, travelTimeTable.getTravelTime(TimeOfDay.NONPEAK, 1, 2));
+    assertEquals(-1, travelTimeTable.getPrecedingStationId(TimeOfDay.NONPEAK, 0, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBuildTooManyStations() {
+    List<Station> stations = new ArrayList<>();
+    List<List<Station>> adjList = new ArrayList<>();
+    for (int i = 0; i <= TravelTimeTable.MAX_STATIONS; i++) {
+      stations.add(new Station(i, "NE" + i, "Station " + i, KOVAN.getOpeningDate()));
+      adjList.add(new ArrayList<>());
+    }
+    CsrGraph graph = CsrGraph.fromAdjList(stations, adjList);
+
+    TravelTimeTableBuilder.build(graph, CostModelCompiler.compile(graph, FREQUENCY_TABLE));
+  }
+}